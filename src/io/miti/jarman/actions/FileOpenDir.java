@@ -0,0 +1,75 @@
+package io.miti.jarman.actions;
+
+import io.miti.jarman.util.JarProcessor;
+import io.miti.jarman.util.Utility;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
+
+import javax.swing.JFileChooser;
+
+/**
+ * The action listener for File | Open Directory, to let the user open
+ * a directory of java archives (such as a lib folder) or class files.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class FileOpenDir implements ActionListener
+{
+  /**
+   * The one instance of this class.
+   */
+  private static FileOpenDir handler = null;
+  
+  
+  /**
+   * The default constructor.
+   */
+  private FileOpenDir()
+  {
+    super();
+  }
+  
+  
+  /**
+   * Return the one instance of this class.
+   * 
+   * @return the one instance of this class
+   */
+  public static FileOpenDir getInstance()
+  {
+    if (handler == null)
+    {
+      handler = new FileOpenDir();
+    }
+    
+    return handler;
+  }
+  
+  
+  /**
+   * Perform the action.
+   * 
+   * @param e the event
+   */
+  @Override
+  public void actionPerformed(final ActionEvent e)
+  {
+    // Let the user select a directory
+    JFileChooser fc = new JFileChooser(Utility.getCurrentDir());
+    fc.setDialogTitle("Open Directory");
+    fc.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+    int rc = fc.showOpenDialog(null);
+    if (rc == JFileChooser.APPROVE_OPTION)
+    {
+      // Save the directory above the selected one
+      final File dir = fc.getSelectedFile();
+      Utility.setCurrentDir(fc.getCurrentDirectory());
+      
+      // Load the archives in the directory
+      new JarProcessor().processDirectory(dir);
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package io.miti.jarman.actions;
+
+import io.miti.jarman.gui.Jarman;
+import io.miti.jarman.util.JarProcessor;
+import io.miti.jarman.util.Utility;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+import javax.swing.JOptionPane;
+
+/**
+ * The action listener for File | Open Class Path, to let the user
+ * enter a class path string, such as "lib/*:target/classes".
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class FileOpenPath implements ActionListener
+{
+  /**
+   * The one instance of this class.
+   */
+  private static FileOpenPath handler = null;
+  
+  /**
+   * The last class path entered.
+   */
+  private String lastPath = "";
+  
+  
+  /**
+   * The default constructor.
+   */
+  private FileOpenPath()
+  {
+    super();
+  }
+  
+  
+  /**
+   * Return the one instance of this class.
+   * 
+   * @return the one instance of this class
+   */
+  public static FileOpenPath getInstance()
+  {
+    if (handler == null)
+    {
+      handler = new FileOpenPath();
+    }
+    
+    return handler;
+  }
+  
+  
+  /**
+   * Perform the action.
+   * 
+   * @param e the event
+   */
+  @Override
+  public void actionPerformed(final ActionEvent e)
+  {
+    // Let the user enter the class path
+    Object input = JOptionPane.showInputDialog(Jarman.getApp().getFrame(),
+        "Enter the class path (relative entries are in the working directory):",
+        "Open Class Path", JOptionPane.PLAIN_MESSAGE, null, null, lastPath);
+    if ((input == null) || Utility.isStringEmpty(input.toString().trim()))
+    {
+      return;
+    }
+    
+    // Load the jars in the class path
+    lastPath = input.toString().trim();
+    new JarProcessor().processClassPath(lastPath);
+  }
+}
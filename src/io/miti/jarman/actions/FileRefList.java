@@ -2,26 +2,24 @@ package io.miti.jarman.actions;
 
 import io.miti.jarman.data.JarData;
 import io.miti.jarman.dialog.MissingClassesDlg;
+import io.miti.jarman.gui.BackgroundTask;
 import io.miti.jarman.gui.Jarman;
-import io.miti.jarman.util.ClassParser;
+import io.miti.jarman.index.ReferenceGraph;
+import io.miti.jarman.util.ClassScanner;
+import io.miti.jarman.util.ClasspathVerifier;
+import io.miti.jarman.util.JarScanner;
 
-import java.awt.Cursor;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.io.IOException;
-import java.util.Enumeration;
-import java.util.HashSet;
+import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
 
 import javax.swing.JOptionPane;
 import javax.swing.SwingUtilities;
 
 import io.miti.jarman.actions.FileRefList;
-import io.miti.jarman.classref.ClassFileParser;
-import io.miti.jarman.classref.ClassInfo;
 
 /**
  * The action listener for File | List All, to let the user list
@@ -83,131 +81,134 @@ public final class FileRefList implements ActionListener
   
   
   /**
-   * Process the selected file.
+   * Process the selected file.  The jars are read from the data
+   * cache here, and parsed by a background task.
    */
   private void processFile()
   {
-    // Get the list of referenced classes
-    Cursor cursor = Jarman.getApp().getFrame().getCursor();
-    Jarman.getApp().getFrame().setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
-    Set<String> refs = getReferencedClasses();  // TODO Use the new parser
-    Jarman.getApp().getFrame().setCursor(cursor);
-    
-    // Check if any are found
-    if (refs.isEmpty())
+    // Get the list of jars that were found
+    List<String> jarNames = new ArrayList<String>(20);
+    int jarFileCount = JarData.getInstance().getJarFileCount();
+    for (int i = 0; i < jarFileCount; ++i)
     {
-      // The set is empty, so no referenced classes were found
-      JOptionPane.showMessageDialog(Jarman.getApp().getFrame(),
-                  "No referenced classes");
-      return;
+      Boolean found = (Boolean) JarData.getInstance().getJarFileValue(i, 0);
+      if (found.booleanValue())
+      {
+        jarNames.add((String) JarData.getInstance().getJarFileValue(i, 1));
+      }
     }
     
-    // Show the referenced classes
-    new MissingClassesDlg(refs, false);
+    // Get the list of referenced classes in the background
+    new RefListTask(jarNames).start();
+    Jarman.getApp().updateFileInfo();
   }
   
   
   /**
-   * Return the list of referenced classes.
-   * 
-   * @return the list of referenced classes
+   * The background task that lists the referenced classes.
    */
-  private Set<String> getReferencedClasses()
+  private static final class RefListTask extends BackgroundTask<Set<String>, Void>
   {
-    Set<String> refClasses = new HashSet<String>(10);
+    /**
+     * The builder for the graph of class references.
+     */
+    private ReferenceGraph.Builder graph = new ReferenceGraph.Builder();
     
-    // Iterate over all jars and get the classes referenced by each class
-    int jarFileCount = JarData.getInstance().getJarFileCount();
-    for (int i = 0; i < jarFileCount; ++i)
+    /**
+     * The graph of class references, once it is built.
+     */
+    private ReferenceGraph references = null;
+    
+    /**
+     * The names of the jars to parse.
+     */
+    private List<String> jarNames = null;
+    
+    
+    /**
+     * Constructor.
+     * 
+     * @param pJarNames the names of the jars to parse
+     */
+    public RefListTask(final List<String> pJarNames)
     {
-      // Verify the jar was found
-      Boolean found = (Boolean) JarData.getInstance().getJarFileValue(i, 0);
-      if (!found.booleanValue())
+      super("Listing referenced classes");
+      jarNames = pJarNames;
+    }
+    
+    
+    /**
+     * Return the list of referenced classes.
+     * 
+     * @return the list of referenced classes
+     */
+    @Override
+    protected Set<String> doInBackground()
+    {
+      List<File> jars = new ArrayList<File>(jarNames.size());
+      for (String jarName : jarNames)
       {
-        continue;
+        jars.add(new File(jarName));
       }
       
-      // Get all classes in the jar
-      String jarName = (String) JarData.getInstance().getJarFileValue(i, 1);
-      try
+      // Parse the classes in all jars
+      setStatusText("Parsing " + jars.size() + " jars");
+      ClasspathVerifier verifier = new ClasspathVerifier(
+                    JarScanner.getDefaultPoolSize(), JarData.getParseCache());
+      Set<String> classes = verifier.findReferences(jars, graph,
+                                 new ClassScanner.ScanListener()
       {
-        JarFile jar = new JarFile(jarName);
-        Enumeration<JarEntry> entries = jar.entries();
-        while (entries.hasMoreElements())
+        @Override
+        public void jarScanned(final File jar, final int done, final int total)
         {
-          JarEntry entry = entries.nextElement();
-          List<String> refs = new ClassParser().getReferences(jar, entry);
-          if (refs != null)
-          {
-            // Add each item in the list to the set
-            for (String ref : refs)
-            {
-              refClasses.add(ref);
-            }
-          }
+          setStatusText("Parsed " + jar.getName() +
+                        " (" + done + " of " + total + ")");
+          setProgress(done, total);
         }
-      }
-      catch (IOException e1)
-      {
-        e1.printStackTrace();
-      }
+        
+        @Override
+        public boolean isCancelled()
+        {
+          return RefListTask.this.isCancelled();
+        }
+      });
+      
+      // Build the reference graph here, off the event thread
+      references = graph.build();
+      graph = null;
+      return classes;
     }
     
-    return refClasses;
-  }
-  
-  
-  /**
-   * Return the list of referenced classes using the newer class file parser.
-   * 
-   * @return the list of referenced classes
-   */
-  @SuppressWarnings("unused")
-  private Set<String> getReferencedClasses2()
-  {
-    Set<String> refClasses = new HashSet<String>(10);
     
-    // Iterate over all jars and get the classes referenced by each class
-    int jarFileCount = JarData.getInstance().getJarFileCount();
-    for (int i = 0; i < jarFileCount; ++i)
+    /**
+     * Show the referenced classes.
+     * 
+     * @param refs the set of referenced classes
+     * @param cancelled whether the task was cancelled
+     */
+    @Override
+    protected void finished(final Set<String> refs, final boolean cancelled)
     {
-      // Verify the jar was found
-      Boolean found = (Boolean) JarData.getInstance().getJarFileValue(i, 0);
-      if (!found.booleanValue())
+      Jarman.getApp().updateFileInfo();
+      if (cancelled)
       {
-        continue;
+        return;
       }
       
-      // Get all classes in the jar
-      String jarName = (String) JarData.getInstance().getJarFileValue(i, 1);
-      try
-      {
-        JarFile jar = new JarFile(jarName);
-        Enumeration<JarEntry> entries = jar.entries();
-        while (entries.hasMoreElements())
-        {
-          JarEntry entry = entries.nextElement();
-          ClassInfo ci = new ClassFileParser().parseClassFile(jar, entry);
-          if ((ci != null) && (ci.isValid()))
-          {
-            final Set<String> refs = ci.getClassNamesSet();
-            if (refs != null)
-            {
-              // Add each item in the list to the set
-              for (String ref : refs)
-              {
-                refClasses.add(ref);
-              }
-            }
-          }
-        }
-      }
-      catch (IOException e1)
+      // Save the references, so the dialogs can show the referrers
+      JarData.getInstance().setReferenceGraph(references);
+      
+      // Check if any are found
+      if (refs.isEmpty())
       {
-        e1.printStackTrace();
+        // The set is empty, so no referenced classes were found
+        JOptionPane.showMessageDialog(Jarman.getApp().getFrame(),
+                    "No referenced classes");
+        return;
       }
+      
+      // Show the referenced classes
+      new MissingClassesDlg(refs, false);
     }
-    
-    return refClasses;
   }
 }
@@ -1,23 +1,20 @@
 package io.miti.jarman.actions;
 
-import io.miti.jarman.data.FileData;
 import io.miti.jarman.data.JarData;
 import io.miti.jarman.dialog.MissingClassesDlg;
+import io.miti.jarman.gui.BackgroundTask;
 import io.miti.jarman.gui.Jarman;
-import io.miti.jarman.util.ClassParser;
-import io.miti.jarman.util.SystemPathList;
+import io.miti.jarman.index.ReferenceGraph;
+import io.miti.jarman.util.ClassScanner;
+import io.miti.jarman.util.ClasspathVerifier;
+import io.miti.jarman.util.JarScanner;
 
-import java.awt.Cursor;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.io.IOException;
-import java.util.Enumeration;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
 
 import javax.swing.JOptionPane;
 import javax.swing.SwingUtilities;
@@ -85,106 +82,145 @@ public final class FileVerify implements ActionListener
   
   
   /**
-   * Process the selected file.
+   * Process the selected file.  The class names and jars are read
+   * from the data cache here, and the jars are parsed by a
+   * background task.
    */
   private void processFile()
   {
-    // Get the list of missing classes
-    Cursor cursor = Jarman.getApp().getFrame().getCursor();
-    Jarman.getApp().getFrame().setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
-    Set<String> missing = getMissingClasses();
-    Jarman.getApp().getFrame().setCursor(cursor);
+    // Get a list of all classes that we're showing
+    Set<String> jarset = JarData.getInstance().getClassNames();
     
-    // Check if any are missing
-    if (missing.isEmpty())
+    // Get the list of jars that were found
+    List<String> jarNames = new ArrayList<String>(20);
+    int jarFileCount = JarData.getInstance().getJarFileCount();
+    for (int i = 0; i < jarFileCount; ++i)
     {
-      // The set is empty, so all referenced classes were found
-      JOptionPane.showMessageDialog(Jarman.getApp().getFrame(),
-                  "No missing classes");
-      return;
+      Boolean found = (Boolean) JarData.getInstance().getJarFileValue(i, 0);
+      if (found.booleanValue())
+      {
+        jarNames.add((String) JarData.getInstance().getJarFileValue(i, 1));
+      }
     }
     
-    // Show the missing classes
-    new MissingClassesDlg(missing, true);
+    // Look for the missing classes in the background
+    new VerifyTask(jarset, jarNames).start();
+    Jarman.getApp().updateFileInfo();
   }
   
   
   /**
-   * Return the list of missing classes.
-   * 
-   * @return the list of missing classes
+   * The background task that finds the missing classes.
    */
-  private Set<String> getMissingClasses()
+  private static final class VerifyTask extends BackgroundTask<Set<String>, Void>
   {
-    Set<String> missingClasses = new HashSet<String>(10);
+    /**
+     * The builder for the graph of class references.
+     */
+    private ReferenceGraph.Builder graph = new ReferenceGraph.Builder();
     
-    // Get a list of all system classes
-    Set<String> sysset = new SystemPathList().getList();
+    /**
+     * The graph of class references, once it is built.
+     */
+    private ReferenceGraph references = null;
+    
+    /**
+     * The set of classes in the loaded jars.
+     */
+    private Set<String> jarset = null;
+    
+    /**
+     * The names of the jars to verify.
+     */
+    private List<String> jarNames = null;
     
-    // Get a list of all classes that we're showing
-    Set<String> jarset = new HashSet<String>(20);
-    Iterator<FileData> allData = JarData.getInstance().getAllFileData();
-    if (allData == null)
-    {
-      return missingClasses;
-    }
     
-    // Iterate over all the file data
-    while (allData.hasNext())
+    /**
+     * Constructor.
+     * 
+     * @param pJarset the set of classes in the loaded jars
+     * @param pJarNames the names of the jars to verify
+     */
+    public VerifyTask(final Set<String> pJarset, final List<String> pJarNames)
     {
-      // Get the next element and check if the name ends with .class
-      FileData fd = allData.next();
-      String name = fd.getFullPath();
-      if (name.endsWith(".class"))
-      {
-        // It does, so save it without the .class
-        jarset.add(name.substring(0, name.length() - 6));
-      }
+      super("Verifying");
+      jarset = pJarset;
+      jarNames = pJarNames;
     }
     
-    // Iterate over all jars and get the classes referenced by each class
-    int jarFileCount = JarData.getInstance().getJarFileCount();
-    for (int i = 0; i < jarFileCount; ++i)
+    
+    /**
+     * Return the list of missing classes.
+     * 
+     * @return the list of missing classes
+     */
+    @Override
+    protected Set<String> doInBackground()
     {
-      // Verify the jar was found
-      Boolean found = (Boolean) JarData.getInstance().getJarFileValue(i, 0);
-      if (!found.booleanValue())
+      List<File> jars = new ArrayList<File>(jarNames.size());
+      for (String jarName : jarNames)
       {
-        continue;
+        jars.add(new File(jarName));
       }
       
-      // Get all classes in the jar
-      String jarName = (String) JarData.getInstance().getJarFileValue(i, 1);
-      try
+      // Parse the classes in all jars, and check their references
+      setStatusText("Verifying " + jars.size() + " jars");
+      ClasspathVerifier verifier = new ClasspathVerifier(
+                    JarScanner.getDefaultPoolSize(), JarData.getParseCache());
+      Set<String> classes = verifier.findMissing(jars, jarset, graph,
+                                 new ClassScanner.ScanListener()
       {
-        JarFile jar = new JarFile(jarName);
-        Enumeration<JarEntry> entries = jar.entries();
-        while (entries.hasMoreElements())
+        @Override
+        public void jarScanned(final File jar, final int done, final int total)
+        {
+          setStatusText("Verified " + jar.getName() +
+                        " (" + done + " of " + total + ")");
+          setProgress(done, total);
+        }
+        
+        @Override
+        public boolean isCancelled()
         {
-          JarEntry entry = entries.nextElement();
-          List<String> refs = new ClassParser().getReferences(jar, entry);
-          if (refs != null)
-          {
-            // Check that each entry is in the classpath
-            int size = refs.size();
-            for (int j = 0; j < size; ++j)
-            {
-              String ref = refs.get(j);
-              if (!jarset.contains(ref) &&
-                  !sysset.contains(ref))
-              {
-                missingClasses.add(ref);
-              }
-            }
-          }
+          return VerifyTask.this.isCancelled();
         }
+      });
+      
+      // Build the reference graph here, off the event thread
+      references = graph.build();
+      graph = null;
+      return classes;
+    }
+    
+    
+    /**
+     * Show the missing classes.
+     * 
+     * @param missing the set of missing classes
+     * @param cancelled whether the task was cancelled
+     */
+    @Override
+    protected void finished(final Set<String> missing, final boolean cancelled)
+    {
+      Jarman.getApp().updateFileInfo();
+      if (cancelled)
+      {
+        return;
       }
-      catch (IOException e1)
+      
+      // Save the references, so the dialogs can show the referrers
+      JarData.getInstance().setReferenceGraph(references);
+      
+      // Check if any are missing
+      if (missing.isEmpty())
       {
-        e1.printStackTrace();
+        // The set is empty, so all referenced classes were found
+        JOptionPane.showMessageDialog(Jarman.getApp().getFrame(),
+                    "No missing classes");
+        return;
       }
+      
+      // Show the missing classes
+      new MissingClassesDlg(missing, true);
     }
-    
-    return missingClasses;
   }
 }
@@ -0,0 +1,203 @@
+package io.miti.jarman.actions;
+
+import io.miti.jarman.data.JarData;
+import io.miti.jarman.dialog.ReachabilityDlg;
+import io.miti.jarman.gui.BackgroundTask;
+import io.miti.jarman.gui.Jarman;
+import io.miti.jarman.index.ReferenceGraph;
+import io.miti.jarman.util.ClassScanner;
+import io.miti.jarman.util.ClasspathVerifier;
+import io.miti.jarman.util.ReachabilityAnalyzer;
+import io.miti.jarman.util.WindowState;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
+import java.util.List;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * The action listener for Tools | Reachable Classes, to let the user
+ * see which classes in the loaded jars can be reached from the
+ * Main-Class and the service providers, and how much of each jar
+ * cannot.  The graph of class references from the last verify is
+ * used if there is one; otherwise the classes are parsed first.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class FindReachable implements ActionListener
+{
+  /**
+   * The one instance of this class.
+   */
+  private static FindReachable handler = null;
+  
+  
+  /**
+   * The default constructor.
+   */
+  private FindReachable()
+  {
+    super();
+  }
+  
+  
+  /**
+   * Return the one instance of this class.
+   * 
+   * @return the one instance of this class
+   */
+  public static FindReachable getInstance()
+  {
+    if (handler == null)
+    {
+      handler = new FindReachable();
+    }
+    
+    return handler;
+  }
+  
+  
+  /**
+   * Perform the action.
+   * 
+   * @param e the event
+   */
+  @Override
+  public void actionPerformed(final ActionEvent e)
+  {
+    SwingUtilities.invokeLater(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        new ReachTask(JarData.getInstance().getFoundJars(),
+                      JarData.getInstance().getReferenceGraph(),
+                      JarData.getInstance().getMainClass()).start();
+        Jarman.getApp().updateFileInfo();
+      }
+    });
+  }
+  
+  
+  /**
+   * The background task that builds the reference graph if needed,
+   * and walks it from the entry points.
+   */
+  private static final class ReachTask
+    extends BackgroundTask<ReachabilityAnalyzer.Result, Void>
+  {
+    /**
+     * The jars to analyze, in classpath order.
+     */
+    private List<File> jars = null;
+    
+    /**
+     * The graph of class references, or null if it must be built.
+     */
+    private ReferenceGraph references = null;
+    
+    /**
+     * Whether the graph was built by this task.
+     */
+    private boolean built = false;
+    
+    /**
+     * The Main-Class of the manifest, or null.
+     */
+    private String mainClass = null;
+    
+    
+    /**
+     * Constructor.
+     * 
+     * @param pJars the jars to analyze
+     * @param pGraph the graph of class references, or null
+     * @param sMainClass the Main-Class of the manifest, or null
+     */
+    public ReachTask(final List<File> pJars, final ReferenceGraph pGraph,
+                     final String sMainClass)
+    {
+      super("Finding reachable classes");
+      jars = pJars;
+      references = pGraph;
+      mainClass = sMainClass;
+    }
+    
+    
+    /**
+     * Find the reachable classes.
+     * 
+     * @return the result of the analysis
+     */
+    @Override
+    protected ReachabilityAnalyzer.Result doInBackground()
+    {
+      final int threads = WindowState.getInstance().getScanThreads();
+      final ClassScanner.ScanListener listener = new ClassScanner.ScanListener()
+      {
+        @Override
+        public void jarScanned(final File jar, final int done, final int total)
+        {
+          setStatusText("Read " + jar.getName() +
+                        " (" + done + " of " + total + ")");
+          setProgress(done, total);
+        }
+        
+        @Override
+        public boolean isCancelled()
+        {
+          return ReachTask.this.isCancelled();
+        }
+      };
+      
+      // Parse the classes to get their references, if no verify has
+      if (references == null)
+      {
+        setStatusText("Parsing classes in " + jars.size() + " jars");
+        ReferenceGraph.Builder graph = new ReferenceGraph.Builder();
+        new ClasspathVerifier(threads, JarData.getParseCache())
+              .findReferences(jars, graph, listener);
+        if (isCancelled())
+        {
+          return null;
+        }
+        
+        references = graph.build();
+        built = true;
+      }
+      
+      setStatusText("Walking the class references");
+      return new ReachabilityAnalyzer(threads).analyze(jars, references,
+                                                       mainClass, listener);
+    }
+    
+    
+    /**
+     * Show the result.
+     * 
+     * @param result the result of the analysis
+     * @param cancelled whether the task was cancelled
+     */
+    @Override
+    protected void finished(final ReachabilityAnalyzer.Result result,
+                            final boolean cancelled)
+    {
+      Jarman.getApp().updateFileInfo();
+      if (built)
+      {
+        // Save the references, so the dialogs can show the referrers
+        JarData.getInstance().setReferenceGraph(references);
+      }
+      
+      if (cancelled || (result == null))
+      {
+        return;
+      }
+      
+      new ReachabilityDlg(result);
+    }
+  }
+}
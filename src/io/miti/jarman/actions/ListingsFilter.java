@@ -1,6 +1,6 @@
 package io.miti.jarman.actions;
 
-import io.miti.jarman.util.Utility;
+import io.miti.jarman.util.ClassPathFinder;
 
 import java.io.File;
 
@@ -42,16 +42,8 @@ public final class ListingsFilter extends FileFilter
       return true;
     }
     
-    // Get the file's extension (might be null)
-    String ext = Utility.getExtension(f);
-    if (ext == null)
-    {
-      return false;
-    }
-    
     // Check the extension
-    boolean match = (ext.equals("jar"));
-    return match;
+    return ClassPathFinder.isArchive(f);
   }
 
 
@@ -63,6 +55,6 @@ public final class ListingsFilter extends FileFilter
   @Override
   public String getDescription()
   {
-    return "Java Archives (*.jar)";
+    return "Java Archives (*.jar, *.war, *.ear, *.zip)";
   }
 }
@@ -0,0 +1,238 @@
+package io.miti.jarman.actions;
+
+import io.miti.jarman.classref.ClassReader;
+import io.miti.jarman.data.JarData;
+import io.miti.jarman.dialog.AnnotationSearchDlg;
+import io.miti.jarman.gui.BackgroundTask;
+import io.miti.jarman.gui.Jarman;
+import io.miti.jarman.index.AnnotationIndex;
+import io.miti.jarman.index.AnnotationList;
+import io.miti.jarman.index.ParseCache;
+import io.miti.jarman.util.ClassScanner;
+import io.miti.jarman.util.NestedArchive;
+import io.miti.jarman.util.ScanCache;
+import io.miti.jarman.util.WindowState;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.JarEntry;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * The action listener for Tools | Search Annotations, to let the user
+ * find the classes, fields and methods in the loaded jars that have an
+ * annotation.  The index of annotations is built the first time it is
+ * needed, and kept until another file is opened.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class SearchAnnotations implements ActionListener
+{
+  /**
+   * The one instance of this class.
+   */
+  private static SearchAnnotations handler = null;
+  
+  
+  /**
+   * The default constructor.
+   */
+  private SearchAnnotations()
+  {
+    super();
+  }
+  
+  
+  /**
+   * Return the one instance of this class.
+   * 
+   * @return the one instance of this class
+   */
+  public static SearchAnnotations getInstance()
+  {
+    if (handler == null)
+    {
+      handler = new SearchAnnotations();
+    }
+    
+    return handler;
+  }
+  
+  
+  /**
+   * Perform the action.
+   * 
+   * @param e the event
+   */
+  @Override
+  public void actionPerformed(final ActionEvent e)
+  {
+    SwingUtilities.invokeLater(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        showSearch();
+      }
+    });
+  }
+  
+  
+  /**
+   * Show the search dialog, building the index first if needed.
+   */
+  private void showSearch()
+  {
+    final AnnotationIndex index = JarData.getInstance().getAnnotationIndex();
+    if (index != null)
+    {
+      new AnnotationSearchDlg(index);
+      return;
+    }
+    
+    new IndexTask(JarData.getInstance().getFoundJars()).start();
+    Jarman.getApp().updateFileInfo();
+  }
+  
+  
+  /**
+   * The background task that builds the index of annotations.  The
+   * annotations of a jar are taken from the scan cache if the jar is
+   * unchanged, so only new or changed jars are read, and the lists
+   * read are saved in the cache for next time.
+   */
+  private static final class IndexTask extends BackgroundTask<AnnotationIndex, Void>
+  {
+    /**
+     * The jars to index.
+     */
+    private List<File> jars = null;
+    
+    
+    /**
+     * Constructor.
+     * 
+     * @param pJars the jars to index
+     */
+    public IndexTask(final List<File> pJars)
+    {
+      super("Indexing annotations");
+      jars = pJars;
+    }
+    
+    
+    /**
+     * Build the index.
+     * 
+     * @return the annotation index
+     */
+    @Override
+    protected AnnotationIndex doInBackground()
+    {
+      // Get the cached lists, and find the jars that must be read
+      setStatusText("Indexing annotations in " + jars.size() + " jars");
+      final ScanCache cache = ScanCache.getInstance();
+      final AnnotationList[] lists = new AnnotationList[jars.size()];
+      final List<File> readJars = new ArrayList<File>(jars.size());
+      final List<Integer> readIndexes = new ArrayList<Integer>(jars.size());
+      for (int i = 0; i < lists.length; ++i)
+      {
+        final File jar = jars.get(i);
+        lists[i] = NestedArchive.isNested(jar) ? null : cache.getAnnotations(jar);
+        if (lists[i] == null)
+        {
+          lists[i] = new AnnotationList();
+          readJars.add(jar);
+          readIndexes.add(Integer.valueOf(i));
+        }
+      }
+      
+      // The annotations are after the members, so read whole classes
+      final int cached = jars.size() - readJars.size();
+      ClassScanner scanner = new ClassScanner(WindowState.getInstance().getScanThreads());
+      scanner.scan(readJars, false, new ClassScanner.ClassHandler()
+      {
+        @Override
+        public void classRead(final int jar, final int index,
+                              final JarEntry entry, final ClassReader reader)
+        {
+          lists[readIndexes.get(jar).intValue()].add(reader);
+        }
+        
+        @Override
+        public void classCached(final int jar, final int index,
+                                final JarEntry entry,
+                                final ParseCache.Entry parsed)
+        {
+          // The scanner has no cache
+        }
+      }, new ClassScanner.ScanListener()
+      {
+        @Override
+        public void jarScanned(final File jar, final int done, final int total)
+        {
+          setStatusText("Indexed " + jar.getName() +
+                        " (" + (cached + done) + " of " + jars.size() + ")");
+          setProgress(cached + done, jars.size());
+        }
+        
+        @Override
+        public boolean isCancelled()
+        {
+          return IndexTask.this.isCancelled();
+        }
+      });
+      
+      if (isCancelled())
+      {
+        return null;
+      }
+      
+      // Save the new lists in the cache
+      for (Integer index : readIndexes)
+      {
+        final File jar = jars.get(index.intValue());
+        if (!NestedArchive.isNested(jar))
+        {
+          cache.putAnnotations(jar, lists[index.intValue()]);
+        }
+      }
+      
+      cache.save();
+      
+      // Build the index
+      final AnnotationIndex.Builder builder = new AnnotationIndex.Builder(jars);
+      for (int i = 0; i < lists.length; ++i)
+      {
+        builder.add(i, lists[i]);
+      }
+      
+      return builder.build();
+    }
+    
+    
+    /**
+     * Save the index, and show the search dialog.
+     * 
+     * @param index the annotation index
+     * @param cancelled whether the task was cancelled
+     */
+    @Override
+    protected void finished(final AnnotationIndex index, final boolean cancelled)
+    {
+      Jarman.getApp().updateFileInfo();
+      if (cancelled || (index == null))
+      {
+        return;
+      }
+      
+      JarData.getInstance().setAnnotationIndex(index);
+      new AnnotationSearchDlg(index);
+    }
+  }
+}
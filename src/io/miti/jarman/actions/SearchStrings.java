@@ -0,0 +1,192 @@
+package io.miti.jarman.actions;
+
+import io.miti.jarman.classref.ClassReader;
+import io.miti.jarman.data.JarData;
+import io.miti.jarman.dialog.StringSearchDlg;
+import io.miti.jarman.gui.BackgroundTask;
+import io.miti.jarman.gui.Jarman;
+import io.miti.jarman.index.ParseCache;
+import io.miti.jarman.index.StringIndex;
+import io.miti.jarman.util.ClassScanner;
+import io.miti.jarman.util.WindowState;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
+import java.util.List;
+import java.util.jar.JarEntry;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * The action listener for Tools | Search Strings, to let the user find
+ * the classes in the loaded jars that hold a string constant.  The
+ * index of strings is built the first time it is needed, and kept
+ * until another file is opened.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class SearchStrings implements ActionListener
+{
+  /**
+   * The one instance of this class.
+   */
+  private static SearchStrings handler = null;
+  
+  
+  /**
+   * The default constructor.
+   */
+  private SearchStrings()
+  {
+    super();
+  }
+  
+  
+  /**
+   * Return the one instance of this class.
+   * 
+   * @return the one instance of this class
+   */
+  public static SearchStrings getInstance()
+  {
+    if (handler == null)
+    {
+      handler = new SearchStrings();
+    }
+    
+    return handler;
+  }
+  
+  
+  /**
+   * Perform the action.
+   * 
+   * @param e the event
+   */
+  @Override
+  public void actionPerformed(final ActionEvent e)
+  {
+    SwingUtilities.invokeLater(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        showSearch();
+      }
+    });
+  }
+  
+  
+  /**
+   * Show the search dialog, building the index first if needed.
+   */
+  private void showSearch()
+  {
+    final StringIndex index = JarData.getInstance().getStringIndex();
+    if (index != null)
+    {
+      new StringSearchDlg(index);
+      return;
+    }
+    
+    new IndexTask(JarData.getInstance().getFoundJars()).start();
+    Jarman.getApp().updateFileInfo();
+  }
+  
+  
+  /**
+   * The background task that builds the index of string constants.
+   * The cache of parsed classes does not keep the constant pool, so
+   * the classes are read again.
+   */
+  private static final class IndexTask extends BackgroundTask<StringIndex, Void>
+  {
+    /**
+     * The jars to index.
+     */
+    private List<File> jars = null;
+    
+    
+    /**
+     * Constructor.
+     * 
+     * @param pJars the jars to index
+     */
+    public IndexTask(final List<File> pJars)
+    {
+      super("Indexing strings");
+      jars = pJars;
+    }
+    
+    
+    /**
+     * Build the index.
+     * 
+     * @return the string index
+     */
+    @Override
+    protected StringIndex doInBackground()
+    {
+      // Only the constant pool is needed, so read just the headers
+      setStatusText("Indexing strings in " + jars.size() + " jars");
+      final StringIndex.Builder builder = new StringIndex.Builder(jars);
+      ClassScanner scanner = new ClassScanner(WindowState.getInstance().getScanThreads());
+      scanner.scan(jars, true, new ClassScanner.ClassHandler()
+      {
+        @Override
+        public void classRead(final int jar, final int index,
+                              final JarEntry entry, final ClassReader reader)
+        {
+          builder.add(jar, reader);
+        }
+        
+        @Override
+        public void classCached(final int jar, final int index,
+                                final JarEntry entry,
+                                final ParseCache.Entry cached)
+        {
+          // The scanner has no cache
+        }
+      }, new ClassScanner.ScanListener()
+      {
+        @Override
+        public void jarScanned(final File jar, final int done, final int total)
+        {
+          setStatusText("Indexed " + jar.getName() +
+                        " (" + done + " of " + total + ")");
+          setProgress(done, total);
+        }
+        
+        @Override
+        public boolean isCancelled()
+        {
+          return IndexTask.this.isCancelled();
+        }
+      });
+      
+      return isCancelled() ? null : builder.build();
+    }
+    
+    
+    /**
+     * Save the index, and show the search dialog.
+     * 
+     * @param index the string index
+     * @param cancelled whether the task was cancelled
+     */
+    @Override
+    protected void finished(final StringIndex index, final boolean cancelled)
+    {
+      Jarman.getApp().updateFileInfo();
+      if (cancelled || (index == null))
+      {
+        return;
+      }
+      
+      JarData.getInstance().setStringIndex(index);
+      new StringSearchDlg(index);
+    }
+  }
+}
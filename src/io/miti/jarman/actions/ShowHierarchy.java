@@ -0,0 +1,175 @@
+package io.miti.jarman.actions;
+
+import io.miti.jarman.data.JarData;
+import io.miti.jarman.dialog.HierarchyDlg;
+import io.miti.jarman.gui.BackgroundTask;
+import io.miti.jarman.gui.Jarman;
+import io.miti.jarman.index.ClassHeaderTable;
+import io.miti.jarman.index.ClassHierarchy;
+import io.miti.jarman.util.ClassScanner;
+import io.miti.jarman.util.WindowState;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
+import java.util.List;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * The action listener for Tools | Class Hierarchy, to let the user see
+ * the classes that extend or implement a class in the loaded jars.  The
+ * hierarchy is built from the class headers the first time it is
+ * needed, and kept until another file is opened.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class ShowHierarchy implements ActionListener
+{
+  /**
+   * The one instance of this class.
+   */
+  private static ShowHierarchy handler = null;
+  
+  
+  /**
+   * The default constructor.
+   */
+  private ShowHierarchy()
+  {
+    super();
+  }
+  
+  
+  /**
+   * Return the one instance of this class.
+   * 
+   * @return the one instance of this class
+   */
+  public static ShowHierarchy getInstance()
+  {
+    if (handler == null)
+    {
+      handler = new ShowHierarchy();
+    }
+    
+    return handler;
+  }
+  
+  
+  /**
+   * Perform the action.
+   * 
+   * @param e the event
+   */
+  @Override
+  public void actionPerformed(final ActionEvent e)
+  {
+    SwingUtilities.invokeLater(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        showHierarchy();
+      }
+    });
+  }
+  
+  
+  /**
+   * Show the hierarchy dialog, building the hierarchy first if needed.
+   */
+  private void showHierarchy()
+  {
+    final ClassHierarchy hierarchy = JarData.getInstance().getClassHierarchy();
+    if (hierarchy != null)
+    {
+      new HierarchyDlg(hierarchy);
+      return;
+    }
+    
+    new HierarchyTask(JarData.getInstance().getFoundJars()).start();
+    Jarman.getApp().updateFileInfo();
+  }
+  
+  
+  /**
+   * The background task that reads the class headers and builds the
+   * hierarchy.  Classes in the cache of parsed classes are not read
+   * again.
+   */
+  private static final class HierarchyTask extends BackgroundTask<ClassHierarchy, Void>
+  {
+    /**
+     * The jars to read.
+     */
+    private List<File> jars = null;
+    
+    
+    /**
+     * Constructor.
+     * 
+     * @param pJars the jars to read
+     */
+    public HierarchyTask(final List<File> pJars)
+    {
+      super("Reading class headers");
+      jars = pJars;
+    }
+    
+    
+    /**
+     * Build the hierarchy.
+     * 
+     * @return the class hierarchy
+     */
+    @Override
+    protected ClassHierarchy doInBackground()
+    {
+      setStatusText("Reading class headers in " + jars.size() + " jars");
+      ClassScanner scanner = new ClassScanner(
+                    WindowState.getInstance().getScanThreads(),
+                    JarData.getParseCache());
+      ClassHeaderTable table = scanner.readHeaders(jars,
+                                 new ClassScanner.ScanListener()
+      {
+        @Override
+        public void jarScanned(final File jar, final int done, final int total)
+        {
+          setStatusText("Read " + jar.getName() +
+                        " (" + done + " of " + total + ")");
+          setProgress(done, total);
+        }
+        
+        @Override
+        public boolean isCancelled()
+        {
+          return HierarchyTask.this.isCancelled();
+        }
+      });
+      
+      return isCancelled() ? null : new ClassHierarchy(table);
+    }
+    
+    
+    /**
+     * Save the hierarchy, and show the dialog.
+     * 
+     * @param hierarchy the class hierarchy
+     * @param cancelled whether the task was cancelled
+     */
+    @Override
+    protected void finished(final ClassHierarchy hierarchy, final boolean cancelled)
+    {
+      Jarman.getApp().updateFileInfo();
+      if (cancelled || (hierarchy == null))
+      {
+        return;
+      }
+      
+      JarData.getInstance().setClassHierarchy(hierarchy);
+      new HierarchyDlg(hierarchy);
+    }
+  }
+}
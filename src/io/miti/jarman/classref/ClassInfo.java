@@ -2,15 +2,11 @@ package io.miti.jarman.classref;
 
 import io.miti.jarman.util.Utility;
 
-import java.awt.Point;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.Map.Entry;
 
 import io.miti.jarman.classref.FieldMethodInfo;
 
@@ -43,9 +39,9 @@ public final class ClassInfo
   private int javaVersion = 0;
   
   /**
-   * List of all strings in the constant pool.
+   * The constant pool.
    */
-  private Map<Integer, String> cpStrings = null;
+  private ConstantPool pool = null;
   
   /**
    * The class access flags.
@@ -67,56 +63,6 @@ public final class ClassInfo
    */
   private List<String> interfaces = null;
   
-  /**
-   * The integer constants in the pool.
-   */
-  private List<Integer> arrayInt = null;
-  
-  /**
-   * The float constants in the pool.
-   */
-  private List<Float> arrayFloat = null;
-  
-  /**
-   * The long constants in the pool.
-   */
-  private List<Long> arrayLong = null;
-  
-  /**
-   * The double constants in the pool.
-   */
-  private List<Double> arrayDouble = null;
-  
-  /**
-   * The class references in the pool.
-   */
-  private Map<Integer, Integer> refClass = null;
-  
-  /**
-   * The string references in the pool.
-   */
-  private List<Integer> refString = null;
-  
-  /**
-   * The field references in the pool.
-   */
-  private List<Point> refField = null;
-  
-  /**
-   * The method references in the pool.
-   */
-  private List<Point> refMethod = null;
-  
-  /**
-   * The interface method references in the pool.
-   */
-  private List<Point> refInterfMethod = null;
-  
-  /**
-   * The name and type references in the pool.
-   */
-  private Map<Integer, Point> refNAT = null;
-  
   /**
    * The class fields.
    */
@@ -226,123 +172,36 @@ public final class ClassInfo
   
   
   /**
-   * Return the constant pool data.
-   * 
-   * @return the cpStrings
-   */
-  public Set<Map.Entry<Integer, String>> getCpStrings()
-  {
-    return cpStrings.entrySet();
-  }
-  
-  
-  /**
-   * Return the constant pool string with the specified index.
-   * 
-   * @param index the CP index for the string
-   * @return the string with a key of index
-   */
-  public String getCpString(final int index)
-  {
-    return cpStrings.get(Integer.valueOf(index));
-  }
-  
-  
-  /**
-   * Add a constant pool ID and string.
+   * Return the constant pool.
    * 
-   * @param cpString the constant pool string
-   * @param cpID the ID of the string
+   * @return the constant pool
    */
-  public void addCPString(final String cpString,
-                           final int cpID)
+  public ConstantPool getConstantPool()
   {
-    if (cpStrings == null)
-    {
-      cpStrings = new HashMap<Integer, String>(20);
-    }
-    
-    cpStrings.put(cpID, cpString);
+    return pool;
   }
   
   
   /**
-   * Add an integer from the constant pool.
+   * Set the constant pool.
    * 
-   * @param val the value to add
+   * @param pPool the constant pool
    */
-  public void addCPInt(final int val)
+  public void setConstantPool(final ConstantPool pPool)
   {
-    if (arrayInt == null)
-    {
-      arrayInt = new ArrayList<Integer>(10);
-    }
-    
-    arrayInt.add(Integer.valueOf(val));
+    pool = pPool;
   }
   
   
   /**
-   * Add a float from the constant pool.
-   * 
-   * @param val the value to add
-   */
-  public void addCPFloat(final float val)
-  {
-    if (arrayFloat == null)
-    {
-      arrayFloat = new ArrayList<Float>(10);
-    }
-    
-    arrayFloat.add(Float.valueOf(val));
-  }
-  
-  
-  /**
-   * Add a long from the constant pool.
-   * 
-   * @param val the value to add
-   */
-  public void addCPLong(final long val)
-  {
-    if (arrayLong == null)
-    {
-      arrayLong = new ArrayList<Long>(10);
-    }
-    
-    arrayLong.add(Long.valueOf(val));
-  }
-  
-  
-  /**
-   * Add a double from the constant pool.
-   * 
-   * @param val the value to add
-   */
-  public void addCPDouble(final double val)
-  {
-    if (arrayDouble == null)
-    {
-      arrayDouble = new ArrayList<Double>(10);
-    }
-    
-    arrayDouble.add(Double.valueOf(val));
-  }
-  
-  
-  /**
-   * Add a string reference from the constant pool.
+   * Return the constant pool string with the specified index.
    * 
-   * @param val the value to add
+   * @param index the CP index for the string
+   * @return the Utf8 string at index, or null if there is none
    */
-  public void addStringRef(final int val)
+  public String getCpString(final int index)
   {
-    if (refString == null)
-    {
-      refString = new ArrayList<Integer>(10);
-    }
-    
-    refString.add(Integer.valueOf(val));
+    return (pool == null) ? null : pool.getUtf8(index);
   }
   
   
@@ -353,46 +212,7 @@ public final class ClassInfo
    */
   public int getStringRefCount()
   {
-    return ((refString == null) ? 0 : refString.size());
-  }
-  
-  
-  /**
-   * Get the string reference iterator from the constant pool.
-   * 
-   * @return an iterator over the data
-   */
-  public Iterator<String> getStringRefIterator()
-  {
-    if (refString == null)
-    {
-      return null;
-    }
-    
-    List<String> list = new ArrayList<String>(refString.size());
-    for (Integer index : refString)
-    {
-      list.add(cpStrings.get(index));
-    }
-    
-    return list.iterator();
-  }
-  
-  
-  /**
-   * Add a field reference from the constant pool.
-   * 
-   * @param classRef the class reference in the constant pool
-   * @param natRef the name and type descriptor reference in the constant pool
-   */
-  public void addFieldRef(final int classRef, final int natRef)
-  {
-    if (refField == null)
-    {
-      refField = new ArrayList<Point>(10);
-    }
-    
-    refField.add(new Point(classRef, natRef));
+    return getCpCount(ClassReader.CONSTANT_STRING);
   }
   
   
@@ -403,24 +223,7 @@ public final class ClassInfo
    */
   public int getFieldRefCount()
   {
-    return ((refField == null) ? 0 : refField.size());
-  }
-  
-  
-  /**
-   * Add a method reference from the constant pool.
-   * 
-   * @param classRef the class reference in the constant pool
-   * @param natRef the name and type descriptor reference in the constant pool
-   */
-  public void addMethodRef(final int classRef, final int natRef)
-  {
-    if (refMethod == null)
-    {
-      refMethod = new ArrayList<Point>(10);
-    }
-    
-    refMethod.add(new Point(classRef, natRef));
+    return getCpCount(ClassReader.CONSTANT_FIELDREF);
   }
   
   
@@ -431,24 +234,7 @@ public final class ClassInfo
    */
   public int getMethodRefCount()
   {
-    return ((refMethod == null) ? 0 : refMethod.size());
-  }
-  
-  
-  /**
-   * Add an interface method reference from the constant pool.
-   * 
-   * @param classRef the class reference in the constant pool
-   * @param natRef the name and type descriptor reference in the constant pool
-   */
-  public void addInterfMethodRef(final int classRef, final int natRef)
-  {
-    if (refInterfMethod == null)
-    {
-      refInterfMethod = new ArrayList<Point>(10);
-    }
-    
-    refInterfMethod.add(new Point(classRef, natRef));
+    return getCpCount(ClassReader.CONSTANT_METHODREF);
   }
   
   
@@ -459,36 +245,30 @@ public final class ClassInfo
    */
   public int getInterfMethodRefCount()
   {
-    return ((refInterfMethod == null) ? 0 : refInterfMethod.size());
+    return getCpCount(ClassReader.CONSTANT_INTERFACE_METHODREF);
   }
   
   
   /**
-   * Add an interface method reference from the constant pool.
+   * Get the name and type description reference count from the constant pool.
    * 
-   * @param cpIndex the index into the constant pool
-   * @param nameRef the name descriptor reference in the constant pool
-   * @param typeRef the type descriptor reference in the constant pool
+   * @return the number of objects in the data
    */
-  public void addNATRef(final int cpIndex, final int nameRef, final int typeRef)
+  public int getNATRefCount()
   {
-    if (refNAT == null)
-    {
-      refNAT = new HashMap<Integer, Point>(10);
-    }
-    
-    refNAT.put(Integer.valueOf(cpIndex), new Point(nameRef, typeRef));
+    return getCpCount(ClassReader.CONSTANT_NAME_AND_TYPE);
   }
   
   
   /**
-   * Get the name and type description reference count from the constant pool.
+   * Return the number of constant pool entries with a tag.
    * 
-   * @return the number of objects in the data
+   * @param tag the tag to count
+   * @return the number of entries
    */
-  public int getNATRefCount()
+  private int getCpCount(final int tag)
   {
-    return ((refNAT == null) ? 0 : refNAT.size());
+    return (pool == null) ? 0 : pool.getCount(tag);
   }
   
   
@@ -532,7 +312,7 @@ public final class ClassInfo
    */
   public void setClassName(final int nameIndex)
   {
-    className = cpStrings.get(refClass.get(Integer.valueOf(nameIndex)));
+    className = pool.getRefString(nameIndex);
   }
   
   
@@ -560,7 +340,7 @@ public final class ClassInfo
     }
     else
     {
-      parentName = cpStrings.get(refClass.get(Integer.valueOf(parentIndex)));
+      parentName = pool.getRefString(parentIndex);
     }
   }
   
@@ -573,15 +353,19 @@ public final class ClassInfo
   public Set<String> getClassNamesSet()
   {
     Set<String> set = new HashSet<String>();
-    if (refClass == null)
+    if (pool == null)
     {
       return set;
     }
     
     // Add the referenced class names to the set
-    for (Entry<Integer, Integer> entrySet : refClass.entrySet())
+    final int size = pool.getSize();
+    for (int i = 1; i < size; ++i)
     {
-      set.add(cpStrings.get(entrySet.getValue().intValue()));
+      if (pool.getTag(i) == ClassReader.CONSTANT_CLASS)
+      {
+        set.add(pool.getRefString(i));
+      }
     }
     
     return set;
@@ -616,7 +400,7 @@ public final class ClassInfo
       interfaces = new ArrayList<String>(10);
     }
     
-    interfaces.add(cpStrings.get(refClass.get(Integer.valueOf(ifIndex))));
+    interfaces.add(pool.getRefString(ifIndex));
   }
   
   
@@ -636,23 +420,6 @@ public final class ClassInfo
   }
   
   
-  /**
-   * Add an index to the CP of a class name.
-   * 
-   * @param key the CP index
-   * @param value the corresponding index into the CP of the string
-   */
-  public void addCpClassIndex(final int key, final int value)
-  {
-    if (refClass == null)
-    {
-      refClass = new HashMap<Integer, Integer>(10);
-    }
-    
-    refClass.put(Integer.valueOf(key), Integer.valueOf(value));
-  }
-  
-  
   /**
    * Add a class field instance.
    * 
@@ -784,88 +551,24 @@ public final class ClassInfo
       .append(Utility.getLineSeparator());
     
     // Print the CP strings
-//    if (cpStrings != null)
+//    sb.append("Constant Pool:").append(Utility.getLineSeparator());
+//    for (int i = 1; i < pool.getSize(); ++i)
 //    {
-//      sb.append("Constant Pool:").append(Utility.getLineSeparator());
-//      for (java.util.Map.Entry<Integer, String> entrySet : cpStrings.entrySet())
+//      if (pool.getUtf8(i) != null)
 //      {
-//        Integer key = entrySet.getKey();
-//        String val = entrySet.getValue();
-//        sb.append("  ").append(key.toString()).append(" : ")
-//          .append(val).append(Utility.getLineSeparator());
+//        sb.append("  ").append(Integer.toString(i)).append(" : ")
+//          .append(pool.getUtf8(i)).append(Utility.getLineSeparator());
 //      }
 //    }
     
-    // Print the list of integers
-    if (arrayInt == null)
-    {
-      sb.append("No integers were found").append(Utility.getLineSeparator());
-    }
-    else
-    {
-      sb.append("Integers:").append(Utility.getLineSeparator());
-      for (Integer val : arrayInt)
-      {
-        sb.append("  ").append(val.toString()).append(Utility.getLineSeparator());
-      }
-    }
-    
-    // Print the list of floats
-    if (arrayFloat == null)
-    {
-      sb.append("No floats were found").append(Utility.getLineSeparator());
-    }
-    else
-    {
-      sb.append("Floats:").append(Utility.getLineSeparator());
-      for (Float val : arrayFloat)
-      {
-        sb.append("  ").append(val.toString()).append(Utility.getLineSeparator());
-      }
-    }
-    
-    // Print the list of longs
-    if (arrayLong == null)
-    {
-      sb.append("No longs were found").append(Utility.getLineSeparator());
-    }
-    else
-    {
-      sb.append("Longs:").append(Utility.getLineSeparator());
-      for (Long val : arrayLong)
-      {
-        sb.append("  ").append(val.toString()).append(Utility.getLineSeparator());
-      }
-    }
-    
-    // Print the list of doubles
-    if (arrayDouble == null)
-    {
-      sb.append("No doubles were found").append(Utility.getLineSeparator());
-    }
-    else
-    {
-      sb.append("Doubles:").append(Utility.getLineSeparator());
-      for (Double val : arrayDouble)
-      {
-        sb.append("  ").append(val.toString()).append(Utility.getLineSeparator());
-      }
-    }
+    // Print the numeric constants
+    appendConstants(sb, ClassReader.CONSTANT_INTEGER, "Integers", "integers");
+    appendConstants(sb, ClassReader.CONSTANT_FLOAT, "Floats", "floats");
+    appendConstants(sb, ClassReader.CONSTANT_LONG, "Longs", "longs");
+    appendConstants(sb, ClassReader.CONSTANT_DOUBLE, "Doubles", "doubles");
     
     // Print the list of class references
-    if (refClass == null)
-    {
-      sb.append("No class references were found").append(Utility.getLineSeparator());
-    }
-    else
-    {
-      sb.append("Classes:").append(Utility.getLineSeparator());
-      for (Entry<Integer, Integer> entrySet : refClass.entrySet())
-      {
-        sb.append("  ").append(cpStrings.get(entrySet.getValue().intValue()))
-          .append(Utility.getLineSeparator());
-      }
-    }
+    appendConstants(sb, ClassReader.CONSTANT_CLASS, "Classes", "class references");
     
     // Write out the unique list of referenced class names
 //    Set<String> classSet = getClassNamesSet();
@@ -879,31 +582,20 @@ public final class ClassInfo
 //    }
     
     // Print the list of string references
-    if (refString == null)
-    {
-      sb.append("No string references were found").append(Utility.getLineSeparator());
-    }
-    else
-    {
-      sb.append("Strings:").append(Utility.getLineSeparator());
-      for (Integer val : refString)
-      {
-        sb.append("  ").append(cpStrings.get(val.intValue()))
-          .append(Utility.getLineSeparator());
-      }
-    }
+    appendConstants(sb, ClassReader.CONSTANT_STRING, "Strings", "string references");
     
     // Print the list of field references
-    appendRefPointData(sb, refField, "Field");
+    appendRefData(sb, ClassReader.CONSTANT_FIELDREF, "Field");
     
     // Print the list of method references
-    appendRefPointData(sb, refMethod, "Method");
+    appendRefData(sb, ClassReader.CONSTANT_METHODREF, "Method");
     
     // Print the list of interface method references
-    appendRefPointData(sb, refInterfMethod, "Interface Method");
+    appendRefData(sb, ClassReader.CONSTANT_INTERFACE_METHODREF,
+                  "Interface Method");
     
     // Print the list of NAT descriptor references
-//    if (refNAT == null)
+//    if (getNATRefCount() == 0)
 //    {
 //      sb.append("No name and type descriptors were found")
 //        .append(Utility.getLineSeparator());
@@ -911,11 +603,13 @@ public final class ClassInfo
 //    else
 //    {
 //      sb.append("Name and Type Descriptors:").append(Utility.getLineSeparator());
-//      for (Entry<Integer, Point> entry : refNAT.entrySet())
+//      for (int i = 1; i < pool.getSize(); ++i)
 //      {
-//        Point pt = entry.getValue();
-//        sb.append("  ").append(cpStrings.get(pt.x)).append(", ")
-//          .append(cpStrings.get(pt.y)).append(Utility.getLineSeparator());
+//        if (pool.getTag(i) == ClassReader.CONSTANT_NAME_AND_TYPE)
+//        {
+//          sb.append("  ").append(pool.getUtf8(pool.getRef1(i))).append(", ")
+//            .append(pool.getUtf8(pool.getRef2(i))).append(Utility.getLineSeparator());
+//        }
 //      }
 //    }
     
@@ -943,7 +637,7 @@ public final class ClassInfo
       sb.append("Fields:").append(Utility.getLineSeparator());
       for (FieldMethodInfo fmi : classFields)
       {
-        String name = cpStrings.get(Integer.valueOf(fmi.getNameIndex()));
+        String name = pool.getUtf8(fmi.getNameIndex());
         sb.append("  ").append(name).append(" (").append(fmi.getAFDesc())
           .append(")").append(Utility.getLineSeparator());
       }
@@ -959,7 +653,7 @@ public final class ClassInfo
       sb.append("Methods:").append(Utility.getLineSeparator());
       for (FieldMethodInfo fmi : classMethods)
       {
-        String name = cpStrings.get(Integer.valueOf(fmi.getNameIndex()));
+        String name = pool.getUtf8(fmi.getNameIndex());
         sb.append("  ").append(name).append(" (").append(fmi.getAFDesc())
           .append(")").append(Utility.getLineSeparator());
       }
@@ -971,30 +665,93 @@ public final class ClassInfo
   
   
   /**
-   * Append a description of the access flags.
+   * Append the constant pool entries with a tag.
    * 
    * @param sb the string builder
-   * @param data the list of Point data
+   * @param tag the tag of the entries
+   * @param title the heading for the entries
+   * @param desc the description used when there are none
+   */
+  private void appendConstants(final StringBuilder sb, final int tag,
+                               final String title, final String desc)
+  {
+    // Check for no data
+    if (pool.getCount(tag) == 0)
+    {
+      sb.append("No ").append(desc).append(" were found")
+        .append(Utility.getLineSeparator());
+      return;
+    }
+    
+    sb.append(title).append(":").append(Utility.getLineSeparator());
+    final int size = pool.getSize();
+    for (int i = 1; i < size; ++i)
+    {
+      if (pool.getTag(i) != tag)
+      {
+        continue;
+      }
+      
+      sb.append("  ");
+      switch (tag)
+      {
+        case ClassReader.CONSTANT_INTEGER:
+          sb.append(Integer.toString(pool.getInt(i)));
+          break;
+        
+        case ClassReader.CONSTANT_FLOAT:
+          sb.append(Float.toString(pool.getFloat(i)));
+          break;
+        
+        case ClassReader.CONSTANT_LONG:
+          sb.append(Long.toString(pool.getLong(i)));
+          break;
+        
+        case ClassReader.CONSTANT_DOUBLE:
+          sb.append(Double.toString(pool.getDouble(i)));
+          break;
+        
+        default:
+          sb.append(pool.getRefString(i));
+          break;
+      }
+      
+      sb.append(Utility.getLineSeparator());
+    }
+  }
+  
+  
+  /**
+   * Append the field or method references in the constant pool.
+   * 
+   * @param sb the string builder
+   * @param tag the tag of the references
    * @param desc the string description
    */
-  private void appendRefPointData(final StringBuilder sb,
-                                   final List<Point> data,
-                                   final String desc)
+  private void appendRefData(final StringBuilder sb,
+                             final int tag,
+                             final String desc)
   {
     // Check for no data
-    if ((data == null) || (data.size() == 0))
+    if (pool.getCount(tag) == 0)
     {
       sb.append(desc).append(" data not found").append(Utility.getLineSeparator());
       return;
     }
     
     sb.append(desc).append(" data:").append(Utility.getLineSeparator());
-    for (Point pt : data)
+    final int size = pool.getSize();
+    for (int i = 1; i < size; ++i)
     {
-      String cname = cpStrings.get(refClass.get(Integer.valueOf(pt.x)));
-      Point nat = refNAT.get(Integer.valueOf(pt.y));
-      String name = cpStrings.get(nat.x);
-      String typeStr = cpStrings.get(nat.y);
+      if (pool.getTag(i) != tag)
+      {
+        continue;
+      }
+      
+      final int nat = pool.getRef2(i);
+      String cname = pool.getRefString(pool.getRef1(i));
+      String name = pool.getUtf8(pool.getRef1(nat));
+      String typeStr = pool.getUtf8(pool.getRef2(nat));
       sb.append("  ").append(cname).append(".").append(name)
         .append(": ").append(typeStr)
         .append(Utility.getLineSeparator());
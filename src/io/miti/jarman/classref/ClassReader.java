@@ -0,0 +1,1649 @@
+package io.miti.jarman.classref;
+
+import io.miti.jarman.index.ClassNamePool;
+import io.miti.jarman.index.IdList;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Parse the bytes of a .class file.  The class is read once into a
+ * buffer, and parsing only records the offset of each constant pool
+ * entry, field and method; attributes are skipped by their length.
+ * Strings are decoded from the buffer when they are requested, and
+ * saved for later calls.  For bulk scans, a class can be read only up
+ * to the end of its interfaces, which skips the fields, methods and
+ * attributes entirely.
+ * 
+ * A reader can be reused for many classes; its buffer and arrays grow
+ * as needed, and are kept between classes.  A reader is not thread-safe.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class ClassReader
+{
+  /**
+   * The constant pool tag for a Utf8 string.
+   */
+  public static final int CONSTANT_UTF8 = 1;
+  
+  /**
+   * The constant pool tag for an int.
+   */
+  public static final int CONSTANT_INTEGER = 3;
+  
+  /**
+   * The constant pool tag for a float.
+   */
+  public static final int CONSTANT_FLOAT = 4;
+  
+  /**
+   * The constant pool tag for a long.
+   */
+  public static final int CONSTANT_LONG = 5;
+  
+  /**
+   * The constant pool tag for a double.
+   */
+  public static final int CONSTANT_DOUBLE = 6;
+  
+  /**
+   * The constant pool tag for a class.
+   */
+  public static final int CONSTANT_CLASS = 7;
+  
+  /**
+   * The constant pool tag for a string.
+   */
+  public static final int CONSTANT_STRING = 8;
+  
+  /**
+   * The constant pool tag for a field reference.
+   */
+  public static final int CONSTANT_FIELDREF = 9;
+  
+  /**
+   * The constant pool tag for a method reference.
+   */
+  public static final int CONSTANT_METHODREF = 10;
+  
+  /**
+   * The constant pool tag for an interface method reference.
+   */
+  public static final int CONSTANT_INTERFACE_METHODREF = 11;
+  
+  /**
+   * The constant pool tag for a name and type.
+   */
+  public static final int CONSTANT_NAME_AND_TYPE = 12;
+  
+  /**
+   * The constant pool tag for a method handle.
+   */
+  public static final int CONSTANT_METHOD_HANDLE = 15;
+  
+  /**
+   * The constant pool tag for a method type.
+   */
+  public static final int CONSTANT_METHOD_TYPE = 16;
+  
+  /**
+   * The constant pool tag for a dynamically-computed constant.
+   */
+  public static final int CONSTANT_DYNAMIC = 17;
+  
+  /**
+   * The constant pool tag for an invokedynamic call site.
+   */
+  public static final int CONSTANT_INVOKE_DYNAMIC = 18;
+  
+  /**
+   * The constant pool tag for a module.
+   */
+  public static final int CONSTANT_MODULE = 19;
+  
+  /**
+   * The constant pool tag for a package.
+   */
+  public static final int CONSTANT_PACKAGE = 20;
+  
+  /**
+   * The name of the Signature attribute.
+   */
+  private static final byte[] SIGNATURE = {'S', 'i', 'g', 'n', 'a', 't', 'u', 'r', 'e'};
+  
+  /**
+   * The name of the RuntimeVisibleAnnotations attribute.
+   */
+  private static final byte[] VISIBLE_ANNOTATIONS =
+    "RuntimeVisibleAnnotations".getBytes(StandardCharsets.US_ASCII);
+  
+  /**
+   * The number of bytes to read at a time when reading only the header.
+   */
+  private static final int HEADER_BLOCK = 2048;
+  
+  /**
+   * The deepest nesting of annotation values that is skipped over.
+   */
+  private static final int MAX_NESTING = 64;
+  
+  /**
+   * The size of the read buffer when the size of a class is not known.
+   */
+  private static final int READ_BLOCK = 16384;
+  
+  /**
+   * The largest class read from a stream.  Real class files are far
+   * smaller; a larger size is taken to be a corrupt entry.
+   */
+  private static final int MAX_CLASS = 16 * 1024 * 1024;
+  
+  /**
+   * The largest read buffer kept for the next class.
+   */
+  private static final int MAX_BUFFER = 1024 * 1024;
+  
+  /**
+   * The buffer that classes are read into from streams, created when
+   * first needed.
+   */
+  private byte[] readBuffer = null;
+  
+  /**
+   * The class bytes; either the read buffer, or an array passed in.
+   */
+  private byte[] buffer = null;
+  
+  /**
+   * Whether the class bytes were read from a stream by this reader,
+   * rather than passed in.
+   */
+  private boolean ownBuffer = false;
+  
+  /**
+   * A big-endian view of the class bytes.
+   */
+  private ByteBuffer buf = null;
+  
+  /**
+   * The number of bytes in the class.
+   */
+  private int length = 0;
+  
+  /**
+   * Whether the last class parsed was valid.
+   */
+  private boolean valid = false;
+  
+  /**
+   * The number of constant pool slots (including the unused slot 0).
+   */
+  private int poolSize = 0;
+  
+  /**
+   * The offset of each constant pool entry's tag, or 0 for unused slots.
+   */
+  private int[] cpOffsets = null;
+  
+  /**
+   * The decoded Utf8 strings, by constant pool index, created when
+   * first needed.
+   */
+  private String[] cpStrings = null;
+  
+  /**
+   * The index of the next constant pool entry to record.
+   */
+  private int poolIndex = 0;
+  
+  /**
+   * The offset of the next constant pool entry to record.
+   */
+  private int poolEnd = 0;
+  
+  /**
+   * The offset of the access flags, after the constant pool.
+   */
+  private int headerOffset = 0;
+  
+  /**
+   * The offset of each field, then each method.
+   */
+  private int[] members = new int[0];
+  
+  /**
+   * The number of fields.
+   */
+  private int fieldCount = 0;
+  
+  /**
+   * The number of methods.
+   */
+  private int methodCount = 0;
+  
+  /**
+   * The offset of the class attributes, or 0 if only the header was read.
+   */
+  private int attributesOffset = 0;
+  
+  /**
+   * The buffer for decoding strings.
+   */
+  private char[] chars = new char[0];
+  
+  /**
+   * The scanner for descriptors and signatures, created when first
+   * needed.
+   */
+  private DescriptorScanner scanner = null;
+  
+  /**
+   * The list that referenced class names are added to.
+   */
+  private List<String> nameList = null;
+  
+  /**
+   * The pool that referenced class names are looked up in.
+   */
+  private ClassNamePool namePool = null;
+  
+  /**
+   * The list that referenced class IDs are added to.
+   */
+  private IdList idList = null;
+  
+  /**
+   * The handler that adds class names to the name list.
+   */
+  private final DescriptorScanner.NameHandler stringHandler =
+    new DescriptorScanner.NameHandler()
+  {
+    @Override
+    public void addName(final byte[] bytes, final int off, final int len)
+    {
+      if (len > chars.length)
+      {
+        chars = new char[len + 64];
+      }
+      
+      nameList.add(decode(bytes, off, len, chars));
+    }
+  };
+  
+  /**
+   * The handler that adds class IDs to the ID list.
+   */
+  private final DescriptorScanner.NameHandler idHandler =
+    new DescriptorScanner.NameHandler()
+  {
+    @Override
+    public void addName(final byte[] bytes, final int off, final int len)
+    {
+      idList.add(namePool.intern(bytes, off, len));
+    }
+  };
+  
+  
+  /**
+   * Default constructor.
+   */
+  public ClassReader()
+  {
+    super();
+  }
+  
+  
+  /**
+   * Read and parse a class file.
+   * 
+   * @param file the class file
+   * @return whether the file is a valid class file
+   * @throws IOException if the file cannot be read
+   */
+  public boolean read(final File file) throws IOException
+  {
+    InputStream in = null;
+    try
+    {
+      in = new FileInputStream(file);
+      return read(in, file.length());
+    }
+    finally
+    {
+      if (in != null)
+      {
+        in.close();
+      }
+    }
+  }
+  
+  
+  /**
+   * Read a class from the stream into the buffer, and parse it.
+   * A class that is declared or read as larger than MAX_CLASS bytes
+   * is not valid.  The stream is not closed.
+   * 
+   * @param in the input stream
+   * @param size the expected size, or -1 if not known
+   * @return whether the stream holds a valid class file
+   * @throws IOException if the stream cannot be read
+   */
+  public boolean read(final InputStream in, final long size) throws IOException
+  {
+    // Skip a class larger than any real class file
+    reset();
+    length = 0;
+    if (size > MAX_CLASS)
+    {
+      return false;
+    }
+    
+    try
+    {
+      // Make room for one more byte than the expected size, so that the
+      // end of the stream is seen without growing the buffer
+      if ((readBuffer == null) || (size >= readBuffer.length))
+      {
+        readBuffer = new byte[(size >= 0) ? ((int) size + 1) : READ_BLOCK];
+      }
+      
+      int len = 0;
+      while (true)
+      {
+        if (len == readBuffer.length)
+        {
+          if (len > MAX_CLASS)
+          {
+            return false;
+          }
+          
+          readBuffer = Arrays.copyOf(readBuffer,
+                                     (int) Math.min(len * 2L, MAX_CLASS + 1L));
+        }
+        
+        final int count = in.read(readBuffer, len, readBuffer.length - len);
+        if (count < 0)
+        {
+          break;
+        }
+        
+        len += count;
+      }
+      
+      setBuffer(readBuffer);
+      ownBuffer = true;
+      length = len;
+      return parse(false);
+    }
+    finally
+    {
+      dropLargeBuffer();
+    }
+  }
+  
+  
+  /**
+   * Parse a class held in an array.  The array is used in place, and
+   * must not change while this reader is used.
+   * 
+   * @param data the class bytes
+   * @param len the number of bytes in the class
+   * @return whether the array holds a valid class file
+   */
+  public boolean read(final byte[] data, final int len)
+  {
+    setBuffer(data);
+    ownBuffer = false;
+    length = len;
+    return parse(false);
+  }
+  
+  
+  /**
+   * Set the buffer holding the class bytes.
+   * 
+   * @param data the new buffer
+   */
+  private void setBuffer(final byte[] data)
+  {
+    if (buffer != data)
+    {
+      buffer = data;
+      buf = ByteBuffer.wrap(buffer);
+    }
+  }
+  
+  
+  /**
+   * Stop keeping a read buffer that grew large for one class.  The
+   * class stays readable until the next one is read.
+   */
+  private void dropLargeBuffer()
+  {
+    if ((readBuffer != null) && (readBuffer.length > MAX_BUFFER))
+    {
+      readBuffer = null;
+    }
+  }
+  
+  
+  /**
+   * Read the start of a class from the stream, up to the end of its
+   * interfaces, and parse only that part.  Reading stops as soon as the
+   * header is in the buffer, so the fields, methods and attributes are
+   * never read.  The stream is not closed.
+   * 
+   * After this, the constant pool and header can be read, but the class
+   * has no fields or methods.
+   * 
+   * @param in the input stream
+   * @return whether the stream holds a valid class header
+   * @throws IOException if the stream cannot be read
+   */
+  public boolean readHeader(final InputStream in) throws IOException
+  {
+    if (readBuffer == null)
+    {
+      readBuffer = new byte[READ_BLOCK];
+    }
+    
+    setBuffer(readBuffer);
+    ownBuffer = true;
+    reset();
+    length = 0;
+    try
+    {
+      return readHeaderBlocks(in);
+    }
+    finally
+    {
+      dropLargeBuffer();
+    }
+  }
+  
+  
+  /**
+   * Read blocks of a class from the stream until its header has been
+   * read.
+   * 
+   * @param in the input stream
+   * @return whether the stream holds a valid class header
+   * @throws IOException if the stream cannot be read
+   */
+  private boolean readHeaderBlocks(final InputStream in) throws IOException
+  {
+    int end = 0;
+    while (true)
+    {
+      if (length == readBuffer.length)
+      {
+        if (length > MAX_CLASS)
+        {
+          return false;
+        }
+        
+        readBuffer = Arrays.copyOf(readBuffer,
+                                   (int) Math.min(length * 2L, MAX_CLASS + 1L));
+        setBuffer(readBuffer);
+      }
+      
+      // Ask for a small block at a time, since a compressed stream
+      // inflates as much as it is asked for
+      final int count = in.read(readBuffer, length,
+                          Math.min(readBuffer.length - length, HEADER_BLOCK));
+      if (count < 0)
+      {
+        // The class ended before the header
+        return false;
+      }
+      
+      length += count;
+      if (poolSize == 0)
+      {
+        // Wait for the constant pool count
+        if (length < 10)
+        {
+          continue;
+        }
+        else if (!startPool())
+        {
+          return false;
+        }
+      }
+      
+      // Record as much of the constant pool as has been read
+      if (end == 0)
+      {
+        end = scanPool();
+        if (end < 0)
+        {
+          return false;
+        }
+      }
+      
+      if ((end > 0) && ((end + 8) <= length) &&
+          ((end + 8 + (2 * u2(end + 6))) <= length))
+      {
+        headerOffset = end;
+        valid = true;
+        return true;
+      }
+    }
+  }
+  
+  
+  /**
+   * Parse the start of a class held in an array, up to the end of its
+   * interfaces.  The array is used in place, and must not change while
+   * this reader is used.
+   * 
+   * @param data the class bytes
+   * @param len the number of bytes in the class
+   * @return whether the array holds a valid class header
+   */
+  public boolean readHeader(final byte[] data, final int len)
+  {
+    setBuffer(data);
+    ownBuffer = false;
+    length = len;
+    return parse(true);
+  }
+  
+  
+  /**
+   * Clear the results of the last class parsed.
+   */
+  private void reset()
+  {
+    valid = false;
+    poolSize = 0;
+    poolIndex = 0;
+    poolEnd = 0;
+    fieldCount = 0;
+    methodCount = 0;
+    attributesOffset = 0;
+  }
+  
+  
+  /**
+   * Record the offsets of the constant pool entries and members.
+   * 
+   * @param headerOnly whether to stop after the interfaces
+   * @return whether the class is valid
+   */
+  private boolean parse(final boolean headerOnly)
+  {
+    reset();
+    if ((length < 10) || !startPool())
+    {
+      return false;
+    }
+    
+    try
+    {
+      // Record the offset of each constant pool entry
+      int pos = scanPool();
+      if ((pos <= 0) || ((pos + 8) > length))
+      {
+        return false;
+      }
+      
+      headerOffset = pos;
+      
+      // Skip the header and interfaces, and record the members
+      pos += 8 + (2 * u2(pos + 6));
+      if (headerOnly)
+      {
+        valid = (pos <= length);
+        return valid;
+      }
+      
+      fieldCount = u2(pos);
+      pos = readMembers(pos + 2, 0, fieldCount);
+      methodCount = u2(pos);
+      pos = readMembers(pos + 2, fieldCount, methodCount);
+      attributesOffset = pos;
+      valid = (skipAttributes(pos) <= length);
+    }
+    catch (IndexOutOfBoundsException e)
+    {
+      // The class is truncated
+      valid = false;
+    }
+    
+    return valid;
+  }
+  
+  
+  /**
+   * Check the magic number, and prepare to record the constant pool.
+   * 
+   * @return whether the bytes start like a class file
+   */
+  private boolean startPool()
+  {
+    if (buf.getInt(0) != 0xCAFEBABE)
+    {
+      return false;
+    }
+    
+    final int count = u2(8);
+    if (cpOffsets == null)
+    {
+      cpOffsets = new int[count];
+      cpStrings = null;
+    }
+    else if (count > cpOffsets.length)
+    {
+      cpOffsets = new int[count + 64];
+      cpStrings = null;
+    }
+    else if (cpStrings != null)
+    {
+      Arrays.fill(cpStrings, 0, count, null);
+    }
+    
+    cpOffsets[0] = 0;
+    poolSize = count;
+    poolIndex = 1;
+    poolEnd = 10;
+    return true;
+  }
+  
+  
+  /**
+   * Record the offsets of the constant pool entries, continuing from
+   * the last entry recorded, as far as the bytes read so far allow.
+   * 
+   * @return the offset after the constant pool, 0 if more bytes are
+   *         needed, or -1 if the pool has an unknown tag
+   */
+  private int scanPool()
+  {
+    int pos = poolEnd;
+    int i = poolIndex;
+    for (; i < poolSize; ++i)
+    {
+      // Stop if the tag, or the length of a string, has not been read
+      if ((pos + 3) > length)
+      {
+        break;
+      }
+      
+      cpOffsets[i] = pos;
+      final int tag = buffer[pos] & 0xFF;
+      switch (tag)
+      {
+        case CONSTANT_UTF8:
+          pos += 3 + u2(pos + 1);
+          break;
+        
+        case CONSTANT_CLASS:
+        case CONSTANT_STRING:
+        case CONSTANT_METHOD_TYPE:
+        case CONSTANT_MODULE:
+        case CONSTANT_PACKAGE:
+          pos += 3;
+          break;
+        
+        case CONSTANT_METHOD_HANDLE:
+          pos += 4;
+          break;
+        
+        case CONSTANT_INTEGER:
+        case CONSTANT_FLOAT:
+        case CONSTANT_FIELDREF:
+        case CONSTANT_METHODREF:
+        case CONSTANT_INTERFACE_METHODREF:
+        case CONSTANT_NAME_AND_TYPE:
+        case CONSTANT_DYNAMIC:
+        case CONSTANT_INVOKE_DYNAMIC:
+          pos += 5;
+          break;
+        
+        case CONSTANT_LONG:
+        case CONSTANT_DOUBLE:
+          // These take two slots
+          pos += 9;
+          if ((i + 1) < poolSize)
+          {
+            cpOffsets[++i] = 0;
+          }
+          break;
+        
+        default:
+          // Unknown tag, so the rest of the pool cannot be read
+          return -1;
+      }
+    }
+    
+    poolIndex = i;
+    poolEnd = pos;
+    return (i < poolSize) ? 0 : pos;
+  }
+  
+  
+  /**
+   * Record the offsets of a list of fields or methods.
+   * 
+   * @param start the offset of the first member
+   * @param first the index in members of the first member
+   * @param count the number of members
+   * @return the offset after the members
+   */
+  private int readMembers(final int start, final int first, final int count)
+  {
+    if ((first + count) > members.length)
+    {
+      members = Arrays.copyOf(members, first + count + 64);
+    }
+    
+    int pos = start;
+    for (int i = 0; i < count; ++i)
+    {
+      members[first + i] = pos;
+      pos = skipAttributes(pos + 6);
+    }
+    
+    return pos;
+  }
+  
+  
+  /**
+   * Skip over a list of attributes.
+   * 
+   * @param start the offset of the attribute count
+   * @return the offset after the attributes
+   */
+  private int skipAttributes(final int start)
+  {
+    final int count = u2(start);
+    int pos = start + 2;
+    for (int i = 0; i < count; ++i)
+    {
+      final int len = buf.getInt(pos + 2);
+      if ((len < 0) || (len > length))
+      {
+        throw new IndexOutOfBoundsException("Bad attribute length");
+      }
+      
+      pos += 6 + len;
+    }
+    
+    return pos;
+  }
+  
+  
+  /**
+   * Return whether the last class parsed was valid.
+   * 
+   * @return whether the class is valid
+   */
+  public boolean isValid()
+  {
+    return valid;
+  }
+  
+  
+  /**
+   * Return the minor version number.
+   * 
+   * @return the minor version
+   */
+  public int getMinorVersion()
+  {
+    return u2(4);
+  }
+  
+  
+  /**
+   * Return the major version number.
+   * 
+   * @return the major version
+   */
+  public int getMajorVersion()
+  {
+    return u2(6);
+  }
+  
+  
+  /**
+   * Return the class access flags.
+   * 
+   * @return the access flags
+   */
+  public int getAccessFlags()
+  {
+    return u2(headerOffset);
+  }
+  
+  
+  /**
+   * Return the constant pool index of this class.
+   * 
+   * @return the index of the class entry
+   */
+  public int getThisClassIndex()
+  {
+    return u2(headerOffset + 2);
+  }
+  
+  
+  /**
+   * Return the constant pool index of the parent class.
+   * 
+   * @return the index of the class entry, or 0 for java/lang/Object
+   */
+  public int getSuperClassIndex()
+  {
+    return u2(headerOffset + 4);
+  }
+  
+  
+  /**
+   * Return the name of this class.
+   * 
+   * @return the class name, with slashes
+   */
+  public String getClassName()
+  {
+    return getClassConstant(getThisClassIndex());
+  }
+  
+  
+  /**
+   * Return the name of the parent class.
+   * 
+   * @return the parent class name, or null if there is none
+   */
+  public String getSuperName()
+  {
+    final int index = getSuperClassIndex();
+    return (index == 0) ? null : getClassConstant(index);
+  }
+  
+  
+  /**
+   * Return the number of implemented interfaces.
+   * 
+   * @return the number of interfaces
+   */
+  public int getInterfaceCount()
+  {
+    return u2(headerOffset + 6);
+  }
+  
+  
+  /**
+   * Return the constant pool index of an interface.
+   * 
+   * @param index the interface number
+   * @return the index of the class entry
+   */
+  public int getInterfaceIndex(final int index)
+  {
+    return u2(headerOffset + 8 + (2 * index));
+  }
+  
+  
+  /**
+   * Return the name of an interface.
+   * 
+   * @param index the interface number
+   * @return the interface name, with slashes
+   */
+  public String getInterface(final int index)
+  {
+    return getClassConstant(getInterfaceIndex(index));
+  }
+  
+  
+  /**
+   * Return the number of constant pool slots, including slot 0.
+   * 
+   * @return the constant pool count
+   */
+  public int getPoolSize()
+  {
+    return poolSize;
+  }
+  
+  
+  /**
+   * Give up the offset of each constant pool entry's tag in the class
+   * bytes, or 0 for unused slots.  After this the reader has an empty
+   * constant pool, and the next class records its offsets in a new
+   * array.
+   * 
+   * @return the offsets, at least one per constant pool slot
+   */
+  int[] takePoolOffsets()
+  {
+    final int[] offsets = cpOffsets;
+    cpOffsets = null;
+    cpStrings = null;
+    poolSize = 0;
+    return offsets;
+  }
+  
+  
+  /**
+   * Give up the class bytes, for a constant pool that reads its entries
+   * from them.  If they are in the read buffer, the next class is read
+   * into a new buffer, so the bytes are never changed.  An array passed
+   * in is copied, since the caller may reuse it, and so is a read buffer
+   * that is mostly empty.
+   * 
+   * @return the class bytes
+   */
+  byte[] takeBuffer()
+  {
+    if (!ownBuffer || (buffer.length > (length * 2)))
+    {
+      return Arrays.copyOf(buffer, length);
+    }
+    
+    if (readBuffer == buffer)
+    {
+      readBuffer = null;
+    }
+    
+    return buffer;
+  }
+  
+  
+  /**
+   * Return the tag of a constant pool entry.
+   * 
+   * @param index the constant pool index
+   * @return the tag, or 0 for an unused slot or an index outside the pool
+   */
+  public int getTag(final int index)
+  {
+    if ((index <= 0) || (index >= poolSize))
+    {
+      return 0;
+    }
+    
+    final int off = cpOffsets[index];
+    return (off == 0) ? 0 : (buffer[off] & 0xFF);
+  }
+  
+  
+  /**
+   * Return the first 2-byte value of a constant pool entry.  This is
+   * the index of the name of a class, string, method type, module or
+   * package; the class of a field or method reference; the name of a
+   * name and type; the bootstrap method of a dynamic constant; or the
+   * reference of a method handle.
+   * 
+   * @param index the constant pool index
+   * @return the first value
+   */
+  public int getRef1(final int index)
+  {
+    final int off = cpOffsets[index];
+    return (getTag(index) == CONSTANT_METHOD_HANDLE) ? u2(off + 2) : u2(off + 1);
+  }
+  
+  
+  /**
+   * Return the second 2-byte value of a constant pool entry.  This is
+   * the name and type of a field, method or dynamic reference, or the
+   * descriptor of a name and type.
+   * 
+   * @param index the constant pool index
+   * @return the second value
+   */
+  public int getRef2(final int index)
+  {
+    return u2(cpOffsets[index] + 3);
+  }
+  
+  
+  /**
+   * Return the kind of a method handle entry.
+   * 
+   * @param index the constant pool index
+   * @return the reference kind
+   */
+  public int getMethodHandleKind(final int index)
+  {
+    return buffer[cpOffsets[index] + 1] & 0xFF;
+  }
+  
+  
+  /**
+   * Return the value of an int or float entry, as int bits.
+   * 
+   * @param index the constant pool index
+   * @return the value
+   */
+  public int getInt(final int index)
+  {
+    return buf.getInt(cpOffsets[index] + 1);
+  }
+  
+  
+  /**
+   * Return the value of a long or double entry, as long bits.
+   * 
+   * @param index the constant pool index
+   * @return the value
+   */
+  public long getLong(final int index)
+  {
+    return buf.getLong(cpOffsets[index] + 1);
+  }
+  
+  
+  /**
+   * Return a Utf8 entry.
+   * 
+   * @param index the constant pool index
+   * @return the string, or null if the entry is not a Utf8 entry
+   */
+  public String getUtf8(final int index)
+  {
+    if ((index <= 0) || (index >= poolSize) || (getTag(index) != CONSTANT_UTF8))
+    {
+      return null;
+    }
+    
+    if (cpStrings == null)
+    {
+      cpStrings = new String[cpOffsets.length];
+    }
+    
+    String str = cpStrings[index];
+    if (str == null)
+    {
+      final int off = cpOffsets[index];
+      str = decode(off + 3, u2(off + 1));
+      cpStrings[index] = str;
+    }
+    
+    return str;
+  }
+  
+  
+  /**
+   * Return the number of bytes in a Utf8 entry.
+   * 
+   * @param index the constant pool index
+   * @return the length in bytes, or 0 if the entry is not a Utf8 entry
+   */
+  public int getUtf8Length(final int index)
+  {
+    if ((index <= 0) || (index >= poolSize) || (getTag(index) != CONSTANT_UTF8))
+    {
+      return 0;
+    }
+    
+    return u2(cpOffsets[index] + 1);
+  }
+  
+  
+  /**
+   * Copy the undecoded bytes of a Utf8 entry.
+   * 
+   * @param index the constant pool index
+   * @param dest the array to copy into
+   * @param off the offset in dest to copy to
+   * @return the number of bytes copied
+   */
+  public int copyUtf8(final int index, final byte[] dest, final int off)
+  {
+    final int len = getUtf8Length(index);
+    if (len > 0)
+    {
+      System.arraycopy(buffer, cpOffsets[index] + 3, dest, off, len);
+    }
+    
+    return len;
+  }
+  
+  
+  /**
+   * Return the name of a class entry.
+   * 
+   * @param index the constant pool index of the class entry
+   * @return the class name, or null if the entry is not a class
+   */
+  public String getClassConstant(final int index)
+  {
+    if ((index <= 0) || (index >= poolSize) || (getTag(index) != CONSTANT_CLASS))
+    {
+      return null;
+    }
+    
+    return getUtf8(getRef1(index));
+  }
+  
+  
+  /**
+   * Return the number of fields.
+   * 
+   * @return the number of fields
+   */
+  public int getFieldCount()
+  {
+    return fieldCount;
+  }
+  
+  
+  /**
+   * Return the number of methods.
+   * 
+   * @return the number of methods
+   */
+  public int getMethodCount()
+  {
+    return methodCount;
+  }
+  
+  
+  /**
+   * Return the access flags of a field or method.  Methods are
+   * numbered after the fields.
+   * 
+   * @param member the member number
+   * @return the access flags
+   */
+  public int getMemberAccess(final int member)
+  {
+    return u2(members[member]);
+  }
+  
+  
+  /**
+   * Return the constant pool index of the name of a field or method.
+   * 
+   * @param member the member number
+   * @return the index of the name
+   */
+  public int getMemberNameIndex(final int member)
+  {
+    return u2(members[member] + 2);
+  }
+  
+  
+  /**
+   * Return the constant pool index of the descriptor of a field or method.
+   * 
+   * @param member the member number
+   * @return the index of the descriptor
+   */
+  public int getMemberDescIndex(final int member)
+  {
+    return u2(members[member] + 4);
+  }
+  
+  
+  /**
+   * Add the names of the classes referenced by the class to the list:
+   * the class entries (with array types reduced to their element class),
+   * the classes in the descriptors of name and type entries and method
+   * type entries, and the classes in the generic signatures of the
+   * class and its members.  The list may hold duplicates.
+   * 
+   * @param names the list to add the class names to
+   */
+  public void getReferences(final List<String> names)
+  {
+    nameList = names;
+    scanReferences(stringHandler);
+    nameList = null;
+  }
+  
+  
+  /**
+   * Add the IDs of the classes referenced by the class to the list.
+   * This finds the same classes as getReferences(List), but looks each
+   * name up in the pool by its bytes, so no strings are created for
+   * names already in the pool.
+   * 
+   * @param pool the pool of class names
+   * @param ids the list to add the class IDs to
+   */
+  public void getReferences(final ClassNamePool pool, final IdList ids)
+  {
+    namePool = pool;
+    idList = ids;
+    scanReferences(idHandler);
+    namePool = null;
+    idList = null;
+  }
+  
+  
+  /**
+   * Add the types of the runtime-visible annotations on the class and
+   * its members.  For each annotation, the type is added to the list
+   * (as a class name with slashes), and the member it is on is added
+   * to the IDs: -1 for the class, or the member index for a field or
+   * method.  Annotations nested in the values of other annotations are
+   * not added.  Nothing is added if only the header was read.
+   * 
+   * @param types the list to add the annotation types to
+   * @param targets the list to add the annotated members to
+   */
+  public void getAnnotations(final List<String> types, final IdList targets)
+  {
+    if (!valid || (attributesOffset == 0))
+    {
+      return;
+    }
+    
+    // Most classes have no annotations, and so no attribute name
+    final int name = findUtf8(VISIBLE_ANNOTATIONS);
+    if (name == 0)
+    {
+      return;
+    }
+    
+    addAnnotations(attributesOffset, name, -1, types, targets);
+    final int memCount = fieldCount + methodCount;
+    for (int i = 0; i < memCount; ++i)
+    {
+      addAnnotations(members[i] + 6, name, i, types, targets);
+    }
+  }
+  
+  
+  /**
+   * Add the annotation types in any RuntimeVisibleAnnotations attribute
+   * in a list of attributes.  The annotations are checked against the
+   * length of the attribute, and the rest of an attribute that runs
+   * past its end is skipped.
+   * 
+   * @param start the offset of the attribute count
+   * @param name the constant pool index of the attribute name
+   * @param target the member the attributes are on, or -1 for the class
+   * @param types the list to add the annotation types to
+   * @param targets the list to add the annotated members to
+   */
+  private void addAnnotations(final int start, final int name, final int target,
+                              final List<String> types, final IdList targets)
+  {
+    final int count = u2(start);
+    int pos = start + 2;
+    for (int i = 0; i < count; ++i)
+    {
+      final int attrEnd = pos + 6 + buf.getInt(pos + 2);
+      if ((u2(pos) == name) && (attrEnd >= pos + 8))
+      {
+        final int annCount = u2(pos + 6);
+        int ann = pos + 8;
+        for (int j = 0; (j < annCount) && (ann >= 0); ++j)
+        {
+          // Check the annotation fits before using its type
+          final int next = skipAnnotation(ann, attrEnd, 0);
+          if (next < 0)
+          {
+            break;
+          }
+          
+          // The type is a field descriptor, such as Ljavax/persistence/Entity;
+          final int type = u2(ann);
+          if (getTag(type) == CONSTANT_UTF8)
+          {
+            final int off = cpOffsets[type];
+            final int len = u2(off + 1);
+            if ((len > 2) && (buffer[off + 3] == 'L'))
+            {
+              types.add(decode(off + 4, len - 2));
+              targets.add(target);
+            }
+          }
+          
+          ann = next;
+        }
+      }
+      
+      pos = attrEnd;
+    }
+  }
+  
+  
+  /**
+   * Skip over an annotation.
+   * 
+   * @param start the offset of the annotation's type index
+   * @param end the offset of the end of the attribute
+   * @param depth the number of annotations and arrays it is nested in
+   * @return the offset after the annotation, or -1 if it runs past
+   *         the end of the attribute or is nested too deeply
+   */
+  private int skipAnnotation(final int start, final int end, final int depth)
+  {
+    if (((start + 4) > end) || (depth > MAX_NESTING))
+    {
+      return -1;
+    }
+    
+    final int pairs = u2(start + 2);
+    int pos = start + 4;
+    for (int i = 0; (i < pairs) && (pos >= 0); ++i)
+    {
+      pos = skipElementValue(pos + 2, end, depth);
+    }
+    
+    return pos;
+  }
+  
+  
+  /**
+   * Skip over the value of an annotation element.
+   * 
+   * @param start the offset of the value's tag
+   * @param end the offset of the end of the attribute
+   * @param depth the number of annotations and arrays it is nested in
+   * @return the offset after the value, or -1 if it runs past the end
+   *         of the attribute or is nested too deeply
+   */
+  private int skipElementValue(final int start, final int end, final int depth)
+  {
+    if ((start + 3) > end)
+    {
+      return -1;
+    }
+    
+    switch (buffer[start])
+    {
+      case 'e':
+        // An enum constant: the type and the name
+        return ((start + 5) > end) ? -1 : start + 5;
+      
+      case '@':
+        return skipAnnotation(start + 1, end, depth + 1);
+      
+      case '[':
+        if (depth >= MAX_NESTING)
+        {
+          return -1;
+        }
+        
+        final int count = u2(start + 1);
+        int pos = start + 3;
+        for (int i = 0; (i < count) && (pos >= 0); ++i)
+        {
+          pos = skipElementValue(pos, end, depth + 1);
+        }
+        
+        return pos;
+      
+      default:
+        // A constant or a class: one index
+        return start + 3;
+    }
+  }
+  
+  
+  /**
+   * Pass the names of the classes referenced by the class to a handler.
+   * 
+   * @param handler the handler for the class names
+   */
+  private void scanReferences(final DescriptorScanner.NameHandler handler)
+  {
+    if (!valid)
+    {
+      return;
+    }
+    
+    for (int i = 1; i < poolSize; ++i)
+    {
+      final int off = cpOffsets[i];
+      if (off == 0)
+      {
+        continue;
+      }
+      
+      switch (buffer[off] & 0xFF)
+      {
+        case CONSTANT_CLASS:
+          addClassName(u2(off + 1), handler);
+          break;
+        
+        case CONSTANT_NAME_AND_TYPE:
+          addDescriptor(u2(off + 3), handler);
+          break;
+        
+        case CONSTANT_METHOD_TYPE:
+          addDescriptor(u2(off + 1), handler);
+          break;
+        
+        default:
+          break;
+      }
+    }
+    
+    // Add the classes in the generic signatures, if there are any
+    final int signature = findUtf8(SIGNATURE);
+    if ((signature == 0) || (attributesOffset == 0))
+    {
+      return;
+    }
+    
+    addSignatures(attributesOffset, signature, handler);
+    final int memCount = fieldCount + methodCount;
+    for (int i = 0; i < memCount; ++i)
+    {
+      addSignatures(members[i] + 6, signature, handler);
+    }
+  }
+  
+  
+  /**
+   * Add the name in a class entry.  Array types are reduced to their
+   * element class, and arrays of primitives are skipped.
+   * 
+   * @param index the constant pool index of the name
+   * @param handler the handler for the class names
+   */
+  private void addClassName(final int index,
+                            final DescriptorScanner.NameHandler handler)
+  {
+    if (getTag(index) != CONSTANT_UTF8)
+    {
+      return;
+    }
+    
+    final int off = cpOffsets[index];
+    final int len = u2(off + 1);
+    if ((len == 0) || (buffer[off + 3] != '['))
+    {
+      handler.addName(buffer, off + 3, len);
+    }
+    else
+    {
+      getScanner().scan(buffer, off + 3, len, handler);
+    }
+  }
+  
+  
+  /**
+   * Add the class names in a descriptor or signature.
+   * 
+   * @param index the constant pool index of the descriptor
+   * @param handler the handler for the class names
+   */
+  private void addDescriptor(final int index,
+                             final DescriptorScanner.NameHandler handler)
+  {
+    if ((index <= 0) || (index >= poolSize) || (getTag(index) != CONSTANT_UTF8))
+    {
+      return;
+    }
+    
+    final int off = cpOffsets[index];
+    getScanner().scan(buffer, off + 3, u2(off + 1), handler);
+  }
+  
+  
+  /**
+   * Return the scanner for descriptors and signatures.
+   * 
+   * @return the scanner
+   */
+  private DescriptorScanner getScanner()
+  {
+    if (scanner == null)
+    {
+      scanner = new DescriptorScanner();
+    }
+    
+    return scanner;
+  }
+  
+  
+  /**
+   * Add the class names in any Signature attribute in a list of
+   * attributes.
+   * 
+   * @param start the offset of the attribute count
+   * @param signature the constant pool index of the name "Signature"
+   * @param handler the handler for the class names
+   */
+  private void addSignatures(final int start, final int signature,
+                             final DescriptorScanner.NameHandler handler)
+  {
+    final int count = u2(start);
+    int pos = start + 2;
+    for (int i = 0; i < count; ++i)
+    {
+      if (u2(pos) == signature)
+      {
+        addDescriptor(u2(pos + 6), handler);
+      }
+      
+      pos += 6 + buf.getInt(pos + 2);
+    }
+  }
+  
+  
+  /**
+   * Return the index of the Utf8 entry holding an ASCII string.
+   * 
+   * @param value the bytes of the string
+   * @return the constant pool index, or 0 if it is not in the pool
+   */
+  private int findUtf8(final byte[] value)
+  {
+    for (int i = 1; i < poolSize; ++i)
+    {
+      final int off = cpOffsets[i];
+      if ((off == 0) || (buffer[off] != CONSTANT_UTF8) ||
+          (u2(off + 1) != value.length))
+      {
+        continue;
+      }
+      
+      int j = 0;
+      while ((j < value.length) && (buffer[off + 3 + j] == value[j]))
+      {
+        ++j;
+      }
+      
+      if (j == value.length)
+      {
+        return i;
+      }
+    }
+    
+    return 0;
+  }
+  
+  
+  /**
+   * Decode a string in the class file's modified UTF-8.
+   * 
+   * @param off the offset of the first byte
+   * @param len the number of bytes
+   * @return the string
+   */
+  private String decode(final int off, final int len)
+  {
+    if (len > chars.length)
+    {
+      chars = new char[len + 64];
+    }
+    
+    return decode(buffer, off, len, chars);
+  }
+  
+  
+  /**
+   * Decode a string in the class file's modified UTF-8.
+   * 
+   * @param data the bytes holding the string
+   * @param off the offset of the first byte
+   * @param len the number of bytes
+   * @param chars the buffer for the characters, at least len long
+   * @return the string
+   */
+  static String decode(final byte[] data, final int off, final int len,
+                       final char[] chars)
+  {
+    return new String(chars, 0, decodeChars(data, off, len, chars));
+  }
+  
+  
+  /**
+   * Decode the characters of a string in the class file's modified UTF-8.
+   * 
+   * @param data the bytes holding the string
+   * @param off the offset of the first byte
+   * @param len the number of bytes
+   * @param chars the buffer for the characters, at least len long
+   * @return the number of characters
+   */
+  public static int decodeChars(final byte[] data, final int off,
+                                final int len, final char[] chars)
+  {
+    int count = 0;
+    int pos = off;
+    final int end = off + len;
+    while (pos < end)
+    {
+      final int b = data[pos++] & 0xFF;
+      if (b < 0x80)
+      {
+        chars[count++] = (char) b;
+      }
+      else if ((b & 0xE0) == 0xC0)
+      {
+        chars[count++] = (char) (((b & 0x1F) << 6) | (data[pos++] & 0x3F));
+      }
+      else
+      {
+        chars[count++] = (char) (((b & 0x0F) << 12) |
+                                 ((data[pos] & 0x3F) << 6) |
+                                 (data[pos + 1] & 0x3F));
+        pos += 2;
+      }
+    }
+    
+    return count;
+  }
+  
+  
+  /**
+   * Read an unsigned 2-byte value.
+   * 
+   * @param off the offset of the value
+   * @return the value
+   */
+  private int u2(final int off)
+  {
+    return buf.getShort(off) & 0xFFFF;
+  }
+}
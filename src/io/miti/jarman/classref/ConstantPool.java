@@ -0,0 +1,290 @@
+package io.miti.jarman.classref;
+
+/**
+ * The constant pool of a parsed class.  The pool keeps the class bytes
+ * that the reader parsed, and the offset of each entry in them; each
+ * value is read from the bytes when it is requested, and each Utf8
+ * entry is only decoded into a string when it is first requested.
+ * Nothing is copied per entry, so a pool costs one int per slot on top
+ * of the class bytes.  A pool is not thread-safe.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class ConstantPool
+{
+  /**
+   * The class bytes, taken over from the reader.
+   */
+  private byte[] data = null;
+  
+  /**
+   * The offset of each entry's tag in the class bytes, or 0 for
+   * unused slots.
+   */
+  private int[] offsets = null;
+  
+  /**
+   * The number of slots, including the unused slot 0.
+   */
+  private int size = 0;
+  
+  /**
+   * The decoded Utf8 strings, by slot, created when first needed.
+   */
+  private String[] strings = null;
+  
+  /**
+   * The buffer for decoding strings.
+   */
+  private char[] chars = null;
+  
+  
+  /**
+   * Take over the constant pool of the class in a reader.  The reader
+   * gives up its buffer, and reads its next class into a new one.
+   * 
+   * @param reader the reader holding a parsed class
+   */
+  public ConstantPool(final ClassReader reader)
+  {
+    super();
+    size = reader.getPoolSize();
+    offsets = reader.takePoolOffsets();
+    data = reader.takeBuffer();
+  }
+  
+  
+  /**
+   * Return the number of slots, including the unused slot 0.
+   * 
+   * @return the constant pool count
+   */
+  public int getSize()
+  {
+    return size;
+  }
+  
+  
+  /**
+   * Return the tag of a slot.
+   * 
+   * @param index the constant pool index
+   * @return the tag, or 0 for an unused or invalid slot
+   */
+  public int getTag(final int index)
+  {
+    if ((index <= 0) || (index >= size) || (offsets[index] == 0))
+    {
+      return 0;
+    }
+    
+    return data[offsets[index]] & 0xFF;
+  }
+  
+  
+  /**
+   * Return the number of entries with a tag.
+   * 
+   * @param tag the tag to count
+   * @return the number of entries
+   */
+  public int getCount(final int tag)
+  {
+    int count = 0;
+    for (int i = 1; i < size; ++i)
+    {
+      if (getTag(i) == tag)
+      {
+        ++count;
+      }
+    }
+    
+    return count;
+  }
+  
+  
+  /**
+   * Return the first value of a slot: the first index for a reference
+   * entry.
+   * 
+   * @param index the constant pool index
+   * @return the first value, or 0 if the entry has no references
+   */
+  public int getRef1(final int index)
+  {
+    switch (getTag(index))
+    {
+      case ClassReader.CONSTANT_CLASS:
+      case ClassReader.CONSTANT_STRING:
+      case ClassReader.CONSTANT_METHOD_TYPE:
+      case ClassReader.CONSTANT_MODULE:
+      case ClassReader.CONSTANT_PACKAGE:
+      case ClassReader.CONSTANT_FIELDREF:
+      case ClassReader.CONSTANT_METHODREF:
+      case ClassReader.CONSTANT_INTERFACE_METHODREF:
+      case ClassReader.CONSTANT_NAME_AND_TYPE:
+      case ClassReader.CONSTANT_DYNAMIC:
+      case ClassReader.CONSTANT_INVOKE_DYNAMIC:
+        return u2(offsets[index] + 1);
+      
+      case ClassReader.CONSTANT_METHOD_HANDLE:
+        return u2(offsets[index] + 2);
+      
+      default:
+        return 0;
+    }
+  }
+  
+  
+  /**
+   * Return the second value of a slot: the second index for a reference
+   * entry, or the kind of a method handle.
+   * 
+   * @param index the constant pool index
+   * @return the second value, or 0 if the entry has none
+   */
+  public int getRef2(final int index)
+  {
+    switch (getTag(index))
+    {
+      case ClassReader.CONSTANT_FIELDREF:
+      case ClassReader.CONSTANT_METHODREF:
+      case ClassReader.CONSTANT_INTERFACE_METHODREF:
+      case ClassReader.CONSTANT_NAME_AND_TYPE:
+      case ClassReader.CONSTANT_DYNAMIC:
+      case ClassReader.CONSTANT_INVOKE_DYNAMIC:
+        return u2(offsets[index] + 3);
+      
+      case ClassReader.CONSTANT_METHOD_HANDLE:
+        return data[offsets[index] + 1] & 0xFF;
+      
+      default:
+        return 0;
+    }
+  }
+  
+  
+  /**
+   * Return a Utf8 entry.
+   * 
+   * @param index the constant pool index
+   * @return the string, or null if the entry is not a Utf8 entry
+   */
+  public String getUtf8(final int index)
+  {
+    if (getTag(index) != ClassReader.CONSTANT_UTF8)
+    {
+      return null;
+    }
+    
+    // Decode the string the first time it is used
+    if (strings == null)
+    {
+      strings = new String[size];
+    }
+    
+    String str = strings[index];
+    if (str == null)
+    {
+      final int off = offsets[index];
+      final int len = u2(off + 1);
+      if ((chars == null) || (chars.length < len))
+      {
+        chars = new char[len + 64];
+      }
+      
+      str = ClassReader.decode(data, off + 3, len, chars);
+      strings[index] = str;
+    }
+    
+    return str;
+  }
+  
+  
+  /**
+   * Return the string that an entry points to, such as the name of a
+   * Class entry or the value of a String entry.
+   * 
+   * @param index the constant pool index
+   * @return the string, or null if there is none
+   */
+  public String getRefString(final int index)
+  {
+    return getUtf8(getRef1(index));
+  }
+  
+  
+  /**
+   * Return the value of an Integer entry.
+   * 
+   * @param index the constant pool index
+   * @return the int value
+   */
+  public int getInt(final int index)
+  {
+    return s4(offsets[index] + 1);
+  }
+  
+  
+  /**
+   * Return the value of a Float entry.
+   * 
+   * @param index the constant pool index
+   * @return the float value
+   */
+  public float getFloat(final int index)
+  {
+    return Float.intBitsToFloat(getInt(index));
+  }
+  
+  
+  /**
+   * Return the value of a Long entry.
+   * 
+   * @param index the constant pool index
+   * @return the long value
+   */
+  public long getLong(final int index)
+  {
+    final int off = offsets[index];
+    return (((long) s4(off + 1)) << 32) | (s4(off + 5) & 0xFFFFFFFFL);
+  }
+  
+  
+  /**
+   * Return the value of a Double entry.
+   * 
+   * @param index the constant pool index
+   * @return the double value
+   */
+  public double getDouble(final int index)
+  {
+    return Double.longBitsToDouble(getLong(index));
+  }
+  
+  
+  /**
+   * Read an unsigned 2-byte value from the class bytes.
+   * 
+   * @param off the offset of the value
+   * @return the value
+   */
+  private int u2(final int off)
+  {
+    return ((data[off] & 0xFF) << 8) | (data[off + 1] & 0xFF);
+  }
+  
+  
+  /**
+   * Read a signed 4-byte value from the class bytes.
+   * 
+   * @param off the offset of the value
+   * @return the value
+   */
+  private int s4(final int off)
+  {
+    return ((data[off] & 0xFF) << 24) | ((data[off + 1] & 0xFF) << 16) |
+           ((data[off + 2] & 0xFF) << 8) | (data[off + 3] & 0xFF);
+  }
+}
@@ -0,0 +1,326 @@
+package io.miti.jarman.classref;
+
+import java.util.Arrays;
+
+/**
+ * Find the class names in field and method descriptors, and in generic
+ * signatures, working on the undecoded bytes from the constant pool.
+ * Each class name is passed to a handler as a slice of bytes, so no
+ * strings are created by the scanner.
+ * 
+ * A signature such as Ljava/util/Map&lt;TK;Ljava/util/List&lt;*&gt;;&gt;.Entry;
+ * names java/util/Map, java/util/List and java/util/Map$Entry; type
+ * variables and primitive types are skipped.  Names of inner classes are
+ * built in a scratch buffer, so a scanner is not thread-safe.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class DescriptorScanner
+{
+  /**
+   * The buffer for building the names of inner classes.
+   */
+  private byte[] scratch = new byte[256];
+  
+  /**
+   * The number of bytes in use in the scratch buffer.
+   */
+  private int scratchLen = 0;
+  
+  /**
+   * The handler for the class names found.
+   */
+  private NameHandler handler = null;
+  
+  /**
+   * The bytes being scanned.
+   */
+  private byte[] data = null;
+  
+  /**
+   * The offset after the last byte to scan.
+   */
+  private int end = 0;
+  
+  
+  /**
+   * Default constructor.
+   */
+  public DescriptorScanner()
+  {
+    super();
+  }
+  
+  
+  /**
+   * Scan a descriptor or signature, and pass each class name in it to
+   * the handler.  This covers field and method descriptors, and class,
+   * method and field signatures.
+   * 
+   * @param pData the bytes holding the descriptor
+   * @param off the offset of the first byte
+   * @param len the number of bytes
+   * @param pHandler the handler for the class names
+   */
+  public void scan(final byte[] pData, final int off, final int len,
+                   final NameHandler pHandler)
+  {
+    data = pData;
+    end = off + len;
+    handler = pHandler;
+    scratchLen = 0;
+    
+    int pos = off;
+    if ((pos < end) && (data[pos] == '<'))
+    {
+      pos = scanTypeParameters(pos + 1);
+    }
+    
+    // The rest is a list of types, with the punctuation of a method
+    while (pos < end)
+    {
+      final byte c = data[pos];
+      if ((c == '(') || (c == ')') || (c == '^'))
+      {
+        ++pos;
+      }
+      else
+      {
+        pos = scanType(pos);
+      }
+    }
+    
+    data = null;
+    handler = null;
+  }
+  
+  
+  /**
+   * Scan the type parameters of a generic class or method, each of
+   * which is a name followed by its bounds.
+   * 
+   * @param start the offset after the opening '&lt;'
+   * @return the offset after the closing '&gt;'
+   */
+  private int scanTypeParameters(final int start)
+  {
+    int pos = start;
+    while ((pos < end) && (data[pos] != '>'))
+    {
+      // Skip the name of the parameter
+      while ((pos < end) && (data[pos] != ':'))
+      {
+        ++pos;
+      }
+      
+      // Scan the class bound and the interface bounds
+      while ((pos < end) && (data[pos] == ':'))
+      {
+        ++pos;
+        if ((pos < end) && isReferenceStart(data[pos]))
+        {
+          pos = scanType(pos);
+        }
+      }
+    }
+    
+    return pos + 1;
+  }
+  
+  
+  /**
+   * Return whether a byte starts a class, array or type variable type.
+   * 
+   * @param c the byte
+   * @return whether c starts a reference type
+   */
+  private static boolean isReferenceStart(final byte c)
+  {
+    return ((c == 'L') || (c == '[') || (c == 'T'));
+  }
+  
+  
+  /**
+   * Scan one type.
+   * 
+   * @param start the offset of the type
+   * @return the offset after the type
+   */
+  private int scanType(final int start)
+  {
+    int pos = start;
+    
+    // Skip array dimensions and wildcard markers
+    while ((pos < end) &&
+           ((data[pos] == '[') || (data[pos] == '+') || (data[pos] == '-')))
+    {
+      ++pos;
+    }
+    
+    if (pos >= end)
+    {
+      return end;
+    }
+    
+    switch (data[pos])
+    {
+      case 'L':
+        return scanClassType(pos + 1);
+      
+      case 'T':
+        // A type variable, which ends at the next ';'
+        while ((pos < end) && (data[pos] != ';'))
+        {
+          ++pos;
+        }
+        return pos + 1;
+      
+      default:
+        // A primitive type, void, or an unbounded wildcard
+        return pos + 1;
+    }
+  }
+  
+  
+  /**
+   * Scan a class type, reporting the name of the class and of each
+   * inner class in it.
+   * 
+   * @param start the offset after the 'L'
+   * @return the offset after the closing ';'
+   */
+  private int scanClassType(final int start)
+  {
+    // Find the end of the outer class name; usually there are no type
+    // arguments or inner classes, so the name is reported in place
+    int pos = start;
+    while ((pos < end) && !isNameEnd(data[pos]))
+    {
+      ++pos;
+    }
+    
+    handler.addName(data, start, pos - start);
+    if ((pos >= end) || (data[pos] == ';'))
+    {
+      return pos + 1;
+    }
+    
+    // Build the names of any inner classes in the scratch buffer, which
+    // is used as a stack, since type arguments can hold class types too
+    final int base = scratchLen;
+    append(start, pos - start);
+    while (pos < end)
+    {
+      final byte c = data[pos];
+      if (c == ';')
+      {
+        ++pos;
+        break;
+      }
+      else if (c == '<')
+      {
+        pos = scanTypeArguments(pos + 1);
+      }
+      else if (c == '.')
+      {
+        // Add the inner class to the name, and report it
+        final int nameStart = pos + 1;
+        pos = nameStart;
+        while ((pos < end) && !isNameEnd(data[pos]))
+        {
+          ++pos;
+        }
+        
+        ensureScratch(1);
+        scratch[scratchLen++] = '$';
+        append(nameStart, pos - nameStart);
+        handler.addName(scratch, base, scratchLen - base);
+      }
+      else
+      {
+        // Malformed; skip the byte
+        ++pos;
+      }
+    }
+    
+    scratchLen = base;
+    return pos;
+  }
+  
+  
+  /**
+   * Scan the type arguments of a class type.
+   * 
+   * @param start the offset after the opening '&lt;'
+   * @return the offset after the closing '&gt;'
+   */
+  private int scanTypeArguments(final int start)
+  {
+    int pos = start;
+    while ((pos < end) && (data[pos] != '>'))
+    {
+      pos = scanType(pos);
+    }
+    
+    return pos + 1;
+  }
+  
+  
+  /**
+   * Return whether a byte ends a simple class name.
+   * 
+   * @param c the byte
+   * @return whether c ends the name
+   */
+  private static boolean isNameEnd(final byte c)
+  {
+    return ((c == ';') || (c == '<') || (c == '.'));
+  }
+  
+  
+  /**
+   * Append bytes from the data to the scratch buffer.
+   * 
+   * @param off the offset of the first byte
+   * @param len the number of bytes
+   */
+  private void append(final int off, final int len)
+  {
+    ensureScratch(len);
+    System.arraycopy(data, off, scratch, scratchLen, len);
+    scratchLen += len;
+  }
+  
+  
+  /**
+   * Make room in the scratch buffer.
+   * 
+   * @param len the number of bytes to be added
+   */
+  private void ensureScratch(final int len)
+  {
+    if ((scratchLen + len) > scratch.length)
+    {
+      scratch = Arrays.copyOf(scratch, Math.max(scratch.length * 2,
+                                                scratchLen + len));
+    }
+  }
+  
+  
+  /**
+   * The interface for handling the class names found by a scan.
+   */
+  public interface NameHandler
+  {
+    /**
+     * A class name was found.  The bytes are only valid until this
+     * returns.
+     * 
+     * @param bytes the array holding the name, in modified UTF-8
+     * @param off the offset of the name
+     * @param len the number of bytes in the name
+     */
+    void addName(final byte[] bytes, final int off, final int len);
+  }
+}
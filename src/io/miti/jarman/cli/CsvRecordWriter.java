@@ -0,0 +1,104 @@
+package io.miti.jarman.cli;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+
+/**
+ * Write records as comma-separated values, with a header line of
+ * column names.  Values holding a comma, quote or line break are
+ * quoted, as in RFC 4180.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class CsvRecordWriter extends RecordWriter
+{
+  /**
+   * Constructor.
+   * 
+   * @param out the output
+   * @param columns the column names
+   */
+  public CsvRecordWriter(final Writer out, final String[] columns)
+  {
+    super(out, columns);
+  }
+  
+  
+  /**
+   * Write the column names.
+   */
+  @Override
+  protected void writeHeader()
+  {
+    writeLine(getColumns());
+  }
+  
+  
+  /**
+   * Write a record as one line.
+   * 
+   * @param values the values of the record
+   */
+  @Override
+  protected void writeRecord(final Object[] values)
+  {
+    writeLine(values);
+  }
+  
+  
+  /**
+   * Write a line of values.  A null value is written as an empty field.
+   * 
+   * @param values the values
+   */
+  private void writeLine(final Object[] values)
+  {
+    final PrintWriter out = getOutput();
+    final int count = getColumns().length;
+    for (int i = 0; i < count; ++i)
+    {
+      if (i > 0)
+      {
+        out.write(',');
+      }
+      
+      final Object value = (i < values.length) ? values[i] : null;
+      if (value != null)
+      {
+        writeField(out, value.toString());
+      }
+    }
+    
+    out.write("\r\n");
+  }
+  
+  
+  /**
+   * Write a field, quoting it if needed.
+   * 
+   * @param out the output
+   * @param field the field value
+   */
+  private static void writeField(final PrintWriter out, final String field)
+  {
+    boolean quote = false;
+    final int len = field.length();
+    for (int i = 0; (i < len) && !quote; ++i)
+    {
+      final char c = field.charAt(i);
+      quote = ((c == ',') || (c == '"') || (c == '\n') || (c == '\r'));
+    }
+    
+    if (!quote)
+    {
+      out.write(field);
+      return;
+    }
+    
+    // Double any quotes in the field
+    out.write('"');
+    out.write(field.replace("\"", "\"\""));
+    out.write('"');
+  }
+}
@@ -0,0 +1,662 @@
+package io.miti.jarman.cli;
+
+import io.miti.jarman.data.DuplicateFinder;
+import io.miti.jarman.data.EntryStore;
+import io.miti.jarman.data.JarListing;
+import io.miti.jarman.util.ClassPathFinder;
+import io.miti.jarman.util.ClassPathResolver;
+import io.miti.jarman.util.ClassScanner;
+import io.miti.jarman.util.ClasspathVerifier;
+import io.miti.jarman.util.JarScanner;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The command-line entry point, for running the analysis without the
+ * GUI, such as on a build server.  No AWT or Swing classes are loaded.
+ * A command reads a jar and the jars reachable through the Class-Path
+ * entries of the manifests (to any depth), and writes its results to
+ * standard output (or a file) as JSON Lines or CSV, one record at a
+ * time.  Messages go to standard error.  In place
+ * of a jar, a command can read the archives and class directories
+ * under a directory, or the entries of a class path string.
+ * 
+ * The exit code is 0 on success, 1 if the command found a problem
+ * (missing classes, or class files with different contents under the
+ * same name), 2 for bad arguments, and 3 if a file could not be read
+ * or written.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class JarmanCli
+{
+  /**
+   * The exit code for success.
+   */
+  public static final int EXIT_OK = 0;
+  
+  /**
+   * The exit code when the command found a problem.
+   */
+  public static final int EXIT_FOUND = 1;
+  
+  /**
+   * The exit code for bad arguments.
+   */
+  public static final int EXIT_USAGE = 2;
+  
+  /**
+   * The exit code when a file could not be read or written.
+   */
+  public static final int EXIT_ERROR = 3;
+  
+  /**
+   * The scan listener for commands that do not show progress.
+   */
+  private static final ClassScanner.ScanListener NO_PROGRESS =
+    new ClassScanner.ScanListener()
+  {
+    @Override
+    public void jarScanned(final File jar, final int done, final int total)
+    {
+      // Nothing to show
+    }
+    
+    @Override
+    public boolean isCancelled()
+    {
+      return false;
+    }
+  };
+  
+  /**
+   * The command to run.
+   */
+  private String command = null;
+  
+  /**
+   * The output format.
+   */
+  private String format = "jsonl";
+  
+  /**
+   * The name of the output file, or null for standard output.
+   */
+  private String outputName = null;
+  
+  /**
+   * The number of worker threads.
+   */
+  private int threads = JarScanner.getDefaultPoolSize();
+  
+  /**
+   * Whether to read the jars in the manifest's Class-Path.
+   */
+  private boolean followClassPath = true;
+  
+  /**
+   * The jar file to read.
+   */
+  private File jar = null;
+  
+  
+  /**
+   * Default constructor.
+   */
+  public JarmanCli()
+  {
+    super();
+  }
+  
+  
+  /**
+   * Run a command and exit with its exit code.
+   * 
+   * @param args the command and its arguments
+   */
+  public static void main(final String[] args)
+  {
+    System.setProperty("java.awt.headless", "true");
+    System.exit(new JarmanCli().run(args));
+  }
+  
+  
+  /**
+   * Run a command.
+   * 
+   * @param args the command and its arguments
+   * @return the exit code
+   */
+  public int run(final String[] args)
+  {
+    if (!parseArgs(args))
+    {
+      printUsage();
+      return EXIT_USAGE;
+    }
+    
+    // Read the class path of the jar
+    final List<File> jars = getJars();
+    if (jars == null)
+    {
+      System.err.println("Unable to read " + jar.getPath());
+      return EXIT_ERROR;
+    }
+    
+    // Open the output, and run the command
+    RecordWriter out = null;
+    int result = EXIT_OK;
+    try
+    {
+      final Writer writer = new BufferedWriter(new OutputStreamWriter(
+                                  openOutput(), "UTF-8"), 65536);
+      if (command.equals("scan"))
+      {
+        out = RecordWriter.create(format, writer,
+                                  "jar", "path", "size", "crc", "date");
+        result = runScan(jars, out);
+      }
+      else if (command.equals("verify"))
+      {
+        out = RecordWriter.create(format, writer, "class", "referrer", "jar");
+        result = runVerify(jars, out);
+      }
+      else if (command.equals("duplicates"))
+      {
+        out = RecordWriter.create(format, writer, "path", "jar", "size",
+                                  "crc", "copies", "identical");
+        result = runDuplicates(jars, out);
+      }
+      else
+      {
+        out = RecordWriter.create(format, writer, "class", "referrer", "jar");
+        result = runRefs(jars, out);
+      }
+    }
+    catch (IOException e)
+    {
+      System.err.println("Unable to write the output: " + e.getMessage());
+      return EXIT_ERROR;
+    }
+    finally
+    {
+      if (out != null)
+      {
+        if (out.checkError())
+        {
+          System.err.println("Unable to write the output");
+          result = EXIT_ERROR;
+        }
+        
+        out.close();
+      }
+    }
+    
+    return result;
+  }
+  
+  
+  /**
+   * Parse the arguments.
+   * 
+   * @param args the command and its arguments
+   * @return whether the arguments are valid
+   */
+  private boolean parseArgs(final String[] args)
+  {
+    if ((args == null) || (args.length < 2))
+    {
+      return false;
+    }
+    
+    command = args[0];
+    if (!command.equals("scan") && !command.equals("verify") &&
+        !command.equals("duplicates") && !command.equals("refs"))
+    {
+      System.err.println("Unknown command: " + command);
+      return false;
+    }
+    
+    // Parse the options, up to the name of the jar
+    int i = 1;
+    for (; i < (args.length - 1); ++i)
+    {
+      final String arg = args[i];
+      if (arg.equals("-f") || arg.equals("--format"))
+      {
+        format = args[++i];
+      }
+      else if (arg.equals("-o") || arg.equals("--output"))
+      {
+        outputName = args[++i];
+      }
+      else if (arg.equals("-t") || arg.equals("--threads"))
+      {
+        try
+        {
+          threads = Math.max(1, Integer.parseInt(args[++i]));
+        }
+        catch (NumberFormatException nfe)
+        {
+          System.err.println("Invalid thread count: " + args[i]);
+          return false;
+        }
+      }
+      else if (arg.equals("-n") || arg.equals("--no-class-path"))
+      {
+        followClassPath = false;
+      }
+      else
+      {
+        System.err.println("Unknown option: " + arg);
+        return false;
+      }
+    }
+    
+    if (i != (args.length - 1))
+    {
+      return false;
+    }
+    else if (!format.equalsIgnoreCase("jsonl") && !format.equalsIgnoreCase("csv"))
+    {
+      System.err.println("Unknown format: " + format);
+      return false;
+    }
+    
+    jar = new File(args[i]);
+    return true;
+  }
+  
+  
+  /**
+   * Print the usage message.
+   */
+  private static void printUsage()
+  {
+    System.err.println("Usage: java -cp jarman.jar io.miti.jarman.cli.JarmanCli"
+                       + " <command> [options] <jar|directory|class path>");
+    System.err.println("Commands:");
+    System.err.println("  scan        list the entries in each jar");
+    System.err.println("  verify      list the referenced classes that are missing");
+    System.err.println("  duplicates  list the entries found in more than one jar");
+    System.err.println("  refs        list all of the referenced classes");
+    System.err.println("Options:");
+    System.err.println("  -f, --format jsonl|csv  the output format (default jsonl)");
+    System.err.println("  -o, --output <file>     write to a file instead of stdout");
+    System.err.println("  -t, --threads <n>       the number of worker threads");
+    System.err.println("  -n, --no-class-path     only read the named jar");
+    System.err.println("Exit codes: 0 = OK, 1 = problems found, 2 = bad arguments,"
+                       + " 3 = I/O error");
+  }
+  
+  
+  /**
+   * Open the output stream.
+   * 
+   * @return the output stream
+   * @throws IOException if the output file cannot be opened
+   */
+  private OutputStream openOutput() throws IOException
+  {
+    if (outputName == null)
+    {
+      return System.out;
+    }
+    
+    return new FileOutputStream(outputName);
+  }
+  
+  
+  /**
+   * Return the jar and the jars reachable from it through manifest
+   * Class-Path entries, to any depth.  If a directory was named, the
+   * archives and class directories under it are the starting list; if
+   * a class path was named, its entries are.
+   * 
+   * @return the list of jars, or null if the jar cannot be read
+   */
+  private List<File> getJars()
+  {
+    final String name = jar.getPath();
+    List<File> roots = null;
+    if (jar.isDirectory())
+    {
+      roots = new ClassPathFinder(threads).find(jar);
+    }
+    else if (!jar.exists() && ((name.indexOf(File.pathSeparatorChar) >= 0) ||
+                               name.endsWith("*")))
+    {
+      roots = ClassPathFinder.parseClassPath(name);
+    }
+    else if (ClassPathResolver.readAttributes(jar) == null)
+    {
+      // The jar is not a valid archive
+      return null;
+    }
+    else
+    {
+      roots = new ArrayList<File>(1);
+      roots.add(normalize(jar));
+    }
+    
+    if (!followClassPath)
+    {
+      return roots;
+    }
+    
+    // Follow the Class-Path of each jar
+    ClassPathResolver resolver = new ClassPathResolver(threads);
+    List<ClassPathResolver.Link> links = resolver.resolve(roots);
+    for (ClassPathResolver.Link cycle : resolver.getCycles())
+    {
+      System.err.println("Class-Path cycle: " + cycle.getParent().getPath() +
+                         " references " + cycle.getFile().getPath());
+    }
+    
+    List<File> jars = new ArrayList<File>(links.size());
+    for (ClassPathResolver.Link link : links)
+    {
+      jars.add(link.getFile());
+    }
+    
+    return jars;
+  }
+  
+  
+  /**
+   * Return the canonical form of a file, so the paths in the output
+   * have no "." or ".." parts.
+   * 
+   * @param file the file
+   * @return the canonical file, or the absolute file if that fails
+   */
+  private static File normalize(final File file)
+  {
+    try
+    {
+      return file.getCanonicalFile();
+    }
+    catch (IOException e)
+    {
+      return file.getAbsoluteFile();
+    }
+  }
+  
+  
+  /**
+   * Write the entries of each jar, one jar at a time.
+   * 
+   * @param jars the list of jars
+   * @param out the output
+   * @return the exit code
+   */
+  private int runScan(final List<File> jars, final RecordWriter out)
+  {
+    new JarScanner(threads).scan(jars, true, new JarScanner.ScanListener()
+    {
+      @Override
+      public void jarScanned(final JarListing listing)
+      {
+        if (!checkFound(listing))
+        {
+          return;
+        }
+        
+        final String jarName = listing.getJar().getAbsolutePath();
+        final EntryStore entries = listing.getEntries();
+        final int size = entries.size();
+        for (int i = 0; i < size; ++i)
+        {
+          out.write(jarName, entries.getFullPath(i),
+                    Long.valueOf(entries.getSize(i)),
+                    Long.valueOf(entries.getCrc(i)),
+                    Long.valueOf(entries.getDate(i)));
+        }
+        
+        out.flush();
+      }
+      
+      @Override
+      public boolean isCancelled()
+      {
+        return false;
+      }
+    });
+    
+    return EXIT_OK;
+  }
+  
+  
+  /**
+   * Write each referenced class that is not in the jars or the Java
+   * runtime, with the first class found that references it.
+   * 
+   * @param jars the list of jars
+   * @param out the output
+   * @return the exit code
+   */
+  private int runVerify(final List<File> jars, final RecordWriter out)
+  {
+    // Get the names of the classes in the jars
+    final Set<String> known = new HashSet<String>(1024);
+    final List<File> found = loadJars(jars, new JarScanner.ScanListener()
+    {
+      @Override
+      public void jarScanned(final JarListing listing)
+      {
+        final EntryStore entries = listing.getEntries();
+        final int size = entries.size();
+        for (int i = 0; i < size; ++i)
+        {
+          final String name = entries.getClassName(i);
+          if (name != null)
+          {
+            known.add(name);
+          }
+        }
+      }
+      
+      @Override
+      public boolean isCancelled()
+      {
+        return false;
+      }
+    });
+    
+    ClasspathVerifier verifier = new ClasspathVerifier(threads);
+    verifier.setResultListener(new Output(out));
+    Set<String> missing = verifier.findMissing(found, known, null, NO_PROGRESS);
+    System.err.println("Verified " + found.size() + " jars: " +
+                       missing.size() + " missing classes");
+    return missing.isEmpty() ? EXIT_OK : EXIT_FOUND;
+  }
+  
+  
+  /**
+   * Write each file that is in more than one jar.  Class files with
+   * different contents under the same name are treated as a problem.
+   * 
+   * @param jars the list of jars
+   * @param out the output
+   * @return the exit code
+   */
+  private int runDuplicates(final List<File> jars, final RecordWriter out)
+  {
+    // The entries of all jars are needed to find the duplicates
+    final EntryStore store = new EntryStore(1024);
+    loadJars(jars, new JarScanner.ScanListener()
+    {
+      @Override
+      public void jarScanned(final JarListing listing)
+      {
+        store.append(listing.getEntries());
+      }
+      
+      @Override
+      public boolean isCancelled()
+      {
+        return false;
+      }
+    });
+    
+    new DuplicateFinder().findDuplicates(store);
+    int conflicts = 0;
+    final int count = store.getNameMatchCount();
+    for (int i = 0; i < count; ++i)
+    {
+      final int row = store.getNameMatchRow(i);
+      final int copies = store.getNameGroupSize(row);
+      final boolean identical = (store.getFileGroupSize(row) == copies);
+      if (!identical && store.isClass(row))
+      {
+        ++conflicts;
+      }
+      
+      out.write(store.getFullPath(row), store.getJar(row),
+                Long.valueOf(store.getSize(row)),
+                Long.valueOf(store.getCrc(row)),
+                Integer.valueOf(copies), Boolean.valueOf(identical));
+    }
+    
+    System.err.println("Found " + count + " duplicate entries; " +
+                       conflicts + " class files differ from another copy");
+    return (conflicts == 0) ? EXIT_OK : EXIT_FOUND;
+  }
+  
+  
+  /**
+   * Write each class referenced by the classes in the jars, with the
+   * first class found that references it.
+   * 
+   * @param jars the list of jars
+   * @param out the output
+   * @return the exit code
+   */
+  private int runRefs(final List<File> jars, final RecordWriter out)
+  {
+    // List the jars, to find the jars inside them
+    final List<File> found = loadJars(jars, new JarScanner.ScanListener()
+    {
+      @Override
+      public void jarScanned(final JarListing listing)
+      {
+        // Only the list of jars is needed
+      }
+      
+      @Override
+      public boolean isCancelled()
+      {
+        return false;
+      }
+    });
+    
+    ClasspathVerifier verifier = new ClasspathVerifier(threads);
+    verifier.setResultListener(new Output(out));
+    Set<String> refs = verifier.findReferences(found, null, NO_PROGRESS);
+    System.err.println("Parsed " + found.size() + " jars: " +
+                       refs.size() + " referenced classes");
+    return EXIT_OK;
+  }
+  
+  
+  /**
+   * Read the entries of the jars, and pass each jar that was found to
+   * the listener.
+   * 
+   * @param jars the list of jars
+   * @param listener the listener for the jars that were found
+   * @return the jars that were found
+   */
+  private List<File> loadJars(final List<File> jars,
+                              final JarScanner.ScanListener listener)
+  {
+    final List<File> found = new ArrayList<File>(jars.size());
+    new JarScanner(threads).scan(jars, true, new JarScanner.ScanListener()
+    {
+      @Override
+      public void jarScanned(final JarListing listing)
+      {
+        if (checkFound(listing))
+        {
+          found.add(listing.getJar());
+          listener.jarScanned(listing);
+        }
+      }
+      
+      @Override
+      public boolean isCancelled()
+      {
+        return false;
+      }
+    });
+    
+    return found;
+  }
+  
+  
+  /**
+   * Return whether a jar was found, and report it if not.
+   * 
+   * @param listing the listing for the jar
+   * @return whether the jar was found
+   */
+  private static boolean checkFound(final JarListing listing)
+  {
+    if (!listing.isFound())
+    {
+      System.err.println("Jar not found: " + listing.getJar().getPath());
+      return false;
+    }
+    
+    return true;
+  }
+  
+  
+  /**
+   * Writes each class found by the verifier as a record.
+   */
+  private static final class Output implements ClasspathVerifier.ResultListener
+  {
+    /**
+     * The output.
+     */
+    private RecordWriter out = null;
+    
+    
+    /**
+     * Constructor.
+     * 
+     * @param pOut the output
+     */
+    public Output(final RecordWriter pOut)
+    {
+      out = pOut;
+    }
+    
+    
+    /**
+     * Write the class.
+     * 
+     * @param name the referenced class
+     * @param referrer the first class found that references it
+     * @param jar the jar holding the referring class
+     */
+    @Override
+    public void classFound(final String name, final String referrer,
+                           final File jar)
+    {
+      out.write(name, referrer, jar.getAbsolutePath());
+    }
+  }
+}
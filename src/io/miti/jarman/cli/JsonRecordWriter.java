@@ -0,0 +1,137 @@
+package io.miti.jarman.cli;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+
+/**
+ * Write records as JSON Lines: one JSON object per line, with a
+ * member for each column.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class JsonRecordWriter extends RecordWriter
+{
+  /**
+   * The hex digits, for escaping control characters.
+   */
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+  
+  
+  /**
+   * Constructor.
+   * 
+   * @param out the output
+   * @param columns the column names
+   */
+  public JsonRecordWriter(final Writer out, final String[] columns)
+  {
+    super(out, columns);
+  }
+  
+  
+  /**
+   * JSON Lines has no header, so nothing is written.
+   */
+  @Override
+  protected void writeHeader()
+  {
+    // Nothing to write
+  }
+  
+  
+  /**
+   * Write a record as a JSON object on one line.
+   * 
+   * @param values the values of the record
+   */
+  @Override
+  protected void writeRecord(final Object[] values)
+  {
+    final PrintWriter out = getOutput();
+    final String[] columns = getColumns();
+    out.write('{');
+    for (int i = 0; i < columns.length; ++i)
+    {
+      if (i > 0)
+      {
+        out.write(',');
+      }
+      
+      writeString(out, columns[i]);
+      out.write(':');
+      
+      // Numbers and booleans are written as they are
+      final Object value = (i < values.length) ? values[i] : null;
+      if (value == null)
+      {
+        out.write("null");
+      }
+      else if ((value instanceof Number) || (value instanceof Boolean))
+      {
+        out.write(value.toString());
+      }
+      else
+      {
+        writeString(out, value.toString());
+      }
+    }
+    
+    out.write('}');
+    out.write('\n');
+  }
+  
+  
+  /**
+   * Write a string as a quoted JSON string.
+   * 
+   * @param out the output
+   * @param str the string
+   */
+  private static void writeString(final PrintWriter out, final String str)
+  {
+    out.write('"');
+    final int len = str.length();
+    for (int i = 0; i < len; ++i)
+    {
+      final char c = str.charAt(i);
+      switch (c)
+      {
+        case '"':
+          out.write("\\\"");
+          break;
+        
+        case '\\':
+          out.write("\\\\");
+          break;
+        
+        case '\n':
+          out.write("\\n");
+          break;
+        
+        case '\r':
+          out.write("\\r");
+          break;
+        
+        case '\t':
+          out.write("\\t");
+          break;
+        
+        default:
+          if (c < 0x20)
+          {
+            out.write("\\u00");
+            out.write(HEX[c >> 4]);
+            out.write(HEX[c & 0xF]);
+          }
+          else
+          {
+            out.write(c);
+          }
+          break;
+      }
+    }
+    
+    out.write('"');
+  }
+}
@@ -0,0 +1,167 @@
+package io.miti.jarman.cli;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+
+/**
+ * Write the results of a command as a stream of records, each with the
+ * same columns.  Each record is written as soon as it is passed in, so
+ * results are not held in memory.  Writing is synchronized, so records
+ * can be written by several worker threads.
+ * 
+ * Like a PrintWriter, the write methods do not throw exceptions; call
+ * checkError() at the end to find out whether the output failed.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public abstract class RecordWriter
+{
+  /**
+   * The output.
+   */
+  private PrintWriter out = null;
+  
+  /**
+   * The column names.
+   */
+  private String[] columns = null;
+  
+  /**
+   * The number of records written.
+   */
+  private int count = 0;
+  
+  
+  /**
+   * Constructor.
+   * 
+   * @param pOut the output
+   * @param pColumns the column names
+   */
+  protected RecordWriter(final Writer pOut, final String[] pColumns)
+  {
+    super();
+    out = new PrintWriter(pOut, false);
+    columns = pColumns;
+  }
+  
+  
+  /**
+   * Return a writer for a format.
+   * 
+   * @param format the format name, either jsonl or csv
+   * @param out the output
+   * @param columns the column names
+   * @return the writer, or null if the format is not known
+   */
+  public static RecordWriter create(final String format, final Writer out,
+                                    final String... columns)
+  {
+    RecordWriter writer = null;
+    if (format.equalsIgnoreCase("jsonl"))
+    {
+      writer = new JsonRecordWriter(out, columns);
+    }
+    else if (format.equalsIgnoreCase("csv"))
+    {
+      writer = new CsvRecordWriter(out, columns);
+    }
+    
+    if (writer != null)
+    {
+      writer.writeHeader();
+    }
+    
+    return writer;
+  }
+  
+  
+  /**
+   * Write a record.  The values are strings, numbers, booleans or null,
+   * one for each column.
+   * 
+   * @param values the values of the record
+   */
+  public final synchronized void write(final Object... values)
+  {
+    writeRecord(values);
+    ++count;
+  }
+  
+  
+  /**
+   * Return the number of records written.
+   * 
+   * @return the number of records
+   */
+  public final synchronized int getCount()
+  {
+    return count;
+  }
+  
+  
+  /**
+   * Send any buffered records to the output.
+   */
+  public final synchronized void flush()
+  {
+    out.flush();
+  }
+  
+  
+  /**
+   * Flush the output, and return whether any write failed.
+   * 
+   * @return whether there was an error
+   */
+  public final synchronized boolean checkError()
+  {
+    return out.checkError();
+  }
+  
+  
+  /**
+   * Close the output.
+   */
+  public final synchronized void close()
+  {
+    out.close();
+  }
+  
+  
+  /**
+   * Return the output, for the subclasses.
+   * 
+   * @return the output
+   */
+  protected final PrintWriter getOutput()
+  {
+    return out;
+  }
+  
+  
+  /**
+   * Return the column names.
+   * 
+   * @return the column names
+   */
+  protected final String[] getColumns()
+  {
+    return columns;
+  }
+  
+  
+  /**
+   * Write anything that comes before the first record.
+   */
+  protected abstract void writeHeader();
+  
+  
+  /**
+   * Write a record.
+   * 
+   * @param values the values of the record
+   */
+  protected abstract void writeRecord(final Object[] values);
+}
@@ -0,0 +1,202 @@
+package io.miti.jarman.data;
+
+import java.util.Arrays;
+
+/**
+ * Group the entries in the entry store by full path, and then by
+ * content (CRC and size) within each path group.  Each pass is a single
+ * walk over the store with a hash lookup per entry, so the total cost is
+ * linear in the number of entries.  The hash tables are arrays of row
+ * indexes, and paths are compared in the store's name table, so no
+ * strings or keys are built.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class DuplicateFinder
+{
+  /**
+   * The group ID for an entry that has no duplicates.
+   */
+  public static final int NO_GROUP = -1;
+  
+  
+  /**
+   * Default constructor.
+   */
+  public DuplicateFinder()
+  {
+    super();
+  }
+  
+  
+  /**
+   * Find the duplicate entries in the store.  Each entry that shares
+   * its full path with another gets a name group ID, and each entry
+   * that also shares the CRC and size gets a file group ID.  The
+   * groups are saved in the store.
+   * 
+   * @param store the entry store
+   */
+  public void findDuplicates(final EntryStore store)
+  {
+    // Bucket the entries by full path.  For each entry, save the index
+    // of the first entry with the same path, and count the entries
+    // sharing each first index.
+    final int size = store.size();
+    final int[] nameHead = new int[size];
+    final int[] nameCount = new int[size];
+    int[] table = newTable(size);
+    int mask = table.length - 1;
+    int matches = 0;
+    for (int i = 0; i < size; ++i)
+    {
+      // Probe for the first entry with this path; slots hold index + 1
+      int slot = store.getPathHash(i) & mask;
+      while ((table[slot] != 0) && !store.isSamePath(table[slot] - 1, i))
+      {
+        slot = (slot + 1) & mask;
+      }
+      
+      if (table[slot] == 0)
+      {
+        table[slot] = i + 1;
+        nameHead[i] = i;
+      }
+      else
+      {
+        nameHead[i] = table[slot] - 1;
+        matches += (nameCount[nameHead[i]] == 1) ? 2 : 1;
+      }
+      
+      ++nameCount[nameHead[i]];
+    }
+    
+    // Assign the name group IDs, in order of the first entry in each group
+    final int[] nameRows = new int[matches];
+    final int[] nameGroups = new int[matches];
+    final int[] groupId = new int[size];
+    Arrays.fill(groupId, NO_GROUP);
+    int nextGroup = 0;
+    int index = 0;
+    for (int i = 0; i < size; ++i)
+    {
+      final int head = nameHead[i];
+      if (nameCount[head] < 2)
+      {
+        continue;
+      }
+      
+      if (groupId[head] == NO_GROUP)
+      {
+        groupId[head] = nextGroup++;
+      }
+      
+      nameRows[index] = i;
+      nameGroups[index] = groupId[head];
+      ++index;
+    }
+    
+    final int[] nameSizes = new int[nextGroup];
+    for (int i = 0; i < matches; ++i)
+    {
+      ++nameSizes[nameGroups[i]];
+    }
+    
+    store.setNameGroups(nameRows, nameGroups, nameSizes);
+    
+    // Bucket the entries with a name match on content (CRC and size)
+    // within each name group
+    final int[] fileHead = new int[matches];
+    final int[] fileCount = new int[matches];
+    table = newTable(matches);
+    mask = table.length - 1;
+    int fileMatches = 0;
+    for (int i = 0; i < matches; ++i)
+    {
+      final int row = nameRows[i];
+      final long crc = store.getCrc(row);
+      final long len = store.getSize(row);
+      int hash = nameGroups[i];
+      hash = (31 * hash) + (int) (crc ^ (crc >>> 32));
+      hash = (31 * hash) + (int) (len ^ (len >>> 32));
+      
+      int slot = hash & mask;
+      while (table[slot] != 0)
+      {
+        final int other = table[slot] - 1;
+        if ((nameGroups[other] == nameGroups[i]) &&
+            (store.getCrc(nameRows[other]) == crc) &&
+            (store.getSize(nameRows[other]) == len))
+        {
+          break;
+        }
+        
+        slot = (slot + 1) & mask;
+      }
+      
+      if (table[slot] == 0)
+      {
+        table[slot] = i + 1;
+        fileHead[i] = i;
+      }
+      else
+      {
+        fileHead[i] = table[slot] - 1;
+        fileMatches += (fileCount[fileHead[i]] == 1) ? 2 : 1;
+      }
+      
+      ++fileCount[fileHead[i]];
+    }
+    
+    // The hash table is no longer needed
+    table = null;
+    
+    // Assign the file group IDs
+    final int[] fileRows = new int[fileMatches];
+    final int[] fileGroups = new int[fileMatches];
+    final int[] fileSizes = new int[fileMatches];
+    Arrays.fill(groupId, 0, matches, NO_GROUP);
+    nextGroup = 0;
+    index = 0;
+    for (int i = 0; i < matches; ++i)
+    {
+      final int head = fileHead[i];
+      if (fileCount[head] < 2)
+      {
+        continue;
+      }
+      
+      if (groupId[head] == NO_GROUP)
+      {
+        fileSizes[nextGroup] = fileCount[head];
+        groupId[head] = nextGroup++;
+      }
+      
+      fileRows[index] = nameRows[i];
+      fileGroups[index] = groupId[head];
+      ++index;
+    }
+    
+    store.setFileGroups(fileRows, fileGroups, Arrays.copyOf(fileSizes, nextGroup));
+  }
+  
+  
+  /**
+   * Return an empty open-addressing hash table for the number of
+   * entries.  The size is a power of two, and at most half full.
+   * 
+   * @param count the number of entries
+   * @return the hash table
+   */
+  private static int[] newTable(final int count)
+  {
+    int size = 16;
+    while ((size < (1 << 30)) && (size < (count * 2)))
+    {
+      size <<= 1;
+    }
+    
+    return new int[size];
+  }
+}
@@ -0,0 +1,1146 @@
+package io.miti.jarman.data;
+
+import io.miti.jarman.util.Utility;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The data on each file in each jar, stored by column in primitive
+ * arrays instead of one object per file.  Each row holds the CRC,
+ * size, date and local header offset (as 32-bit values), the index
+ * of the file's directory in a table of unique directories, and the
+ * start of the file name in a packed table of UTF-8 name bytes.
+ * The rows of each jar are contiguous, so the jar of a row is found
+ * from a table of the first row of each jar.
+ * 
+ * Most files are classes, so the .class suffix is not stored in the
+ * name table; a flag in the directory column marks those rows.
+ * 
+ * Unknown values (-1), such as the offset of a file that is not read
+ * from a central directory, are stored as a marker in the column.
+ * Times are kept to the second, since the Zip format only stores
+ * even seconds.  The rare values that still do not fit in 32 bits
+ * (sizes and offsets over 4 GB, and times before 1970) are kept in a
+ * map from the row to the full value.
+ * 
+ * A store is filled by one thread.  Stores filled on worker threads
+ * are merged into the main store with append().
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class EntryStore
+{
+  /**
+   * The column value that means the full value is in the overflow map.
+   */
+  private static final int OVERFLOW = -1;
+  
+  /**
+   * The column value that means the value is not known (-1).
+   */
+  private static final int UNKNOWN = -2;
+  
+  /**
+   * The largest value stored directly in a column (as an unsigned int).
+   */
+  private static final long MAX_VALUE = 0xFFFFFFFDL;
+  
+  /**
+   * The flag in the directory column for names ending in .class.
+   */
+  private static final int CLASS_FLAG = 0x80000000;
+  
+  /**
+   * The suffix of class files.
+   */
+  private static final String CLASS_SUFFIX = ".class";
+  
+  /**
+   * The directories that hold the application's own classes in a
+   * Spring Boot jar and in a WAR.
+   */
+  private static final String[] CLASS_ROOTS = {"BOOT-INF/classes/",
+                                               "WEB-INF/classes/"};
+  
+  /**
+   * The character set of the name table.
+   */
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  
+  /**
+   * An empty array, for stores with no duplicate groups.
+   */
+  private static final int[] EMPTY = new int[0];
+  
+  /**
+   * The number of rows.
+   */
+  private int rowCount = 0;
+  
+  /**
+   * The CRC of each row.
+   */
+  private int[] crcs = null;
+  
+  /**
+   * The size of each row.
+   */
+  private int[] sizes = null;
+  
+  /**
+   * The date of each row, in whole seconds since 1970.
+   */
+  private int[] dates = null;
+  
+  /**
+   * The local header offset of each row.
+   */
+  private int[] offsets = null;
+  
+  /**
+   * The index of the directory of each row, with CLASS_FLAG set if
+   * the name ends in .class.
+   */
+  private int[] dirs = null;
+  
+  /**
+   * The start of the name of each row in the name table.
+   */
+  private int[] nameStarts = null;
+  
+  /**
+   * The packed UTF-8 bytes of the file names.
+   */
+  private byte[] names = null;
+  
+  /**
+   * The number of bytes used in the name table.
+   */
+  private int namesLength = 0;
+  
+  /**
+   * The sizes that do not fit in the column, keyed by row.
+   */
+  private Map<Integer, Long> sizeOverflow = new HashMap<Integer, Long>(4);
+  
+  /**
+   * The dates that do not fit in the column, keyed by row.
+   */
+  private Map<Integer, Long> dateOverflow = new HashMap<Integer, Long>(4);
+  
+  /**
+   * The offsets that do not fit in the column, keyed by row.
+   */
+  private Map<Integer, Long> offsetOverflow = new HashMap<Integer, Long>(4);
+  
+  /**
+   * The unique directory prefixes (the path up to and including the
+   * last slash).
+   */
+  private List<String> dirPrefixes = new ArrayList<String>(64);
+  
+  /**
+   * The directory of each prefix, as shown in the table.
+   */
+  private List<String> dirNames = new ArrayList<String>(64);
+  
+  /**
+   * The index of each directory prefix.  This is only needed while
+   * rows are added, so it is dropped by trimToSize() and rebuilt if
+   * more rows are added.
+   */
+  private Map<String, Integer> dirIndexes = new HashMap<String, Integer>(64);
+  
+  /**
+   * The unique jar paths.
+   */
+  private List<String> jars = new ArrayList<String>(16);
+  
+  /**
+   * The index of each jar path.
+   */
+  private Map<String, Integer> jarIndexes = new HashMap<String, Integer>(16);
+  
+  /**
+   * The first row of each run of rows from the same jar.
+   */
+  private int[] runStarts = new int[16];
+  
+  /**
+   * The jar index of each run of rows.
+   */
+  private int[] runJars = new int[16];
+  
+  /**
+   * The number of runs.
+   */
+  private int runCount = 0;
+  
+  /**
+   * The jar index of rows added with add().
+   */
+  private int currentJar = -1;
+  
+  /**
+   * The rows with a name match, in ascending order.
+   */
+  private int[] nameMatchRows = EMPTY;
+  
+  /**
+   * The name group ID of each row in nameMatchRows.
+   */
+  private int[] nameMatchGroups = EMPTY;
+  
+  /**
+   * The size of each name group.
+   */
+  private int[] nameGroupSizes = EMPTY;
+  
+  /**
+   * The rows with a file match, in ascending order.
+   */
+  private int[] fileMatchRows = EMPTY;
+  
+  /**
+   * The file group ID of each row in fileMatchRows.
+   */
+  private int[] fileMatchGroups = EMPTY;
+  
+  /**
+   * The size of each file group.
+   */
+  private int[] fileGroupSizes = EMPTY;
+  
+  
+  /**
+   * Default constructor.
+   */
+  public EntryStore()
+  {
+    this(64);
+  }
+  
+  
+  /**
+   * Constructor.
+   * 
+   * @param capacity the initial number of rows
+   */
+  public EntryStore(final int capacity)
+  {
+    super();
+    final int cap = Math.max(1, capacity);
+    crcs = new int[cap];
+    sizes = new int[cap];
+    dates = new int[cap];
+    offsets = new int[cap];
+    dirs = new int[cap];
+    nameStarts = new int[cap];
+    names = new byte[cap * 16];
+  }
+  
+  
+  /**
+   * Return the number of rows.
+   * 
+   * @return the number of rows
+   */
+  public int size()
+  {
+    return rowCount;
+  }
+  
+  
+  /**
+   * Set the jar for the rows added after this call.
+   * 
+   * @param jarPath the absolute path of the jar, or an empty
+   *        string for files not in a jar
+   */
+  public void setJar(final String jarPath)
+  {
+    currentJar = getIndex(jarPath, jars, jarIndexes);
+  }
+  
+  
+  /**
+   * Add a row for a file in the current jar.
+   * 
+   * @param fullPath the full path and name of the file
+   * @param crc the CRC value
+   * @param date the date the file was last modified
+   * @param size the size of the file
+   * @param offset the offset of the file's local header, or -1
+   * @return the row index
+   */
+  public int add(final String fullPath, final long crc, final long date,
+                 final long size, final long offset)
+  {
+    if (currentJar < 0)
+    {
+      throw new IllegalStateException("No jar set");
+    }
+    
+    // Split the path into the directory and the file name
+    final int slashIndex = JarData.getLastSlashIndex(fullPath);
+    int dir = getDirIndex(fullPath.substring(0, slashIndex + 1));
+    String name = fullPath.substring(slashIndex + 1);
+    if ((name.length() > CLASS_SUFFIX.length()) && name.endsWith(CLASS_SUFFIX))
+    {
+      // Save the class name without the suffix
+      name = name.substring(0, name.length() - CLASS_SUFFIX.length());
+      dir |= CLASS_FLAG;
+    }
+    
+    final byte[] nameBytes = name.getBytes(UTF8);
+    
+    ensureCapacity(rowCount + 1, namesLength + nameBytes.length);
+    final int row = rowCount++;
+    addRun(row, currentJar);
+    
+    crcs[row] = (int) crc;
+    sizes[row] = pack(row, size, 1L, sizeOverflow);
+    dates[row] = pack(row, date, 1000L, dateOverflow);
+    offsets[row] = pack(row, offset, 1L, offsetOverflow);
+    dirs[row] = dir;
+    nameStarts[row] = namesLength;
+    System.arraycopy(nameBytes, 0, names, namesLength, nameBytes.length);
+    namesLength += nameBytes.length;
+    
+    return row;
+  }
+  
+  
+  /**
+   * Append all rows of another store to this one.  The duplicate
+   * groups of this store are cleared.
+   * 
+   * @param other the store to append
+   */
+  public void append(final EntryStore other)
+  {
+    final int base = rowCount;
+    final int count = other.rowCount;
+    ensureCapacity(base + count, namesLength + other.namesLength);
+    
+    // Copy the fixed-size columns
+    System.arraycopy(other.crcs, 0, crcs, base, count);
+    System.arraycopy(other.sizes, 0, sizes, base, count);
+    System.arraycopy(other.dates, 0, dates, base, count);
+    System.arraycopy(other.offsets, 0, offsets, base, count);
+    System.arraycopy(other.names, 0, names, namesLength, other.namesLength);
+    
+    // Map the other store's directories to the indexes in this store
+    final int[] dirMap = new int[other.dirPrefixes.size()];
+    for (int i = 0; i < dirMap.length; ++i)
+    {
+      dirMap[i] = getDirIndex(other.dirPrefixes.get(i));
+    }
+    
+    for (int i = 0; i < count; ++i)
+    {
+      final int dir = other.dirs[i];
+      dirs[base + i] = dirMap[dir & ~CLASS_FLAG] | (dir & CLASS_FLAG);
+      nameStarts[base + i] = namesLength + other.nameStarts[i];
+    }
+    
+    // Copy the jar runs
+    for (int i = 0; i < other.runCount; ++i)
+    {
+      final String jarPath = other.jars.get(other.runJars[i]);
+      addRun(base + other.runStarts[i], getIndex(jarPath, jars, jarIndexes));
+    }
+    
+    // Copy the overflow values
+    appendOverflow(base, other.sizeOverflow, sizeOverflow);
+    appendOverflow(base, other.dateOverflow, dateOverflow);
+    appendOverflow(base, other.offsetOverflow, offsetOverflow);
+    
+    namesLength += other.namesLength;
+    rowCount += count;
+    clearGroups();
+  }
+  
+  
+  /**
+   * Copy the overflow values of another store, with the row offset.
+   * 
+   * @param base the row in this store of the other store's first row
+   * @param from the other store's overflow values
+   * @param to this store's overflow values
+   */
+  private static void appendOverflow(final int base,
+                                     final Map<Integer, Long> from,
+                                     final Map<Integer, Long> to)
+  {
+    for (Map.Entry<Integer, Long> entry : from.entrySet())
+    {
+      to.put(Integer.valueOf(base + entry.getKey().intValue()), entry.getValue());
+    }
+  }
+  
+  
+  /**
+   * Write the rows to a stream, in the format read by read().  The
+   * duplicate groups are not written.
+   * 
+   * @param out the output stream
+   * @throws IOException if the stream cannot be written
+   */
+  public void write(final DataOutputStream out) throws IOException
+  {
+    out.writeInt(rowCount);
+    writeStrings(out, dirPrefixes);
+    writeStrings(out, jars);
+    out.writeInt(runCount);
+    writeInts(out, runStarts, runCount);
+    writeInts(out, runJars, runCount);
+    writeInts(out, crcs, rowCount);
+    writeInts(out, sizes, rowCount);
+    writeInts(out, dates, rowCount);
+    writeInts(out, offsets, rowCount);
+    writeInts(out, dirs, rowCount);
+    writeInts(out, nameStarts, rowCount);
+    out.writeInt(namesLength);
+    out.write(names, 0, namesLength);
+    writeOverflow(out, sizeOverflow);
+    writeOverflow(out, dateOverflow);
+    writeOverflow(out, offsetOverflow);
+  }
+  
+  
+  /**
+   * Read the rows written by write().  The buffer is left positioned
+   * after the rows.
+   * 
+   * @param buf the buffer, positioned at the start of the rows
+   * @return the store
+   * @throws java.nio.BufferUnderflowException if the data is truncated
+   */
+  public static EntryStore read(final ByteBuffer buf)
+  {
+    final int count = buf.getInt();
+    EntryStore store = new EntryStore(count);
+    store.rowCount = count;
+    readStrings(buf, store.dirPrefixes);
+    for (String prefix : store.dirPrefixes)
+    {
+      store.dirNames.add(getDirName(prefix));
+    }
+    
+    store.dirIndexes = null;
+    readStrings(buf, store.jars);
+    for (int i = 0; i < store.jars.size(); ++i)
+    {
+      store.jarIndexes.put(store.jars.get(i), Integer.valueOf(i));
+    }
+    
+    store.runCount = buf.getInt();
+    store.runStarts = readInts(buf, store.runCount);
+    store.runJars = readInts(buf, store.runCount);
+    store.crcs = readInts(buf, count);
+    store.sizes = readInts(buf, count);
+    store.dates = readInts(buf, count);
+    store.offsets = readInts(buf, count);
+    store.dirs = readInts(buf, count);
+    store.nameStarts = readInts(buf, count);
+    store.namesLength = buf.getInt();
+    store.names = new byte[Math.max(1, store.namesLength)];
+    buf.get(store.names, 0, store.namesLength);
+    readOverflow(buf, store.sizeOverflow);
+    readOverflow(buf, store.dateOverflow);
+    readOverflow(buf, store.offsetOverflow);
+    
+    return store;
+  }
+  
+  
+  /**
+   * Write a list of strings to a stream.
+   * 
+   * @param out the output stream
+   * @param list the strings
+   * @throws IOException if the stream cannot be written
+   */
+  private static void writeStrings(final DataOutputStream out,
+                                   final List<String> list) throws IOException
+  {
+    out.writeInt(list.size());
+    for (String str : list)
+    {
+      Utility.writeString(out, str);
+    }
+  }
+  
+  
+  /**
+   * Read a list of strings from a buffer.
+   * 
+   * @param buf the buffer
+   * @param list the list to add the strings to
+   */
+  private static void readStrings(final ByteBuffer buf, final List<String> list)
+  {
+    final int count = buf.getInt();
+    for (int i = 0; i < count; ++i)
+    {
+      list.add(Utility.readString(buf));
+    }
+  }
+  
+  
+  /**
+   * Write the first values of an int array to a stream.
+   * 
+   * @param out the output stream
+   * @param values the array
+   * @param count the number of values to write
+   * @throws IOException if the stream cannot be written
+   */
+  private static void writeInts(final DataOutputStream out,
+                                final int[] values,
+                                final int count) throws IOException
+  {
+    ByteBuffer buf = ByteBuffer.allocate(count * 4);
+    buf.asIntBuffer().put(values, 0, count);
+    out.write(buf.array());
+  }
+  
+  
+  /**
+   * Read an int array from a buffer.
+   * 
+   * @param buf the buffer
+   * @param count the number of values
+   * @return the array (at least one element long)
+   */
+  private static int[] readInts(final ByteBuffer buf, final int count)
+  {
+    int[] values = new int[Math.max(1, count)];
+    buf.asIntBuffer().get(values, 0, count);
+    buf.position(buf.position() + (count * 4));
+    return values;
+  }
+  
+  
+  /**
+   * Write the overflow values of a column to a stream.
+   * 
+   * @param out the output stream
+   * @param overflow the overflow values
+   * @throws IOException if the stream cannot be written
+   */
+  private static void writeOverflow(final DataOutputStream out,
+                                    final Map<Integer, Long> overflow)
+    throws IOException
+  {
+    out.writeInt(overflow.size());
+    for (Map.Entry<Integer, Long> entry : overflow.entrySet())
+    {
+      out.writeInt(entry.getKey().intValue());
+      out.writeLong(entry.getValue().longValue());
+    }
+  }
+  
+  
+  /**
+   * Read the overflow values of a column from a buffer.
+   * 
+   * @param buf the buffer
+   * @param overflow the map to add the values to
+   */
+  private static void readOverflow(final ByteBuffer buf,
+                                   final Map<Integer, Long> overflow)
+  {
+    final int count = buf.getInt();
+    for (int i = 0; i < count; ++i)
+    {
+      final int row = buf.getInt();
+      overflow.put(Integer.valueOf(row), Long.valueOf(buf.getLong()));
+    }
+  }
+  
+  
+  /**
+   * Trim the arrays to the number of rows, and drop the directory
+   * lookup map, to release unused space once all rows are added.
+   */
+  public void trimToSize()
+  {
+    dirIndexes = null;
+    final int cap = Math.max(1, rowCount);
+    crcs = Arrays.copyOf(crcs, cap);
+    sizes = Arrays.copyOf(sizes, cap);
+    dates = Arrays.copyOf(dates, cap);
+    offsets = Arrays.copyOf(offsets, cap);
+    dirs = Arrays.copyOf(dirs, cap);
+    nameStarts = Arrays.copyOf(nameStarts, cap);
+    names = Arrays.copyOf(names, Math.max(1, namesLength));
+    runStarts = Arrays.copyOf(runStarts, Math.max(1, runCount));
+    runJars = Arrays.copyOf(runJars, Math.max(1, runCount));
+  }
+  
+  
+  /**
+   * Make sure the arrays can hold the number of rows and name bytes.
+   * 
+   * @param rows the number of rows needed
+   * @param nameBytes the number of name bytes needed
+   */
+  private void ensureCapacity(final int rows, final int nameBytes)
+  {
+    if (rows > crcs.length)
+    {
+      final int cap = Math.max(rows, crcs.length + (crcs.length >> 1));
+      crcs = Arrays.copyOf(crcs, cap);
+      sizes = Arrays.copyOf(sizes, cap);
+      dates = Arrays.copyOf(dates, cap);
+      offsets = Arrays.copyOf(offsets, cap);
+      dirs = Arrays.copyOf(dirs, cap);
+      nameStarts = Arrays.copyOf(nameStarts, cap);
+    }
+    
+    if (nameBytes > names.length)
+    {
+      names = Arrays.copyOf(names, Math.max(nameBytes, names.length + (names.length >> 1)));
+    }
+  }
+  
+  
+  /**
+   * Add the row to the runs of rows, starting a new run if the
+   * jar differs from the jar of the last run.
+   * 
+   * @param row the row index
+   * @param jar the jar index
+   */
+  private void addRun(final int row, final int jar)
+  {
+    if ((runCount > 0) && (runJars[runCount - 1] == jar))
+    {
+      return;
+    }
+    
+    if (runCount == runStarts.length)
+    {
+      runStarts = Arrays.copyOf(runStarts, runCount * 2);
+      runJars = Arrays.copyOf(runJars, runCount * 2);
+    }
+    
+    runStarts[runCount] = row;
+    runJars[runCount] = jar;
+    ++runCount;
+  }
+  
+  
+  /**
+   * Return the index of the directory prefix, adding it if needed.
+   * 
+   * @param prefix the path up to and including the last slash
+   * @return the index of the directory
+   */
+  private int getDirIndex(final String prefix)
+  {
+    if (dirIndexes == null)
+    {
+      // Rebuild the lookup map
+      final int count = dirPrefixes.size();
+      dirIndexes = new HashMap<String, Integer>(Math.max(64, count * 2));
+      for (int i = 0; i < count; ++i)
+      {
+        dirIndexes.put(dirPrefixes.get(i), Integer.valueOf(i));
+      }
+    }
+    
+    Integer index = dirIndexes.get(prefix);
+    if (index == null)
+    {
+      index = Integer.valueOf(dirPrefixes.size());
+      dirIndexes.put(prefix, index);
+      dirPrefixes.add(prefix);
+      
+      dirNames.add(getDirName(prefix));
+    }
+    
+    return index.intValue();
+  }
+  
+  
+  /**
+   * Return the directory shown in the table for a directory prefix.
+   * This drops the slash, and is empty for files at the root.
+   * 
+   * @param prefix the path up to and including the last slash
+   * @return the directory name
+   */
+  private static String getDirName(final String prefix)
+  {
+    return (prefix.length() <= 1) ? "" : prefix.substring(0, prefix.length() - 1);
+  }
+  
+  
+  /**
+   * Return the index of the string in the table, adding it if needed.
+   * 
+   * @param value the string
+   * @param table the list of strings
+   * @param indexes the index of each string in the list
+   * @return the index of the string
+   */
+  private static int getIndex(final String value, final List<String> table,
+                              final Map<String, Integer> indexes)
+  {
+    Integer index = indexes.get(value);
+    if (index == null)
+    {
+      index = Integer.valueOf(table.size());
+      indexes.put(value, index);
+      table.add(value);
+    }
+    
+    return index.intValue();
+  }
+  
+  
+  /**
+   * Pack a value into a column.  The value is divided by the scale,
+   * dropping any remainder.  If the result does not fit in 32 bits,
+   * the value is saved in the overflow map.
+   * 
+   * @param row the row index
+   * @param value the value
+   * @param scale the unit of the column value
+   * @param overflow the overflow values of the column
+   * @return the column value
+   */
+  private static int pack(final int row, final long value, final long scale,
+                          final Map<Integer, Long> overflow)
+  {
+    if (value == -1L)
+    {
+      return UNKNOWN;
+    }
+    else if ((value >= 0L) && ((value / scale) <= MAX_VALUE))
+    {
+      return (int) (value / scale);
+    }
+    
+    overflow.put(Integer.valueOf(row), Long.valueOf(value));
+    return OVERFLOW;
+  }
+  
+  
+  /**
+   * Unpack a value from a column.
+   * 
+   * @param row the row index
+   * @param value the column value
+   * @param scale the unit of the column value
+   * @param overflow the overflow values of the column
+   * @return the value
+   */
+  private static long unpack(final int row, final int value, final long scale,
+                             final Map<Integer, Long> overflow)
+  {
+    if (value == UNKNOWN)
+    {
+      return -1L;
+    }
+    else if (value != OVERFLOW)
+    {
+      return (value & 0xFFFFFFFFL) * scale;
+    }
+    
+    return overflow.get(Integer.valueOf(row)).longValue();
+  }
+  
+  
+  /**
+   * Return the file name (no path) of the row.
+   * 
+   * @param row the row index
+   * @return the file name
+   */
+  public String getFileName(final int row)
+  {
+    final int start = nameStarts[row];
+    final String name = new String(names, start, getNameEnd(row) - start, UTF8);
+    return isClass(row) ? name.concat(CLASS_SUFFIX) : name;
+  }
+  
+  
+  /**
+   * Return the end of the row's name in the name table.
+   * 
+   * @param row the row index
+   * @return the end of the name
+   */
+  private int getNameEnd(final int row)
+  {
+    return ((row + 1) < rowCount) ? nameStarts[row + 1] : namesLength;
+  }
+  
+  
+  /**
+   * Return the directory of the row, as shown in the table.
+   * 
+   * @param row the row index
+   * @return the directory of the file
+   */
+  public String getFileDir(final int row)
+  {
+    return dirNames.get(dirs[row] & ~CLASS_FLAG);
+  }
+  
+  
+  /**
+   * Return the full path and name of the row.
+   * 
+   * @param row the row index
+   * @return the full path and name
+   */
+  public String getFullPath(final int row)
+  {
+    return dirPrefixes.get(dirs[row] & ~CLASS_FLAG).concat(getFileName(row));
+  }
+  
+  
+  /**
+   * Return whether the file name of the row ends with .class.
+   * 
+   * @param row the row index
+   * @return whether the file is a class file
+   */
+  public boolean isClass(final int row)
+  {
+    return ((dirs[row] & CLASS_FLAG) != 0);
+  }
+  
+  
+  /**
+   * Return the name of the class in the row, as it is referenced by
+   * other classes: the path without .class, and without the directory
+   * holding the classes of a Spring Boot jar or a WAR.
+   * 
+   * @param row the row index
+   * @return the class name, or null if the file is not a class file
+   */
+  public String getClassName(final int row)
+  {
+    return isClass(row) ? getClassName(getFullPath(row)) : null;
+  }
+  
+  
+  /**
+   * Return the name of a class, from the path of its class file.
+   * 
+   * @param path the path of the class file, ending in .class
+   * @return the class name
+   */
+  public static String getClassName(final String path)
+  {
+    final String name = getResourceName(path);
+    return name.substring(0, name.length() - CLASS_SUFFIX.length());
+  }
+  
+  
+  /**
+   * Return the name of a resource as the class loader sees it, from
+   * its path in the jar.  This drops the directory that holds the
+   * classes in a Spring Boot jar or a WAR.
+   * 
+   * @param path the path of the entry
+   * @return the resource name
+   */
+  public static String getResourceName(final String path)
+  {
+    for (String root : CLASS_ROOTS)
+    {
+      if (path.startsWith(root))
+      {
+        return path.substring(root.length());
+      }
+    }
+    
+    return path;
+  }
+  
+  
+  /**
+   * Return the absolute path of the jar of the row.  This is empty
+   * for files not in a jar.
+   * 
+   * @param row the row index
+   * @return the jar path
+   */
+  public String getJar(final int row)
+  {
+    // Find the last run starting at or before the row
+    int low = 0;
+    int high = runCount - 1;
+    while (low < high)
+    {
+      final int mid = (low + high + 1) >>> 1;
+      if (runStarts[mid] <= row)
+      {
+        low = mid;
+      }
+      else
+      {
+        high = mid - 1;
+      }
+    }
+    
+    return jars.get(runJars[low]);
+  }
+  
+  
+  /**
+   * Return the CRC of the row.
+   * 
+   * @param row the row index
+   * @return the CRC value
+   */
+  public long getCrc(final int row)
+  {
+    return (crcs[row] & 0xFFFFFFFFL);
+  }
+  
+  
+  /**
+   * Return the size of the row.
+   * 
+   * @param row the row index
+   * @return the size of the file
+   */
+  public long getSize(final int row)
+  {
+    return unpack(row, sizes[row], 1L, sizeOverflow);
+  }
+  
+  
+  /**
+   * Return the date of the row.
+   * 
+   * @param row the row index
+   * @return the date the file was last modified
+   */
+  public long getDate(final int row)
+  {
+    return unpack(row, dates[row], 1000L, dateOverflow);
+  }
+  
+  
+  /**
+   * Return the local header offset of the row.
+   * 
+   * @param row the row index
+   * @return the offset of the local header, or -1 if not known
+   */
+  public long getOffset(final int row)
+  {
+    return unpack(row, offsets[row], 1L, offsetOverflow);
+  }
+  
+  
+  /**
+   * Return the hash code of the full path of the row.  This does
+   * not build the path string.
+   * 
+   * @param row the row index
+   * @return the hash code of the path
+   */
+  int getPathHash(final int row)
+  {
+    int hash = dirs[row];
+    final int end = getNameEnd(row);
+    for (int i = nameStarts[row]; i < end; ++i)
+    {
+      hash = (31 * hash) + names[i];
+    }
+    
+    return hash;
+  }
+  
+  
+  /**
+   * Return whether two rows have the same full path.  This does
+   * not build the path strings.
+   * 
+   * @param row1 the first row index
+   * @param row2 the second row index
+   * @return whether the paths are equal
+   */
+  boolean isSamePath(final int row1, final int row2)
+  {
+    if (dirs[row1] != dirs[row2])
+    {
+      return false;
+    }
+    
+    final int start1 = nameStarts[row1];
+    final int start2 = nameStarts[row2];
+    final int len = getNameEnd(row1) - start1;
+    if (len != (getNameEnd(row2) - start2))
+    {
+      return false;
+    }
+    
+    for (int i = 0; i < len; ++i)
+    {
+      if (names[start1 + i] != names[start2 + i])
+      {
+        return false;
+      }
+    }
+    
+    return true;
+  }
+  
+  
+  /**
+   * Save the name duplicate groups.
+   * 
+   * @param rows the rows with a name match, in ascending order
+   * @param groups the group ID of each row in rows
+   * @param groupSizes the size of each group
+   */
+  void setNameGroups(final int[] rows, final int[] groups, final int[] groupSizes)
+  {
+    nameMatchRows = rows;
+    nameMatchGroups = groups;
+    nameGroupSizes = groupSizes;
+  }
+  
+  
+  /**
+   * Save the file duplicate groups.
+   * 
+   * @param rows the rows with a file match, in ascending order
+   * @param groups the group ID of each row in rows
+   * @param groupSizes the size of each group
+   */
+  void setFileGroups(final int[] rows, final int[] groups, final int[] groupSizes)
+  {
+    fileMatchRows = rows;
+    fileMatchGroups = groups;
+    fileGroupSizes = groupSizes;
+  }
+  
+  
+  /**
+   * Clear the duplicate groups.
+   */
+  private void clearGroups()
+  {
+    setNameGroups(EMPTY, EMPTY, EMPTY);
+    setFileGroups(EMPTY, EMPTY, EMPTY);
+  }
+  
+  
+  /**
+   * Return the number of rows with a name match.
+   * 
+   * @return the number of rows with a name match
+   */
+  public int getNameMatchCount()
+  {
+    return nameMatchRows.length;
+  }
+  
+  
+  /**
+   * Return a row with a name match.
+   * 
+   * @param index the index into the rows with a name match
+   * @return the row index
+   */
+  public int getNameMatchRow(final int index)
+  {
+    return nameMatchRows[index];
+  }
+  
+  
+  /**
+   * Return the number of rows with a file match.
+   * 
+   * @return the number of rows with a file match
+   */
+  public int getFileMatchCount()
+  {
+    return fileMatchRows.length;
+  }
+  
+  
+  /**
+   * Return a row with a file match.
+   * 
+   * @param index the index into the rows with a file match
+   * @return the row index
+   */
+  public int getFileMatchRow(final int index)
+  {
+    return fileMatchRows[index];
+  }
+  
+  
+  /**
+   * Return the name group ID of the row.
+   * 
+   * @param row the row index
+   * @return the group ID, or DuplicateFinder.NO_GROUP
+   */
+  public int getNameGroup(final int row)
+  {
+    final int index = Arrays.binarySearch(nameMatchRows, row);
+    return (index < 0) ? DuplicateFinder.NO_GROUP : nameMatchGroups[index];
+  }
+  
+  
+  /**
+   * Return the number of rows in the row's name group.
+   * 
+   * @param row the row index
+   * @return the size of the name group (1 if none)
+   */
+  public int getNameGroupSize(final int row)
+  {
+    final int group = getNameGroup(row);
+    return (group == DuplicateFinder.NO_GROUP) ? 1 : nameGroupSizes[group];
+  }
+  
+  
+  /**
+   * Return the file group ID of the row.
+   * 
+   * @param row the row index
+   * @return the group ID, or DuplicateFinder.NO_GROUP
+   */
+  public int getFileGroup(final int row)
+  {
+    final int index = Arrays.binarySearch(fileMatchRows, row);
+    return (index < 0) ? DuplicateFinder.NO_GROUP : fileMatchGroups[index];
+  }
+  
+  
+  /**
+   * Return the number of rows in the row's file group.
+   * 
+   * @param row the row index
+   * @return the size of the file group (1 if none)
+   */
+  public int getFileGroupSize(final int row)
+  {
+    final int group = getFileGroup(row);
+    return (group == DuplicateFinder.NO_GROUP) ? 1 : fileGroupSizes[group];
+  }
+}
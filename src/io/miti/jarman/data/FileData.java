@@ -3,18 +3,16 @@ package io.miti.jarman.data;
 import io.miti.jarman.classref.ClassFileParser;
 import io.miti.jarman.classref.ClassInfo;
 import io.miti.jarman.gui.Jarman;
+import io.miti.jarman.util.Archive;
 import io.miti.jarman.util.ClassParser;
 import io.miti.jarman.util.SystemPathList;
 import io.miti.jarman.util.Utility;
 
 import java.io.File;
-import java.io.IOException;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
 
 import javax.swing.JOptionPane;
 
@@ -22,8 +20,9 @@ import io.miti.jarman.data.FileData;
 import io.miti.jarman.data.JarData;
 
 /**
- * The data structure of information stored about files to display
- * in the Listings page (the data on each file in each jar file).
+ * The information about one file in a jar, to display in the Listings
+ * page.  This is a view of one row in the entry store; the data itself
+ * is stored by column in the EntryStore.
  * 
  * @author mwallace
  * @version 1.0
@@ -31,110 +30,26 @@ import io.miti.jarman.data.JarData;
 public final class FileData
 {
   /**
-   * The file name (no path).
+   * The store holding the data.
    */
-  private String filename;
+  private final EntryStore store;
   
   /**
-   * The directory of the file entry.
+   * The row of this file in the store.
    */
-  private String filedir;
-  
-  /**
-   * The file name with path.
-   */
-  private String fullpath;
-  
-  /**
-   * The CRC value.
-   */
-  private long crc;
-  
-  /**
-   * The date the file was last modified.
-   */
-  private long date;
-  
-  /**
-   * The size of the file, in bytes.
-   */
-  private long size;
-  
-  /**
-   * The name of the parent jar.
-   */
-  private String jar;
-  
-  /**
-   * Whether this file is a CRC match on another file in the list.
-   */
-  private boolean crcMatch;
-  
-  /**
-   * Whether this file is a name match on another file in the list.
-   */
-  private boolean nameMatch;
-  
-  
-  /**
-   * Default constructor.
-   */
-  public FileData()
-  {
-    super();
-  }
+  private final int row;
   
   
   /**
-   * Constructor for all values.
+   * Constructor.
    * 
-   * @param file the file
-   * @param entry the jar entry
-   * @param name the file name (no path)
-   * @param dir the directory of the file entry
-   * @param pCRCMatch whether this is a CRC match
-   * @param pNameMatch whether this is a name match
+   * @param pStore the store holding the data
+   * @param nRow the row of this file in the store
    */
-  public FileData(final File file, final JarEntry entry,
-                  final String name, final String dir,
-                  final boolean pCRCMatch, final boolean pNameMatch)
+  public FileData(final EntryStore pStore, final int nRow)
   {
-    filename = name;
-    filedir = dir;
-    fullpath = entry.getName();
-    crc = entry.getCrc();
-    date = entry.getTime();
-    size = entry.getSize();
-    jar = file.getAbsolutePath();
-    crcMatch = pCRCMatch;
-    nameMatch = pNameMatch;
-  }
-  
-  
-  /**
-   * Constructor for all values.
-   * 
-   * @param file the file
-   * @param name the file name (no path)
-   * @param dir the directory of the file entry
-   * @param pCRCMatch whether this is a CRC match
-   * @param pNameMatch whether this is a name match
-   */
-  public FileData(final File file,
-                   final String name,
-                   final String dir,
-                   final boolean pCRCMatch,
-                   final boolean pNameMatch)
-  {
-    filename = name;
-    filedir = dir;
-    fullpath = file.getAbsolutePath();
-    crc = 0L; // TODO Compute the CRC for a single file
-    date = file.lastModified();
-    size = file.length();
-    jar = "";
-    crcMatch = pCRCMatch;
-    nameMatch = pNameMatch;
+    store = pStore;
+    row = nRow;
   }
   
   
@@ -145,7 +60,7 @@ public final class FileData
    */
   public String getFileName()
   {
-    return filename;
+    return store.getFileName(row);
   }
   
   
@@ -156,7 +71,7 @@ public final class FileData
    */
   public String getFullPath()
   {
-    return fullpath;
+    return store.getFullPath(row);
   }
   
   
@@ -165,7 +80,7 @@ public final class FileData
    */
   public long getCrc()
   {
-    return crc;
+    return store.getCrc(row);
   }
   
   
@@ -174,7 +89,7 @@ public final class FileData
    */
   public long getDate()
   {
-    return date;
+    return store.getDate(row);
   }
   
   
@@ -183,7 +98,18 @@ public final class FileData
    */
   public long getSize()
   {
-    return size;
+    return store.getSize(row);
+  }
+  
+  
+  /**
+   * Return the offset of the entry's local header in the jar.
+   * 
+   * @return the offset of the local header, or -1 if not known
+   */
+  public long getOffset()
+  {
+    return store.getOffset(row);
   }
   
   
@@ -192,7 +118,7 @@ public final class FileData
    */
   public String getJar()
   {
-    return jar;
+    return store.getJar(row);
   }
   
   
@@ -203,7 +129,7 @@ public final class FileData
    */
   public String getFileDir()
   {
-    return filedir;
+    return store.getFileDir(row);
   }
   
   
@@ -212,38 +138,62 @@ public final class FileData
    */
   public boolean isCRCMatch()
   {
-    return crcMatch;
+    return (store.getFileGroup(row) != DuplicateFinder.NO_GROUP);
   }
   
   
   /**
-   * Set whether this file is a file match (based on CRC).
+   * @return the namematch
+   */
+  public boolean isNameMatch()
+  {
+    return (store.getNameGroup(row) != DuplicateFinder.NO_GROUP);
+  }
+  
+  
+  /**
+   * Return the ID of the group of files matching on path and name.
    * 
-   * @param match whether this file is a CRC match
+   * @return the name group ID, or DuplicateFinder.NO_GROUP
    */
-  public void setCRCMatch(final boolean match)
+  public int getNameGroup()
   {
-    crcMatch = match;
+    return store.getNameGroup(row);
   }
   
   
   /**
-   * @return the namematch
+   * Return the number of files matching this file on path and name.
+   * This count includes this file.
+   * 
+   * @return the size of the name group
    */
-  public boolean isNameMatch()
+  public int getNameGroupSize()
   {
-    return nameMatch;
+    return store.getNameGroupSize(row);
   }
   
   
   /**
-   * Set whether this file is a file name match.
+   * Return the ID of the group of files matching on path, name and content.
    * 
-   * @param match whether this file is a name match
+   * @return the file group ID, or DuplicateFinder.NO_GROUP
    */
-  public void setNameMatch(final boolean match)
+  public int getFileGroup()
   {
-    nameMatch = match;
+    return store.getFileGroup(row);
+  }
+  
+  
+  /**
+   * Return the number of files matching this file on path, name and
+   * content (CRC and size).  This count includes this file.
+   * 
+   * @return the size of the file group
+   */
+  public int getFileGroupSize()
+  {
+    return store.getFileGroupSize(row);
   }
   
   
@@ -257,39 +207,18 @@ public final class FileData
     String s = null;
     if (inJar())
     {
-      JarEntry entry = JarData.getInstance().getJarEntry(this);
-      JarFile jarFile = null;
-      try
+      // Look up the entry in the open archive
+      Archive archive = JarData.getInstance().getArchive(getJar());
+      JarEntry entry = (archive == null) ? null :
+                       archive.getEntry(getFullPath(), getCrc());
+      if (entry != null)
       {
-        jarFile = new JarFile(jar);
-        s = Utility.getFileAsText(jarFile, entry);
-        
-        jarFile.close();
-        jarFile = null;
-      }
-      catch (IOException e)
-      {
-        e.printStackTrace();
-      }
-      finally
-      {
-        if (jarFile != null)
-        {
-          try
-          {
-            jarFile.close();
-          }
-          catch (IOException e)
-          {
-            e.printStackTrace();
-          }
-          jarFile = null;
-        }
+        s = Utility.getFileAsText(archive, entry);
       }
     }
     else
     {
-      s = Utility.getFileAsText(new File(fullpath));
+      s = Utility.getFileAsText(new File(getFullPath()));
     }
     
     return s;
@@ -303,7 +232,7 @@ public final class FileData
    */
   private boolean inJar()
   {
-    return (jar.length() > 0);
+    return (getJar().length() > 0);
   }
   
   
@@ -317,10 +246,10 @@ public final class FileData
   public String toString()
   {
     StringBuilder sb = new StringBuilder(100);
-    sb.append(fullpath).append(" (");
-    if (jar.length() > 0)
+    sb.append(getFullPath()).append(" (");
+    if (inJar())
     {
-      sb.append(jar);
+      sb.append(getJar());
     }
     else
     {
@@ -366,7 +295,7 @@ public final class FileData
     Set<String> sysset = new SystemPathList().getList();
     
     // Get the name of this class
-    ClassInfo ci = new ClassFileParser().parseClassFile(new File(fullpath));
+    ClassInfo ci = new ClassFileParser().parseClassFile(new File(getFullPath()));
     if (ci == null)
     {
       return null;
@@ -376,7 +305,7 @@ public final class FileData
     
     // Verify that the classes referenced by the jar entry are found,
     // either in the included jars or in the system classpath
-    List<String> refs = new ClassParser().getReferences(fullpath);
+    List<String> refs = new ClassParser().getReferences(getFullPath());
     if (refs != null)
     {
       // Check that each entry is in the classpath
@@ -404,33 +333,13 @@ public final class FileData
   {
     Set<String> missing = null;
     
-    // Read the file
-    JarEntry entry = JarData.getInstance().getJarEntry(this);
-    JarFile jarFile = null;
-    try
-    {
-      jarFile = new JarFile(jar);
-      missing = getMissingClasses(jarFile, entry);
-      jarFile.close();
-      jarFile = null;
-    }
-    catch (IOException e)
+    // Look up the entry in the open archive
+    Archive archive = JarData.getInstance().getArchive(getJar());
+    JarEntry entry = (archive == null) ? null :
+                     archive.getEntry(getFullPath(), getCrc());
+    if (entry != null)
     {
-      e.printStackTrace();
-    }
-    finally
-    {
-      if (jarFile != null)
-      {
-        try
-        {
-          jarFile.close();
-        }
-        catch (IOException e)
-        {
-          e.printStackTrace();
-        }
-      }
+      missing = getMissingClasses(archive, entry);
     }
     
     return missing;
@@ -440,11 +349,11 @@ public final class FileData
   /**
    * Return the list of missing classes.
    * 
-   * @param jarFile the jar file
+   * @param archive the archive
    * @param entry the jar file entry
    * @return the list of missing classes
    */
-  private Set<String> getMissingClasses(final JarFile jarFile, final JarEntry entry)
+  private Set<String> getMissingClasses(final Archive archive, final JarEntry entry)
   {
     Set<String> missingClasses = new HashSet<String>(10);
     
@@ -452,29 +361,11 @@ public final class FileData
     Set<String> sysset = new SystemPathList().getList();
     
     // Get a list of all classes that we're showing
-    Set<String> jarset = new HashSet<String>(20);
-    Iterator<FileData> allData = JarData.getInstance().getAllFileData();
-    if (allData == null)
-    {
-      return missingClasses;
-    }
-    
-    // Iterate over all the file data
-    while (allData.hasNext())
-    {
-      // Get the next element and check if the name ends with .class
-      FileData fd = allData.next();
-      String name = fd.getFullPath();
-      if (name.endsWith(".class"))
-      {
-        // It does, so save it without the .class
-        jarset.add(name.substring(0, name.length() - 6));
-      }
-    }
+    Set<String> jarset = JarData.getInstance().getClassNames();
     
     // Verify that the classes referenced by the jar entry are found,
     // either in the included jars or in the system classpath
-    List<String> refs = new ClassParser().getReferences(jarFile, entry);
+    List<String> refs = new ClassParser().getReferences(archive, entry);
     if (refs != null)
     {
       // Check that each entry is in the classpath
@@ -525,7 +416,7 @@ public final class FileData
     Set<String> linkedClasses = new HashSet<String>(10);
     
     // Get all classes referenced by the selected jar file entry
-    List<String> refs = new ClassParser().getReferences(new File(fullpath));
+    List<String> refs = new ClassParser().getReferences(new File(getFullPath()));
     if (refs != null)
     {
       // Add each item in the list to the set
@@ -548,33 +439,13 @@ public final class FileData
   {
     Set<String> incl = null;
     
-    // Read the file
-    JarEntry entry = JarData.getInstance().getJarEntry(this);
-    JarFile jarFile = null;
-    try
-    {
-      jarFile = new JarFile(jar);
-      incl = getIncludedJarClasses(jarFile, entry);
-      jarFile.close();
-      jarFile = null;
-    }
-    catch (IOException e)
+    // Look up the entry in the open archive
+    Archive archive = JarData.getInstance().getArchive(getJar());
+    JarEntry entry = (archive == null) ? null :
+                     archive.getEntry(getFullPath(), getCrc());
+    if (entry != null)
     {
-      e.printStackTrace();
-    }
-    finally
-    {
-      if (jarFile != null)
-      {
-        try
-        {
-          jarFile.close();
-        }
-        catch (IOException e)
-        {
-          e.printStackTrace();
-        }
-      }
+      incl = getIncludedJarClasses(archive, entry);
     }
     
     return incl;
@@ -584,16 +455,16 @@ public final class FileData
   /**
    * Return the list of included classes.
    * 
-   * @param jarFile the jar file
+   * @param archive the archive
    * @param entry the jar file entry
    * @return the list of missing classes
    */
-  private Set<String> getIncludedJarClasses(final JarFile jarFile, final JarEntry entry)
+  private Set<String> getIncludedJarClasses(final Archive archive, final JarEntry entry)
   {
     Set<String> linkedClasses = new HashSet<String>(10);
     
     // Get all classes referenced by the selected jar file entry
-    List<String> refs = new ClassParser().getReferences(jarFile, entry);
+    List<String> refs = new ClassParser().getReferences(archive, entry);
     if (refs != null)
     {
       // Add each item in the list to the set
@@ -637,13 +508,13 @@ public final class FileData
   {
     ClassInfo ci = null;
     
-    // Read the file
-    JarEntry entry = JarData.getInstance().getJarEntry(this);
-    JarFile jarFile = null;
-    try
+    // Look up the entry in the open archive
+    Archive archive = JarData.getInstance().getArchive(getJar());
+    JarEntry entry = (archive == null) ? null :
+                     archive.getEntry(getFullPath(), getCrc());
+    if (entry != null)
     {
-      jarFile = new JarFile(jar);
-      ci = new ClassFileParser().parseClassFile(jarFile, entry);
+      ci = new ClassFileParser().parseClassFile(archive, entry);
       if ((ci == null) || (!ci.isValid()))
       {
         JOptionPane.showMessageDialog(Jarman.getApp().getFrame(),
@@ -651,27 +522,6 @@ public final class FileData
             "File Error", JOptionPane.ERROR_MESSAGE);
         ci = null;
       }
-      
-      jarFile.close();
-      jarFile = null;
-    }
-    catch (IOException e)
-    {
-      e.printStackTrace();
-    }
-    finally
-    {
-      if (jarFile != null)
-      {
-        try
-        {
-          jarFile.close();
-        }
-        catch (IOException e)
-        {
-          e.printStackTrace();
-        }
-      }
     }
     
     return ci;
@@ -685,7 +535,7 @@ public final class FileData
    */
   private ClassInfo readInfoFromClass()
   {
-    ClassInfo ci = new ClassFileParser().parseClassFile(new File(fullpath));
+    ClassInfo ci = new ClassFileParser().parseClassFile(new File(getFullPath()));
     if ((ci == null) || (!ci.isValid()))
     {
       JOptionPane.showMessageDialog(Jarman.getApp().getFrame(),
@@ -170,12 +170,12 @@ public final class FileList
     // Get the File menu and remove any extra menu items
     JMenu menu = Jarman.getApp().getFrame().getJMenuBar().getMenu(0);
     final int count = menu.getItemCount();
-    int numLeft = count - 8;
+    int numLeft = count - 10;
     
     // Remove any files and separator after the first separator
     while (numLeft > 0)
     {
-      menu.remove(7);
+      menu.remove(9);
       --numLeft;
     }
     
@@ -187,7 +187,7 @@ public final class FileList
     }
     
     // Add a separator after File | List All
-    int menuIndex = 6;
+    int menuIndex = 8;
     menu.insertSeparator(menuIndex++);
     
     // Add the files
@@ -3,19 +3,27 @@ package io.miti.jarman.data;
 import io.miti.jarman.gui.JarPage;
 import io.miti.jarman.gui.ListingsPage;
 import io.miti.jarman.gui.ManifestPage;
+import io.miti.jarman.index.ParseCache;
+import io.miti.jarman.index.ReferenceGraph;
+import io.miti.jarman.index.AnnotationIndex;
+import io.miti.jarman.index.ClassHierarchy;
+import io.miti.jarman.index.StringIndex;
+import io.miti.jarman.util.Archive;
+import io.miti.jarman.util.ArchivePool;
+import io.miti.jarman.util.WindowState;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.Map.Entry;
 import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
 
 import io.miti.jarman.data.FileData;
 import io.miti.jarman.data.JarData;
@@ -34,35 +42,61 @@ public final class JarData
    */
   private static JarData data = null;
   
+  /**
+   * The cache of parsed classes.  It is keyed by the contents of each
+   * class, so it is kept when the data is reset.
+   */
+  private static ParseCache parseCache = null;
+  
   /**
    * The parent jar file.
    */
   private File jar = null;
   
+  /**
+   * The name shown for the opened files, or null to show the jar's path.
+   */
+  private String title = null;
+  
   /**
    * The list of manifest data.
    */
   private Map<String, String> manifest = new HashMap<String, String>(20);
   
   /**
-   * The list of data on each file in each jar.
+   * The data on each file in each jar.
    */
-  private List<FileData> filedata = new ArrayList<FileData>(20);
+  private EntryStore filedata = new EntryStore(1024);
   
   /**
-   * The list of indexes to matches on file (CRC).
+   * The list of jars in the class path, and the status (found or not).
    */
-  private List<Integer> fileMatchIndexes = new ArrayList<Integer>(20);
+  private List<JarStatus> jarlist = new ArrayList<JarStatus>(20);
   
   /**
-   * The list of indexes to matches on file path/name.
+   * The graph of class references, or null if the classes were not parsed.
    */
-  private List<Integer> nameMatchIndexes = new ArrayList<Integer>(20);
+  private ReferenceGraph references = null;
   
   /**
-   * The list of jars in the class path, and the status (found or not).
+   * The index of string constants, or null if it was not built.
    */
-  private List<JarStatus> jarlist = new ArrayList<JarStatus>(20);
+  private StringIndex strings = null;
+  
+  /**
+   * The index of annotations, or null if it was not built.
+   */
+  private AnnotationIndex annotations = null;
+  
+  /**
+   * The class hierarchy, or null if it was not built.
+   */
+  private ClassHierarchy hierarchy = null;
+  
+  /**
+   * The open archives.
+   */
+  private ArchivePool archives = new ArchivePool();
   
   
   /**
@@ -106,6 +140,12 @@ public final class JarData
    */
   public static void reset()
   {
+    // Close the open archives
+    if (data != null)
+    {
+      data.archives.close();
+    }
+    
     data = null;
     ListingsPage.getInstance().emptyTable();
     ManifestPage.getInstance().emptyTable();
@@ -113,6 +153,23 @@ public final class JarData
   }
   
   
+  /**
+   * Return the cache of parsed classes, creating it if needed.
+   * 
+   * @return the cache of parsed classes
+   */
+  public static synchronized ParseCache getParseCache()
+  {
+    if (parseCache == null)
+    {
+      final int size = WindowState.getInstance().getParseCacheSize();
+      parseCache = new ParseCache(size * 1024L * 1024L);
+    }
+    
+    return parseCache;
+  }
+  
+  
   /**
    * Set the parent jar file.
    * 
@@ -124,6 +181,18 @@ public final class JarData
   }
   
   
+  /**
+   * Set the name shown for the opened files, when they are not
+   * described by the path of the parent jar (such as a class path).
+   * 
+   * @param sTitle the name to show, or null to show the jar's path
+   */
+  public void setTitle(final String sTitle)
+  {
+    title = sTitle;
+  }
+  
+  
   /**
    * Return the name of the parent jar file.
    * 
@@ -135,6 +204,10 @@ public final class JarData
     {
       return null;
     }
+    else if (title != null)
+    {
+      return title;
+    }
     
     return jar.getAbsolutePath();
   }
@@ -190,36 +263,14 @@ public final class JarData
   
   
   /**
-   * Add the jar entry.  Directories are not saved.
+   * Add the entries and status of a scanned jar file.
    * 
-   * @param file the parent jar file
-   * @param entry the jar entry
-   * @return whether the entry was saved (directories are skipped)
+   * @param listing the jar listing
    */
-  public boolean addJarEntry(final File file, final JarEntry entry)
+  public void addJarListing(final JarListing listing)
   {
-    // Skip directories
-    if (entry.isDirectory())
-    {
-      return false;
-    }
-    
-    // Make sure the name doesn't end with a slash
-    final String name = entry.getName();
-    final int slashIndex = getLastSlashIndex(name);
-    if (slashIndex == (name.length() - 1))
-    {
-      return false;
-    }
-    
-    // Parse the file name and full path from the full name
-    final String fname = ((slashIndex >= 0) ? name.substring(slashIndex + 1) : name);
-    final String fpath = (slashIndex <= 0) ? "" : name.substring(0, slashIndex);
-    
-    // Add the entry to the list
-    filedata.add(new FileData(file, entry, fname, fpath, false, false));
-    
-    return true;
+    filedata.append(listing.getEntries());
+    jarlist.add(listing.getStatus());
   }
   
   
@@ -239,12 +290,9 @@ public final class JarData
       return false;
     }
     
-    // Parse the file name and full path from the full name
-    final String fname = ((slashIndex >= 0) ? name.substring(slashIndex + 1) : name);
-    final String fpath = (slashIndex <= 0) ? "" : name.substring(0, slashIndex);
-    
-    // Add the entry to the list
-    filedata.add(new FileData(file, fname, fpath, false, false));
+    // Add the entry to the store, with no jar
+    filedata.setJar("");
+    filedata.add(name, 0L, file.lastModified(), file.length(), -1L);  // TODO Compute the CRC for a single file
     
     return true;
   }
@@ -297,8 +345,8 @@ public final class JarData
     switch (ListingsPage.getInstance().getDisplayIndex())
     {
       case 0: return filedata.size();
-      case 1: return nameMatchIndexes.size();
-      case 2: return fileMatchIndexes.size();
+      case 1: return filedata.getNameMatchCount();
+      case 2: return filedata.getFileMatchCount();
       default: break;
     }
     
@@ -307,18 +355,71 @@ public final class JarData
   
   
   /**
-   * Return an iterator to all the file data.
+   * Return the number of entries in the file data, regardless of
+   * the rows shown in the jar contents table.
+   * 
+   * @return the number of entries in the file data
+   */
+  public int getFileDataCount()
+  {
+    return filedata.size();
+  }
+  
+  
+  /**
+   * Return the store of data on each file in each jar.
+   * 
+   * @return the entry store
+   */
+  public EntryStore getEntryStore()
+  {
+    return filedata;
+  }
+  
+  
+  /**
+   * Return the names of all classes in the file data, without the
+   * .class suffix.
+   * 
+   * @return the set of class names
+   */
+  public Set<String> getClassNames()
+  {
+    final int size = filedata.size();
+    Set<String> names = new HashSet<String>(Math.max(16, size * 2));
+    for (int i = 0; i < size; ++i)
+    {
+      // Check if the name ends with .class, and if so, save the class name
+      final String name = filedata.getClassName(i);
+      if (name != null)
+      {
+        names.add(name);
+      }
+    }
+    
+    return names;
+  }
+  
+  
+  /**
+   * Return the store row for the specified row in the Listings table.
    * 
-   * @return an iterator to all the file data
+   * @param rowIndex the row in the Listings table
+   * @return the row in the entry store
    */
-  public Iterator<FileData> getAllFileData()
+  public int getJarFileRow(final int rowIndex)
   {
     if (ListingsPage.isNull())
     {
-      return null;
+      return rowIndex;
     }
     
-    return filedata.iterator();
+    switch (ListingsPage.getInstance().getDisplayIndex())
+    {
+      case 1: return filedata.getNameMatchRow(rowIndex);
+      case 2: return filedata.getFileMatchRow(rowIndex);
+      default: return rowIndex;
+    }
   }
   
   
@@ -335,17 +436,96 @@ public final class JarData
       return null;
     }
     
-    int index = rowIndex;
-    switch (ListingsPage.getInstance().getDisplayIndex())
-    {
-      case 1: index = nameMatchIndexes.get(rowIndex).intValue();
-              break;
-      case 2: index = fileMatchIndexes.get(rowIndex).intValue();
-              break;
-      default: break;
-    }
-    
-    return filedata.get(index);
+    return new FileData(filedata, getJarFileRow(rowIndex));
+  }
+  
+  
+  /**
+   * Save the graph of class references, built by the last scan of
+   * the classes in the loaded jars.
+   * 
+   * @param graph the reference graph
+   */
+  public void setReferenceGraph(final ReferenceGraph graph)
+  {
+    references = graph;
+  }
+  
+  
+  /**
+   * Return the graph of class references.
+   * 
+   * @return the reference graph, or null if the classes were not parsed
+   */
+  public ReferenceGraph getReferenceGraph()
+  {
+    return references;
+  }
+  
+  
+  /**
+   * Save the index of the string constants in the loaded jars.
+   * 
+   * @param index the string index
+   */
+  public void setStringIndex(final StringIndex index)
+  {
+    strings = index;
+  }
+  
+  
+  /**
+   * Return the index of string constants.
+   * 
+   * @return the string index, or null if it was not built
+   */
+  public StringIndex getStringIndex()
+  {
+    return strings;
+  }
+  
+  
+  /**
+   * Save the index of the annotations in the loaded jars.
+   * 
+   * @param index the annotation index
+   */
+  public void setAnnotationIndex(final AnnotationIndex index)
+  {
+    annotations = index;
+  }
+  
+  
+  /**
+   * Return the index of annotations.
+   * 
+   * @return the annotation index, or null if it was not built
+   */
+  public AnnotationIndex getAnnotationIndex()
+  {
+    return annotations;
+  }
+  
+  
+  /**
+   * Save the class hierarchy of the loaded jars.
+   * 
+   * @param pHierarchy the class hierarchy
+   */
+  public void setClassHierarchy(final ClassHierarchy pHierarchy)
+  {
+    hierarchy = pHierarchy;
+  }
+  
+  
+  /**
+   * Return the class hierarchy.
+   * 
+   * @return the class hierarchy, or null if it was not built
+   */
+  public ClassHierarchy getClassHierarchy()
+  {
+    return hierarchy;
   }
   
   
@@ -432,6 +612,26 @@ public final class JarData
   }
   
   
+  /**
+   * Return the jars in the jar cache that were found.
+   * 
+   * @return the list of jar files
+   */
+  public List<File> getFoundJars()
+  {
+    List<File> jars = new ArrayList<File>(jarlist.size());
+    for (JarStatus jarStatus : jarlist)
+    {
+      if (jarStatus.isFound())
+      {
+        jars.add(new File(jarStatus.getName()));
+      }
+    }
+    
+    return jars;
+  }
+  
+  
   /**
    * Return the string for the Jar table, based on the row and column.
    * 
@@ -449,6 +649,8 @@ public final class JarData
       case 2: return Long.valueOf(jarStatus.getDate());
       case 3: return Integer.valueOf(jarStatus.getFileCount());
       case 4: return Long.valueOf(jarStatus.getSize());
+      case 5: return Integer.valueOf(jarStatus.getDepth());
+      case 6: return jarStatus.getParent();
       default: return null;
     }
   }
@@ -459,68 +661,30 @@ public final class JarData
    */
   public void checkForDuplicates()
   {
-    // Get the size and check if the list is empty
-    final int size = filedata.size();
-    if (size == 0)
+    // Group the entries, and release the space left for more rows
+    filedata.trimToSize();
+    new DuplicateFinder().findDuplicates(filedata);
+  }
+  
+  
+  /**
+   * Return the open archive for a jar.  The archive is kept open
+   * until the data is reset, or until too many other jars are opened;
+   * the caller must not close it.
+   * 
+   * @param jarName the name of the jar
+   * @return the archive, or null if it cannot be opened
+   */
+  public Archive getArchive(final String jarName)
+  {
+    try
     {
-      return;
+      return archives.getArchive(jarName);
     }
-    
-    // Iterate over each item in the list, except for the last item
-    for (int i = 0; i < (size - 1); ++i)
+    catch (IOException e)
     {
-      // Get the current item and initialize the two match variables
-      FileData fdSrc = filedata.get(i);
-      boolean nameMatch = false;
-      boolean crcMatch = false;
-      
-      // Iterate over each item in the list after fdSrc
-      for (int j = i + 1; j < size; ++j)
-      {
-        // Get the current target
-        FileData fdTarget = filedata.get(j);
-        
-        // Check for a CRC match and name match
-        final boolean sameName = fdTarget.getFullPath().equals(fdSrc.getFullPath());
-        if (sameName && (fdTarget.getCrc() == fdSrc.getCrc()))
-        {
-          // We have a match.  If this was not already tagged as a match, then
-          // set it now and save its index.
-          if (!fdTarget.isCRCMatch())
-          {
-            fdTarget.setCRCMatch(true);
-            fileMatchIndexes.add(Integer.valueOf(j));
-            crcMatch = true;
-          }
-        }
-        
-        // Check for a match on full file name (including path)
-        if (sameName)
-        {
-          // We have a match.  If this was not already tagged as a match, then
-          // set it now and save its index.
-          if (!fdTarget.isNameMatch())
-          {
-            fdTarget.setNameMatch(true);
-            nameMatchIndexes.add(Integer.valueOf(j));
-            nameMatch = true;
-          }
-        }
-      }
-      
-      // If we found a match on CRC, then update the src object and save its index
-      if (crcMatch && !fdSrc.isCRCMatch())
-      {
-        fdSrc.setCRCMatch(true);
-        fileMatchIndexes.add(Integer.valueOf(i));
-      }
-      
-      // If we found a match on path/name, then update the src object and save its index
-      if (nameMatch && !fdSrc.isNameMatch())
-      {
-        fdSrc.setNameMatch(true);
-        nameMatchIndexes.add(Integer.valueOf(i));
-      }
+      e.printStackTrace();
+      return null;
     }
   }
   
@@ -533,52 +697,13 @@ public final class JarData
    */
   public JarEntry getJarEntry(final FileData target)
   {
-    JarEntry targetEntry = null;
-    
-    // Create the jar file object
-    JarFile jarfile = null;
-    try
+    // Look up the entry by name in the open archive
+    Archive archive = getArchive(target.getJar());
+    if (archive == null)
     {
-      // Create the jar file object and iterate over the entries
-      jarfile = new JarFile(target.getJar());
-      Enumeration<JarEntry> entries = jarfile.entries();
-      while (entries.hasMoreElements())
-      {
-        // If this element matches on name and CRC, we have a match
-        JarEntry entry = entries.nextElement();
-        if ((entry.getName().equals(target.getFullPath())) &&
-            (entry.getCrc() == target.getCrc()))
-        {
-          // Save the entry and break out of the loop
-          targetEntry = entry;
-          break;
-        }
-      }
-      
-      // Close the jar file
-      jarfile.close();
-    }
-    catch (IOException e)
-    {
-      e.printStackTrace();
-    }
-    finally
-    {
-      if (jarfile != null)
-      {
-        try
-        {
-          jarfile.close();
-        }
-        catch (IOException e)
-        {
-          e.printStackTrace();
-        }
-        
-        jarfile = null;
-      }
+      return null;
     }
     
-    return targetEntry;
+    return archive.getEntry(target.getFullPath(), target.getCrc());
   }
 }
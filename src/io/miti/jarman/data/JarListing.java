@@ -0,0 +1,277 @@
+package io.miti.jarman.data;
+
+import io.miti.jarman.util.ZipDirectory;
+
+import java.io.File;
+import java.util.jar.JarEntry;
+
+/**
+ * The entries and status of one scanned jar file.  A listing is filled
+ * by a single thread, and then added to JarData on the event thread.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class JarListing
+{
+  /**
+   * The jar file.
+   */
+  private File jar = null;
+  
+  /**
+   * Whether the jar file was found and opened.
+   */
+  private boolean found = false;
+  
+  /**
+   * The number of files in the jar.
+   */
+  private int fileCount = 0;
+  
+  /**
+   * The data on each file in the jar.
+   */
+  private EntryStore entries = null;
+  
+  /**
+   * The number of manifest Class-Path references from the opened
+   * jar to this jar.
+   */
+  private int depth = 0;
+  
+  /**
+   * The jar whose Class-Path holds this jar, or null.
+   */
+  private File parent = null;
+  
+  /**
+   * The size of the jar, if it is inside another archive, or -1.
+   */
+  private long archiveSize = -1L;
+  
+  /**
+   * The modification time of the jar, if it is inside another archive.
+   */
+  private long archiveTime = 0L;
+  
+  
+  /**
+   * Constructor.
+   * 
+   * @param file the jar file
+   */
+  public JarListing(final File file)
+  {
+    super();
+    jar = file;
+    entries = new EntryStore();
+    entries.setJar(file.getAbsolutePath());
+  }
+  
+  
+  /**
+   * Constructor for a jar whose entries were already read (such as
+   * from the scan cache).
+   * 
+   * @param file the jar file
+   * @param pEntries the entries of the jar
+   * @param nFileCount the number of files in the jar
+   */
+  public JarListing(final File file, final EntryStore pEntries, final int nFileCount)
+  {
+    super();
+    jar = file;
+    entries = pEntries;
+    found = true;
+    fileCount = nFileCount;
+  }
+  
+  
+  /**
+   * Add the jar entry.  Directories are not saved.
+   * 
+   * @param entry the jar entry
+   * @return whether the entry was saved (directories are skipped)
+   */
+  public boolean addJarEntry(final JarEntry entry)
+  {
+    // Skip directories
+    if (entry.isDirectory())
+    {
+      return false;
+    }
+    
+    return addEntry(entry.getName(), entry.getCrc(), entry.getTime(),
+                    entry.getSize(), -1L);
+  }
+  
+  
+  /**
+   * Add the current entry of the central directory.  Directories
+   * are not saved.
+   * 
+   * @param dir the central directory, positioned on an entry
+   * @return whether the entry was saved (directories are skipped)
+   */
+  public boolean addZipEntry(final ZipDirectory dir)
+  {
+    // Skip directories
+    if (dir.isDirectory())
+    {
+      return false;
+    }
+    
+    return addEntry(dir.getName(), dir.getCrc(), dir.getTime(),
+                    dir.getSize(), dir.getOffset());
+  }
+  
+  
+  /**
+   * Add an entry.
+   * 
+   * @param name the full name of the entry
+   * @param crc the CRC value
+   * @param time the date the entry was last modified
+   * @param size the size of the entry
+   * @param offset the offset of the entry's local header, or -1
+   * @return whether the entry was saved (names ending in a slash are skipped)
+   */
+  private boolean addEntry(final String name, final long crc,
+                           final long time, final long size,
+                           final long offset)
+  {
+    // Make sure the name doesn't end with a slash
+    final int slashIndex = JarData.getLastSlashIndex(name);
+    if (slashIndex == (name.length() - 1))
+    {
+      return false;
+    }
+    
+    // Add the entry to the store
+    entries.add(name, crc, time, size, offset);
+    
+    return true;
+  }
+  
+  
+  /**
+   * Set the status of the jar file.
+   * 
+   * @param bFound whether the jar file was found and opened
+   * @param nFileCount the number of files in the jar
+   */
+  public void setStatus(final boolean bFound, final int nFileCount)
+  {
+    found = bFound;
+    fileCount = nFileCount;
+  }
+  
+  
+  /**
+   * Set how the jar was reached from the opened jar.
+   * 
+   * @param nDepth the number of Class-Path references to the jar
+   * @param pParent the jar whose Class-Path holds this jar, or null
+   */
+  public void setReference(final int nDepth, final File pParent)
+  {
+    depth = nDepth;
+    parent = pParent;
+  }
+  
+  
+  /**
+   * Save the size and time of a jar inside another archive, which
+   * cannot be read from the file system.
+   * 
+   * @param nSize the size of the jar
+   * @param nTime the modification time of the jar
+   */
+  public void setArchiveInfo(final long nSize, final long nTime)
+  {
+    archiveSize = nSize;
+    archiveTime = nTime;
+  }
+  
+  
+  /**
+   * Return the jar file.
+   * 
+   * @return the jar file
+   */
+  public File getJar()
+  {
+    return jar;
+  }
+  
+  
+  /**
+   * Return the data on each file in the jar.
+   * 
+   * @return the store of file data
+   */
+  public EntryStore getEntries()
+  {
+    return entries;
+  }
+  
+  
+  /**
+   * Return whether the jar file was found and opened.
+   * 
+   * @return whether the jar file was found
+   */
+  public boolean isFound()
+  {
+    return found;
+  }
+  
+  
+  /**
+   * Return the number of files in the jar.
+   * 
+   * @return the number of files in the jar
+   */
+  public int getFileCount()
+  {
+    return fileCount;
+  }
+  
+  
+  /**
+   * Return the status of the jar file, for the Jars page.
+   * 
+   * @return the status of the jar file
+   */
+  public JarStatus getStatus()
+  {
+    final String parentName = (parent == null) ? null : parent.getAbsolutePath();
+    if (!found)
+    {
+      return new JarStatus(jar.getAbsolutePath(), false, 0, 0L, 0L,
+                           depth, parentName);
+    }
+    
+    // The size of a directory is the total size of its files
+    long size = jar.length();
+    long time = jar.lastModified();
+    if (archiveSize >= 0L)
+    {
+      size = archiveSize;
+      time = archiveTime;
+    }
+    else if (jar.isDirectory())
+    {
+      size = 0L;
+      final int count = entries.size();
+      for (int i = 0; i < count; ++i)
+      {
+        size += entries.getSize(i);
+      }
+    }
+    
+    return new JarStatus(jar.getAbsolutePath(), true, fileCount,
+                         size, time, depth, parentName);
+  }
+}
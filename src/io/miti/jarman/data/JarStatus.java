@@ -33,6 +33,17 @@ public final class JarStatus
    */
   private long modDate = 0L;
   
+  /**
+   * The number of manifest Class-Path references from the opened
+   * jar to this jar.
+   */
+  private int depth = 0;
+  
+  /**
+   * The full name of the jar whose Class-Path holds this jar, or null.
+   */
+  private String parent = null;
+  
   
   /**
    * Default constructor.
@@ -64,6 +75,28 @@ public final class JarStatus
   }
   
   
+  /**
+   * Constructor.
+   * 
+   * @param sName the name of the jar file
+   * @param bFound whether the jar file was found
+   * @param nFileCount the number of files in the jar
+   * @param lSize the size of the file
+   * @param date the modification date of the jar file
+   * @param nDepth the number of Class-Path references to the jar
+   * @param sParent the name of the jar that references it, or null
+   */
+  public JarStatus(final String sName, final boolean bFound,
+                    final int nFileCount, final long lSize,
+                    final long date, final int nDepth,
+                    final String sParent)
+  {
+    this(sName, bFound, nFileCount, lSize, date);
+    depth = nDepth;
+    parent = sParent;
+  }
+  
+  
   /**
    * Return the name of the jar file.
    * 
@@ -117,4 +150,27 @@ public final class JarStatus
   {
     return modDate;
   }
+  
+  
+  /**
+   * Return the number of manifest Class-Path references from the
+   * opened jar to this jar.
+   * 
+   * @return the depth, 0 for the opened jar
+   */
+  public int getDepth()
+  {
+    return depth;
+  }
+  
+  
+  /**
+   * Return the full name of the jar whose Class-Path holds this jar.
+   * 
+   * @return the name of the parent jar, or null if there is none
+   */
+  public String getParent()
+  {
+    return parent;
+  }
 }
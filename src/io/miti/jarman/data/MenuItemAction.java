@@ -1,6 +1,7 @@
 package io.miti.jarman.data;
 
 import io.miti.jarman.gui.Jarman;
+import io.miti.jarman.util.ClassPathFinder;
 import io.miti.jarman.util.ClassProcessor;
 import io.miti.jarman.util.JarProcessor;
 import io.miti.jarman.util.Utility;
@@ -98,7 +99,7 @@ public final class MenuItemAction extends AbstractAction
     }
     
     // Check the extension is valid
-    final boolean isJar = (ext.equals("jar"));
+    final boolean isJar = ClassPathFinder.isArchive(file);
     final boolean isClass = (ext.equals("class"));
     if (!isJar && !isClass)
     {
@@ -0,0 +1,314 @@
+package io.miti.jarman.dialog;
+
+import io.miti.jarman.gui.Jarman;
+import io.miti.jarman.gui.table.AnnotationModel;
+import io.miti.jarman.index.AnnotationIndex;
+import io.miti.jarman.util.Utility;
+
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.KeyEvent;
+import java.text.NumberFormat;
+import java.util.Locale;
+
+import javax.swing.BorderFactory;
+import javax.swing.DefaultListModel;
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JSplitPane;
+import javax.swing.JTable;
+import javax.swing.JTextField;
+import javax.swing.ListSelectionModel;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.event.ListSelectionListener;
+
+/**
+ * Dialog box to find the classes, fields and methods in the loaded jars
+ * that have an annotation.  The annotation types are listed with the
+ * number of elements each is on, and can be filtered by name; selecting
+ * a type shows the elements that have it.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class AnnotationSearchDlg extends JDialog
+{
+  /**
+   * Serial version UID.
+   */
+  private static final long serialVersionUID = 1L;
+  
+  /**
+   * The annotation index.
+   */
+  private transient AnnotationIndex index = null;
+  
+  /**
+   * The filter field.
+   */
+  private JTextField filter = null;
+  
+  /**
+   * The type ID of each item in the list of types.
+   */
+  private int[] shownTypes = new int[0];
+  
+  /**
+   * The list of annotation types.
+   */
+  private JList<String> typeList = null;
+  
+  /**
+   * The table model for the targets.
+   */
+  private AnnotationModel model = null;
+  
+  /**
+   * The table of targets.
+   */
+  private JTable table = null;
+  
+  /**
+   * The label showing the number of results.
+   */
+  private JLabel status = null;
+  
+  
+  /**
+   * Constructor taking the index to search.
+   * 
+   * @param pIndex the annotation index
+   */
+  public AnnotationSearchDlg(final AnnotationIndex pIndex)
+  {
+    // Set up the basic parameters - title, modal, size
+    super(Jarman.getApp().getFrame(), "Search Annotations", true);
+    index = pIndex;
+    setPreferredSize(new java.awt.Dimension(900, 520));
+    
+    final JPanel panel = new JPanel(new BorderLayout(0, 10));
+    panel.setBorder(BorderFactory.createEmptyBorder(12, 12, 12, 12));
+    
+    // Add the filter field to the top of the panel
+    JPanel topPanel = new JPanel(new BorderLayout(8, 0));
+    JLabel label = new JLabel("Filter:");
+    filter = new JTextField();
+    label.setLabelFor(filter);
+    label.setDisplayedMnemonic(KeyEvent.VK_F);
+    topPanel.add(label, BorderLayout.WEST);
+    topPanel.add(filter, BorderLayout.CENTER);
+    panel.add(topPanel, BorderLayout.NORTH);
+    
+    // Filter the types again whenever the text changes
+    filter.getDocument().addDocumentListener(new DocumentListener()
+    {
+      @Override
+      public void insertUpdate(final DocumentEvent e)
+      {
+        filterTypes();
+      }
+      
+      @Override
+      public void removeUpdate(final DocumentEvent e)
+      {
+        filterTypes();
+      }
+      
+      @Override
+      public void changedUpdate(final DocumentEvent e)
+      {
+        filterTypes();
+      }
+    });
+    
+    // Add the list of types, and show the targets of the selected type
+    typeList = new JList<String>(new DefaultListModel<String>());
+    typeList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+    typeList.addListSelectionListener(new ListSelectionListener()
+    {
+      @Override
+      public void valueChanged(final ListSelectionEvent e)
+      {
+        if (!e.getValueIsAdjusting())
+        {
+          showTargets();
+        }
+      }
+    });
+    
+    // Add the table of targets
+    model = new AnnotationModel();
+    table = new JTable(model);
+    table.setAutoCreateRowSorter(true);
+    table.setColumnSelectionAllowed(false);
+    table.getTableHeader().setReorderingAllowed(false);
+    table.setAutoResizeMode(JTable.AUTO_RESIZE_SUBSEQUENT_COLUMNS);
+    table.getColumnModel().getColumn(0).setPreferredWidth(220);
+    table.getColumnModel().getColumn(1).setPreferredWidth(60);
+    table.getColumnModel().getColumn(2).setPreferredWidth(200);
+    table.getColumnModel().getColumn(3).setPreferredWidth(160);
+    
+    JSplitPane split = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT,
+                                      new JScrollPane(typeList),
+                                      new JScrollPane(table));
+    split.setDividerLocation(300);
+    panel.add(split, BorderLayout.CENTER);
+    
+    // Add the status and the buttons
+    JPanel bottomPanel = new JPanel(new BorderLayout(0, 10));
+    status = new JLabel(" ");
+    bottomPanel.add(status, BorderLayout.NORTH);
+    bottomPanel.add(getPanelButtons(), BorderLayout.SOUTH);
+    panel.add(bottomPanel, BorderLayout.SOUTH);
+    
+    // Fill in the list of types
+    filterTypes();
+    
+    // Finish setting up the dialog box
+    getContentPane().add(panel);
+    pack();
+    setResizable(true);
+    setLocationRelativeTo(Jarman.getApp().getFrame());
+    setVisible(true);
+  }
+  
+  
+  /**
+   * Show the annotation types that match the filter, ignoring case.
+   */
+  private void filterTypes()
+  {
+    final String text = filter.getText().trim().toLowerCase(Locale.ENGLISH);
+    final int count = index.getTypeCount();
+    final NumberFormat fmt = NumberFormat.getIntegerInstance();
+    DefaultListModel<String> listModel = new DefaultListModel<String>();
+    int[] types = new int[count];
+    int shown = 0;
+    for (int i = 0; i < count; ++i)
+    {
+      final int type = index.getType(i);
+      final String name = index.getName(type).replace('/', '.');
+      if ((text.length() > 0) && !name.toLowerCase(Locale.ENGLISH).contains(text))
+      {
+        continue;
+      }
+      
+      types[shown++] = type;
+      listModel.addElement(name + " (" + fmt.format(index.getTargetCount(type)) + ")");
+    }
+    
+    shownTypes = types;
+    typeList.setModel(listModel);
+    model.setTargets(index, new int[0]);
+    status.setText(fmt.format(shown) + " of " + fmt.format(count) +
+                   " annotation types, on " +
+                   fmt.format(index.getTargetTotal()) + " elements");
+  }
+  
+  
+  /**
+   * Show the elements that have the selected annotation type.
+   */
+  private void showTargets()
+  {
+    final int sel = typeList.getSelectedIndex();
+    if (sel < 0)
+    {
+      model.setTargets(index, new int[0]);
+      return;
+    }
+    
+    final long start = System.nanoTime();
+    final int type = shownTypes[sel];
+    final int[] targets = index.getTargets(type);
+    model.setTargets(index, targets);
+    final long millis = (System.nanoTime() - start) / 1000000L;
+    
+    final NumberFormat fmt = NumberFormat.getIntegerInstance();
+    status.setText(index.getName(type).replace('/', '.') + " is on " +
+                   fmt.format(targets.length) +
+                   ((targets.length == 1) ? " element" : " elements") +
+                   ", " + Long.toString(millis) + " ms");
+  }
+  
+  
+  /**
+   * Return the panel with the buttons.
+   * 
+   * @return the panel for the buttons
+   */
+  private JPanel getPanelButtons()
+  {
+    // The panel that we fill with buttons
+    JPanel panelButton = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 0));
+    
+    // Copy the selected rows to the clipboard
+    JButton btnCS = new JButton("Copy Selected");
+    btnCS.setMnemonic(KeyEvent.VK_S);
+    btnCS.addActionListener(new ActionListener()
+    {
+      @Override
+      public void actionPerformed(final ActionEvent e)
+      {
+        copySelected();
+      }
+    });
+    panelButton.add(btnCS);
+    
+    // Close the window
+    JButton btnOK = new JButton("Close");
+    btnOK.setMnemonic(KeyEvent.VK_C);
+    btnOK.addActionListener(new ActionListener()
+    {
+      @Override
+      public void actionPerformed(final ActionEvent e)
+      {
+        dispose();
+      }
+    });
+    panelButton.add(btnOK);
+    
+    return panelButton;
+  }
+  
+  
+  /**
+   * Copy the selected rows to the clipboard, one per line, with the
+   * columns separated by tabs.
+   */
+  private void copySelected()
+  {
+    // Check the selected list size
+    final int[] sel = table.getSelectedRows();
+    if (sel.length < 1)
+    {
+      JOptionPane.showMessageDialog(this, "No data selected",
+                      "Status", JOptionPane.WARNING_MESSAGE);
+      return;
+    }
+    
+    // Build the string containing the selected rows
+    StringBuilder sb = new StringBuilder(500);
+    String lineEnd = Utility.getLineSeparator();
+    for (int row : sel)
+    {
+      final int modelRow = table.convertRowIndexToModel(row);
+      sb.append(model.getValueAt(modelRow, 0)).append('\t')
+        .append(model.getValueAt(modelRow, 1)).append('\t')
+        .append(model.getValueAt(modelRow, 2)).append('\t')
+        .append(model.getValueAt(modelRow, 3)).append(lineEnd);
+    }
+    
+    // Copy the rows to the clipboard
+    Utility.saveToClipboard(sb.toString());
+  }
+}
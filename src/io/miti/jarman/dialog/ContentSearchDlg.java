@@ -0,0 +1,490 @@
+package io.miti.jarman.dialog;
+
+import io.miti.jarman.data.JarData;
+import io.miti.jarman.gui.BackgroundTask;
+import io.miti.jarman.gui.Jarman;
+import io.miti.jarman.gui.table.ContentSearchModel;
+import io.miti.jarman.util.ClassScanner;
+import io.miti.jarman.util.ContentMatcher;
+import io.miti.jarman.util.ContentSearcher;
+import io.miti.jarman.util.Utility;
+import io.miti.jarman.util.WindowState;
+
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.PatternSyntaxException;
+
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.JTextField;
+
+/**
+ * Dialog box to search the contents of every entry in the loaded jars,
+ * such as XML files, properties and service files.  The matching lines
+ * are added to the table as they are found, and the search can be
+ * stopped at any time.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class ContentSearchDlg extends JDialog
+{
+  /**
+   * Serial version UID.
+   */
+  private static final long serialVersionUID = 1L;
+  
+  /**
+   * The maximum number of rows shown; the search stops when it is reached.
+   */
+  private static final int MAX_ROWS = 10000;
+  
+  /**
+   * The query field.
+   */
+  private JTextField query = null;
+  
+  /**
+   * Whether the query is a regular expression.
+   */
+  private JCheckBox cbRegex = null;
+  
+  /**
+   * Whether the case of letters must match.
+   */
+  private JCheckBox cbCase = null;
+  
+  /**
+   * The button that starts a search.
+   */
+  private JButton btnSearch = null;
+  
+  /**
+   * The button that stops a search.
+   */
+  private JButton btnStop = null;
+  
+  /**
+   * The table model for the results.
+   */
+  private ContentSearchModel model = null;
+  
+  /**
+   * The table of results.
+   */
+  private JTable table = null;
+  
+  /**
+   * The label showing the state of the search.
+   */
+  private JLabel status = null;
+  
+  /**
+   * The running search, or null.
+   */
+  private transient SearchTask task = null;
+  
+  
+  /**
+   * Constructor.
+   */
+  public ContentSearchDlg()
+  {
+    // Set up the basic parameters - title, modal, size
+    super(Jarman.getApp().getFrame(), "Search Contents", true);
+    setPreferredSize(new java.awt.Dimension(820, 520));
+    
+    final JPanel panel = new JPanel(new BorderLayout(0, 10));
+    panel.setBorder(BorderFactory.createEmptyBorder(12, 12, 12, 12));
+    panel.add(getQueryPanel(), BorderLayout.NORTH);
+    
+    // Add the table of results
+    model = new ContentSearchModel();
+    table = new JTable(model);
+    table.setAutoCreateRowSorter(true);
+    table.setColumnSelectionAllowed(false);
+    table.getTableHeader().setReorderingAllowed(false);
+    table.setAutoResizeMode(JTable.AUTO_RESIZE_SUBSEQUENT_COLUMNS);
+    table.getColumnModel().getColumn(0).setPreferredWidth(160);
+    table.getColumnModel().getColumn(1).setPreferredWidth(220);
+    table.getColumnModel().getColumn(2).setPreferredWidth(50);
+    table.getColumnModel().getColumn(2).setMaxWidth(80);
+    table.getColumnModel().getColumn(3).setPreferredWidth(360);
+    panel.add(new JScrollPane(table), BorderLayout.CENTER);
+    
+    // Add the status and the buttons
+    JPanel bottomPanel = new JPanel(new BorderLayout(0, 10));
+    status = new JLabel("Enter the text to find in the entries of the loaded jars");
+    bottomPanel.add(status, BorderLayout.NORTH);
+    bottomPanel.add(getPanelButtons(), BorderLayout.SOUTH);
+    panel.add(bottomPanel, BorderLayout.SOUTH);
+    
+    // Stop the search if the window is closed
+    setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+    addWindowListener(new WindowAdapter()
+    {
+      @Override
+      public void windowClosed(final WindowEvent e)
+      {
+        stopSearch();
+      }
+    });
+    
+    // Finish setting up the dialog box
+    getContentPane().add(panel);
+    getRootPane().setDefaultButton(btnSearch);
+    pack();
+    setResizable(true);
+    setLocationRelativeTo(Jarman.getApp().getFrame());
+    setVisible(true);
+  }
+  
+  
+  /**
+   * Return the panel with the query field and its options.
+   * 
+   * @return the query panel
+   */
+  private JPanel getQueryPanel()
+  {
+    JPanel topPanel = new JPanel(new BorderLayout(8, 0));
+    JLabel label = new JLabel("Find:");
+    query = new JTextField();
+    label.setLabelFor(query);
+    label.setDisplayedMnemonic(KeyEvent.VK_F);
+    topPanel.add(label, BorderLayout.WEST);
+    topPanel.add(query, BorderLayout.CENTER);
+    
+    JPanel options = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 0));
+    cbRegex = new JCheckBox("Regular expression");
+    cbRegex.setMnemonic(KeyEvent.VK_R);
+    options.add(cbRegex);
+    cbCase = new JCheckBox("Match case");
+    cbCase.setMnemonic(KeyEvent.VK_M);
+    options.add(cbCase);
+    topPanel.add(options, BorderLayout.EAST);
+    
+    return topPanel;
+  }
+  
+  
+  /**
+   * Return the panel with the buttons.
+   * 
+   * @return the panel for the buttons
+   */
+  private JPanel getPanelButtons()
+  {
+    // The panel that we fill with buttons
+    JPanel panelButton = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 0));
+    
+    // Start a search
+    btnSearch = new JButton("Search");
+    btnSearch.setMnemonic(KeyEvent.VK_S);
+    btnSearch.addActionListener(new ActionListener()
+    {
+      @Override
+      public void actionPerformed(final ActionEvent e)
+      {
+        startSearch();
+      }
+    });
+    panelButton.add(btnSearch);
+    
+    // Stop the search
+    btnStop = new JButton("Stop");
+    btnStop.setMnemonic(KeyEvent.VK_T);
+    btnStop.setEnabled(false);
+    btnStop.addActionListener(new ActionListener()
+    {
+      @Override
+      public void actionPerformed(final ActionEvent e)
+      {
+        stopSearch();
+      }
+    });
+    panelButton.add(btnStop);
+    
+    // Copy the selected rows to the clipboard
+    JButton btnCS = new JButton("Copy Selected");
+    btnCS.setMnemonic(KeyEvent.VK_O);
+    btnCS.addActionListener(new ActionListener()
+    {
+      @Override
+      public void actionPerformed(final ActionEvent e)
+      {
+        copySelected();
+      }
+    });
+    panelButton.add(btnCS);
+    
+    // Close the window
+    JButton btnOK = new JButton("Close");
+    btnOK.setMnemonic(KeyEvent.VK_C);
+    btnOK.addActionListener(new ActionListener()
+    {
+      @Override
+      public void actionPerformed(final ActionEvent e)
+      {
+        dispose();
+      }
+    });
+    panelButton.add(btnOK);
+    
+    return panelButton;
+  }
+  
+  
+  /**
+   * Start a search for the query, replacing the current results.
+   */
+  private void startSearch()
+  {
+    final String text = query.getText();
+    if (text.length() == 0)
+    {
+      return;
+    }
+    
+    // Check the query before the search starts
+    ContentMatcher matcher = null;
+    try
+    {
+      matcher = ContentMatcher.create(text, cbRegex.isSelected(),
+                                      cbCase.isSelected());
+    }
+    catch (PatternSyntaxException e)
+    {
+      JOptionPane.showMessageDialog(this, e.getDescription(),
+                      "Invalid Expression", JOptionPane.WARNING_MESSAGE);
+      return;
+    }
+    
+    stopSearch();
+    model.clear();
+    status.setText("Searching");
+    btnSearch.setEnabled(false);
+    btnStop.setEnabled(true);
+    task = new SearchTask(JarData.getInstance().getFoundJars(), matcher);
+    task.start();
+  }
+  
+  
+  /**
+   * Stop the running search, if any.
+   */
+  private void stopSearch()
+  {
+    if (task != null)
+    {
+      task.cancel(true);
+    }
+  }
+  
+  
+  /**
+   * Copy the selected rows to the clipboard, one per line, with the
+   * columns separated by tabs.
+   */
+  private void copySelected()
+  {
+    // Check the selected list size
+    final int[] sel = table.getSelectedRows();
+    if (sel.length < 1)
+    {
+      JOptionPane.showMessageDialog(this, "No data selected",
+                      "Status", JOptionPane.WARNING_MESSAGE);
+      return;
+    }
+    
+    // Build the string containing the selected rows
+    StringBuilder sb = new StringBuilder(500);
+    String lineEnd = Utility.getLineSeparator();
+    for (int row : sel)
+    {
+      final int modelRow = table.convertRowIndexToModel(row);
+      sb.append(model.getValueAt(modelRow, 0)).append('\t')
+        .append(model.getValueAt(modelRow, 1)).append('\t')
+        .append(model.getValueAt(modelRow, 2)).append('\t')
+        .append(model.getValueAt(modelRow, 3)).append(lineEnd);
+    }
+    
+    // Copy the rows to the clipboard
+    Utility.saveToClipboard(sb.toString());
+  }
+  
+  
+  /**
+   * The background task that searches the jars.  Matching lines are
+   * published as they are found, and added to the table on the event
+   * thread.
+   */
+  private final class SearchTask extends BackgroundTask<ContentSearcher, ContentSearchModel.Row>
+  {
+    /**
+     * The jars to search.
+     */
+    private List<File> jars = null;
+    
+    /**
+     * The matcher for the query.
+     */
+    private ContentMatcher matcher = null;
+    
+    /**
+     * When the search started.
+     */
+    private long startTime = 0L;
+    
+    /**
+     * Whether the search stopped because the table is full.
+     */
+    private boolean full = false;
+    
+    
+    /**
+     * Constructor.
+     * 
+     * @param pJars the jars to search
+     * @param pMatcher the matcher for the query
+     */
+    public SearchTask(final List<File> pJars, final ContentMatcher pMatcher)
+    {
+      super("Searching contents");
+      jars = pJars;
+      matcher = pMatcher;
+      startTime = System.currentTimeMillis();
+    }
+    
+    
+    /**
+     * Search the jars.
+     * 
+     * @return the searcher, holding the number of entries read
+     */
+    @Override
+    protected ContentSearcher doInBackground()
+    {
+      setStatusText("Searching " + jars.size() + " jars");
+      ContentSearcher searcher = new ContentSearcher(WindowState.getInstance().getScanThreads());
+      searcher.search(jars, matcher, new ContentSearcher.MatchHandler()
+      {
+        @Override
+        public void linesFound(final File jar, final String entry,
+                               final List<ContentMatcher.Line> lines)
+        {
+          final String path = jar.getPath();
+          List<ContentSearchModel.Row> rows = new ArrayList<ContentSearchModel.Row>(lines.size());
+          for (ContentMatcher.Line line : lines)
+          {
+            rows.add(new ContentSearchModel.Row(path, entry, line));
+          }
+          
+          publish(rows.toArray(new ContentSearchModel.Row[rows.size()]));
+        }
+      }, new ClassScanner.ScanListener()
+      {
+        @Override
+        public void jarScanned(final File jar, final int done, final int total)
+        {
+          setStatusText("Searched " + jar.getName() +
+                        " (" + done + " of " + total + ")");
+          setProgress(done, total);
+        }
+        
+        @Override
+        public boolean isCancelled()
+        {
+          return SearchTask.this.isCancelled();
+        }
+      });
+      
+      return searcher;
+    }
+    
+    
+    /**
+     * Add the lines found so far to the table, and stop the search
+     * once the table is full.
+     * 
+     * @param rows the matching lines
+     */
+    @Override
+    protected void process(final List<ContentSearchModel.Row> rows)
+    {
+      if (isCancelled() || (task != this))
+      {
+        return;
+      }
+      
+      final int room = MAX_ROWS - model.getRowCount();
+      model.addRows((rows.size() <= room) ? rows : rows.subList(0, room));
+      status.setText("Found " + model.getRowCount() + " lines so far");
+      if (rows.size() >= room)
+      {
+        full = true;
+        cancel(true);
+      }
+    }
+    
+    
+    /**
+     * Show the totals for the search.
+     * 
+     * @param searcher the searcher, or null if the search was stopped
+     * @param cancelled whether the search was stopped
+     */
+    @Override
+    protected void finished(final ContentSearcher searcher, final boolean cancelled)
+    {
+      if (task != this)
+      {
+        return;
+      }
+      
+      task = null;
+      btnSearch.setEnabled(true);
+      btnStop.setEnabled(false);
+      
+      final NumberFormat fmt = NumberFormat.getIntegerInstance();
+      StringBuilder sb = new StringBuilder(100);
+      sb.append("Found ").append(fmt.format(model.getRowCount()))
+        .append((model.getRowCount() == 1) ? " line" : " lines");
+      if (full)
+      {
+        sb.append(" (stopped at the limit)");
+      }
+      else if (cancelled || (searcher == null))
+      {
+        sb.append(" (stopped)");
+      }
+      else
+      {
+        sb.append(" in ").append(fmt.format(searcher.getEntryCount()))
+          .append(" entries (")
+          .append(fmt.format(searcher.getByteCount() / 1048576L))
+          .append(" MB)");
+      }
+      
+      sb.append(", ").append(fmt.format(System.currentTimeMillis() - startTime))
+        .append(" ms");
+      status.setText(sb.toString());
+    }
+  }
+}
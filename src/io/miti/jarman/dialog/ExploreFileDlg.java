@@ -1,6 +1,8 @@
 package io.miti.jarman.dialog;
 
 import io.miti.jarman.classref.ClassInfo;
+import io.miti.jarman.classref.ClassReader;
+import io.miti.jarman.classref.ConstantPool;
 import io.miti.jarman.classref.FieldMethodInfo;
 import io.miti.jarman.gui.Jarman;
 import io.miti.jarman.gui.table.FMITableModel;
@@ -363,12 +365,13 @@ public final class ExploreFileDlg extends JDialog
     
     DefaultListModel<String> model = new DefaultListModel<String>();
     JList<String> lbNames = new JList<String>(model);
-    Iterator<String> names = ci.getStringRefIterator();
-    if (names != null)
+    ConstantPool pool = ci.getConstantPool();
+    final int size = (pool == null) ? 0 : pool.getSize();
+    for (int i = 1; i < size; ++i)
     {
-      while (names.hasNext())
+      if (pool.getTag(i) == ClassReader.CONSTANT_STRING)
       {
-        String name = names.next();
+        String name = pool.getRefString(i);
         if (name == null)
         {
           model.addElement("<<Null>>");
@@ -0,0 +1,391 @@
+package io.miti.jarman.dialog;
+
+import io.miti.jarman.gui.Jarman;
+import io.miti.jarman.index.ClassHierarchy;
+import io.miti.jarman.index.ClassNamePool;
+import io.miti.jarman.util.Utility;
+
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.KeyEvent;
+import java.text.NumberFormat;
+
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+import javax.swing.JTree;
+import javax.swing.event.TreeExpansionEvent;
+import javax.swing.event.TreeWillExpandListener;
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.TreePath;
+
+/**
+ * Dialog box to show the class hierarchy around a class in the loaded
+ * jars: the classes and interfaces it extends, and the classes that
+ * extend or implement it.  Each branch of the tree is filled in when it
+ * is expanded, so the whole hierarchy is never loaded into the tree.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class HierarchyDlg extends JDialog
+{
+  /**
+   * Serial version UID.
+   */
+  private static final long serialVersionUID = 1L;
+  
+  /**
+   * The maximum number of classes shown in one branch.
+   */
+  private static final int MAX_NODES = 1000;
+  
+  /**
+   * The class hierarchy.
+   */
+  private transient ClassHierarchy hierarchy = null;
+  
+  /**
+   * The class name field.
+   */
+  private JTextField query = null;
+  
+  /**
+   * The tree model.
+   */
+  private DefaultTreeModel model = null;
+  
+  /**
+   * The tree.
+   */
+  private JTree tree = null;
+  
+  /**
+   * The label showing the number of subtypes.
+   */
+  private JLabel status = null;
+  
+  /**
+   * The ID of the class shown, or NOT_FOUND if there is none.
+   */
+  private int shownId = ClassNamePool.NOT_FOUND;
+  
+  
+  /**
+   * Constructor taking the hierarchy to show.
+   * 
+   * @param pHierarchy the class hierarchy
+   */
+  public HierarchyDlg(final ClassHierarchy pHierarchy)
+  {
+    // Set up the basic parameters - title, modal, size
+    super(Jarman.getApp().getFrame(), "Class Hierarchy", true);
+    hierarchy = pHierarchy;
+    setPreferredSize(new java.awt.Dimension(640, 520));
+    
+    final JPanel panel = new JPanel(new BorderLayout(0, 10));
+    panel.setBorder(BorderFactory.createEmptyBorder(12, 12, 12, 12));
+    
+    // Add the class name field to the top of the panel
+    JPanel topPanel = new JPanel(new BorderLayout(8, 0));
+    JLabel label = new JLabel("Class:");
+    query = new JTextField();
+    label.setLabelFor(query);
+    label.setDisplayedMnemonic(KeyEvent.VK_L);
+    topPanel.add(label, BorderLayout.WEST);
+    topPanel.add(query, BorderLayout.CENTER);
+    JButton btnShow = new JButton("Show");
+    btnShow.setMnemonic(KeyEvent.VK_H);
+    topPanel.add(btnShow, BorderLayout.EAST);
+    panel.add(topPanel, BorderLayout.NORTH);
+    
+    // Show the class when Enter or the button is pressed
+    ActionListener show = new ActionListener()
+    {
+      @Override
+      public void actionPerformed(final ActionEvent e)
+      {
+        showClass();
+      }
+    };
+    query.addActionListener(show);
+    btnShow.addActionListener(show);
+    
+    // Add the tree, filling in each branch when it is expanded
+    model = new DefaultTreeModel(new DefaultMutableTreeNode("No class"));
+    tree = new JTree(model);
+    tree.setRootVisible(true);
+    tree.addTreeWillExpandListener(new TreeWillExpandListener()
+    {
+      @Override
+      public void treeWillExpand(final TreeExpansionEvent event)
+      {
+        loadChildren((DefaultMutableTreeNode) event.getPath().getLastPathComponent());
+      }
+      
+      @Override
+      public void treeWillCollapse(final TreeExpansionEvent event)
+      {
+        // Keep the loaded branches
+      }
+    });
+    panel.add(new JScrollPane(tree), BorderLayout.CENTER);
+    
+    // Add the status and the buttons
+    JPanel bottomPanel = new JPanel(new BorderLayout(0, 10));
+    status = new JLabel(NumberFormat.getIntegerInstance().format(
+                          hierarchy.getTable().size()) + " classes loaded");
+    bottomPanel.add(status, BorderLayout.NORTH);
+    bottomPanel.add(getPanelButtons(), BorderLayout.SOUTH);
+    panel.add(bottomPanel, BorderLayout.SOUTH);
+    
+    // Finish setting up the dialog box
+    getContentPane().add(panel);
+    pack();
+    setResizable(true);
+    setLocationRelativeTo(Jarman.getApp().getFrame());
+    setVisible(true);
+  }
+  
+  
+  /**
+   * Show the hierarchy around the class in the query field.
+   */
+  private void showClass()
+  {
+    final String name = query.getText().trim().replace('.', '/');
+    final int id = hierarchy.getId(name);
+    if (id == ClassNamePool.NOT_FOUND)
+    {
+      JOptionPane.showMessageDialog(this, "The class was not found",
+                      "Status", JOptionPane.WARNING_MESSAGE);
+      return;
+    }
+    
+    // Build the two top branches of the tree
+    shownId = id;
+    DefaultMutableTreeNode root = new DefaultMutableTreeNode(getLabel(id));
+    DefaultMutableTreeNode supers = new DefaultMutableTreeNode("Extends / implements");
+    addNodes(supers, hierarchy.getParents(id), false);
+    root.add(supers);
+    DefaultMutableTreeNode subs = new DefaultMutableTreeNode("Subtypes");
+    addNodes(subs, hierarchy.getChildren(id), true);
+    root.add(subs);
+    model.setRoot(root);
+    tree.expandPath(new TreePath(new Object[] {root, supers}));
+    tree.expandPath(new TreePath(new Object[] {root, subs}));
+    
+    // Count every subtype, not just the direct ones
+    final long start = System.nanoTime();
+    final int all = hierarchy.getSubtypes(id).length;
+    final double millis = (System.nanoTime() - start) / 1000000.0;
+    final NumberFormat fmt = NumberFormat.getIntegerInstance();
+    status.setText(fmt.format(hierarchy.getChildCount(id)) + " direct subtypes, " +
+                   fmt.format(all) + " in all, " + String.format("%.3f ms", millis));
+  }
+  
+  
+  /**
+   * Add a node for each class to a branch.  A class with more classes
+   * beyond it gets an empty node, so it can be expanded.  A branch is
+   * cut off after MAX_NODES classes.
+   * 
+   * @param parent the branch
+   * @param ids the class IDs
+   * @param down whether the branch goes to subtypes
+   */
+  private void addNodes(final DefaultMutableTreeNode parent, final int[] ids,
+                        final boolean down)
+  {
+    final int count = Math.min(ids.length, MAX_NODES);
+    for (int i = 0; i < count; ++i)
+    {
+      final int id = ids[i];
+      DefaultMutableTreeNode node = new DefaultMutableTreeNode(new Node(id, down, getLabel(id)));
+      final int more = down ? hierarchy.getChildCount(id) : hierarchy.getParentCount(id);
+      if (more > 0)
+      {
+        node.add(new DefaultMutableTreeNode("..."));
+      }
+      
+      parent.add(node);
+    }
+    
+    if (ids.length > count)
+    {
+      parent.add(new DefaultMutableTreeNode("(" +
+                   NumberFormat.getIntegerInstance().format(ids.length - count) +
+                   " more)"));
+    }
+  }
+  
+  
+  /**
+   * Fill in a node when it is first expanded.
+   * 
+   * @param node the node being expanded
+   */
+  private void loadChildren(final DefaultMutableTreeNode node)
+  {
+    if (!(node.getUserObject() instanceof Node))
+    {
+      return;
+    }
+    
+    final Node data = (Node) node.getUserObject();
+    if (data.loaded)
+    {
+      return;
+    }
+    
+    data.loaded = true;
+    node.removeAllChildren();
+    addNodes(node, data.down ? hierarchy.getChildren(data.id)
+                             : hierarchy.getParents(data.id), data.down);
+    model.nodeStructureChanged(node);
+  }
+  
+  
+  /**
+   * Return the label of a class in the tree.
+   * 
+   * @param id the class ID
+   * @return the label
+   */
+  private String getLabel(final int id)
+  {
+    final String name = hierarchy.getName(id).replace('/', '.');
+    if (hierarchy.getRow(id) < 0)
+    {
+      return name + " (not in the loaded jars)";
+    }
+    
+    return hierarchy.isInterface(id) ? (name + " (interface)") : name;
+  }
+  
+  
+  /**
+   * Return the panel with the buttons.
+   * 
+   * @return the panel for the buttons
+   */
+  private JPanel getPanelButtons()
+  {
+    // The panel that we fill with buttons
+    JPanel panelButton = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 0));
+    
+    // Copy every subtype of the class to the clipboard
+    JButton btnCS = new JButton("Copy All Subtypes");
+    btnCS.setMnemonic(KeyEvent.VK_S);
+    btnCS.addActionListener(new ActionListener()
+    {
+      @Override
+      public void actionPerformed(final ActionEvent e)
+      {
+        copySubtypes();
+      }
+    });
+    panelButton.add(btnCS);
+    
+    // Close the window
+    JButton btnOK = new JButton("Close");
+    btnOK.setMnemonic(KeyEvent.VK_C);
+    btnOK.addActionListener(new ActionListener()
+    {
+      @Override
+      public void actionPerformed(final ActionEvent e)
+      {
+        dispose();
+      }
+    });
+    panelButton.add(btnOK);
+    
+    return panelButton;
+  }
+  
+  
+  /**
+   * Copy the names of every subtype of the class shown to the
+   * clipboard, one per line.
+   */
+  private void copySubtypes()
+  {
+    if (shownId == ClassNamePool.NOT_FOUND)
+    {
+      JOptionPane.showMessageDialog(this, "No class shown",
+                      "Status", JOptionPane.WARNING_MESSAGE);
+      return;
+    }
+    
+    StringBuilder sb = new StringBuilder(500);
+    String lineEnd = Utility.getLineSeparator();
+    for (int id : hierarchy.getSubtypes(shownId))
+    {
+      sb.append(hierarchy.getName(id).replace('/', '.')).append(lineEnd);
+    }
+    
+    Utility.saveToClipboard(sb.toString());
+  }
+  
+  
+  /**
+   * A class in the tree.
+   */
+  private static final class Node
+  {
+    /**
+     * The class ID.
+     */
+    private final int id;
+    
+    /**
+     * Whether the children of the node are subtypes.
+     */
+    private final boolean down;
+    
+    /**
+     * The label shown in the tree.
+     */
+    private final String label;
+    
+    /**
+     * Whether the children of the node were filled in.
+     */
+    private boolean loaded = false;
+    
+    
+    /**
+     * Constructor.
+     * 
+     * @param nId the class ID
+     * @param bDown whether the children of the node are subtypes
+     * @param sLabel the label shown in the tree
+     */
+    public Node(final int nId, final boolean bDown, final String sLabel)
+    {
+      id = nId;
+      down = bDown;
+      label = sLabel;
+    }
+    
+    
+    /**
+     * Return the label shown in the tree.
+     * 
+     * @return the label
+     */
+    @Override
+    public String toString()
+    {
+      return label;
+    }
+  }
+}
@@ -1,13 +1,20 @@
 package io.miti.jarman.dialog;
 
+import io.miti.jarman.data.JarData;
+import io.miti.jarman.gui.BackgroundTask;
 import io.miti.jarman.gui.Jarman;
+import io.miti.jarman.index.ReferenceGraph;
+import io.miti.jarman.util.ArtifactIndex;
+import io.miti.jarman.util.ClassScanner;
 import io.miti.jarman.util.Utility;
+import io.miti.jarman.util.WindowState;
 
 import java.awt.BorderLayout;
 import java.awt.FlowLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -16,15 +23,24 @@ import java.util.Set;
 import javax.swing.BorderFactory;
 import javax.swing.DefaultListModel;
 import javax.swing.JButton;
+import javax.swing.JComponent;
 import javax.swing.JDialog;
+import javax.swing.JFileChooser;
 import javax.swing.JList;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JLabel;
+import javax.swing.JSplitPane;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.event.ListSelectionListener;
 
 /**
- * Dialog box to show the list of missing referenced classes.
+ * Dialog box to show the list of missing referenced classes.  If the
+ * classes in the loaded jars were parsed, the classes that reference
+ * the selected class are shown below the list.  The artifacts in the
+ * local Maven repository that hold the selected class are shown too,
+ * once the repository has been indexed.
  * 
  * @author mwallace
  * @version 1.0
@@ -46,6 +62,27 @@ public final class MissingClassesDlg extends JDialog
   }
   
   
+  /**
+   * The label above the list of referring classes.
+   */
+  private JLabel refLabel = null;
+  
+  /**
+   * The list of classes referring to the selected class.
+   */
+  private DefaultListModel<String> refModel = null;
+  
+  /**
+   * The label above the list of artifacts.
+   */
+  private JLabel artifactLabel = null;
+  
+  /**
+   * The list of artifacts holding the selected class.
+   */
+  private DefaultListModel<String> artifactModel = null;
+  
+  
   /**
    * Constructor taking the data to show.
    * 
@@ -66,7 +103,38 @@ public final class MissingClassesDlg extends JDialog
     final int count = fillModel(model, names);
     lbNames.setModel(model);
     panel.setBorder(BorderFactory.createEmptyBorder(12, 12, 12, 12));
-    panel.add(new JScrollPane(lbNames), BorderLayout.CENTER);
+    
+    // If there is a reference graph, show the referrers below the list,
+    // and for missing classes, the artifacts that could supply them
+    final ReferenceGraph graph = JarData.getInstance().getReferenceGraph();
+    JComponent lower = (graph == null) ? null : getReferrersPanel(lbNames, graph);
+    if (showMissing)
+    {
+      final JPanel artifacts = getArtifactsPanel(lbNames);
+      if (lower == null)
+      {
+        lower = artifacts;
+      }
+      else
+      {
+        JSplitPane split = new JSplitPane(JSplitPane.VERTICAL_SPLIT, lower, artifacts);
+        split.setResizeWeight(0.5);
+        lower = split;
+      }
+    }
+    
+    if (lower == null)
+    {
+      panel.add(new JScrollPane(lbNames), BorderLayout.CENTER);
+    }
+    else
+    {
+      setPreferredSize(new java.awt.Dimension(420, 560));
+      JSplitPane split = new JSplitPane(JSplitPane.VERTICAL_SPLIT,
+                 new JScrollPane(lbNames), lower);
+      split.setResizeWeight(0.6);
+      panel.add(split, BorderLayout.CENTER);
+    }
     
     // Add the label to the top of the panel
     JLabel topLabel = new JLabel(getTopLabel(count, showMissing));
@@ -75,7 +143,7 @@ public final class MissingClassesDlg extends JDialog
     panel.add(topPanel, BorderLayout.NORTH);
     
     // Add the buttons
-    panel.add(getPanelButtons(lbNames), BorderLayout.SOUTH);
+    panel.add(getPanelButtons(lbNames, showMissing), BorderLayout.SOUTH);
     
     // Finish setting up the dialog box
     getContentPane().add(panel);
@@ -86,17 +154,190 @@ public final class MissingClassesDlg extends JDialog
   }
   
   
+  /**
+   * Return the panel listing the classes that reference the class
+   * selected in the listbox.
+   * 
+   * @param lbNames the listbox
+   * @param graph the reference graph
+   * @return the panel for the referrers
+   */
+  private JPanel getReferrersPanel(final JList<String> lbNames,
+                                   final ReferenceGraph graph)
+  {
+    JPanel refPanel = new JPanel(new BorderLayout(0, 5));
+    refLabel = new JLabel("Select a class to see what references it");
+    refModel = new DefaultListModel<String>();
+    refPanel.add(refLabel, BorderLayout.NORTH);
+    refPanel.add(new JScrollPane(new JList<String>(refModel)), BorderLayout.CENTER);
+    
+    // Update the referrers when the selection changes
+    lbNames.addListSelectionListener(new ListSelectionListener()
+    {
+      @Override
+      public void valueChanged(final ListSelectionEvent e)
+      {
+        if (!e.getValueIsAdjusting())
+        {
+          showReferrers(graph, lbNames.getSelectedValue());
+        }
+      }
+    });
+    
+    return refPanel;
+  }
+  
+  
+  /**
+   * Show the classes that reference a class.
+   * 
+   * @param graph the reference graph
+   * @param name the selected class name, or null if none is selected
+   */
+  private void showReferrers(final ReferenceGraph graph, final String name)
+  {
+    refModel.clear();
+    if (name == null)
+    {
+      refLabel.setText("Select a class to see what references it");
+      return;
+    }
+    
+    final List<String> refs = graph.getReferrers(name);
+    for (String ref : refs)
+    {
+      refModel.addElement(ref);
+    }
+    
+    final int count = refs.size();
+    refLabel.setText("Referenced by " + Integer.toString(count) +
+                     ((count == 1) ? " class" : " classes"));
+  }
+  
+  
+  /**
+   * Return the panel listing the artifacts in the local Maven
+   * repository that hold the class selected in the listbox.
+   * 
+   * @param lbNames the listbox
+   * @return the panel for the artifacts
+   */
+  private JPanel getArtifactsPanel(final JList<String> lbNames)
+  {
+    JPanel artifactPanel = new JPanel(new BorderLayout(0, 5));
+    artifactLabel = new JLabel();
+    artifactModel = new DefaultListModel<String>();
+    artifactPanel.add(artifactLabel, BorderLayout.NORTH);
+    artifactPanel.add(new JScrollPane(new JList<String>(artifactModel)),
+                      BorderLayout.CENTER);
+    showArtifacts(null);
+    
+    // Update the artifacts when the selection changes
+    lbNames.addListSelectionListener(new ListSelectionListener()
+    {
+      @Override
+      public void valueChanged(final ListSelectionEvent e)
+      {
+        if (!e.getValueIsAdjusting())
+        {
+          showArtifacts(lbNames.getSelectedValue());
+        }
+      }
+    });
+    
+    return artifactPanel;
+  }
+  
+  
+  /**
+   * Show the artifacts in the local repository that hold a class.
+   * 
+   * @param name the selected class name, or null if none is selected
+   */
+  private void showArtifacts(final String name)
+  {
+    artifactModel.clear();
+    final ArtifactIndex index = ArtifactIndex.getInstance();
+    if (!index.isAvailable())
+    {
+      artifactLabel.setText("Index the Maven repository to see which artifacts hold a class");
+      return;
+    }
+    else if (name == null)
+    {
+      artifactLabel.setText("Select a class to see which artifacts hold it");
+      return;
+    }
+    
+    final List<ArtifactIndex.Artifact> artifacts = index.find(name);
+    for (ArtifactIndex.Artifact artifact : artifacts)
+    {
+      artifactModel.addElement(artifact.getCoordinate());
+    }
+    
+    final int count = artifacts.size();
+    artifactLabel.setText((count == 0) ? "Not found in the Maven repository" :
+                          ("Found in " + Integer.toString(count) +
+                           ((count == 1) ? " artifact" : " artifacts")));
+  }
+  
+  
+  /**
+   * Index the local Maven repository in the background.  If the
+   * default repository is not found, the user picks the directory.
+   * 
+   * @param lbNames the listbox
+   */
+  private void indexRepository(final JList<String> lbNames)
+  {
+    final ArtifactIndex index = ArtifactIndex.getInstance();
+    if (!index.getRepository().isDirectory())
+    {
+      JFileChooser fc = new JFileChooser();
+      fc.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+      fc.setDialogTitle("Select the Maven repository");
+      if (fc.showOpenDialog(this) != JFileChooser.APPROVE_OPTION)
+      {
+        return;
+      }
+      
+      index.setRepository(fc.getSelectedFile());
+    }
+    
+    artifactLabel.setText("Indexing " + index.getRepository().getPath());
+    new IndexTask(lbNames).start();
+  }
+  
+  
   /**
    * Return the panel with the buttons.
    * 
    * @param lbNames the listbox
+   * @param showMissing whether missing classes are shown
    * @return the panel for the buttons
    */
-  private JPanel getPanelButtons(final JList<String> lbNames)
+  private JPanel getPanelButtons(final JList<String> lbNames,
+                                 final boolean showMissing)
   {
     // The panel that we fill with buttons
     JPanel panelButton = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 0));
     
+    // Index the local Maven repository
+    if (showMissing)
+    {
+      JButton btnIndex = new JButton("Index Repository");
+      btnIndex.setMnemonic(KeyEvent.VK_I);
+      btnIndex.addActionListener(new ActionListener()
+      {
+        @Override
+        public void actionPerformed(final ActionEvent e)
+        {
+          indexRepository(lbNames);
+        }
+      });
+      panelButton.add(btnIndex);
+    }
+    
     // Copy all classes to the clipboard
     JButton btnCA = new JButton("Copy All");
     btnCA.setMnemonic(KeyEvent.VK_A);
@@ -268,4 +509,78 @@ public final class MissingClassesDlg extends JDialog
     
     return sb.toString();
   }
+  
+  
+  /**
+   * The background task that indexes the local Maven repository.
+   */
+  private final class IndexTask extends BackgroundTask<Boolean, Void>
+  {
+    /**
+     * The listbox of class names.
+     */
+    private JList<String> lbNames = null;
+    
+    
+    /**
+     * Constructor.
+     * 
+     * @param pNames the listbox of class names
+     */
+    public IndexTask(final JList<String> pNames)
+    {
+      super("Indexing the Maven repository");
+      lbNames = pNames;
+    }
+    
+    
+    /**
+     * Index the repository.
+     * 
+     * @return whether the index was updated
+     */
+    @Override
+    protected Boolean doInBackground()
+    {
+      final int threads = WindowState.getInstance().getScanThreads();
+      final boolean updated = ArtifactIndex.getInstance().update(threads,
+                                              new ClassScanner.ScanListener()
+      {
+        @Override
+        public void jarScanned(final File jar, final int done, final int total)
+        {
+          setStatusText("Indexed " + jar.getName() +
+                        " (" + done + " of " + total + ")");
+          setProgress(done, total);
+        }
+        
+        @Override
+        public boolean isCancelled()
+        {
+          return IndexTask.this.isCancelled();
+        }
+      });
+      
+      return Boolean.valueOf(updated);
+    }
+    
+    
+    /**
+     * Show the artifacts for the selected class from the new index.
+     * 
+     * @param result whether the index was updated
+     * @param cancelled whether the task was cancelled
+     */
+    @Override
+    protected void finished(final Boolean result, final boolean cancelled)
+    {
+      if (cancelled || (result == null) || !result.booleanValue())
+      {
+        artifactLabel.setText("The Maven repository was not indexed");
+        return;
+      }
+      
+      showArtifacts(lbNames.getSelectedValue());
+    }
+  }
 }
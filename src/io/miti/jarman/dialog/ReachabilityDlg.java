@@ -0,0 +1,252 @@
+package io.miti.jarman.dialog;
+
+import io.miti.jarman.gui.Jarman;
+import io.miti.jarman.gui.table.ReachabilityModel;
+import io.miti.jarman.util.ReachabilityAnalyzer;
+import io.miti.jarman.util.Utility;
+
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.KeyEvent;
+import java.text.NumberFormat;
+
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+
+/**
+ * Dialog box to show which classes in each loaded jar can be reached
+ * from the entry points of the application, and how many bytes of
+ * classes cannot be reached.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class ReachabilityDlg extends JDialog
+{
+  /**
+   * Serial version UID.
+   */
+  private static final long serialVersionUID = 1L;
+  
+  /**
+   * The result of the analysis.
+   */
+  private transient ReachabilityAnalyzer.Result result = null;
+  
+  /**
+   * The table of jars.
+   */
+  private JTable table = null;
+  
+  
+  /**
+   * Constructor taking the result to show.
+   * 
+   * @param pResult the result of the analysis
+   */
+  public ReachabilityDlg(final ReachabilityAnalyzer.Result pResult)
+  {
+    // Set up the basic parameters - title, modal, size
+    super(Jarman.getApp().getFrame(), "Reachable Classes", true);
+    result = pResult;
+    setPreferredSize(new java.awt.Dimension(860, 480));
+    
+    final JPanel panel = new JPanel(new BorderLayout(0, 10));
+    panel.setBorder(BorderFactory.createEmptyBorder(12, 12, 12, 12));
+    
+    // Describe the entry points at the top
+    panel.add(new JLabel(getRootsLabel()), BorderLayout.NORTH);
+    
+    // Add the table of jars
+    table = new JTable(new ReachabilityModel(result));
+    table.setAutoCreateRowSorter(true);
+    table.setColumnSelectionAllowed(false);
+    table.getTableHeader().setReorderingAllowed(false);
+    table.setAutoResizeMode(JTable.AUTO_RESIZE_SUBSEQUENT_COLUMNS);
+    table.getColumnModel().getColumn(0).setPreferredWidth(300);
+    panel.add(new JScrollPane(table), BorderLayout.CENTER);
+    
+    // Add the totals and the buttons
+    JPanel bottomPanel = new JPanel(new BorderLayout(0, 10));
+    bottomPanel.add(new JLabel(getTotalsLabel()), BorderLayout.NORTH);
+    bottomPanel.add(getPanelButtons(), BorderLayout.SOUTH);
+    panel.add(bottomPanel, BorderLayout.SOUTH);
+    
+    // Finish setting up the dialog box
+    getContentPane().add(panel);
+    pack();
+    setResizable(true);
+    setLocationRelativeTo(Jarman.getApp().getFrame());
+    setVisible(true);
+  }
+  
+  
+  /**
+   * Return the label describing the entry points.
+   * 
+   * @return the string to display
+   */
+  private String getRootsLabel()
+  {
+    final NumberFormat fmt = NumberFormat.getIntegerInstance();
+    StringBuilder sb = new StringBuilder(100);
+    sb.append("Walked from ").append(fmt.format(result.getRoots().size()))
+      .append((result.getRoots().size() == 1) ? " entry point" : " entry points")
+      .append(" (Main-Class and service providers)");
+    if (!result.getMissingRoots().isEmpty())
+    {
+      sb.append("; ").append(fmt.format(result.getMissingRoots().size()))
+        .append(" not found");
+    }
+    
+    return sb.toString();
+  }
+  
+  
+  /**
+   * Return the label with the totals over all jars.
+   * 
+   * @return the string to display
+   */
+  private String getTotalsLabel()
+  {
+    int classes = 0;
+    int reachable = 0;
+    long reachableBytes = 0L;
+    long unreachableBytes = 0L;
+    int unlisted = 0;
+    for (int i = 0; i < result.getJarCount(); ++i)
+    {
+      unlisted += result.getUnlisted(i).size();
+      classes += result.getClassCount(i);
+      reachable += result.getReachableCount(i);
+      reachableBytes += result.getReachableBytes(i);
+      unreachableBytes += result.getUnreachableBytes(i);
+    }
+    
+    final NumberFormat fmt = NumberFormat.getIntegerInstance();
+    return fmt.format(reachable) + " of " + fmt.format(classes) +
+           " classes reachable; " + fmt.format(unreachableBytes) + " of " +
+           fmt.format(reachableBytes + unreachableBytes) +
+           " bytes unreachable; " + fmt.format(result.getDepth()) +
+           " levels, " + Long.toString(result.getMillis()) + " ms" +
+           ((unlisted == 0) ? "" : "; " + fmt.format(unlisted) +
+            " classes not in the references");
+  }
+  
+  
+  /**
+   * Return the panel with the buttons.
+   * 
+   * @return the panel for the buttons
+   */
+  private JPanel getPanelButtons()
+  {
+    // The panel that we fill with buttons
+    JPanel panelButton = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 0));
+    
+    // Copy the unreachable classes of the selected jars
+    JButton btnCU = new JButton("Copy Unreachable");
+    btnCU.setMnemonic(KeyEvent.VK_U);
+    btnCU.addActionListener(new ActionListener()
+    {
+      @Override
+      public void actionPerformed(final ActionEvent e)
+      {
+        copyUnreachable();
+      }
+    });
+    panelButton.add(btnCU);
+    
+    // Copy the entry points
+    JButton btnCE = new JButton("Copy Entry Points");
+    btnCE.setMnemonic(KeyEvent.VK_E);
+    btnCE.addActionListener(new ActionListener()
+    {
+      @Override
+      public void actionPerformed(final ActionEvent e)
+      {
+        copyRoots();
+      }
+    });
+    panelButton.add(btnCE);
+    
+    // Close the window
+    JButton btnOK = new JButton("Close");
+    btnOK.setMnemonic(KeyEvent.VK_C);
+    btnOK.addActionListener(new ActionListener()
+    {
+      @Override
+      public void actionPerformed(final ActionEvent e)
+      {
+        dispose();
+      }
+    });
+    panelButton.add(btnOK);
+    
+    return panelButton;
+  }
+  
+  
+  /**
+   * Copy the names of the unreachable classes in the selected jars to
+   * the clipboard, one per line, after the jar path and a tab.
+   */
+  private void copyUnreachable()
+  {
+    // Check the selected list size
+    final int[] sel = table.getSelectedRows();
+    if (sel.length < 1)
+    {
+      JOptionPane.showMessageDialog(this, "No data selected",
+                      "Status", JOptionPane.WARNING_MESSAGE);
+      return;
+    }
+    
+    // Build the string containing the classes
+    StringBuilder sb = new StringBuilder(500);
+    String lineEnd = Utility.getLineSeparator();
+    for (int row : sel)
+    {
+      final int jar = table.convertRowIndexToModel(row);
+      final String path = result.getJar(jar).getPath();
+      for (String name : result.getUnreachable(jar))
+      {
+        sb.append(path).append('\t').append(name.replace('/', '.')).append(lineEnd);
+      }
+    }
+    
+    // Copy the classes to the clipboard
+    Utility.saveToClipboard(sb.toString());
+  }
+  
+  
+  /**
+   * Copy the entry points to the clipboard, one per line, with the
+   * ones that were not found marked.
+   */
+  private void copyRoots()
+  {
+    StringBuilder sb = new StringBuilder(500);
+    String lineEnd = Utility.getLineSeparator();
+    for (String name : result.getRoots())
+    {
+      sb.append(name.replace('/', '.')).append(lineEnd);
+    }
+    
+    for (String name : result.getMissingRoots())
+    {
+      sb.append(name.replace('/', '.')).append("\t(not found)").append(lineEnd);
+    }
+    
+    Utility.saveToClipboard(sb.toString());
+  }
+}
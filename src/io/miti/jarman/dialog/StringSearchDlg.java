@@ -0,0 +1,265 @@
+package io.miti.jarman.dialog;
+
+import io.miti.jarman.gui.Jarman;
+import io.miti.jarman.gui.table.StringSearchModel;
+import io.miti.jarman.index.StringIndex;
+import io.miti.jarman.util.Utility;
+
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.KeyEvent;
+import java.text.NumberFormat;
+
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.JTextField;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+
+/**
+ * Dialog box to search the string constants of the classes in the
+ * loaded jars.  The results are updated as the query is typed, and
+ * show each class holding a matching string, and the jar holding it.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class StringSearchDlg extends JDialog
+{
+  /**
+   * Serial version UID.
+   */
+  private static final long serialVersionUID = 1L;
+  
+  /**
+   * The maximum number of rows shown.
+   */
+  private static final int MAX_ROWS = 10000;
+  
+  /**
+   * The index of string constants.
+   */
+  private transient StringIndex index = null;
+  
+  /**
+   * The query field.
+   */
+  private JTextField query = null;
+  
+  /**
+   * The table model for the results.
+   */
+  private StringSearchModel model = null;
+  
+  /**
+   * The table of results.
+   */
+  private JTable table = null;
+  
+  /**
+   * The label showing the number of results.
+   */
+  private JLabel status = null;
+  
+  
+  /**
+   * Constructor taking the index to search.
+   * 
+   * @param pIndex the string index
+   */
+  public StringSearchDlg(final StringIndex pIndex)
+  {
+    // Set up the basic parameters - title, modal, size
+    super(Jarman.getApp().getFrame(), "Search Strings", true);
+    index = pIndex;
+    setPreferredSize(new java.awt.Dimension(760, 480));
+    
+    final JPanel panel = new JPanel(new BorderLayout(0, 10));
+    panel.setBorder(BorderFactory.createEmptyBorder(12, 12, 12, 12));
+    
+    // Add the query field to the top of the panel
+    JPanel topPanel = new JPanel(new BorderLayout(8, 0));
+    JLabel label = new JLabel("Find:");
+    query = new JTextField();
+    label.setLabelFor(query);
+    label.setDisplayedMnemonic(KeyEvent.VK_F);
+    topPanel.add(label, BorderLayout.WEST);
+    topPanel.add(query, BorderLayout.CENTER);
+    panel.add(topPanel, BorderLayout.NORTH);
+    
+    // Search again whenever the query changes
+    query.getDocument().addDocumentListener(new DocumentListener()
+    {
+      @Override
+      public void insertUpdate(final DocumentEvent e)
+      {
+        search();
+      }
+      
+      @Override
+      public void removeUpdate(final DocumentEvent e)
+      {
+        search();
+      }
+      
+      @Override
+      public void changedUpdate(final DocumentEvent e)
+      {
+        search();
+      }
+    });
+    
+    // Add the table of results
+    model = new StringSearchModel();
+    table = new JTable(model);
+    table.setAutoCreateRowSorter(true);
+    table.setColumnSelectionAllowed(false);
+    table.getTableHeader().setReorderingAllowed(false);
+    table.setAutoResizeMode(JTable.AUTO_RESIZE_SUBSEQUENT_COLUMNS);
+    table.getColumnModel().getColumn(0).setPreferredWidth(260);
+    table.getColumnModel().getColumn(1).setPreferredWidth(260);
+    table.getColumnModel().getColumn(2).setPreferredWidth(200);
+    panel.add(new JScrollPane(table), BorderLayout.CENTER);
+    
+    // Add the status and the buttons
+    JPanel bottomPanel = new JPanel(new BorderLayout(0, 10));
+    status = new JLabel(getIndexLabel());
+    bottomPanel.add(status, BorderLayout.NORTH);
+    bottomPanel.add(getPanelButtons(), BorderLayout.SOUTH);
+    panel.add(bottomPanel, BorderLayout.SOUTH);
+    
+    // Finish setting up the dialog box
+    getContentPane().add(panel);
+    pack();
+    setResizable(true);
+    setLocationRelativeTo(Jarman.getApp().getFrame());
+    setVisible(true);
+  }
+  
+  
+  /**
+   * Search for the query, and show the results.
+   */
+  private void search()
+  {
+    final String text = query.getText();
+    if (text.length() == 0)
+    {
+      model.setResults(index, new int[0], MAX_ROWS);
+      status.setText(getIndexLabel());
+      return;
+    }
+    
+    final long start = System.nanoTime();
+    final int[] strings = index.find(text);
+    final int classes = model.setResults(index, strings, MAX_ROWS);
+    final long millis = (System.nanoTime() - start) / 1000000L;
+    
+    // Show the number of matches, and how many rows were dropped
+    final NumberFormat fmt = NumberFormat.getIntegerInstance();
+    StringBuilder sb = new StringBuilder(80);
+    sb.append(fmt.format(strings.length))
+      .append((strings.length == 1) ? " string in " : " strings in ")
+      .append(fmt.format(classes))
+      .append((classes == 1) ? " class" : " classes");
+    if (classes > MAX_ROWS)
+    {
+      sb.append(" (showing ").append(fmt.format(MAX_ROWS)).append(")");
+    }
+    
+    sb.append(", ").append(Long.toString(millis)).append(" ms");
+    status.setText(sb.toString());
+  }
+  
+  
+  /**
+   * Return the label describing the index.
+   * 
+   * @return the string to display
+   */
+  private String getIndexLabel()
+  {
+    final NumberFormat fmt = NumberFormat.getIntegerInstance();
+    return "Searching " + fmt.format(index.getStringCount()) + " strings in " +
+           fmt.format(index.getClassCount()) + " classes";
+  }
+  
+  
+  /**
+   * Return the panel with the buttons.
+   * 
+   * @return the panel for the buttons
+   */
+  private JPanel getPanelButtons()
+  {
+    // The panel that we fill with buttons
+    JPanel panelButton = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 0));
+    
+    // Copy the selected rows to the clipboard
+    JButton btnCS = new JButton("Copy Selected");
+    btnCS.setMnemonic(KeyEvent.VK_S);
+    btnCS.addActionListener(new ActionListener()
+    {
+      @Override
+      public void actionPerformed(final ActionEvent e)
+      {
+        copySelected();
+      }
+    });
+    panelButton.add(btnCS);
+    
+    // Close the window
+    JButton btnOK = new JButton("Close");
+    btnOK.setMnemonic(KeyEvent.VK_C);
+    btnOK.addActionListener(new ActionListener()
+    {
+      @Override
+      public void actionPerformed(final ActionEvent e)
+      {
+        dispose();
+      }
+    });
+    panelButton.add(btnOK);
+    
+    return panelButton;
+  }
+  
+  
+  /**
+   * Copy the selected rows to the clipboard, one per line, with the
+   * columns separated by tabs.
+   */
+  private void copySelected()
+  {
+    // Check the selected list size
+    final int[] sel = table.getSelectedRows();
+    if (sel.length < 1)
+    {
+      JOptionPane.showMessageDialog(this, "No data selected",
+                      "Status", JOptionPane.WARNING_MESSAGE);
+      return;
+    }
+    
+    // Build the string containing the selected rows
+    StringBuilder sb = new StringBuilder(500);
+    String lineEnd = Utility.getLineSeparator();
+    for (int row : sel)
+    {
+      final int modelRow = table.convertRowIndexToModel(row);
+      sb.append(model.getValueAt(modelRow, 0)).append('\t')
+        .append(model.getValueAt(modelRow, 1)).append('\t')
+        .append(model.getValueAt(modelRow, 2)).append(lineEnd);
+    }
+    
+    // Copy the rows to the clipboard
+    Utility.saveToClipboard(sb.toString());
+  }
+}
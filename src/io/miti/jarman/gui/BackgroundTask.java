@@ -0,0 +1,218 @@
+package io.miti.jarman.gui;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+
+/**
+ * The base class for long-running work (loading and verifying jars)
+ * done off the event thread.  Only one task runs at a time; its
+ * progress is shown in the status bar, along with a Cancel button.
+ * Subclasses must only touch JarData and the tables on the event
+ * thread (in process() and finished()).
+ * 
+ * @author mwallace
+ * @version 1.0
+ * 
+ * @param <T> the result type of the task
+ * @param <V> the type of the intermediate results passed to process()
+ */
+public abstract class BackgroundTask<T, V> extends SwingWorker<T, V>
+{
+  /**
+   * The task that is currently running, if any.
+   */
+  private static BackgroundTask<?, ?> current = null;
+  
+  /**
+   * The description of the task, shown in the status bar.
+   */
+  private String description = null;
+  
+  /**
+   * Whether the task was cancelled because its data is being replaced.
+   */
+  private volatile boolean replaced = false;
+  
+  
+  /**
+   * Constructor.
+   * 
+   * @param sDescription the description of the task
+   */
+  public BackgroundTask(final String sDescription)
+  {
+    super();
+    description = sDescription;
+  }
+  
+  
+  /**
+   * Start the task.  Any running task is cancelled first.  This
+   * must be called on the event thread.
+   */
+  public final void start()
+  {
+    cancelCurrent();
+    current = this;
+    
+    // Show the progress in the status bar
+    final StatusBar bar = Jarman.getApp().getStatusBar();
+    bar.showProgress(description);
+    addPropertyChangeListener(new PropertyChangeListener()
+    {
+      @Override
+      public void propertyChange(final PropertyChangeEvent evt)
+      {
+        if ((current == BackgroundTask.this) &&
+            ("progress".equals(evt.getPropertyName())))
+        {
+          bar.setProgress(((Integer) evt.getNewValue()).intValue());
+        }
+      }
+    });
+    
+    execute();
+  }
+  
+  
+  /**
+   * Cancel the running task, if any.
+   */
+  public static void cancelCurrent()
+  {
+    if (current != null)
+    {
+      current.cancel(true);
+    }
+  }
+  
+  
+  /**
+   * Cancel the running task, if any, because the data it works on is
+   * about to be reset.  The task's finished() is called before this
+   * returns, and isReplaced() tells it not to use the data.
+   */
+  public static void replaceCurrent()
+  {
+    if (current != null)
+    {
+      current.replaced = true;
+      current.cancel(true);
+    }
+  }
+  
+  
+  /**
+   * Return whether the task was cancelled by replaceCurrent().
+   * 
+   * @return whether the task's data is being replaced
+   */
+  protected final boolean isReplaced()
+  {
+    return replaced;
+  }
+  
+  
+  /**
+   * Return whether a task is running.
+   * 
+   * @return whether a task is running
+   */
+  public static boolean isRunning()
+  {
+    return (current != null);
+  }
+  
+  
+  /**
+   * Update the text shown with the progress bar.  This can be called
+   * from the background thread.
+   * 
+   * @param text the text to show
+   */
+  protected final void setStatusText(final String text)
+  {
+    SwingUtilities.invokeLater(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        if (current == BackgroundTask.this)
+        {
+          Jarman.getApp().getStatusBar().setProgressText(text);
+        }
+      }
+    });
+  }
+  
+  
+  /**
+   * Update the progress, as the percentage complete (0-100) of the
+   * number of items done.  This can be called from the background thread.
+   * 
+   * @param done the number of items done
+   * @param total the total number of items
+   */
+  protected final void setProgress(final int done, final int total)
+  {
+    if (total > 0)
+    {
+      setProgress(Math.max(0, Math.min(100, (int) ((100L * done) / total))));
+    }
+  }
+  
+  
+  /**
+   * The task finished, or was cancelled.  Clear the status bar and
+   * pass the result to the subclass.
+   */
+  @Override
+  protected final void done()
+  {
+    if (current == this)
+    {
+      current = null;
+      Jarman.getApp().getStatusBar().hideProgress();
+    }
+    
+    // Get the result, if the task ran to the end
+    T result = null;
+    boolean cancelled = isCancelled();
+    if (!cancelled)
+    {
+      try
+      {
+        result = get();
+      }
+      catch (InterruptedException e)
+      {
+        cancelled = true;
+      }
+      catch (CancellationException e)
+      {
+        cancelled = true;
+      }
+      catch (ExecutionException e)
+      {
+        e.getCause().printStackTrace();
+        cancelled = true;
+      }
+    }
+    
+    finished(result, cancelled);
+  }
+  
+  
+  /**
+   * Handle the end of the task.  This is called on the event thread.
+   * 
+   * @param result the result of the task (null if cancelled)
+   * @param cancelled whether the task was cancelled or failed
+   */
+  protected abstract void finished(final T result, final boolean cancelled);
+}
@@ -109,6 +109,8 @@ public final class JarPage extends JPanel
     table.getColumnModel().getColumn(3).setMaxWidth(250);
     table.getColumnModel().getColumn(4).setPreferredWidth(100);
     table.getColumnModel().getColumn(4).setMaxWidth(250);
+    table.getColumnModel().getColumn(5).setPreferredWidth(60);
+    table.getColumnModel().getColumn(5).setMaxWidth(100);
     
     // Sort on the first column
     table.getRowSorter().toggleSortOrder(0);
@@ -134,6 +136,21 @@ public final class JarPage extends JPanel
   }
   
   
+  /**
+   * Notify the table that rows were added to the end of the jar list.
+   * 
+   * @param first the index of the first new row
+   * @param last the index of the last new row
+   */
+  public void rowsAdded(final int first, final int last)
+  {
+    if (last >= first)
+    {
+      ((JarModel) table.getModel()).fireTableRowsInserted(first, last);
+    }
+  }
+  
+  
   /**
    * Force an update of the table.
    */
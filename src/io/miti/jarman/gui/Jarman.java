@@ -2,11 +2,21 @@ package io.miti.jarman.gui;
 
 import io.miti.jarman.actions.FileOpen;
 import io.miti.jarman.actions.FileOpenClass;
+import io.miti.jarman.actions.FileOpenDir;
+import io.miti.jarman.actions.FileOpenPath;
 import io.miti.jarman.actions.FileOpenSingle;
 import io.miti.jarman.actions.FileRefList;
 import io.miti.jarman.actions.FileVerify;
+import io.miti.jarman.actions.FindReachable;
+import io.miti.jarman.actions.SearchAnnotations;
+import io.miti.jarman.actions.SearchStrings;
+import io.miti.jarman.actions.ShowHierarchy;
 import io.miti.jarman.data.FileList;
 import io.miti.jarman.data.JarData;
+import io.miti.jarman.dialog.ContentSearchDlg;
+import io.miti.jarman.util.ArtifactIndex;
+import io.miti.jarman.util.ScanCache;
+import io.miti.jarman.util.SystemPathList;
 import io.miti.jarman.util.Utility;
 import io.miti.jarman.util.WindowState;
 
@@ -17,6 +27,7 @@ import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.io.File;
 import java.text.NumberFormat;
 
 import javax.swing.JFrame;
@@ -45,6 +56,21 @@ public final class Jarman
    */
   private static final String PROPS_FILE_NAME = "jm.prop";
   
+  /**
+   * The name of the scan cache file.
+   */
+  private static final String CACHE_FILE_NAME = "jm.idx";
+  
+  /**
+   * The name of the system class index file.
+   */
+  private static final String SYSTEM_FILE_NAME = "jm.sys";
+  
+  /**
+   * The name of the Maven repository index file.
+   */
+  private static final String ARTIFACT_FILE_NAME = "jm.m2i";
+  
   /**
    * The application frame.
    */
@@ -224,8 +250,8 @@ public final class Jarman
     tp.setEnabledAt(1, isJar);
     tp.setEnabledAt(2, isJar);
     
-    frame.getJMenuBar().getMenu(0).getItem(4).setEnabled(isJar);
-    frame.getJMenuBar().getMenu(0).getItem(5).setEnabled(isJar);
+    frame.getJMenuBar().getMenu(0).getItem(6).setEnabled(isJar);
+    frame.getJMenuBar().getMenu(0).getItem(7).setEnabled(isJar);
   }
   
   
@@ -253,6 +279,9 @@ public final class Jarman
     // Build the File menu
     buildFileMenu(menuBar);
     
+    // Build the Tools menu
+    buildToolsMenu(menuBar);
+    
     /*
      * Help menu item
      */
@@ -322,6 +351,18 @@ public final class Jarman
     itemOpenClass.addActionListener(FileOpenClass.getInstance());
     menuFile.add(itemOpenClass);
     
+    // Open the jars and class directories under a directory
+    JMenuItem itemOpenDir = new JMenuItem("Open Directory");
+    itemOpenDir.setMnemonic(KeyEvent.VK_D);
+    itemOpenDir.addActionListener(FileOpenDir.getInstance());
+    menuFile.add(itemOpenDir);
+    
+    // Open the jars and class directories in a class path
+    JMenuItem itemOpenPath = new JMenuItem("Open Class Path");
+    itemOpenPath.setMnemonic(KeyEvent.VK_T);
+    itemOpenPath.addActionListener(FileOpenPath.getInstance());
+    menuFile.add(itemOpenPath);
+    
     // Close
     JMenuItem itemClose = new JMenuItem("Close");
     itemClose.setMnemonic(KeyEvent.VK_C);
@@ -372,11 +413,66 @@ public final class Jarman
   }
   
   
+  /**
+   * Build the Tools menu bar item, for searching the loaded jars.
+   * 
+   * @param menuBar the application menu bar
+   */
+  private void buildToolsMenu(final JMenuBar menuBar)
+  {
+    JMenu menuTools = new JMenu("Tools");
+    menuTools.setMnemonic(KeyEvent.VK_T);
+    menuBar.add(menuTools);
+    
+    // Search the string constants in the classes
+    JMenuItem itemStrings = new JMenuItem("Search Strings");
+    itemStrings.setMnemonic(KeyEvent.VK_S);
+    menuTools.add(itemStrings);
+    itemStrings.addActionListener(SearchStrings.getInstance());
+    
+    // Search the contents of every entry
+    JMenuItem itemContents = new JMenuItem("Search Contents");
+    itemContents.setMnemonic(KeyEvent.VK_C);
+    itemContents.addActionListener(new ActionListener()
+    {
+      /**
+       * Handle this menu item.
+       * 
+       * @param e the event
+       */
+      public void actionPerformed(final ActionEvent e)
+      {
+        new ContentSearchDlg();
+      }
+    });
+    menuTools.add(itemContents);
+    
+    // Find the classes and members with an annotation
+    JMenuItem itemAnnotations = new JMenuItem("Search Annotations");
+    itemAnnotations.setMnemonic(KeyEvent.VK_A);
+    menuTools.add(itemAnnotations);
+    itemAnnotations.addActionListener(SearchAnnotations.getInstance());
+    
+    // Show the subtypes and supertypes of a class
+    JMenuItem itemHierarchy = new JMenuItem("Class Hierarchy");
+    itemHierarchy.setMnemonic(KeyEvent.VK_H);
+    menuTools.add(itemHierarchy);
+    itemHierarchy.addActionListener(ShowHierarchy.getInstance());
+    
+    // Find the classes reachable from the entry points
+    JMenuItem itemReachable = new JMenuItem("Reachable Classes");
+    itemReachable.setMnemonic(KeyEvent.VK_R);
+    menuTools.add(itemReachable);
+    itemReachable.addActionListener(FindReachable.getInstance());
+  }
+  
+  
   /**
    * Close the open file and delete the data.
    */
   private void closeFile()
   {
+    BackgroundTask.replaceCurrent();
     JarData.reset();
     updateFileInfo();
     ListingsPage.getInstance().resetOptions();
@@ -391,6 +487,9 @@ public final class Jarman
     // Check if there is data to show
     final boolean hasData = JarData.hasData();
     
+    // Verify and List All are only available once loading is done
+    final boolean canVerify = (hasData && !BackgroundTask.isRunning());
+    
     // Update the file name in the status bar
     boolean showingFile = false;
     if (hasData)
@@ -410,9 +509,16 @@ public final class Jarman
     }
     
     // Update the menu items
-    frame.getJMenuBar().getMenu(0).getItem(3).setEnabled(hasData); // close
-    frame.getJMenuBar().getMenu(0).getItem(4).setEnabled(hasData); // verify
-    frame.getJMenuBar().getMenu(0).getItem(5).setEnabled(hasData); // list
+    frame.getJMenuBar().getMenu(0).getItem(5).setEnabled(hasData); // close
+    frame.getJMenuBar().getMenu(0).getItem(6).setEnabled(canVerify); // verify
+    frame.getJMenuBar().getMenu(0).getItem(7).setEnabled(canVerify); // list
+    
+    // The tools read the loaded jars, so they wait for loading too
+    final JMenu menuTools = frame.getJMenuBar().getMenu(1);
+    for (int i = 0; i < menuTools.getItemCount(); ++i)
+    {
+      menuTools.getItem(i).setEnabled(canVerify);
+    }
     
     // The number of visible rows on the Listings page changed, so
     // update the status bar label
@@ -464,11 +570,25 @@ public final class Jarman
   }
   
   
+  /**
+   * Return the status bar.
+   * 
+   * @return the status bar
+   */
+  public StatusBar getStatusBar()
+  {
+    return statusBar;
+  }
+  
+  
   /**
    * Exit the application.
    */
   private void exitApp()
   {
+    // Stop any background task
+    BackgroundTask.cancelCurrent();
+    
     // Store the window state in the properties file
     windowState.update(frame.getBounds());
     windowState.saveToFile(PROPS_FILE_NAME);
@@ -490,6 +610,9 @@ public final class Jarman
     
     // Load the properties file data
     WindowState.load(PROPS_FILE_NAME);
+    ScanCache.getInstance().setFile(new File(CACHE_FILE_NAME));
+    SystemPathList.setCacheFile(new File(SYSTEM_FILE_NAME));
+    ArtifactIndex.getInstance().setFile(new File(ARTIFACT_FILE_NAME));
     
     // Initialize the look and feel to the default for this OS
     Utility.initLookAndFeel();
@@ -347,6 +347,23 @@ public final class ListingsPage extends JPanel
   }
   
   
+  /**
+   * Notify the table that rows were added to the end of the file data.
+   * This only applies when all files are shown; the duplicate views
+   * are filled in when loading is done.
+   * 
+   * @param first the index of the first new row
+   * @param last the index of the last new row
+   */
+  public void rowsAdded(final int first, final int last)
+  {
+    if ((displayIndex == 0) && (last >= first))
+    {
+      ((ListingsModel) table.getModel()).fireTableRowsInserted(first, last);
+    }
+  }
+  
+  
   /**
    * Fire a table update.
    */
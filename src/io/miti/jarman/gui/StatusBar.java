@@ -2,9 +2,15 @@ package io.miti.jarman.gui;
 
 import java.awt.BorderLayout;
 import java.awt.Color;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
 import javax.swing.SwingConstants;
 import javax.swing.border.CompoundBorder;
 import javax.swing.border.EmptyBorder;
@@ -33,6 +39,16 @@ public final class StatusBar extends JPanel
    */
   private JLabel label2 = null;
   
+  /**
+   * The progress bar for the running background task.
+   */
+  private JProgressBar progress = null;
+  
+  /**
+   * The button to cancel the running background task.
+   */
+  private JButton btnCancel = null;
+  
   
   /**
    * Default constructor.
@@ -49,7 +65,32 @@ public final class StatusBar extends JPanel
     label1 = new JLabel("Ready", SwingConstants.LEFT);
     label2 = new JLabel("", SwingConstants.RIGHT);
     add(label1, BorderLayout.CENTER);
-    add(label2, BorderLayout.EAST);
+    
+    // Create the progress bar and Cancel button; these are only
+    // visible while a background task is running
+    progress = new JProgressBar(0, 100);
+    progress.setStringPainted(true);
+    progress.setVisible(false);
+    btnCancel = new JButton("Cancel");
+    btnCancel.setToolTipText("Cancel the running task");
+    btnCancel.setBorder(BorderFactory.createEmptyBorder(1, 6, 1, 6));
+    btnCancel.addActionListener(new ActionListener()
+    {
+      @Override
+      public void actionPerformed(final ActionEvent e)
+      {
+        BackgroundTask.cancelCurrent();
+      }
+    });
+    btnCancel.setVisible(false);
+    
+    // Add the right-side components
+    JPanel east = new JPanel(new FlowLayout(FlowLayout.RIGHT, 8, 0));
+    east.setOpaque(false);
+    east.add(progress);
+    east.add(btnCancel);
+    east.add(label2);
+    add(east, BorderLayout.EAST);
   }
   
   
@@ -73,4 +114,52 @@ public final class StatusBar extends JPanel
   {
     label2.setText(text);
   }
+  
+  
+  /**
+   * Show the progress bar and Cancel button for a background task.
+   * 
+   * @param text the description of the task
+   */
+  public void showProgress(final String text)
+  {
+    progress.setValue(0);
+    progress.setString(text);
+    progress.setVisible(true);
+    btnCancel.setVisible(true);
+    revalidate();
+  }
+  
+  
+  /**
+   * Set the percentage complete of the background task.
+   * 
+   * @param value the percentage complete (0-100)
+   */
+  public void setProgress(final int value)
+  {
+    progress.setValue(value);
+  }
+  
+  
+  /**
+   * Set the text shown in the progress bar.
+   * 
+   * @param text the text to display
+   */
+  public void setProgressText(final String text)
+  {
+    progress.setString(text);
+  }
+  
+  
+  /**
+   * Hide the progress bar and Cancel button.
+   */
+  public void hideProgress()
+  {
+    progress.setVisible(false);
+    btnCancel.setVisible(false);
+    revalidate();
+  }
 }
@@ -0,0 +1,179 @@
+package io.miti.jarman.gui.table;
+
+import io.miti.jarman.index.AnnotationIndex;
+import io.miti.jarman.index.AnnotationList;
+
+import javax.swing.table.DefaultTableModel;
+
+/**
+ * The table model for the elements that have an annotation.  Each row
+ * is a target ID in the annotation index, so the names are only looked
+ * up for the rows that are shown.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class AnnotationModel extends DefaultTableModel
+{
+  /**
+   * Default serial version UID.
+   */
+  private static final long serialVersionUID = 1L;
+  
+  /**
+   * The annotation index.
+   */
+  private transient AnnotationIndex index = null;
+  
+  /**
+   * The target ID of each row.
+   */
+  private int[] targets = new int[0];
+  
+  
+  /**
+   * Default constructor.
+   */
+  public AnnotationModel()
+  {
+    super();
+  }
+  
+  
+  /**
+   * Show a list of targets.
+   * 
+   * @param pIndex the annotation index
+   * @param pTargets the target IDs
+   */
+  public void setTargets(final AnnotationIndex pIndex, final int[] pTargets)
+  {
+    index = pIndex;
+    targets = pTargets;
+    fireTableDataChanged();
+  }
+  
+  
+  /**
+   * Return the class for the column.
+   * 
+   * @param columnIndex the index of the column
+   * @return the class for the column
+   */
+  @Override
+  public Class<?> getColumnClass(final int columnIndex)
+  {
+    return String.class;
+  }
+  
+  
+  /**
+   * Return the number of columns in the table.
+   * 
+   * @return the number of columns in the table
+   */
+  @Override
+  public int getColumnCount()
+  {
+    return 4;
+  }
+  
+  
+  /**
+   * Return the column name.
+   * 
+   * @param columnIndex the index of the column
+   * @return the column name
+   */
+  @Override
+  public String getColumnName(final int columnIndex)
+  {
+    switch (columnIndex)
+    {
+      case 0: return "Class";
+      case 1: return "Kind";
+      case 2: return "Member";
+      case 3: return "Jar";
+      default: return "XXX";
+    }
+  }
+  
+  
+  /**
+   * Return the number of rows.
+   * 
+   * @return the number of rows
+   */
+  @Override
+  public int getRowCount()
+  {
+    return (targets == null) ? 0 : targets.length;
+  }
+  
+  
+  /**
+   * Return the value at a cell.
+   * 
+   * @param rowIndex the row index
+   * @param columnIndex the column index
+   * @return the value at the cell
+   */
+  @Override
+  public Object getValueAt(final int rowIndex, final int columnIndex)
+  {
+    final int target = targets[rowIndex];
+    switch (columnIndex)
+    {
+      case 0: return index.getClassName(target).replace('/', '.');
+      case 1: return getKindName(index.getKind(target));
+      case 2: return getMemberName(index.getMember(target));
+      case 3: return index.getJar(target).getPath();
+      default: return null;
+    }
+  }
+  
+  
+  /**
+   * Return the field or method to show.  A method is shown as its name
+   * and descriptor.
+   * 
+   * @param member the member, or null for a class
+   * @return the member to show
+   */
+  private static String getMemberName(final String member)
+  {
+    return (member == null) ? "" : member;
+  }
+  
+  
+  /**
+   * Return the name of a kind of target.
+   * 
+   * @param kind the kind
+   * @return the name to show
+   */
+  private static String getKindName(final int kind)
+  {
+    switch (kind)
+    {
+      case AnnotationList.KIND_CLASS: return "Class";
+      case AnnotationList.KIND_FIELD: return "Field";
+      case AnnotationList.KIND_METHOD: return "Method";
+      default: return "";
+    }
+  }
+  
+  
+  /**
+   * Return whether the cell is editable at the given location.
+   * 
+   * @param rowIndex the row index
+   * @param columnIndex the column index
+   * @return whether the cell is editable
+   */
+  @Override
+  public boolean isCellEditable(final int rowIndex, final int columnIndex)
+  {
+    return false;
+  }
+}
@@ -0,0 +1,196 @@
+package io.miti.jarman.gui.table;
+
+import io.miti.jarman.util.ContentMatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.table.DefaultTableModel;
+
+/**
+ * The table model for the results of a content search.  Rows are
+ * added as they are found, so the table fills while the search runs.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class ContentSearchModel extends DefaultTableModel
+{
+  /**
+   * Default serial version UID.
+   */
+  private static final long serialVersionUID = 1L;
+  
+  /**
+   * The rows in the table.
+   */
+  private transient List<Row> rows = new ArrayList<Row>(256);
+  
+  
+  /**
+   * Default constructor.
+   */
+  public ContentSearchModel()
+  {
+    super();
+  }
+  
+  
+  /**
+   * Remove all rows.
+   */
+  public void clear()
+  {
+    rows = new ArrayList<Row>(256);
+    fireTableDataChanged();
+  }
+  
+  
+  /**
+   * Add rows to the end of the table.
+   * 
+   * @param list the rows to add
+   */
+  public void addRows(final List<Row> list)
+  {
+    if (list.isEmpty())
+    {
+      return;
+    }
+    
+    final int first = rows.size();
+    rows.addAll(list);
+    fireTableRowsInserted(first, rows.size() - 1);
+  }
+  
+  
+  /**
+   * Return the class for the column.
+   * 
+   * @param columnIndex the index of the column
+   * @return the class for the column
+   */
+  @Override
+  public Class<?> getColumnClass(final int columnIndex)
+  {
+    return (columnIndex == 2) ? Integer.class : String.class;
+  }
+  
+  
+  /**
+   * Return the number of columns in the table.
+   * 
+   * @return the number of columns in the table
+   */
+  @Override
+  public int getColumnCount()
+  {
+    return 4;
+  }
+  
+  
+  /**
+   * Return the column name.
+   * 
+   * @param columnIndex the index of the column
+   * @return the column name
+   */
+  @Override
+  public String getColumnName(final int columnIndex)
+  {
+    switch (columnIndex)
+    {
+      case 0: return "Jar";
+      case 1: return "Entry";
+      case 2: return "Line";
+      case 3: return "Text";
+      default: return "XXX";
+    }
+  }
+  
+  
+  /**
+   * Return the number of rows.
+   * 
+   * @return the number of rows
+   */
+  @Override
+  public int getRowCount()
+  {
+    return (rows == null) ? 0 : rows.size();
+  }
+  
+  
+  /**
+   * Return the value at a cell.
+   * 
+   * @param rowIndex the row index
+   * @param columnIndex the column index
+   * @return the value at the cell
+   */
+  @Override
+  public Object getValueAt(final int rowIndex, final int columnIndex)
+  {
+    final Row row = rows.get(rowIndex);
+    switch (columnIndex)
+    {
+      case 0: return row.jar;
+      case 1: return row.entry;
+      case 2: return Integer.valueOf(row.line.getNumber());
+      case 3: return row.line.getText();
+      default: return null;
+    }
+  }
+  
+  
+  /**
+   * Return whether the cell is editable at the given location.
+   * 
+   * @param rowIndex the row index
+   * @param columnIndex the column index
+   * @return whether the cell is editable
+   */
+  @Override
+  public boolean isCellEditable(final int rowIndex, final int columnIndex)
+  {
+    return false;
+  }
+  
+  
+  /**
+   * One matching line in an entry.
+   */
+  public static final class Row
+  {
+    /**
+     * The path of the jar.
+     */
+    private final String jar;
+    
+    /**
+     * The name of the entry.
+     */
+    private final String entry;
+    
+    /**
+     * The matching line.
+     */
+    private final ContentMatcher.Line line;
+    
+    
+    /**
+     * Constructor.
+     * 
+     * @param sJar the path of the jar
+     * @param sEntry the name of the entry
+     * @param pLine the matching line
+     */
+    public Row(final String sJar, final String sEntry,
+               final ContentMatcher.Line pLine)
+    {
+      jar = sJar;
+      entry = sEntry;
+      line = pLine;
+    }
+  }
+}
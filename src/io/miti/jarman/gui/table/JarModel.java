@@ -43,6 +43,7 @@ public final class JarModel extends DefaultTableModel
       case 2: return java.util.Date.class;
       case 3: return Float.class;
       case 4: return Float.class;
+      case 5: return Integer.class;
       default: return String.class;
     }
   }
@@ -56,7 +57,7 @@ public final class JarModel extends DefaultTableModel
   @Override
   public int getColumnCount()
   {
-    return 5;
+    return 7;
   }
   
   
@@ -76,6 +77,8 @@ public final class JarModel extends DefaultTableModel
       case 2: return "Date";
       case 3: return "# Files";
       case 4: return "File Size";
+      case 5: return "Depth";
+      case 6: return "Referenced By";
       default: return "XXX";
     }
   }
@@ -1,5 +1,6 @@
 package io.miti.jarman.gui.table;
 
+import io.miti.jarman.data.EntryStore;
 import io.miti.jarman.data.FileData;
 import io.miti.jarman.data.JarData;
 
@@ -110,15 +111,16 @@ public final class ListingsModel extends DefaultTableModel
   @Override
   public Object getValueAt(final int rowIndex, final int columnIndex)
   {
-    FileData fd = JarData.getInstance().getJarFileData(rowIndex);
+    final EntryStore store = JarData.getInstance().getEntryStore();
+    final int row = JarData.getInstance().getJarFileRow(rowIndex);
     switch (columnIndex)
     {
-      case 0: return fd.getFileName();
-      case 1: return fd.getFileDir();
-      case 2: return Long.valueOf(fd.getDate());
-      case 3: return Long.valueOf(fd.getCrc());
-      case 4: return Long.valueOf(fd.getSize());
-      case 5: return fd.getJar();
+      case 0: return store.getFileName(row);
+      case 1: return store.getFileDir(row);
+      case 2: return Long.valueOf(store.getDate(row));
+      case 3: return Long.valueOf(store.getCrc(row));
+      case 4: return Long.valueOf(store.getSize(row));
+      case 5: return store.getJar(row);
       default: return "XXX";
     }
   }
@@ -0,0 +1,141 @@
+package io.miti.jarman.gui.table;
+
+import io.miti.jarman.util.ReachabilityAnalyzer;
+
+import javax.swing.table.DefaultTableModel;
+
+/**
+ * The table model for the result of a reachability analysis, with one
+ * row for each jar.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class ReachabilityModel extends DefaultTableModel
+{
+  /**
+   * Default serial version UID.
+   */
+  private static final long serialVersionUID = 1L;
+  
+  /**
+   * The result of the analysis.
+   */
+  private transient ReachabilityAnalyzer.Result result = null;
+  
+  
+  /**
+   * Constructor.
+   * 
+   * @param pResult the result of the analysis
+   */
+  public ReachabilityModel(final ReachabilityAnalyzer.Result pResult)
+  {
+    super();
+    result = pResult;
+  }
+  
+  
+  /**
+   * Return the class for the column.
+   * 
+   * @param columnIndex the index of the column
+   * @return the class for the column
+   */
+  @Override
+  public Class<?> getColumnClass(final int columnIndex)
+  {
+    switch (columnIndex)
+    {
+      case 0: return String.class;
+      case 1:
+      case 2:
+      case 3: return Integer.class;
+      default: return Long.class;
+    }
+  }
+  
+  
+  /**
+   * Return the number of columns in the table.
+   * 
+   * @return the number of columns in the table
+   */
+  @Override
+  public int getColumnCount()
+  {
+    return 6;
+  }
+  
+  
+  /**
+   * Return the column name.
+   * 
+   * @param columnIndex the index of the column
+   * @return the column name
+   */
+  @Override
+  public String getColumnName(final int columnIndex)
+  {
+    switch (columnIndex)
+    {
+      case 0: return "Jar";
+      case 1: return "Classes";
+      case 2: return "Reachable";
+      case 3: return "Unreachable";
+      case 4: return "Reachable Bytes";
+      case 5: return "Unreachable Bytes";
+      default: return "XXX";
+    }
+  }
+  
+  
+  /**
+   * Return the number of rows.
+   * 
+   * @return the number of rows
+   */
+  @Override
+  public int getRowCount()
+  {
+    return (result == null) ? 0 : result.getJarCount();
+  }
+  
+  
+  /**
+   * Return the value at a cell.
+   * 
+   * @param rowIndex the row index
+   * @param columnIndex the column index
+   * @return the value at the cell
+   */
+  @Override
+  public Object getValueAt(final int rowIndex, final int columnIndex)
+  {
+    switch (columnIndex)
+    {
+      case 0: return result.getJar(rowIndex).getPath();
+      case 1: return Integer.valueOf(result.getClassCount(rowIndex));
+      case 2: return Integer.valueOf(result.getReachableCount(rowIndex));
+      case 3: return Integer.valueOf(result.getClassCount(rowIndex) -
+                                     result.getReachableCount(rowIndex));
+      case 4: return Long.valueOf(result.getReachableBytes(rowIndex));
+      case 5: return Long.valueOf(result.getUnreachableBytes(rowIndex));
+      default: return null;
+    }
+  }
+  
+  
+  /**
+   * Return whether the cell is editable at the given location.
+   * 
+   * @param rowIndex the row index
+   * @param columnIndex the column index
+   * @return whether the cell is editable
+   */
+  @Override
+  public boolean isCellEditable(final int rowIndex, final int columnIndex)
+  {
+    return false;
+  }
+}
@@ -0,0 +1,169 @@
+package io.miti.jarman.gui.table;
+
+import io.miti.jarman.index.IdList;
+import io.miti.jarman.index.StringIndex;
+
+import javax.swing.table.DefaultTableModel;
+
+/**
+ * The table model for the results of a string search.  Each row is a
+ * class holding a matching string, and is kept as a pair of IDs, so the
+ * names are only looked up for the rows that are shown.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class StringSearchModel extends DefaultTableModel
+{
+  /**
+   * Default serial version UID.
+   */
+  private static final long serialVersionUID = 1L;
+  
+  /**
+   * The index that was searched.
+   */
+  private transient StringIndex index = null;
+  
+  /**
+   * The string ID of each row.
+   */
+  private transient IdList stringIds = new IdList(16);
+  
+  /**
+   * The class ID of each row.
+   */
+  private transient IdList classIds = new IdList(16);
+  
+  
+  /**
+   * Default constructor.
+   */
+  public StringSearchModel()
+  {
+    super();
+  }
+  
+  
+  /**
+   * Show the classes holding a list of strings.
+   * 
+   * @param pIndex the string index
+   * @param strings the IDs of the matching strings
+   * @param maxRows the maximum number of rows to show
+   * @return the number of classes holding the strings, which may be
+   *         more than the number of rows shown
+   */
+  public int setResults(final StringIndex pIndex, final int[] strings,
+                        final int maxRows)
+  {
+    index = pIndex;
+    stringIds = new IdList(Math.min(maxRows, 1024));
+    classIds = new IdList(Math.min(maxRows, 1024));
+    int total = 0;
+    for (int id : strings)
+    {
+      final int[] classes = index.getClasses(id);
+      for (int i = 0; (i < classes.length) && (stringIds.size() < maxRows); ++i)
+      {
+        stringIds.add(id);
+        classIds.add(classes[i]);
+      }
+      
+      total += classes.length;
+    }
+    
+    fireTableDataChanged();
+    return total;
+  }
+  
+  
+  /**
+   * Return the class for the column.
+   * 
+   * @param columnIndex the index of the column
+   * @return the class for the column
+   */
+  @Override
+  public Class<?> getColumnClass(final int columnIndex)
+  {
+    return String.class;
+  }
+  
+  
+  /**
+   * Return the number of columns in the table.
+   * 
+   * @return the number of columns in the table
+   */
+  @Override
+  public int getColumnCount()
+  {
+    return 3;
+  }
+  
+  
+  /**
+   * Return the column name.
+   * 
+   * @param columnIndex the index of the column
+   * @return the column name
+   */
+  @Override
+  public String getColumnName(final int columnIndex)
+  {
+    switch (columnIndex)
+    {
+      case 0: return "String";
+      case 1: return "Class";
+      case 2: return "Jar";
+      default: return "XXX";
+    }
+  }
+  
+  
+  /**
+   * Return the number of rows.
+   * 
+   * @return the number of rows
+   */
+  @Override
+  public int getRowCount()
+  {
+    return (stringIds == null) ? 0 : stringIds.size();
+  }
+  
+  
+  /**
+   * Return the value at a cell.
+   * 
+   * @param rowIndex the row index
+   * @param columnIndex the column index
+   * @return the value at the cell
+   */
+  @Override
+  public Object getValueAt(final int rowIndex, final int columnIndex)
+  {
+    switch (columnIndex)
+    {
+      case 0: return index.getString(stringIds.get(rowIndex));
+      case 1: return index.getClassName(classIds.get(rowIndex)).replace('/', '.');
+      case 2: return index.getJar(classIds.get(rowIndex)).getPath();
+      default: return null;
+    }
+  }
+  
+  
+  /**
+   * Return whether the cell is editable at the given location.
+   * 
+   * @param rowIndex the row index
+   * @param columnIndex the column index
+   * @return whether the cell is editable
+   */
+  @Override
+  public boolean isCellEditable(final int rowIndex, final int columnIndex)
+  {
+    return false;
+  }
+}
@@ -0,0 +1,405 @@
+package io.miti.jarman.index;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An index from annotation types to the classes, fields and methods
+ * they are on, over a list of jars.  The names of the annotation types,
+ * classes and members are mapped to int IDs by one name pool, and each
+ * annotation on an element is a target with an int ID.
+ * 
+ * The targets of each annotation type are kept in one slice of a
+ * single array, in the order they were added, so finding the targets
+ * of a type is one lookup and one copy.  An index is filled in from the
+ * annotation lists of the jars with a Builder, and cannot be changed
+ * after it is built.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class AnnotationIndex
+{
+  /**
+   * The jar files.
+   */
+  private List<File> jars = null;
+  
+  /**
+   * The names of the types, classes and members, by ID.
+   */
+  private String[] names = null;
+  
+  /**
+   * The annotation type IDs, sorted by name.
+   */
+  private int[] types = null;
+  
+  /**
+   * The name ID of the class of each target.
+   */
+  private int[] targetClasses = null;
+  
+  /**
+   * The kind of each target.
+   */
+  private byte[] targetKinds = null;
+  
+  /**
+   * The name ID of the member of each target, or -1 for a class.
+   */
+  private int[] targetMembers = null;
+  
+  /**
+   * The index of the jar holding each target.
+   */
+  private int[] targetJars = null;
+  
+  /**
+   * The start of each name's targets in postings, by name ID.
+   */
+  private int[] starts = null;
+  
+  /**
+   * The target IDs, grouped by annotation type.
+   */
+  private int[] postings = null;
+  
+  
+  /**
+   * Constructor.
+   * 
+   * @param builder the builder holding the annotations
+   */
+  private AnnotationIndex(final Builder builder)
+  {
+    jars = builder.jars;
+    names = new String[builder.names.size()];
+    for (int i = 0; i < names.length; ++i)
+    {
+      names[i] = builder.names.getName(i);
+    }
+    
+    targetClasses = builder.classes.toArray();
+    targetMembers = builder.members.toArray();
+    targetJars = builder.targetJars.toArray();
+    targetKinds = new byte[targetClasses.length];
+    for (int i = 0; i < targetKinds.length; ++i)
+    {
+      targetKinds[i] = (byte) builder.kinds.get(i);
+    }
+  }
+  
+  
+  /**
+   * Return the number of annotation types.
+   * 
+   * @return the number of types
+   */
+  public int getTypeCount()
+  {
+    return types.length;
+  }
+  
+  
+  /**
+   * Return an annotation type.
+   * 
+   * @param index the index of the type, in name order
+   * @return the type ID
+   */
+  public int getType(final int index)
+  {
+    return types[index];
+  }
+  
+  
+  /**
+   * Return the ID of an annotation type.
+   * 
+   * @param name the type name, with slashes
+   * @return the type ID, or -1 if there is no annotation of the type
+   */
+  public int findType(final String name)
+  {
+    int low = 0;
+    int high = types.length - 1;
+    while (low <= high)
+    {
+      final int mid = (low + high) >>> 1;
+      final int cmp = names[types[mid]].compareTo(name);
+      if (cmp < 0)
+      {
+        low = mid + 1;
+      }
+      else if (cmp > 0)
+      {
+        high = mid - 1;
+      }
+      else
+      {
+        return types[mid];
+      }
+    }
+    
+    return -1;
+  }
+  
+  
+  /**
+   * Return a name.
+   * 
+   * @param id the name ID
+   * @return the name
+   */
+  public String getName(final int id)
+  {
+    return names[id];
+  }
+  
+  
+  /**
+   * Return the number of elements an annotation type is on.
+   * 
+   * @param type the type ID
+   * @return the number of targets
+   */
+  public int getTargetCount(final int type)
+  {
+    return starts[type + 1] - starts[type];
+  }
+  
+  
+  /**
+   * Return the elements an annotation type is on.
+   * 
+   * @param type the type ID
+   * @return the target IDs
+   */
+  public int[] getTargets(final int type)
+  {
+    return Arrays.copyOfRange(postings, starts[type], starts[type + 1]);
+  }
+  
+  
+  /**
+   * Return the elements an annotation type is on.
+   * 
+   * @param name the type name, with slashes
+   * @return the target IDs, or an empty array if there are none
+   */
+  public int[] find(final String name)
+  {
+    final int type = findType(name);
+    return (type < 0) ? new int[0] : getTargets(type);
+  }
+  
+  
+  /**
+   * Return the total number of targets.
+   * 
+   * @return the number of targets
+   */
+  public int getTargetTotal()
+  {
+    return targetClasses.length;
+  }
+  
+  
+  /**
+   * Return the class of a target.
+   * 
+   * @param target the target ID
+   * @return the class name, with slashes
+   */
+  public String getClassName(final int target)
+  {
+    return names[targetClasses[target]];
+  }
+  
+  
+  /**
+   * Return the kind of a target.
+   * 
+   * @param target the target ID
+   * @return the kind, as defined in AnnotationList
+   */
+  public int getKind(final int target)
+  {
+    return targetKinds[target];
+  }
+  
+  
+  /**
+   * Return the field or method of a target.
+   * 
+   * @param target the target ID
+   * @return the field name, the method name and descriptor, or null
+   *         for a class
+   */
+  public String getMember(final int target)
+  {
+    final int member = targetMembers[target];
+    return (member < 0) ? null : names[member];
+  }
+  
+  
+  /**
+   * Return the jar holding a target.
+   * 
+   * @param target the target ID
+   * @return the jar file
+   */
+  public File getJar(final int target)
+  {
+    return jars.get(targetJars[target]);
+  }
+  
+  
+  /**
+   * Collects the annotation lists of jars, and builds the index.
+   */
+  public static final class Builder
+  {
+    /**
+     * The jar files.
+     */
+    private List<File> jars = null;
+    
+    /**
+     * The names of the types, classes and members.
+     */
+    private ClassNamePool names = new ClassNamePool(4096);
+    
+    /**
+     * The type ID of each target.
+     */
+    private IdList typeIds = new IdList(4096);
+    
+    /**
+     * The class ID of each target.
+     */
+    private IdList classes = new IdList(4096);
+    
+    /**
+     * The kind of each target.
+     */
+    private IdList kinds = new IdList(4096);
+    
+    /**
+     * The member ID of each target.
+     */
+    private IdList members = new IdList(4096);
+    
+    /**
+     * The jar index of each target.
+     */
+    private IdList targetJars = new IdList(4096);
+    
+    
+    /**
+     * Constructor.
+     * 
+     * @param pJars the jar files
+     */
+    public Builder(final List<File> pJars)
+    {
+      super();
+      jars = new ArrayList<File>(pJars);
+    }
+    
+    
+    /**
+     * Add the annotations in a jar.
+     * 
+     * @param jar the index of the jar
+     * @param list the annotations in the jar
+     */
+    public synchronized void add(final int jar, final AnnotationList list)
+    {
+      final int size = list.size();
+      for (int i = 0; i < size; ++i)
+      {
+        final String member = list.getMember(i);
+        typeIds.add(names.intern(list.getType(i)));
+        classes.add(names.intern(list.getClassName(i)));
+        kinds.add(list.getKind(i));
+        members.add((member == null) ? -1 : names.intern(member));
+        targetJars.add(jar);
+      }
+    }
+    
+    
+    /**
+     * Build the index.  The builder should not be used afterwards.
+     * 
+     * @return the annotation index
+     */
+    public synchronized AnnotationIndex build()
+    {
+      final AnnotationIndex index = new AnnotationIndex(this);
+      
+      // Bucket the targets by type; targets are visited in ID order,
+      // so each slice is sorted as it is filled
+      final int total = index.names.length;
+      final int count = typeIds.size();
+      final int[] starts = new int[total + 1];
+      for (int i = 0; i < count; ++i)
+      {
+        ++starts[typeIds.get(i) + 1];
+      }
+      
+      int typeCount = 0;
+      for (int i = 0; i < total; ++i)
+      {
+        if (starts[i + 1] > 0)
+        {
+          ++typeCount;
+        }
+        
+        starts[i + 1] += starts[i];
+      }
+      
+      final int[] postings = new int[count];
+      final int[] next = Arrays.copyOf(starts, total);
+      for (int i = 0; i < count; ++i)
+      {
+        postings[next[typeIds.get(i)]++] = i;
+      }
+      
+      // Sort the types by name
+      final Integer[] sorted = new Integer[typeCount];
+      int pos = 0;
+      for (int i = 0; i < total; ++i)
+      {
+        if (starts[i + 1] > starts[i])
+        {
+          sorted[pos++] = Integer.valueOf(i);
+        }
+      }
+      
+      final String[] typeNames = index.names;
+      Arrays.sort(sorted, new Comparator<Integer>()
+      {
+        @Override
+        public int compare(final Integer o1, final Integer o2)
+        {
+          return typeNames[o1.intValue()].compareTo(typeNames[o2.intValue()]);
+        }
+      });
+      
+      index.types = new int[typeCount];
+      for (int i = 0; i < typeCount; ++i)
+      {
+        index.types[i] = sorted[i].intValue();
+      }
+      
+      index.starts = starts;
+      index.postings = postings;
+      return index;
+    }
+  }
+}
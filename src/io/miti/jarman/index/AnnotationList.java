@@ -0,0 +1,286 @@
+package io.miti.jarman.index;
+
+import io.miti.jarman.classref.ClassReader;
+import io.miti.jarman.util.Utility;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The annotations in one jar: for each runtime-visible annotation on a
+ * class, field or method, the annotation type and the element it is on.
+ * The strings are kept once each in a table local to the list, and each
+ * annotation is four ints: the annotation type, the class, the kind of
+ * element, and the field or method.
+ * 
+ * A list is filled in while the jar's classes are scanned, and can be
+ * saved in the scan cache, so a jar that has not changed is not read
+ * again.  Adding annotations is synchronized, so a list can be filled
+ * by several threads.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class AnnotationList
+{
+  /**
+   * The kind of an annotation on a class.
+   */
+  public static final int KIND_CLASS = 0;
+  
+  /**
+   * The kind of an annotation on a field.
+   */
+  public static final int KIND_FIELD = 1;
+  
+  /**
+   * The kind of an annotation on a method.
+   */
+  public static final int KIND_METHOD = 2;
+  
+  /**
+   * The number of ints for each annotation.
+   */
+  private static final int WIDTH = 4;
+  
+  /**
+   * The strings, by index.
+   */
+  private List<String> strings = null;
+  
+  /**
+   * The index of each string.
+   */
+  private Map<String, Integer> ids = null;
+  
+  /**
+   * The type, class, kind and member of each annotation.  The member
+   * is -1 for an annotation on a class.
+   */
+  private IdList records = null;
+  
+  
+  /**
+   * Default constructor.
+   */
+  public AnnotationList()
+  {
+    this(16, 16);
+  }
+  
+  
+  /**
+   * Constructor.
+   * 
+   * @param nStrings the expected number of strings
+   * @param nAnnotations the expected number of annotations
+   */
+  private AnnotationList(final int nStrings, final int nAnnotations)
+  {
+    super();
+    strings = new ArrayList<String>(nStrings);
+    ids = new HashMap<String, Integer>(Math.max(16, nStrings * 2));
+    records = new IdList(nAnnotations * WIDTH);
+  }
+  
+  
+  /**
+   * Add the annotations of a class.  The annotations are decoded on the
+   * calling thread, and only adding them is locked.
+   * 
+   * @param reader the reader holding the fully parsed class
+   */
+  public void add(final ClassReader reader)
+  {
+    List<String> types = new ArrayList<String>(4);
+    IdList targets = new IdList(4);
+    reader.getAnnotations(types, targets);
+    if (types.isEmpty())
+    {
+      return;
+    }
+    
+    // Find the name of each annotated member
+    final String className = reader.getClassName();
+    final int size = types.size();
+    final int[] kinds = new int[size];
+    final String[] members = new String[size];
+    for (int i = 0; i < size; ++i)
+    {
+      final int member = targets.get(i);
+      if (member < 0)
+      {
+        kinds[i] = KIND_CLASS;
+      }
+      else if (member < reader.getFieldCount())
+      {
+        kinds[i] = KIND_FIELD;
+        members[i] = reader.getUtf8(reader.getMemberNameIndex(member));
+      }
+      else
+      {
+        kinds[i] = KIND_METHOD;
+        members[i] = reader.getUtf8(reader.getMemberNameIndex(member)) +
+                     reader.getUtf8(reader.getMemberDescIndex(member));
+      }
+    }
+    
+    synchronized (this)
+    {
+      final int classId = intern(className);
+      for (int i = 0; i < size; ++i)
+      {
+        records.add(intern(types.get(i)));
+        records.add(classId);
+        records.add(kinds[i]);
+        records.add((members[i] == null) ? -1 : intern(members[i]));
+      }
+    }
+  }
+  
+  
+  /**
+   * Return the index of a string, adding it if needed.
+   * 
+   * @param str the string
+   * @return the index of the string
+   */
+  private int intern(final String str)
+  {
+    final Integer id = ids.get(str);
+    if (id != null)
+    {
+      return id.intValue();
+    }
+    
+    final int index = strings.size();
+    strings.add(str);
+    ids.put(str, Integer.valueOf(index));
+    return index;
+  }
+  
+  
+  /**
+   * Return the number of annotations.
+   * 
+   * @return the number of annotations
+   */
+  public synchronized int size()
+  {
+    return records.size() / WIDTH;
+  }
+  
+  
+  /**
+   * Return the type of an annotation.
+   * 
+   * @param index the index of the annotation
+   * @return the annotation type, as a class name with slashes
+   */
+  public synchronized String getType(final int index)
+  {
+    return strings.get(records.get(index * WIDTH));
+  }
+  
+  
+  /**
+   * Return the class an annotation is in.
+   * 
+   * @param index the index of the annotation
+   * @return the class name, with slashes
+   */
+  public synchronized String getClassName(final int index)
+  {
+    return strings.get(records.get(index * WIDTH + 1));
+  }
+  
+  
+  /**
+   * Return the kind of element an annotation is on.
+   * 
+   * @param index the index of the annotation
+   * @return KIND_CLASS, KIND_FIELD or KIND_METHOD
+   */
+  public synchronized int getKind(final int index)
+  {
+    return records.get(index * WIDTH + 2);
+  }
+  
+  
+  /**
+   * Return the field or method an annotation is on.
+   * 
+   * @param index the index of the annotation
+   * @return the field name, the method name and descriptor, or null
+   *         for an annotation on a class
+   */
+  public synchronized String getMember(final int index)
+  {
+    final int member = records.get(index * WIDTH + 3);
+    return (member < 0) ? null : strings.get(member);
+  }
+  
+  
+  /**
+   * Write the list to a binary stream.
+   * 
+   * @param out the output stream
+   * @throws IOException if the stream cannot be written
+   */
+  public synchronized void write(final DataOutputStream out) throws IOException
+  {
+    out.writeInt(strings.size());
+    for (String str : strings)
+    {
+      Utility.writeString(out, str);
+    }
+    
+    final int size = records.size();
+    out.writeInt(size / WIDTH);
+    for (int i = 0; i < size; ++i)
+    {
+      out.writeInt(records.get(i));
+    }
+  }
+  
+  
+  /**
+   * Read a list written by write() from a buffer.
+   * 
+   * @param buf the buffer
+   * @return the list
+   */
+  public static AnnotationList read(final ByteBuffer buf)
+  {
+    final int stringCount = buf.getInt();
+    if (stringCount < 0)
+    {
+      throw new IllegalStateException("Bad string count");
+    }
+    
+    final AnnotationList list = new AnnotationList(stringCount, 0);
+    for (int i = 0; i < stringCount; ++i)
+    {
+      list.intern(Utility.readString(buf));
+    }
+    
+    final int count = buf.getInt();
+    if (count < 0)
+    {
+      throw new IllegalStateException("Bad annotation count");
+    }
+    
+    list.records = new IdList(count * WIDTH);
+    for (int i = 0; i < count * WIDTH; ++i)
+    {
+      list.records.add(buf.getInt());
+    }
+    
+    return list;
+  }
+}
@@ -0,0 +1,581 @@
+package io.miti.jarman.index;
+
+import io.miti.jarman.classref.ClassReader;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The headers of the classes in a list of jars: the version, access
+ * flags, name, parent class and interfaces of each class.  The data is
+ * stored by column in int arrays, with the class names mapped to IDs by
+ * a name pool, so the table holds no objects per class beyond the names.
+ * The interfaces of all classes are kept in one array, with a slice for
+ * each class.
+ * 
+ * The rows are sorted by jar, and then by the order of the classes in
+ * the jar.  A table is filled in with a Builder, and cannot be changed
+ * after it is built.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class ClassHeaderTable
+{
+  /**
+   * The class names.
+   */
+  private ClassNamePool pool = null;
+  
+  /**
+   * The jar files.
+   */
+  private List<File> jars = null;
+  
+  /**
+   * The index of the jar holding each class.
+   */
+  private int[] jarIndexes = null;
+  
+  /**
+   * The name ID of each class.
+   */
+  private int[] classIds = null;
+  
+  /**
+   * The name ID of each parent class, or NOT_FOUND if there is none.
+   */
+  private int[] superIds = null;
+  
+  /**
+   * The version of each class, with the major version in the high 16 bits.
+   */
+  private int[] versions = null;
+  
+  /**
+   * The access flags of each class.
+   */
+  private int[] accessFlags = null;
+  
+  /**
+   * The start of each class's interfaces in interfaceIds; the end is
+   * the start of the next class.
+   */
+  private int[] interfaceStarts = null;
+  
+  /**
+   * The name IDs of the interfaces.
+   */
+  private int[] interfaceIds = null;
+  
+  
+  /**
+   * Constructor.
+   * 
+   * @param pPool the class names
+   * @param pJars the jar files
+   */
+  private ClassHeaderTable(final ClassNamePool pPool, final List<File> pJars)
+  {
+    pool = pPool;
+    jars = pJars;
+  }
+  
+  
+  /**
+   * Return the pool of class names.
+   * 
+   * @return the class names
+   */
+  public ClassNamePool getPool()
+  {
+    return pool;
+  }
+  
+  
+  /**
+   * Return the number of classes in the table.
+   * 
+   * @return the number of classes
+   */
+  public int size()
+  {
+    return classIds.length;
+  }
+  
+  
+  /**
+   * Return the number of jars scanned.
+   * 
+   * @return the number of jars
+   */
+  public int getJarCount()
+  {
+    return jars.size();
+  }
+  
+  
+  /**
+   * Return a jar file.
+   * 
+   * @param index the index of the jar
+   * @return the jar file
+   */
+  public File getJar(final int index)
+  {
+    return jars.get(index);
+  }
+  
+  
+  /**
+   * Return the index of the jar holding a class.
+   * 
+   * @param row the row of the class
+   * @return the index of the jar
+   */
+  public int getJarIndex(final int row)
+  {
+    return jarIndexes[row];
+  }
+  
+  
+  /**
+   * Return the name ID of a class.
+   * 
+   * @param row the row of the class
+   * @return the name ID
+   */
+  public int getClassId(final int row)
+  {
+    return classIds[row];
+  }
+  
+  
+  /**
+   * Return the name of a class.
+   * 
+   * @param row the row of the class
+   * @return the class name, with slashes
+   */
+  public String getClassName(final int row)
+  {
+    return pool.getName(classIds[row]);
+  }
+  
+  
+  /**
+   * Return the name ID of the parent of a class.
+   * 
+   * @param row the row of the class
+   * @return the name ID, or ClassNamePool.NOT_FOUND if there is no parent
+   */
+  public int getSuperId(final int row)
+  {
+    return superIds[row];
+  }
+  
+  
+  /**
+   * Return the name of the parent of a class.
+   * 
+   * @param row the row of the class
+   * @return the parent class name, or null if there is none
+   */
+  public String getSuperName(final int row)
+  {
+    final int id = superIds[row];
+    return (id == ClassNamePool.NOT_FOUND) ? null : pool.getName(id);
+  }
+  
+  
+  /**
+   * Return the major version of a class.
+   * 
+   * @param row the row of the class
+   * @return the major version
+   */
+  public int getMajorVersion(final int row)
+  {
+    return versions[row] >>> 16;
+  }
+  
+  
+  /**
+   * Return the minor version of a class.
+   * 
+   * @param row the row of the class
+   * @return the minor version
+   */
+  public int getMinorVersion(final int row)
+  {
+    return versions[row] & 0xFFFF;
+  }
+  
+  
+  /**
+   * Return the access flags of a class.
+   * 
+   * @param row the row of the class
+   * @return the access flags
+   */
+  public int getAccessFlags(final int row)
+  {
+    return accessFlags[row];
+  }
+  
+  
+  /**
+   * Return the number of interfaces implemented by a class.
+   * 
+   * @param row the row of the class
+   * @return the number of interfaces
+   */
+  public int getInterfaceCount(final int row)
+  {
+    return interfaceStarts[row + 1] - interfaceStarts[row];
+  }
+  
+  
+  /**
+   * Return the name ID of an interface implemented by a class.
+   * 
+   * @param row the row of the class
+   * @param index the interface number
+   * @return the name ID
+   */
+  public int getInterfaceId(final int row, final int index)
+  {
+    return interfaceIds[interfaceStarts[row] + index];
+  }
+  
+  
+  /**
+   * Return the name of an interface implemented by a class.
+   * 
+   * @param row the row of the class
+   * @param index the interface number
+   * @return the interface name, with slashes
+   */
+  public String getInterface(final int row, final int index)
+  {
+    return pool.getName(interfaceIds[interfaceStarts[row] + index]);
+  }
+  
+  
+  /**
+   * Return the rows of the classes with at least a given major version.
+   * 
+   * @param major the lowest major version to include
+   * @return the rows, in order
+   */
+  public int[] findByVersion(final int major)
+  {
+    int[] rows = new int[16];
+    int count = 0;
+    final int min = major << 16;
+    for (int row = 0; row < versions.length; ++row)
+    {
+      if (versions[row] >= min)
+      {
+        if (count == rows.length)
+        {
+          rows = Arrays.copyOf(rows, count * 2);
+        }
+        
+        rows[count++] = row;
+      }
+    }
+    
+    return Arrays.copyOf(rows, count);
+  }
+  
+  
+  /**
+   * Collects class headers, and builds the table.  Adding classes is
+   * synchronized, so a builder can be filled by several threads.
+   */
+  public static final class Builder
+  {
+    /**
+     * The class names.
+     */
+    private ClassNamePool pool = new ClassNamePool(4096);
+    
+    /**
+     * The jar files.
+     */
+    private List<File> jars = null;
+    
+    /**
+     * The index of each class in its jar.
+     */
+    private int[] entryIndexes = new int[4096];
+    
+    /**
+     * The index of the jar holding each class.
+     */
+    private int[] jarIndexes = new int[4096];
+    
+    /**
+     * The name ID of each class.
+     */
+    private int[] classIds = new int[4096];
+    
+    /**
+     * The name ID of each parent class.
+     */
+    private int[] superIds = new int[4096];
+    
+    /**
+     * The version of each class.
+     */
+    private int[] versions = new int[4096];
+    
+    /**
+     * The access flags of each class.
+     */
+    private int[] accessFlags = new int[4096];
+    
+    /**
+     * The start of each class's interfaces.
+     */
+    private int[] interfaceStarts = new int[4097];
+    
+    /**
+     * The name IDs of the interfaces, in the order added.
+     */
+    private int[] interfaceIds = new int[4096];
+    
+    /**
+     * The number of classes added.
+     */
+    private int count = 0;
+    
+    
+    /**
+     * Constructor.
+     * 
+     * @param pJars the jar files
+     */
+    public Builder(final List<File> pJars)
+    {
+      super();
+      jars = Collections.unmodifiableList(new ArrayList<File>(pJars));
+    }
+    
+    
+    /**
+     * Add the header of a class.
+     * 
+     * @param jar the index of the jar holding the class
+     * @param index the index of the class in the jar
+     * @param reader the reader holding the class header
+     */
+    public synchronized void add(final int jar, final int index,
+                                 final ClassReader reader)
+    {
+      final String name = reader.getClassName();
+      if (name == null)
+      {
+        return;
+      }
+      
+      final int interfaces = reader.getInterfaceCount();
+      final int row = addRow(jar, index, name, reader.getSuperName(),
+                             interfaces);
+      versions[row] = (reader.getMajorVersion() << 16) |
+                      reader.getMinorVersion();
+      accessFlags[row] = reader.getAccessFlags();
+      
+      // Add the interfaces
+      int next = interfaceStarts[row];
+      for (int i = 0; i < interfaces; ++i)
+      {
+        final String iface = reader.getInterface(i);
+        if (iface != null)
+        {
+          interfaceIds[next++] = pool.intern(iface);
+        }
+      }
+      
+      interfaceStarts[++count] = next;
+    }
+    
+    
+    /**
+     * Add the header of a class from the cache of parsed classes.
+     * 
+     * @param jar the index of the jar holding the class
+     * @param index the index of the class in the jar
+     * @param cached the parsed class
+     */
+    public synchronized void add(final int jar, final int index,
+                                 final ParseCache.Entry cached)
+    {
+      final int interfaces = cached.getInterfaceCount();
+      final int row = addRow(jar, index, cached.getClassName(),
+                             cached.getSuperName(), interfaces);
+      versions[row] = (cached.getMajorVersion() << 16) |
+                      cached.getMinorVersion();
+      accessFlags[row] = cached.getAccessFlags();
+      
+      // Add the interfaces
+      int next = interfaceStarts[row];
+      for (int i = 0; i < interfaces; ++i)
+      {
+        interfaceIds[next++] = pool.intern(cached.getInterface(i));
+      }
+      
+      interfaceStarts[++count] = next;
+    }
+    
+    
+    /**
+     * Add the columns of a class that do not depend on where its
+     * header came from, and make room for its interfaces.  The count
+     * is not changed.
+     * 
+     * @param jar the index of the jar holding the class
+     * @param index the index of the class in the jar
+     * @param name the class name
+     * @param superName the parent class name, or null
+     * @param interfaces the number of interfaces
+     * @return the row of the class
+     */
+    private int addRow(final int jar, final int index, final String name,
+                       final String superName, final int interfaces)
+    {
+      if (count == classIds.length)
+      {
+        final int size = count * 2;
+        entryIndexes = Arrays.copyOf(entryIndexes, size);
+        jarIndexes = Arrays.copyOf(jarIndexes, size);
+        classIds = Arrays.copyOf(classIds, size);
+        superIds = Arrays.copyOf(superIds, size);
+        versions = Arrays.copyOf(versions, size);
+        accessFlags = Arrays.copyOf(accessFlags, size);
+        interfaceStarts = Arrays.copyOf(interfaceStarts, size + 1);
+      }
+      
+      entryIndexes[count] = index;
+      jarIndexes[count] = jar;
+      classIds[count] = pool.intern(name);
+      superIds[count] = (superName == null) ? ClassNamePool.NOT_FOUND
+                                            : pool.intern(superName);
+      
+      final int next = interfaceStarts[count];
+      if ((next + interfaces) > interfaceIds.length)
+      {
+        interfaceIds = Arrays.copyOf(interfaceIds,
+                           Math.max(interfaceIds.length * 2, next + interfaces));
+      }
+      
+      return count;
+    }
+    
+    
+    /**
+     * Build the table.  The builder should not be used afterwards.
+     * 
+     * @return the table of class headers
+     */
+    public synchronized ClassHeaderTable build()
+    {
+      // Sort the rows by jar, then by entry, so the table does not
+      // depend on the order the classes were added in
+      final int[] order = new int[count];
+      final int[] jarStarts = new int[jars.size() + 1];
+      for (int i = 0; i < count; ++i)
+      {
+        ++jarStarts[jarIndexes[i] + 1];
+      }
+      
+      for (int i = 0; i < jars.size(); ++i)
+      {
+        jarStarts[i + 1] += jarStarts[i];
+      }
+      
+      final int[] next = Arrays.copyOf(jarStarts, jars.size());
+      for (int i = 0; i < count; ++i)
+      {
+        order[next[jarIndexes[i]]++] = i;
+      }
+      
+      for (int j = 0; j < jars.size(); ++j)
+      {
+        sortByEntry(order, jarStarts[j], jarStarts[j + 1]);
+      }
+      
+      // Copy the columns in the sorted order
+      ClassHeaderTable table = new ClassHeaderTable(pool, jars);
+      table.jarIndexes = permute(jarIndexes, order);
+      table.classIds = permute(classIds, order);
+      table.superIds = permute(superIds, order);
+      table.versions = permute(versions, order);
+      table.accessFlags = permute(accessFlags, order);
+      table.interfaceStarts = new int[count + 1];
+      table.interfaceIds = new int[interfaceStarts[count]];
+      int pos = 0;
+      for (int row = 0; row < count; ++row)
+      {
+        final int i = order[row];
+        final int len = interfaceStarts[i + 1] - interfaceStarts[i];
+        System.arraycopy(interfaceIds, interfaceStarts[i],
+                         table.interfaceIds, pos, len);
+        pos += len;
+        table.interfaceStarts[row + 1] = pos;
+      }
+      
+      entryIndexes = null;
+      interfaceIds = null;
+      return table;
+    }
+    
+    
+    /**
+     * Sort a slice of rows from one jar by their index in the jar.
+     * 
+     * @param order the rows
+     * @param start the start of the slice
+     * @param end the end of the slice
+     */
+    private void sortByEntry(final int[] order, final int start, final int end)
+    {
+      // Pack the entry index above the row, so a sort of longs will do
+      final long[] keys = new long[end - start];
+      for (int i = start; i < end; ++i)
+      {
+        keys[i - start] = ((long) entryIndexes[order[i]] << 32) | order[i];
+      }
+      
+      Arrays.sort(keys);
+      for (int i = start; i < end; ++i)
+      {
+        order[i] = (int) keys[i - start];
+      }
+    }
+    
+    
+    /**
+     * Return a copy of the first count values of a column, in the
+     * order of the rows.
+     * 
+     * @param column the column values
+     * @param order the rows
+     * @return the sorted column
+     */
+    private static int[] permute(final int[] column, final int[] order)
+    {
+      final int[] result = new int[order.length];
+      for (int i = 0; i < order.length; ++i)
+      {
+        result[i] = column[order[i]];
+      }
+      
+      return result;
+    }
+  }
+}
@@ -0,0 +1,402 @@
+package io.miti.jarman.index;
+
+import java.util.Arrays;
+
+/**
+ * The class hierarchy of the classes in a list of jars, built from a
+ * table of class headers.  Each class is a name ID in the table's name
+ * pool, and the hierarchy is kept in compressed sparse row form: the
+ * parent class and interfaces of each class are in one slice of an int
+ * array, and its direct subclasses and implementors are in one slice
+ * of another.  Parents that are not in the jars, such as classes from
+ * the JDK, are in the hierarchy too, so the implementors of any
+ * interface can be found.
+ * 
+ * The transitive subtypes and supertypes of a class are found by a
+ * breadth-first walk the first time they are asked for, and saved, so
+ * asking again costs one array copy.  A class in more than one jar has
+ * the parents of every copy.  The hierarchy cannot be changed after it
+ * is built.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class ClassHierarchy
+{
+  /**
+   * The access flag for an interface.
+   */
+  private static final int ACC_INTERFACE = 0x0200;
+  
+  /**
+   * The table of class headers.
+   */
+  private ClassHeaderTable table = null;
+  
+  /**
+   * The first row of each class in the table, or -1 if the class is
+   * not in the jars.
+   */
+  private int[] rows = null;
+  
+  /**
+   * The start of each class's parents in parentIds; the end is the
+   * start of the next class.
+   */
+  private int[] parentStarts = null;
+  
+  /**
+   * The IDs of the parent classes and interfaces.
+   */
+  private int[] parentIds = null;
+  
+  /**
+   * The start of each class's children in childIds.
+   */
+  private int[] childStarts = null;
+  
+  /**
+   * The IDs of the direct subclasses and implementors, sorted.
+   */
+  private int[] childIds = null;
+  
+  /**
+   * The saved transitive subtypes of each class, or null if they were
+   * not asked for yet.
+   */
+  private int[][] subtypes = null;
+  
+  /**
+   * The saved transitive supertypes of each class, or null if they
+   * were not asked for yet.
+   */
+  private int[][] supertypes = null;
+  
+  /**
+   * The walk number that last reached each class, so the marks do not
+   * need clearing between walks.
+   */
+  private int[] marks = null;
+  
+  /**
+   * The number of the last walk.
+   */
+  private int walk = 0;
+  
+  
+  /**
+   * Constructor.
+   * 
+   * @param pTable the table of class headers
+   */
+  public ClassHierarchy(final ClassHeaderTable pTable)
+  {
+    table = pTable;
+    
+    // Get the edges from each class to its parents; the pool holds
+    // every parent name, so it has an ID for every node
+    final int size = table.size();
+    final int total = table.getPool().size();
+    rows = new int[total];
+    Arrays.fill(rows, -1);
+    IdList from = new IdList(size * 2);
+    IdList to = new IdList(size * 2);
+    for (int row = 0; row < size; ++row)
+    {
+      final int id = table.getClassId(row);
+      if (rows[id] < 0)
+      {
+        rows[id] = row;
+      }
+      
+      final int superId = table.getSuperId(row);
+      if (superId != ClassNamePool.NOT_FOUND)
+      {
+        from.add(id);
+        to.add(superId);
+      }
+      
+      final int count = table.getInterfaceCount(row);
+      for (int i = 0; i < count; ++i)
+      {
+        from.add(id);
+        to.add(table.getInterfaceId(row, i));
+      }
+    }
+    
+    final int[] fromIds = from.toArray();
+    final int[] toIds = to.toArray();
+    parentStarts = new int[total + 1];
+    parentIds = group(fromIds, toIds, total, parentStarts);
+    childStarts = new int[total + 1];
+    childIds = group(toIds, fromIds, total, childStarts);
+    
+    subtypes = new int[total][];
+    supertypes = new int[total][];
+    marks = new int[total];
+  }
+  
+  
+  /**
+   * Group a list of edges by their source, in compressed sparse row
+   * form, with each slice sorted and without duplicates.
+   * 
+   * @param sources the source of each edge
+   * @param targets the target of each edge
+   * @param total the number of nodes
+   * @param starts the array to fill with the start of each slice
+   * @return the targets, grouped by source
+   */
+  private static int[] group(final int[] sources, final int[] targets,
+                             final int total, final int[] starts)
+  {
+    // Bucket the targets by source
+    for (int i = 0; i < sources.length; ++i)
+    {
+      ++starts[sources[i] + 1];
+    }
+    
+    for (int i = 0; i < total; ++i)
+    {
+      starts[i + 1] += starts[i];
+    }
+    
+    final int[] ids = new int[sources.length];
+    final int[] next = Arrays.copyOf(starts, total);
+    for (int i = 0; i < sources.length; ++i)
+    {
+      ids[next[sources[i]]++] = targets[i];
+    }
+    
+    // Sort each slice and drop duplicates
+    int out = 0;
+    int start = 0;
+    for (int s = 0; s < total; ++s)
+    {
+      final int end = starts[s + 1];
+      Arrays.sort(ids, start, end);
+      starts[s] = out;
+      for (int i = start; i < end; ++i)
+      {
+        if ((i == start) || (ids[i] != ids[i - 1]))
+        {
+          ids[out++] = ids[i];
+        }
+      }
+      
+      start = end;
+    }
+    
+    starts[total] = out;
+    return Arrays.copyOf(ids, out);
+  }
+  
+  
+  /**
+   * Return the table of class headers.
+   * 
+   * @return the table of class headers
+   */
+  public ClassHeaderTable getTable()
+  {
+    return table;
+  }
+  
+  
+  /**
+   * Return the number of classes in the hierarchy, including the
+   * parents that are not in the jars.
+   * 
+   * @return the number of classes
+   */
+  public int size()
+  {
+    return rows.length;
+  }
+  
+  
+  /**
+   * Return the ID of a class.
+   * 
+   * @param name the class name, with slashes
+   * @return the ID, or ClassNamePool.NOT_FOUND if the class is not in
+   *         the hierarchy
+   */
+  public int getId(final String name)
+  {
+    final int id = table.getPool().getId(name);
+    return (id < rows.length) ? id : ClassNamePool.NOT_FOUND;
+  }
+  
+  
+  /**
+   * Return the name of a class.
+   * 
+   * @param id the class ID
+   * @return the class name, with slashes
+   */
+  public String getName(final int id)
+  {
+    return table.getPool().getName(id);
+  }
+  
+  
+  /**
+   * Return the row of a class in the table of class headers.
+   * 
+   * @param id the class ID
+   * @return the first row of the class, or -1 if it is not in the jars
+   */
+  public int getRow(final int id)
+  {
+    return rows[id];
+  }
+  
+  
+  /**
+   * Return whether a class is an interface.  A class that is not in
+   * the jars is not known to be one.
+   * 
+   * @param id the class ID
+   * @return whether the class is an interface
+   */
+  public boolean isInterface(final int id)
+  {
+    return (rows[id] >= 0) &&
+           ((table.getAccessFlags(rows[id]) & ACC_INTERFACE) != 0);
+  }
+  
+  
+  /**
+   * Return the parent class and interfaces of a class.
+   * 
+   * @param id the class ID
+   * @return the sorted IDs of the direct supertypes
+   */
+  public int[] getParents(final int id)
+  {
+    return Arrays.copyOfRange(parentIds, parentStarts[id], parentStarts[id + 1]);
+  }
+  
+  
+  /**
+   * Return the number of parent classes and interfaces of a class.
+   * 
+   * @param id the class ID
+   * @return the number of direct supertypes
+   */
+  public int getParentCount(final int id)
+  {
+    return parentStarts[id + 1] - parentStarts[id];
+  }
+  
+  
+  /**
+   * Return the direct subclasses and implementors of a class.
+   * 
+   * @param id the class ID
+   * @return the sorted IDs of the direct subtypes
+   */
+  public int[] getChildren(final int id)
+  {
+    return Arrays.copyOfRange(childIds, childStarts[id], childStarts[id + 1]);
+  }
+  
+  
+  /**
+   * Return the number of direct subclasses and implementors of a class.
+   * 
+   * @param id the class ID
+   * @return the number of direct subtypes
+   */
+  public int getChildCount(final int id)
+  {
+    return childStarts[id + 1] - childStarts[id];
+  }
+  
+  
+  /**
+   * Return every class that extends or implements a class, directly
+   * or not.
+   * 
+   * @param id the class ID
+   * @return the sorted IDs of the subtypes
+   */
+  public synchronized int[] getSubtypes(final int id)
+  {
+    if (subtypes[id] == null)
+    {
+      subtypes[id] = walk(id, childStarts, childIds);
+    }
+    
+    return subtypes[id].clone();
+  }
+  
+  
+  /**
+   * Return every class and interface that a class extends or
+   * implements, directly or not.
+   * 
+   * @param id the class ID
+   * @return the sorted IDs of the supertypes
+   */
+  public synchronized int[] getSupertypes(final int id)
+  {
+    if (supertypes[id] == null)
+    {
+      supertypes[id] = walk(id, parentStarts, parentIds);
+    }
+    
+    return supertypes[id].clone();
+  }
+  
+  
+  /**
+   * Return the classes reachable from a class along the edges, not
+   * counting the class itself.  A class in a cycle (which only a
+   * broken classpath can have) is visited once.
+   * 
+   * @param id the class ID
+   * @param starts the start of each class's edges
+   * @param ids the targets of the edges
+   * @return the sorted IDs of the classes reached
+   */
+  private int[] walk(final int id, final int[] starts, final int[] ids)
+  {
+    ++walk;
+    marks[id] = walk;
+    int[] queue = new int[16];
+    int head = 0;
+    int tail = 0;
+    int node = id;
+    while (true)
+    {
+      // Add the unvisited targets of the node to the queue
+      for (int i = starts[node]; i < starts[node + 1]; ++i)
+      {
+        final int next = ids[i];
+        if (marks[next] != walk)
+        {
+          marks[next] = walk;
+          if (tail == queue.length)
+          {
+            queue = Arrays.copyOf(queue, tail * 2);
+          }
+          
+          queue[tail++] = next;
+        }
+      }
+      
+      if (head == tail)
+      {
+        break;
+      }
+      
+      node = queue[head++];
+    }
+    
+    final int[] result = Arrays.copyOf(queue, tail);
+    Arrays.sort(result);
+    return result;
+  }
+}
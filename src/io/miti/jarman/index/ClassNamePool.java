@@ -0,0 +1,294 @@
+package io.miti.jarman.index;
+
+import io.miti.jarman.classref.ClassReader;
+
+import java.util.Arrays;
+
+/**
+ * A pool of class names, each mapped to an int ID.  IDs are assigned
+ * in the order the names are added, starting at 0.  The names are kept
+ * in an array, and looked up in an open-addressing hash table of IDs,
+ * so no boxed keys are built.  Names can also be looked up by their
+ * bytes in a class file, without building a string.
+ * 
+ * Adding names is synchronized, so the pool can be filled by several
+ * threads at once.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class ClassNamePool
+{
+  /**
+   * The ID returned for a name that is not in the pool.
+   */
+  public static final int NOT_FOUND = -1;
+  
+  /**
+   * The names, indexed by ID.
+   */
+  private String[] names = null;
+  
+  /**
+   * The hash table; each slot holds an ID + 1, or 0 if empty.
+   */
+  private int[] table = null;
+  
+  /**
+   * The number of names in the pool.
+   */
+  private int count = 0;
+  
+  /**
+   * The total length of the names in the pool.
+   */
+  private long length = 0L;
+  
+  /**
+   * The buffer for decoding names held as bytes.
+   */
+  private char[] chars = new char[256];
+  
+  
+  /**
+   * Constructor.
+   * 
+   * @param nCapacity the expected number of names
+   */
+  public ClassNamePool(final int nCapacity)
+  {
+    super();
+    names = new String[Math.max(16, nCapacity)];
+    table = new int[tableSize(names.length)];
+  }
+  
+  
+  /**
+   * Return the ID of the name, adding it to the pool if needed.
+   * 
+   * @param name the class name
+   * @return the ID of the name
+   */
+  public synchronized int intern(final String name)
+  {
+    final int slot = findSlot(name);
+    if (table[slot] != 0)
+    {
+      return table[slot] - 1;
+    }
+    
+    return add(slot, name);
+  }
+  
+  
+  /**
+   * Return the ID of a name held as modified UTF-8 bytes, such as a
+   * class name in a class file, adding it to the pool if needed.  A
+   * string is only created if the name is new.
+   * 
+   * @param data the array holding the name
+   * @param off the offset of the name
+   * @param len the number of bytes in the name
+   * @return the ID of the name
+   */
+  public synchronized int intern(final byte[] data, final int off, final int len)
+  {
+    // Decode the name into the buffer, and hash it the way String does
+    if (len > chars.length)
+    {
+      chars = new char[len + 64];
+    }
+    
+    final int size = ClassReader.decodeChars(data, off, len, chars);
+    int hash = 0;
+    for (int i = 0; i < size; ++i)
+    {
+      hash = (31 * hash) + chars[i];
+    }
+    
+    final int mask = table.length - 1;
+    int slot = mix(hash) & mask;
+    while ((table[slot] != 0) && !matches(names[table[slot] - 1], size))
+    {
+      slot = (slot + 1) & mask;
+    }
+    
+    if (table[slot] != 0)
+    {
+      return table[slot] - 1;
+    }
+    
+    return add(slot, new String(chars, 0, size));
+  }
+  
+  
+  /**
+   * Return the ID of the name.
+   * 
+   * @param name the class name
+   * @return the ID, or NOT_FOUND if the name is not in the pool
+   */
+  public synchronized int getId(final String name)
+  {
+    return table[findSlot(name)] - 1;
+  }
+  
+  
+  /**
+   * Return the name with the ID.
+   * 
+   * @param id the ID
+   * @return the class name
+   */
+  public synchronized String getName(final int id)
+  {
+    return names[id];
+  }
+  
+  
+  /**
+   * Return the number of names in the pool.
+   * 
+   * @return the number of names
+   */
+  public synchronized int size()
+  {
+    return count;
+  }
+  
+  
+  /**
+   * Return the total number of characters in the names in the pool.
+   * 
+   * @return the number of characters
+   */
+  public synchronized long getLength()
+  {
+    return length;
+  }
+  
+  
+  /**
+   * Add a name to the pool.
+   * 
+   * @param slot the empty slot for the name
+   * @param name the class name
+   * @return the ID of the name
+   */
+  private int add(final int slot, final String name)
+  {
+    // Add the name, and grow the arrays if they are full
+    if (count == names.length)
+    {
+      names = Arrays.copyOf(names, count * 2);
+    }
+    
+    names[count] = name;
+    length += name.length();
+    table[slot] = ++count;
+    if ((count * 2) > table.length)
+    {
+      rehash();
+    }
+    
+    return count - 1;
+  }
+  
+  
+  /**
+   * Return whether a name matches the characters in the buffer.
+   * 
+   * @param name the class name
+   * @param size the number of characters in the buffer
+   * @return whether the name equals the characters
+   */
+  private boolean matches(final String name, final int size)
+  {
+    if (name.length() != size)
+    {
+      return false;
+    }
+    
+    for (int i = 0; i < size; ++i)
+    {
+      if (name.charAt(i) != chars[i])
+      {
+        return false;
+      }
+    }
+    
+    return true;
+  }
+  
+  
+  /**
+   * Return the slot for the name: the slot holding its ID, or the
+   * empty slot where it would be added.
+   * 
+   * @param name the class name
+   * @return the slot index
+   */
+  private int findSlot(final String name)
+  {
+    final int mask = table.length - 1;
+    int slot = mix(name.hashCode()) & mask;
+    while ((table[slot] != 0) && !names[table[slot] - 1].equals(name))
+    {
+      slot = (slot + 1) & mask;
+    }
+    
+    return slot;
+  }
+  
+  
+  /**
+   * Double the size of the hash table, and add the names again.
+   */
+  private void rehash()
+  {
+    table = new int[table.length * 2];
+    final int mask = table.length - 1;
+    for (int i = 0; i < count; ++i)
+    {
+      int slot = mix(names[i].hashCode()) & mask;
+      while (table[slot] != 0)
+      {
+        slot = (slot + 1) & mask;
+      }
+      
+      table[slot] = i + 1;
+    }
+  }
+  
+  
+  /**
+   * Spread the bits of a hash code, since the table size is a power of two.
+   * 
+   * @param hash the hash code
+   * @return the mixed hash code
+   */
+  private static int mix(final int hash)
+  {
+    final int h = hash * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+  
+  
+  /**
+   * Return the hash table size for the number of names.  The size is
+   * a power of two, and at most half full.
+   * 
+   * @param capacity the number of names
+   * @return the table size
+   */
+  private static int tableSize(final int capacity)
+  {
+    int size = 16;
+    while ((size < (1 << 30)) && (size < (capacity * 2)))
+    {
+      size <<= 1;
+    }
+    
+    return size;
+  }
+}
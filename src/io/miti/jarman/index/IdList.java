@@ -0,0 +1,94 @@
+package io.miti.jarman.index;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of int IDs, so lists of class IDs can be passed
+ * around without boxing.  A list is not thread-safe.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class IdList
+{
+  /**
+   * The IDs.
+   */
+  private int[] ids = null;
+  
+  /**
+   * The number of IDs in the list.
+   */
+  private int count = 0;
+  
+  
+  /**
+   * Constructor.
+   * 
+   * @param nCapacity the expected number of IDs
+   */
+  public IdList(final int nCapacity)
+  {
+    super();
+    ids = new int[Math.max(4, nCapacity)];
+  }
+  
+  
+  /**
+   * Add an ID to the end of the list.
+   * 
+   * @param id the ID
+   */
+  public void add(final int id)
+  {
+    if (count == ids.length)
+    {
+      ids = Arrays.copyOf(ids, count * 2);
+    }
+    
+    ids[count++] = id;
+  }
+  
+  
+  /**
+   * Return an ID.
+   * 
+   * @param index the index in the list
+   * @return the ID
+   */
+  public int get(final int index)
+  {
+    return ids[index];
+  }
+  
+  
+  /**
+   * Return the number of IDs in the list.
+   * 
+   * @return the number of IDs
+   */
+  public int size()
+  {
+    return count;
+  }
+  
+  
+  /**
+   * Remove all of the IDs.
+   */
+  public void clear()
+  {
+    count = 0;
+  }
+  
+  
+  /**
+   * Return a copy of the IDs.
+   * 
+   * @return the IDs, in order
+   */
+  public int[] toArray()
+  {
+    return Arrays.copyOf(ids, count);
+  }
+}
@@ -0,0 +1,495 @@
+package io.miti.jarman.index;
+
+import io.miti.jarman.classref.ClassReader;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of parsed classes, keyed by the CRC-32 and size of the class
+ * file, so a class that is copied byte for byte into several jars is
+ * only read and parsed once.  Both values come from the jar's central
+ * directory, so a copy can be found in the cache without inflating it.
+ * Two different classes with the same CRC and size are told apart by
+ * their entry path, which must also match.
+ * 
+ * Each entry holds the header of the class and the distinct classes it
+ * references, as IDs in a pool of class names owned by the cache.  The
+ * entries are kept in least-recently-used order, and the oldest are
+ * dropped when the estimated size of the entries and the names passes
+ * the memory budget.  The names of dropped entries stay in the pool, so
+ * once the pool alone fills half of the budget, the cache is emptied
+ * and a new pool is started.  The methods are synchronized, so one
+ * cache can be shared by several threads.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class ParseCache
+{
+  /**
+   * The estimated size in bytes of an entry, not counting its arrays.
+   */
+  private static final int ENTRY_BYTES = 120;
+  
+  /**
+   * The estimated size in bytes of a name in the pool, not counting
+   * its characters.
+   */
+  private static final int NAME_BYTES = 56;
+  
+  /**
+   * The list of reference IDs of each thread adding entries.
+   */
+  private static final ThreadLocal<IdList> ids = new ThreadLocal<IdList>()
+  {
+    @Override
+    protected IdList initialValue()
+    {
+      return new IdList(100);
+    }
+  };
+  
+  /**
+   * The class names used by the entries.
+   */
+  private ClassNamePool pool = new ClassNamePool(4096);
+  
+  /**
+   * The entries, in least-recently-used order.
+   */
+  private LinkedHashMap<Long, Entry> entries =
+    new LinkedHashMap<Long, Entry>(1024, 0.75f, true);
+  
+  /**
+   * The memory budget, in bytes.
+   */
+  private long maxBytes = 0L;
+  
+  /**
+   * The estimated size of the entries, in bytes.
+   */
+  private long usedBytes = 0L;
+  
+  /**
+   * The number of lookups that found an entry.
+   */
+  private int hits = 0;
+  
+  /**
+   * The number of lookups that did not find an entry.
+   */
+  private int misses = 0;
+  
+  
+  /**
+   * Constructor.
+   * 
+   * @param nMaxBytes the memory budget, in bytes
+   */
+  public ParseCache(final long nMaxBytes)
+  {
+    super();
+    maxBytes = Math.max(0L, nMaxBytes);
+  }
+  
+  
+  /**
+   * Return the parsed class for a class file, if it is in the cache.
+   * 
+   * @param path the path of the class file in its jar
+   * @param crc the CRC-32 of the class file, or -1 if it is not known
+   * @param size the size of the class file, or -1 if it is not known
+   * @return the parsed class, or null if it is not in the cache
+   */
+  public synchronized Entry get(final String path, final long crc,
+                                final long size)
+  {
+    if ((crc < 0L) || (size < 0L))
+    {
+      return null;
+    }
+    
+    final Entry entry = entries.get(makeKey(crc, size));
+    if ((entry == null) || !entry.path.equals(path))
+    {
+      ++misses;
+      return null;
+    }
+    
+    ++hits;
+    return entry;
+  }
+  
+  
+  /**
+   * Parse the class in a reader, and add it to the cache.  If another
+   * class has the same CRC and size, it is replaced.
+   * 
+   * @param path the path of the class file in its jar
+   * @param crc the CRC-32 of the class file, or -1 if it is not known
+   * @param size the size of the class file, or -1 if it is not known
+   * @param reader the reader holding the parsed class
+   * @return the parsed class, or null if the class has no name
+   */
+  public Entry put(final String path, final long crc, final long size,
+                   final ClassReader reader)
+  {
+    final String name = reader.getClassName();
+    if (name == null)
+    {
+      return null;
+    }
+    
+    // Build the entry outside the lock; the pool has its own
+    final ClassNamePool names = getPool();
+    final IdList refs = ids.get();
+    refs.clear();
+    reader.getReferences(names, refs);
+    final Entry entry = new Entry(names, path, reader, refs);
+    if ((crc < 0L) || (size < 0L))
+    {
+      return entry;
+    }
+    
+    synchronized (this)
+    {
+      // Skip the entry if the pool was replaced while it was built
+      if (names != pool)
+      {
+        return entry;
+      }
+      
+      final Entry old = entries.put(makeKey(crc, size), entry);
+      if (old != null)
+      {
+        usedBytes -= old.getBytes();
+      }
+      
+      usedBytes += entry.getBytes();
+      
+      // Drop the least recently used entries until the cache fits
+      final long poolBytes = getPoolBytes();
+      Iterator<Map.Entry<Long, Entry>> iter = entries.entrySet().iterator();
+      while (((usedBytes + poolBytes) > maxBytes) && iter.hasNext())
+      {
+        usedBytes -= iter.next().getValue().getBytes();
+        iter.remove();
+      }
+      
+      // Start again if the names of dropped entries fill the budget
+      if ((poolBytes * 2) > maxBytes)
+      {
+        clear();
+      }
+    }
+    
+    return entry;
+  }
+  
+  
+  /**
+   * Remove all of the entries, and start a new pool of class names.
+   * Entries that are still in use keep the old pool.
+   */
+  public synchronized void clear()
+  {
+    entries.clear();
+    usedBytes = 0L;
+    pool = new ClassNamePool(4096);
+  }
+  
+  
+  /**
+   * Return the pool of class names for new entries.
+   * 
+   * @return the pool of class names
+   */
+  private synchronized ClassNamePool getPool()
+  {
+    return pool;
+  }
+  
+  
+  /**
+   * Return the estimated size of the class names in the pool.
+   * 
+   * @return the size in bytes
+   */
+  private long getPoolBytes()
+  {
+    return (NAME_BYTES * (long) pool.size()) + (2L * pool.getLength());
+  }
+  
+  
+  /**
+   * Return the number of entries in the cache.
+   * 
+   * @return the number of entries
+   */
+  public synchronized int size()
+  {
+    return entries.size();
+  }
+  
+  
+  /**
+   * Return the estimated size of the entries and the pool of class
+   * names, in bytes.
+   * 
+   * @return the estimated size in bytes
+   */
+  public synchronized long getUsedBytes()
+  {
+    return usedBytes + getPoolBytes();
+  }
+  
+  
+  /**
+   * Return the number of lookups that found an entry.
+   * 
+   * @return the number of hits
+   */
+  public synchronized int getHitCount()
+  {
+    return hits;
+  }
+  
+  
+  /**
+   * Return the number of lookups that did not find an entry.
+   * 
+   * @return the number of misses
+   */
+  public synchronized int getMissCount()
+  {
+    return misses;
+  }
+  
+  
+  /**
+   * Return the key for a CRC and size.
+   * 
+   * @param crc the CRC-32 of the class file
+   * @param size the size of the class file
+   * @return the key
+   */
+  private static Long makeKey(final long crc, final long size)
+  {
+    return Long.valueOf((crc << 32) ^ size);
+  }
+  
+  
+  /**
+   * A parsed class: its header, and the classes it references.  An
+   * entry cannot be changed after it is built.
+   */
+  public static final class Entry
+  {
+    /**
+     * The class names.
+     */
+    private final ClassNamePool pool;
+    
+    /**
+     * The path of the class file in its jar.
+     */
+    private final String path;
+    
+    /**
+     * The name ID of the class.
+     */
+    private final int classId;
+    
+    /**
+     * The name ID of the parent class, or NOT_FOUND if there is none.
+     */
+    private final int superId;
+    
+    /**
+     * The version, with the major version in the high 16 bits.
+     */
+    private final int version;
+    
+    /**
+     * The access flags.
+     */
+    private final int accessFlags;
+    
+    /**
+     * The name IDs of the interfaces.
+     */
+    private final int[] interfaceIds;
+    
+    /**
+     * The name IDs of the referenced classes.
+     */
+    private final int[] referenceIds;
+    
+    
+    /**
+     * Constructor.
+     * 
+     * @param pPool the class names
+     * @param sPath the path of the class file in its jar
+     * @param reader the reader holding the parsed class
+     * @param refs the IDs of the referenced classes
+     */
+    private Entry(final ClassNamePool pPool, final String sPath,
+                  final ClassReader reader, final IdList refs)
+    {
+      pool = pPool;
+      path = sPath;
+      classId = pool.intern(reader.getClassName());
+      final String superName = reader.getSuperName();
+      superId = (superName == null) ? ClassNamePool.NOT_FOUND
+                                    : pool.intern(superName);
+      version = (reader.getMajorVersion() << 16) | reader.getMinorVersion();
+      accessFlags = reader.getAccessFlags();
+      
+      // Save the interfaces, skipping any that are not valid
+      final int count = reader.getInterfaceCount();
+      int[] ifaces = new int[count];
+      int next = 0;
+      for (int i = 0; i < count; ++i)
+      {
+        final String iface = reader.getInterface(i);
+        if (iface != null)
+        {
+          ifaces[next++] = pool.intern(iface);
+        }
+      }
+      
+      interfaceIds = (next == count) ? ifaces : Arrays.copyOf(ifaces, next);
+      
+      // Save each referenced class once
+      final int[] sorted = refs.toArray();
+      Arrays.sort(sorted);
+      int unique = 0;
+      for (int i = 0; i < sorted.length; ++i)
+      {
+        if ((unique == 0) || (sorted[i] != sorted[unique - 1]))
+        {
+          sorted[unique++] = sorted[i];
+        }
+      }
+      
+      referenceIds = Arrays.copyOf(sorted, unique);
+    }
+    
+    
+    /**
+     * Return the estimated size of the entry, in bytes.
+     * 
+     * @return the size in bytes
+     */
+    private long getBytes()
+    {
+      return ENTRY_BYTES + (2 * path.length()) +
+             (4 * (interfaceIds.length + referenceIds.length));
+    }
+    
+    
+    /**
+     * Return the name of the class.
+     * 
+     * @return the class name, with slashes
+     */
+    public String getClassName()
+    {
+      return pool.getName(classId);
+    }
+    
+    
+    /**
+     * Return the name of the parent class.
+     * 
+     * @return the parent class name, or null if there is none
+     */
+    public String getSuperName()
+    {
+      return (superId == ClassNamePool.NOT_FOUND) ? null : pool.getName(superId);
+    }
+    
+    
+    /**
+     * Return the major version of the class.
+     * 
+     * @return the major version
+     */
+    public int getMajorVersion()
+    {
+      return version >>> 16;
+    }
+    
+    
+    /**
+     * Return the minor version of the class.
+     * 
+     * @return the minor version
+     */
+    public int getMinorVersion()
+    {
+      return version & 0xFFFF;
+    }
+    
+    
+    /**
+     * Return the access flags of the class.
+     * 
+     * @return the access flags
+     */
+    public int getAccessFlags()
+    {
+      return accessFlags;
+    }
+    
+    
+    /**
+     * Return the number of interfaces implemented by the class.
+     * 
+     * @return the number of interfaces
+     */
+    public int getInterfaceCount()
+    {
+      return interfaceIds.length;
+    }
+    
+    
+    /**
+     * Return the name of an interface implemented by the class.
+     * 
+     * @param index the interface number
+     * @return the interface name, with slashes
+     */
+    public String getInterface(final int index)
+    {
+      return pool.getName(interfaceIds[index]);
+    }
+    
+    
+    /**
+     * Return the number of classes referenced by the class.
+     * 
+     * @return the number of references
+     */
+    public int getReferenceCount()
+    {
+      return referenceIds.length;
+    }
+    
+    
+    /**
+     * Return the name of a class referenced by the class.
+     * 
+     * @param index the reference number
+     * @return the class name, with slashes
+     */
+    public String getReference(final int index)
+    {
+      return pool.getName(referenceIds[index]);
+    }
+  }
+}
@@ -0,0 +1,423 @@
+package io.miti.jarman.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The graph of class references on the classpath.  Each class name is
+ * mapped to an int ID by a name pool, and the references are kept in
+ * compressed sparse row form: for each class, the IDs it references
+ * are in one slice of an int array, and the classes that reference it
+ * are in one slice of another.  The slices are sorted and have no
+ * duplicates, so looking up either direction costs one array read plus
+ * the size of the result.
+ * 
+ * A graph is filled in with a Builder, and cannot be changed after it
+ * is built.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class ReferenceGraph
+{
+  /**
+   * The class names.
+   */
+  private ClassNamePool pool = null;
+  
+  /**
+   * The start of each class's references in refIds; the end is the
+   * start of the next class.
+   */
+  private int[] refStarts = null;
+  
+  /**
+   * The IDs of the referenced classes.
+   */
+  private int[] refIds = null;
+  
+  /**
+   * The start of each class's referrers in referrerIds.
+   */
+  private int[] referrerStarts = null;
+  
+  /**
+   * The IDs of the referring classes.
+   */
+  private int[] referrerIds = null;
+  
+  
+  /**
+   * Constructor.
+   * 
+   * @param pPool the class names
+   * @param pRefStarts the start of each class's references
+   * @param pRefIds the IDs of the referenced classes
+   */
+  private ReferenceGraph(final ClassNamePool pPool,
+                         final int[] pRefStarts,
+                         final int[] pRefIds)
+  {
+    pool = pPool;
+    refStarts = pRefStarts;
+    refIds = pRefIds;
+    
+    // Count the referrers of each class, then fill in the reverse
+    // slices in order of source ID, which keeps each slice sorted
+    final int classes = refStarts.length - 1;
+    referrerStarts = new int[classes + 1];
+    for (int i = 0; i < refIds.length; ++i)
+    {
+      ++referrerStarts[refIds[i] + 1];
+    }
+    
+    for (int i = 0; i < classes; ++i)
+    {
+      referrerStarts[i + 1] += referrerStarts[i];
+    }
+    
+    referrerIds = new int[refIds.length];
+    final int[] next = Arrays.copyOf(referrerStarts, classes);
+    for (int from = 0; from < classes; ++from)
+    {
+      for (int i = refStarts[from]; i < refStarts[from + 1]; ++i)
+      {
+        referrerIds[next[refIds[i]]++] = from;
+      }
+    }
+  }
+  
+  
+  /**
+   * Return the pool of class names.
+   * 
+   * @return the class names
+   */
+  public ClassNamePool getPool()
+  {
+    return pool;
+  }
+  
+  
+  /**
+   * Return the number of classes in the graph.  This includes classes
+   * that are only referenced.
+   * 
+   * @return the number of classes
+   */
+  public int getClassCount()
+  {
+    return refStarts.length - 1;
+  }
+  
+  
+  /**
+   * Return the number of references in the graph.
+   * 
+   * @return the number of references
+   */
+  public int getReferenceCount()
+  {
+    return refIds.length;
+  }
+  
+  
+  /**
+   * Return the ID of a class.
+   * 
+   * @param name the class name, with slashes
+   * @return the ID, or ClassNamePool.NOT_FOUND if not in the graph
+   */
+  public int getId(final String name)
+  {
+    return pool.getId(name);
+  }
+  
+  
+  /**
+   * Return the number of classes referenced by a class.
+   * 
+   * @param id the class ID
+   * @return the number of classes it references
+   */
+  public int getReferenceCount(final int id)
+  {
+    return refStarts[id + 1] - refStarts[id];
+  }
+  
+  
+  /**
+   * Return a class referenced by a class.
+   * 
+   * @param id the class ID
+   * @param index the index of the reference, from 0 to getReferenceCount(id) - 1
+   * @return the ID of the referenced class
+   */
+  public int getReference(final int id, final int index)
+  {
+    return refIds[refStarts[id] + index];
+  }
+  
+  
+  /**
+   * Return the number of classes that reference a class.
+   * 
+   * @param id the class ID
+   * @return the number of referring classes
+   */
+  public int getReferrerCount(final int id)
+  {
+    return referrerStarts[id + 1] - referrerStarts[id];
+  }
+  
+  
+  /**
+   * Return a class that references a class.
+   * 
+   * @param id the class ID
+   * @param index the index of the referrer, from 0 to getReferrerCount(id) - 1
+   * @return the ID of the referring class
+   */
+  public int getReferrer(final int id, final int index)
+  {
+    return referrerIds[referrerStarts[id] + index];
+  }
+  
+  
+  /**
+   * Return the sorted names of the classes referenced by a class.
+   * 
+   * @param name the class name, with slashes
+   * @return the referenced class names
+   */
+  public List<String> getReferences(final String name)
+  {
+    final int id = pool.getId(name);
+    if (id == ClassNamePool.NOT_FOUND)
+    {
+      return Collections.emptyList();
+    }
+    
+    return getNames(refIds, refStarts[id], refStarts[id + 1]);
+  }
+  
+  
+  /**
+   * Return the sorted names of the classes that reference a class.
+   * 
+   * @param name the class name, with slashes
+   * @return the referring class names
+   */
+  public List<String> getReferrers(final String name)
+  {
+    final int id = pool.getId(name);
+    if (id == ClassNamePool.NOT_FOUND)
+    {
+      return Collections.emptyList();
+    }
+    
+    return getNames(referrerIds, referrerStarts[id], referrerStarts[id + 1]);
+  }
+  
+  
+  /**
+   * Return the sorted names for a slice of IDs.
+   * 
+   * @param ids the array of IDs
+   * @param start the start of the slice
+   * @param end the end of the slice
+   * @return the class names
+   */
+  private List<String> getNames(final int[] ids, final int start, final int end)
+  {
+    List<String> list = new ArrayList<String>(end - start);
+    for (int i = start; i < end; ++i)
+    {
+      list.add(pool.getName(ids[i]));
+    }
+    
+    Collections.sort(list);
+    return list;
+  }
+  
+  
+  /**
+   * Collects class references, and builds the graph.  Adding references
+   * is synchronized, so a builder can be filled by several threads.
+   */
+  public static final class Builder
+  {
+    /**
+     * The class names.
+     */
+    private ClassNamePool pool = new ClassNamePool(4096);
+    
+    /**
+     * The source ID of each reference.
+     */
+    private int[] from = new int[65536];
+    
+    /**
+     * The target ID of each reference.
+     */
+    private int[] to = new int[65536];
+    
+    /**
+     * The number of references added.
+     */
+    private int count = 0;
+    
+    
+    /**
+     * Default constructor.
+     */
+    public Builder()
+    {
+      super();
+    }
+    
+    
+    /**
+     * Add the references of a class.  Null and empty names, and
+     * references from a class to itself, are skipped.
+     * 
+     * @param className the referring class, with slashes
+     * @param refs the referenced class names
+     */
+    public synchronized void addReferences(final String className,
+                                           final List<String> refs)
+    {
+      final int source = pool.intern(className);
+      final int size = refs.size();
+      for (int i = 0; i < size; ++i)
+      {
+        final String ref = refs.get(i);
+        if ((ref != null) && (ref.length() > 0))
+        {
+          add(source, pool.intern(ref));
+        }
+      }
+    }
+    
+    
+    /**
+     * Add the references of a class, as IDs from this builder's pool.
+     * References to the empty name, and from a class to itself, are
+     * skipped.
+     * 
+     * @param source the ID of the referring class
+     * @param refs the IDs of the referenced classes
+     */
+    public synchronized void addReferences(final int source, final IdList refs)
+    {
+      final int empty = pool.getId("");
+      final int size = refs.size();
+      for (int i = 0; i < size; ++i)
+      {
+        final int target = refs.get(i);
+        if (target != empty)
+        {
+          add(source, target);
+        }
+      }
+    }
+    
+    
+    /**
+     * Return the pool of class names, for looking up the IDs of classes
+     * before they are added.
+     * 
+     * @return the class names
+     */
+    public ClassNamePool getPool()
+    {
+      return pool;
+    }
+    
+    
+    /**
+     * Add one reference, unless it is from a class to itself.
+     * 
+     * @param source the ID of the referring class
+     * @param target the ID of the referenced class
+     */
+    private void add(final int source, final int target)
+    {
+      if (target == source)
+      {
+        return;
+      }
+      
+      if (count == from.length)
+      {
+        from = Arrays.copyOf(from, count * 2);
+        to = Arrays.copyOf(to, count * 2);
+      }
+      
+      from[count] = source;
+      to[count] = target;
+      ++count;
+    }
+    
+    
+    /**
+     * Build the graph.  The builder should not be used afterwards.
+     * 
+     * @return the reference graph
+     */
+    public synchronized ReferenceGraph build()
+    {
+      // Bucket the references by source
+      final int classes = pool.size();
+      final int[] starts = new int[classes + 1];
+      for (int i = 0; i < count; ++i)
+      {
+        ++starts[from[i] + 1];
+      }
+      
+      for (int i = 0; i < classes; ++i)
+      {
+        starts[i + 1] += starts[i];
+      }
+      
+      int[] ids = new int[count];
+      final int[] next = Arrays.copyOf(starts, classes);
+      for (int i = 0; i < count; ++i)
+      {
+        ids[next[from[i]]++] = to[i];
+      }
+      
+      from = null;
+      to = null;
+      
+      // Sort each slice and drop duplicates, compacting the array
+      int out = 0;
+      int start = 0;
+      for (int c = 0; c < classes; ++c)
+      {
+        final int end = starts[c + 1];
+        Arrays.sort(ids, start, end);
+        starts[c] = out;
+        for (int i = start; i < end; ++i)
+        {
+          if ((i == start) || (ids[i] != ids[i - 1]))
+          {
+            ids[out++] = ids[i];
+          }
+        }
+        
+        start = end;
+      }
+      
+      starts[classes] = out;
+      if (out < ids.length)
+      {
+        ids = Arrays.copyOf(ids, out);
+      }
+      
+      return new ReferenceGraph(pool, starts, ids);
+    }
+  }
+}
@@ -0,0 +1,889 @@
+package io.miti.jarman.index;
+
+import io.miti.jarman.classref.ClassReader;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An inverted index over the string constants of the classes in a list
+ * of jars, for finding which classes hold a string.  Each distinct
+ * string is mapped to an int ID by a name pool, and each string has a
+ * posting list of the classes that hold it.
+ * 
+ * Searches are for substrings, ignoring case.  Every string is split
+ * into trigrams (runs of three lower-case characters), and each trigram
+ * has a posting list of the strings that hold it.  A search intersects
+ * the lists for the trigrams of the query, starting with the shortest,
+ * and then checks each string that is left, so only a few strings are
+ * compared.  A query shorter than three characters checks every string.
+ * 
+ * The posting lists are sorted, and stored as the gaps between IDs in
+ * variable-length bytes (7 bits per byte), so most IDs take one or two
+ * bytes.  An index is filled in with a Builder, and cannot be changed
+ * after it is built.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class StringIndex
+{
+  /**
+   * The length of a trigram.
+   */
+  private static final int GRAM = 3;
+  
+  /**
+   * The jar files.
+   */
+  private List<File> jars = null;
+  
+  /**
+   * The string constants, by ID.
+   */
+  private String[] strings = null;
+  
+  /**
+   * The name of each class.
+   */
+  private String[] classNames = null;
+  
+  /**
+   * The index of the jar holding each class.
+   */
+  private int[] classJars = null;
+  
+  /**
+   * The start of each string's classes in classPostings.
+   */
+  private int[] classStarts = null;
+  
+  /**
+   * The encoded IDs of the classes holding each string.
+   */
+  private byte[] classPostings = null;
+  
+  /**
+   * The sorted trigrams.
+   */
+  private long[] grams = null;
+  
+  /**
+   * The start of each trigram's strings in gramPostings.
+   */
+  private int[] gramStarts = null;
+  
+  /**
+   * The encoded IDs of the strings holding each trigram.
+   */
+  private byte[] gramPostings = null;
+  
+  
+  /**
+   * Constructor.
+   * 
+   * @param builder the builder holding the strings and classes
+   */
+  private StringIndex(final Builder builder)
+  {
+    jars = builder.jars;
+    strings = new String[builder.strings.size()];
+    for (int i = 0; i < strings.length; ++i)
+    {
+      strings[i] = builder.strings.getName(i);
+    }
+    
+    classNames = builder.classNames.toArray(new String[builder.classNames.size()]);
+    classJars = builder.classJars.toArray();
+  }
+  
+  
+  /**
+   * Return the number of distinct strings.
+   * 
+   * @return the number of strings
+   */
+  public int getStringCount()
+  {
+    return strings.length;
+  }
+  
+  
+  /**
+   * Return a string.
+   * 
+   * @param id the string ID
+   * @return the string
+   */
+  public String getString(final int id)
+  {
+    return strings[id];
+  }
+  
+  
+  /**
+   * Return the number of classes in the index.
+   * 
+   * @return the number of classes
+   */
+  public int getClassCount()
+  {
+    return classNames.length;
+  }
+  
+  
+  /**
+   * Return the name of a class.
+   * 
+   * @param id the class ID
+   * @return the class name, with slashes
+   */
+  public String getClassName(final int id)
+  {
+    return classNames[id];
+  }
+  
+  
+  /**
+   * Return the jar holding a class.
+   * 
+   * @param id the class ID
+   * @return the jar file
+   */
+  public File getJar(final int id)
+  {
+    return jars.get(classJars[id]);
+  }
+  
+  
+  /**
+   * Return the number of trigrams in the index.
+   * 
+   * @return the number of trigrams
+   */
+  public int getTrigramCount()
+  {
+    return grams.length;
+  }
+  
+  
+  /**
+   * Return the size of the encoded posting lists.
+   * 
+   * @return the number of bytes in the posting lists
+   */
+  public int getPostingSize()
+  {
+    return classPostings.length + gramPostings.length;
+  }
+  
+  
+  /**
+   * Return the classes holding a string.
+   * 
+   * @param id the string ID
+   * @return the sorted class IDs
+   */
+  public int[] getClasses(final int id)
+  {
+    return decode(classPostings, classStarts[id], classStarts[id + 1]);
+  }
+  
+  
+  /**
+   * Find the strings that hold a substring, ignoring case.
+   * 
+   * @param query the substring
+   * @return the sorted IDs of the matching strings
+   */
+  public int[] find(final String query)
+  {
+    final char[] lower = toLowerCase(query);
+    if (lower.length == 0)
+    {
+      return new int[0];
+    }
+    
+    int[] candidates = null;
+    if (lower.length >= GRAM)
+    {
+      // Look up the slice of each trigram in the query
+      final long[] keys = getGrams(lower);
+      final int[] slices = new int[keys.length];
+      for (int i = 0; i < keys.length; ++i)
+      {
+        final int slot = Arrays.binarySearch(grams, keys[i]);
+        if (slot < 0)
+        {
+          return new int[0];
+        }
+        
+        slices[i] = slot;
+      }
+      
+      // Intersect the lists, shortest first
+      sortBySize(slices);
+      for (int i = 0; i < slices.length; ++i)
+      {
+        final int[] ids = decode(gramPostings, gramStarts[slices[i]],
+                                 gramStarts[slices[i] + 1]);
+        candidates = (candidates == null) ? ids : intersect(candidates, ids);
+        if (candidates.length == 0)
+        {
+          return candidates;
+        }
+      }
+    }
+    
+    // Check the candidates, or every string for a short query
+    final int total = (candidates == null) ? strings.length : candidates.length;
+    IdList matches = new IdList(Math.min(total, 256));
+    for (int i = 0; i < total; ++i)
+    {
+      final int id = (candidates == null) ? i : candidates[i];
+      if (contains(strings[id], lower))
+      {
+        matches.add(id);
+      }
+    }
+    
+    return matches.toArray();
+  }
+  
+  
+  /**
+   * Sort trigram slots by the size of their posting lists.
+   * 
+   * @param slots the trigram slots
+   */
+  private void sortBySize(final int[] slots)
+  {
+    for (int i = 1; i < slots.length; ++i)
+    {
+      final int slot = slots[i];
+      final int size = gramStarts[slot + 1] - gramStarts[slot];
+      int j = i - 1;
+      while ((j >= 0) && (gramStarts[slots[j] + 1] - gramStarts[slots[j]] > size))
+      {
+        slots[j + 1] = slots[j];
+        --j;
+      }
+      
+      slots[j + 1] = slot;
+    }
+  }
+  
+  
+  /**
+   * Return the IDs in both of two sorted arrays.
+   * 
+   * @param a the first array
+   * @param b the second array
+   * @return the sorted IDs in both arrays
+   */
+  private static int[] intersect(final int[] a, final int[] b)
+  {
+    int[] out = new int[Math.min(a.length, b.length)];
+    int count = 0;
+    int i = 0;
+    int j = 0;
+    while ((i < a.length) && (j < b.length))
+    {
+      if (a[i] < b[j])
+      {
+        ++i;
+      }
+      else if (a[i] > b[j])
+      {
+        ++j;
+      }
+      else
+      {
+        out[count++] = a[i];
+        ++i;
+        ++j;
+      }
+    }
+    
+    return (count == out.length) ? out : Arrays.copyOf(out, count);
+  }
+  
+  
+  /**
+   * Return whether a string holds a lower-case substring, ignoring case.
+   * 
+   * @param str the string
+   * @param lower the substring, in lower case
+   * @return whether the string holds the substring
+   */
+  private static boolean contains(final String str, final char[] lower)
+  {
+    final int last = str.length() - lower.length;
+    for (int i = 0; i <= last; ++i)
+    {
+      int j = 0;
+      while ((j < lower.length) &&
+             (Character.toLowerCase(str.charAt(i + j)) == lower[j]))
+      {
+        ++j;
+      }
+      
+      if (j == lower.length)
+      {
+        return true;
+      }
+    }
+    
+    return false;
+  }
+  
+  
+  /**
+   * Return the characters of a string in lower case.  Each character
+   * is mapped on its own, so the length does not change.
+   * 
+   * @param str the string
+   * @return the lower-case characters
+   */
+  private static char[] toLowerCase(final String str)
+  {
+    final char[] chars = str.toCharArray();
+    for (int i = 0; i < chars.length; ++i)
+    {
+      chars[i] = Character.toLowerCase(chars[i]);
+    }
+    
+    return chars;
+  }
+  
+  
+  /**
+   * Return the distinct trigrams of a string.  Each trigram is packed
+   * into a long, with 16 bits per character.
+   * 
+   * @param lower the lower-case characters of the string
+   * @return the sorted trigrams, or an empty array if the string is
+   *         too short
+   */
+  private static long[] getGrams(final char[] lower)
+  {
+    if (lower.length < GRAM)
+    {
+      return new long[0];
+    }
+    
+    final long[] keys = new long[lower.length - GRAM + 1];
+    for (int i = 0; i < keys.length; ++i)
+    {
+      keys[i] = ((long) lower[i] << 32) | ((long) lower[i + 1] << 16) | lower[i + 2];
+    }
+    
+    // Sort the trigrams and drop duplicates
+    Arrays.sort(keys);
+    int count = 0;
+    for (int i = 0; i < keys.length; ++i)
+    {
+      if ((i == 0) || (keys[i] != keys[i - 1]))
+      {
+        keys[count++] = keys[i];
+      }
+    }
+    
+    return (count == keys.length) ? keys : Arrays.copyOf(keys, count);
+  }
+  
+  
+  /**
+   * Decode a posting list.
+   * 
+   * @param data the encoded lists
+   * @param start the start of the list
+   * @param end the end of the list
+   * @return the sorted IDs
+   */
+  private static int[] decode(final byte[] data, final int start, final int end)
+  {
+    // Each ID ends with a byte that has the high bit clear
+    int count = 0;
+    for (int i = start; i < end; ++i)
+    {
+      if (data[i] >= 0)
+      {
+        ++count;
+      }
+    }
+    
+    final int[] ids = new int[count];
+    int pos = start;
+    int prev = 0;
+    for (int i = 0; i < count; ++i)
+    {
+      int value = 0;
+      int shift = 0;
+      byte b = 0;
+      do
+      {
+        b = data[pos++];
+        value |= (b & 0x7F) << shift;
+        shift += 7;
+      } while (b < 0);
+      
+      prev += value;
+      ids[i] = prev;
+    }
+    
+    return ids;
+  }
+  
+  
+  /**
+   * Encode the slices of an array of sorted IDs as posting lists.
+   * 
+   * @param ids the IDs, sorted within each slice
+   * @param starts the start of each slice; on return, the start of
+   *        each encoded list
+   * @return the encoded lists
+   */
+  private static byte[] encode(final int[] ids, final int[] starts)
+  {
+    byte[] out = new byte[ids.length + 16];
+    int pos = 0;
+    final int slices = starts.length - 1;
+    for (int s = 0; s < slices; ++s)
+    {
+      final int start = starts[s];
+      final int end = starts[s + 1];
+      starts[s] = pos;
+      int prev = 0;
+      for (int i = start; i < end; ++i)
+      {
+        if (pos + 5 > out.length)
+        {
+          out = Arrays.copyOf(out, out.length * 2);
+        }
+        
+        int value = ids[i] - prev;
+        prev = ids[i];
+        while ((value & ~0x7F) != 0)
+        {
+          out[pos++] = (byte) ((value & 0x7F) | 0x80);
+          value >>>= 7;
+        }
+        
+        out[pos++] = (byte) value;
+      }
+    }
+    
+    starts[slices] = pos;
+    return Arrays.copyOf(out, pos);
+  }
+  
+  
+  /**
+   * Collects the string constants of classes, and builds the index.
+   * Adding classes is thread-safe, so a builder can be filled by the
+   * worker threads of a class scan.
+   */
+  public static final class Builder
+  {
+    /**
+     * The buffer for copying string bytes, for each thread.
+     */
+    private static final ThreadLocal<byte[]> buffers = new ThreadLocal<byte[]>()
+    {
+      @Override
+      protected byte[] initialValue()
+      {
+        return new byte[1024];
+      }
+    };
+    
+    /**
+     * The jar files.
+     */
+    private List<File> jars = null;
+    
+    /**
+     * The string constants.
+     */
+    private ClassNamePool strings = new ClassNamePool(65536);
+    
+    /**
+     * The name of each class.
+     */
+    private List<String> classNames = new ArrayList<String>(4096);
+    
+    /**
+     * The index of the jar holding each class.
+     */
+    private IdList classJars = new IdList(4096);
+    
+    /**
+     * The string ID of each (string, class) pair.
+     */
+    private int[] stringIds = new int[65536];
+    
+    /**
+     * The class ID of each (string, class) pair.
+     */
+    private int[] classIds = new int[65536];
+    
+    /**
+     * The number of pairs added.
+     */
+    private int count = 0;
+    
+    
+    /**
+     * Constructor.
+     * 
+     * @param pJars the jar files, in the order of the scan
+     */
+    public Builder(final List<File> pJars)
+    {
+      super();
+      jars = new ArrayList<File>(pJars);
+    }
+    
+    
+    /**
+     * Add the string constants of a class.  The strings are interned
+     * on the calling thread, and only adding the class is locked.
+     * 
+     * @param jar the index of the jar holding the class
+     * @param reader the reader holding the parsed class
+     */
+    public void add(final int jar, final ClassReader reader)
+    {
+      final IdList ids = new IdList(16);
+      final int size = reader.getPoolSize();
+      byte[] buf = buffers.get();
+      for (int i = 1; i < size; ++i)
+      {
+        if (reader.getTag(i) != ClassReader.CONSTANT_STRING)
+        {
+          continue;
+        }
+        
+        final int utf = reader.getRef1(i);
+        final int len = reader.getUtf8Length(utf);
+        if (len > buf.length)
+        {
+          buf = new byte[Math.max(len, buf.length * 2)];
+          buffers.set(buf);
+        }
+        
+        reader.copyUtf8(utf, buf, 0);
+        ids.add(strings.intern(buf, 0, len));
+      }
+      
+      add(jar, reader.getClassName(), ids);
+    }
+    
+    
+    /**
+     * Add a class and the IDs of its strings.
+     * 
+     * @param jar the index of the jar holding the class
+     * @param className the class name
+     * @param ids the IDs of the strings in the class
+     */
+    private synchronized void add(final int jar, final String className,
+                                  final IdList ids)
+    {
+      final int classId = classNames.size();
+      classNames.add(className);
+      classJars.add(jar);
+      
+      final int size = ids.size();
+      if (count + size > stringIds.length)
+      {
+        final int capacity = Math.max(count + size, count * 2);
+        stringIds = Arrays.copyOf(stringIds, capacity);
+        classIds = Arrays.copyOf(classIds, capacity);
+      }
+      
+      for (int i = 0; i < size; ++i)
+      {
+        stringIds[count] = ids.get(i);
+        classIds[count] = classId;
+        ++count;
+      }
+    }
+    
+    
+    /**
+     * Build the index.  The builder should not be used afterwards.
+     * 
+     * @return the string index
+     */
+    public synchronized StringIndex build()
+    {
+      StringIndex index = new StringIndex(this);
+      buildClassPostings(index);
+      buildGramPostings(index);
+      return index;
+    }
+    
+    
+    /**
+     * Build the list of classes for each string.
+     * 
+     * @param index the index to fill in
+     */
+    private void buildClassPostings(final StringIndex index)
+    {
+      // Bucket the pairs by string; the class IDs in each bucket are
+      // in the order they were added, so sort them
+      final int total = strings.size();
+      final int[] starts = new int[total + 1];
+      for (int i = 0; i < count; ++i)
+      {
+        ++starts[stringIds[i] + 1];
+      }
+      
+      for (int i = 0; i < total; ++i)
+      {
+        starts[i + 1] += starts[i];
+      }
+      
+      final int[] ids = new int[count];
+      final int[] next = Arrays.copyOf(starts, total);
+      for (int i = 0; i < count; ++i)
+      {
+        ids[next[stringIds[i]]++] = classIds[i];
+      }
+      
+      stringIds = null;
+      classIds = null;
+      
+      // Sort each slice and drop duplicates
+      int out = 0;
+      int start = 0;
+      for (int s = 0; s < total; ++s)
+      {
+        final int end = starts[s + 1];
+        Arrays.sort(ids, start, end);
+        starts[s] = out;
+        for (int i = start; i < end; ++i)
+        {
+          if ((i == start) || (ids[i] != ids[i - 1]))
+          {
+            ids[out++] = ids[i];
+          }
+        }
+        
+        start = end;
+      }
+      
+      starts[total] = out;
+      index.classPostings = encode(ids, starts);
+      index.classStarts = starts;
+    }
+    
+    
+    /**
+     * Build the list of strings for each trigram.  The trigrams are
+     * counted in a hash table on a first pass, and the string IDs are
+     * placed in their slices on a second.  Strings are visited in ID
+     * order, so each slice is sorted as it is filled.
+     * 
+     * @param index the index to fill in
+     */
+    private void buildGramPostings(final StringIndex index)
+    {
+      // Count the strings holding each trigram
+      final int total = strings.size();
+      GramTable table = new GramTable(Math.max(1024, total));
+      for (int s = 0; s < total; ++s)
+      {
+        for (long key : getGrams(toLowerCase(strings.getName(s))))
+        {
+          table.increment(key);
+        }
+      }
+      
+      // Sort the trigrams, and find the start of each slice
+      final long[] keys = table.getKeys();
+      Arrays.sort(keys);
+      final int[] starts = new int[keys.length + 1];
+      for (int i = 0; i < keys.length; ++i)
+      {
+        starts[i + 1] = starts[i] + table.setRank(keys[i], i);
+      }
+      
+      // Fill in the slices
+      final int[] ids = new int[starts[keys.length]];
+      final int[] next = Arrays.copyOf(starts, keys.length);
+      for (int s = 0; s < total; ++s)
+      {
+        for (long key : getGrams(toLowerCase(strings.getName(s))))
+        {
+          ids[next[table.getRank(key)]++] = s;
+        }
+      }
+      
+      index.gramPostings = encode(ids, starts);
+      index.gramStarts = starts;
+      index.grams = keys;
+    }
+  }
+  
+  
+  /**
+   * An open-addressing hash table from a trigram to a count, and then
+   * to its rank in the sorted trigrams, so counting does not box keys.
+   */
+  private static final class GramTable
+  {
+    /**
+     * The marker for an empty slot.  No trigram has all bits set.
+     */
+    private static final long EMPTY = -1L;
+    
+    /**
+     * The trigram in each slot.
+     */
+    private long[] keys = null;
+    
+    /**
+     * The count, or rank, of the trigram in each slot.
+     */
+    private int[] values = null;
+    
+    /**
+     * The number of trigrams in the table.
+     */
+    private int size = 0;
+    
+    
+    /**
+     * Constructor.
+     * 
+     * @param nCapacity the expected number of trigrams
+     */
+    public GramTable(final int nCapacity)
+    {
+      final int slots = Integer.highestOneBit(nCapacity * 2 - 1) << 1;
+      keys = new long[slots];
+      values = new int[slots];
+      Arrays.fill(keys, EMPTY);
+    }
+    
+    
+    /**
+     * Add one to the count of a trigram.
+     * 
+     * @param key the trigram
+     */
+    public void increment(final long key)
+    {
+      if (size * 2 >= keys.length)
+      {
+        grow();
+      }
+      
+      final int slot = find(key);
+      if (keys[slot] == EMPTY)
+      {
+        keys[slot] = key;
+        ++size;
+      }
+      
+      ++values[slot];
+    }
+    
+    
+    /**
+     * Replace the count of a trigram with its rank.
+     * 
+     * @param key the trigram
+     * @param rank the rank of the trigram
+     * @return the count of the trigram
+     */
+    public int setRank(final long key, final int rank)
+    {
+      final int slot = find(key);
+      final int value = values[slot];
+      values[slot] = rank;
+      return value;
+    }
+    
+    
+    /**
+     * Return the rank of a trigram, once setRank has been called.
+     * 
+     * @param key the trigram
+     * @return the rank of the trigram
+     */
+    public int getRank(final long key)
+    {
+      return values[find(key)];
+    }
+    
+    
+    /**
+     * Return the trigrams in the table.
+     * 
+     * @return the trigrams, unsorted
+     */
+    public long[] getKeys()
+    {
+      final long[] out = new long[size];
+      int count = 0;
+      for (long key : keys)
+      {
+        if (key != EMPTY)
+        {
+          out[count++] = key;
+        }
+      }
+      
+      return out;
+    }
+    
+    
+    /**
+     * Return the slot holding a trigram, or the empty slot it would go in.
+     * 
+     * @param key the trigram
+     * @return the slot
+     */
+    private int find(final long key)
+    {
+      final int mask = keys.length - 1;
+      long hash = key * 0x9E3779B97F4A7C15L;
+      int slot = (int) (hash >>> 32) & mask;
+      while ((keys[slot] != EMPTY) && (keys[slot] != key))
+      {
+        slot = (slot + 1) & mask;
+      }
+      
+      return slot;
+    }
+    
+    
+    /**
+     * Double the number of slots.
+     */
+    private void grow()
+    {
+      final long[] oldKeys = keys;
+      final int[] oldValues = values;
+      keys = new long[oldKeys.length * 2];
+      values = new int[oldKeys.length * 2];
+      Arrays.fill(keys, EMPTY);
+      for (int i = 0; i < oldKeys.length; ++i)
+      {
+        if (oldKeys[i] != EMPTY)
+        {
+          final int slot = find(oldKeys[i]);
+          keys[slot] = oldKeys[i];
+          values[slot] = oldValues[i];
+        }
+      }
+    }
+  }
+}
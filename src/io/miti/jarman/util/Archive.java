@@ -0,0 +1,66 @@
+package io.miti.jarman.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
+import java.util.jar.JarEntry;
+
+/**
+ * An open archive (such as a jar file) whose entries can be looked
+ * up by name and read.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public interface Archive
+{
+  /**
+   * Return the file holding the archive.
+   * 
+   * @return the archive file
+   */
+  File getFile();
+  
+  /**
+   * Return the entries in the archive.
+   * 
+   * @return the entries
+   */
+  Enumeration<JarEntry> entries();
+  
+  /**
+   * Return the entry with the name.  The lookup does not walk the
+   * entries in the archive.
+   * 
+   * @param name the full path of the entry
+   * @return the entry, or null if not found
+   */
+  JarEntry getEntry(final String name);
+  
+  /**
+   * Return the entry with the name and CRC.  If an archive holds more
+   * than one entry with the name, the one with the CRC is returned.
+   * 
+   * @param name the full path of the entry
+   * @param crc the CRC of the entry
+   * @return the entry, or null if not found
+   */
+  JarEntry getEntry(final String name, final long crc);
+  
+  /**
+   * Return a stream for reading an entry.  The caller must close it.
+   * 
+   * @param entry the entry
+   * @return the input stream
+   * @throws IOException if the entry cannot be read
+   */
+  InputStream getInputStream(final JarEntry entry) throws IOException;
+  
+  /**
+   * Close the archive.
+   * 
+   * @throws IOException if the archive cannot be closed
+   */
+  void close() throws IOException;
+}
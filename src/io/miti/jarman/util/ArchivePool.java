@@ -0,0 +1,141 @@
+package io.miti.jarman.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A pool of open archives, so an archive is not opened again each time
+ * one of its entries is read.  The archives are keyed by path, and the
+ * least recently used archive is closed when too many are open.
+ * 
+ * Archives returned by the pool must not be closed by the caller, or
+ * kept after the pool is closed.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class ArchivePool
+{
+  /**
+   * The default maximum number of open archives.
+   */
+  private static final int MAX_OPEN = 8;
+  
+  /**
+   * The maximum number of open archives.
+   */
+  private int maxOpen = MAX_OPEN;
+  
+  /**
+   * The open archives, keyed by path, in order of use.
+   */
+  private Map<String, Archive> archives = null;
+  
+  
+  /**
+   * Default constructor.
+   */
+  public ArchivePool()
+  {
+    this(MAX_OPEN);
+  }
+  
+  
+  /**
+   * Constructor.
+   * 
+   * @param nMaxOpen the maximum number of open archives
+   */
+  public ArchivePool(final int nMaxOpen)
+  {
+    super();
+    maxOpen = Math.max(1, nMaxOpen);
+    archives = new LinkedHashMap<String, Archive>(16, 0.75f, true);
+  }
+  
+  
+  /**
+   * Return the open archive for the path, opening it if needed.
+   * 
+   * @param path the path of the archive
+   * @return the archive
+   * @throws IOException if the archive cannot be opened
+   */
+  public synchronized Archive getArchive(final String path) throws IOException
+  {
+    Archive archive = archives.get(path);
+    if (archive == null)
+    {
+      archive = open(new File(path));
+      archives.put(path, archive);
+      
+      // Close the least recently used archives
+      while (archives.size() > maxOpen)
+      {
+        final String eldest = archives.keySet().iterator().next();
+        close(archives.remove(eldest));
+      }
+    }
+    
+    return archive;
+  }
+  
+  
+  /**
+   * Open an archive.  A directory is opened as a directory of class
+   * files, and any other file as a jar.  The caller must close it.
+   * 
+   * @param file the archive file or directory
+   * @return the archive
+   * @throws IOException if the archive cannot be opened
+   */
+  public static Archive open(final File file) throws IOException
+  {
+    if (NestedArchive.isNested(file))
+    {
+      return new NestedArchive(file);
+    }
+    else if (file.isDirectory())
+    {
+      return new DirArchive(file);
+    }
+    
+    return new JarArchive(file);
+  }
+  
+  
+  /**
+   * Close all open archives.
+   */
+  public synchronized void close()
+  {
+    List<Archive> list = new ArrayList<Archive>(archives.values());
+    archives.clear();
+    for (Archive archive : list)
+    {
+      close(archive);
+    }
+  }
+  
+  
+  /**
+   * Close an archive.
+   * 
+   * @param archive the archive
+   */
+  private static void close(final Archive archive)
+  {
+    try
+    {
+      archive.close();
+    }
+    catch (IOException e)
+    {
+      e.printStackTrace();
+    }
+  }
+}
@@ -0,0 +1,1154 @@
+package io.miti.jarman.util;
+
+import io.miti.jarman.data.EntryStore;
+import io.miti.jarman.index.ClassNamePool;
+import io.miti.jarman.index.IdList;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An index of the classes in the jars of a local Maven repository, to
+ * answer "which artifact holds this class".  The index is saved to a
+ * binary file, which is read into memory and searched in place; nothing
+ * but the list of artifacts is decoded when it is loaded.  The file is
+ * not mapped, since an update replaces it while the old index is still
+ * in use, and a mapped file cannot be replaced on Windows.
+ * 
+ * The class names are sorted and front-coded in blocks of 16: the
+ * first name of a block is stored in full, and each other name as the
+ * length of the prefix it shares with the name before it, and the rest
+ * of the name.  A lookup does a binary search on the first names of the
+ * blocks, and then reads one block.  Each name is followed by the IDs
+ * of the artifacts holding it, as variable-length deltas.
+ * 
+ * The repository is walked in parallel, and each jar's central
+ * directory is read with ZipDirectory, as when a jar is opened.  When
+ * the index is updated, the classes of a jar whose length and
+ * last-modified time are unchanged are taken from the old index, so
+ * only new and changed jars are read.
+ * 
+ * The index is disabled until a file is set with setFile().
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class ArtifactIndex
+{
+  /**
+   * The one instance of this class.
+   */
+  private static final ArtifactIndex index = new ArtifactIndex();
+  
+  /**
+   * The marker at the start of the index file ("JMAI").
+   */
+  private static final int MAGIC = 0x4A4D4149;
+  
+  /**
+   * The version of the index file format.
+   */
+  private static final int VERSION = 1;
+  
+  /**
+   * The number of names in each front-coded block.
+   */
+  private static final int BLOCK_SIZE = 16;
+  
+  /**
+   * The size of the trailer at the end of the file: the position of
+   * the blocks, the position of the block table, and the block count.
+   */
+  private static final int TRAILER_SIZE = 20;
+  
+  /**
+   * The prefix of the classes for later Java versions in a
+   * multi-release jar.
+   */
+  private static final String VERSIONS_DIR = "META-INF/versions/";
+  
+  /**
+   * The character set of the class names.
+   */
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  
+  /**
+   * The index file, or null if the index is disabled.
+   */
+  private File file = null;
+  
+  /**
+   * The repository directory.
+   */
+  private File repository = null;
+  
+  /**
+   * Whether the index file has been read.
+   */
+  private boolean loaded = false;
+  
+  /**
+   * The artifacts in the index, indexed by ID.
+   */
+  private List<Artifact> artifacts = new ArrayList<Artifact>(0);
+  
+  /**
+   * The number of class names in the index.
+   */
+  private int nameCount = 0;
+  
+  /**
+   * The blocks of names, or null if the index is empty.
+   */
+  private ByteBuffer blocks = null;
+  
+  /**
+   * The position of each block in the blocks buffer.
+   */
+  private int[] blockStarts = new int[0];
+  
+  
+  /**
+   * Default constructor.
+   */
+  private ArtifactIndex()
+  {
+    super();
+    repository = getDefaultRepository();
+  }
+  
+  
+  /**
+   * Return the one instance of this class.
+   * 
+   * @return the one instance of this class
+   */
+  public static ArtifactIndex getInstance()
+  {
+    return index;
+  }
+  
+  
+  /**
+   * Return the local repository Maven uses by default: the one set
+   * with maven.repo.local, or else .m2/repository in the home directory.
+   * 
+   * @return the repository directory
+   */
+  public static File getDefaultRepository()
+  {
+    final String local = System.getProperty("maven.repo.local");
+    if ((local != null) && (local.length() > 0))
+    {
+      return new File(local);
+    }
+    
+    return new File(new File(System.getProperty("user.home"), ".m2"), "repository");
+  }
+  
+  
+  /**
+   * Set the index file.  This enables the index.
+   * 
+   * @param indexFile the index file, or null to disable the index
+   */
+  public synchronized void setFile(final File indexFile)
+  {
+    file = indexFile;
+    loaded = false;
+  }
+  
+  
+  /**
+   * Set the repository directory to index.
+   * 
+   * @param dir the repository directory
+   */
+  public synchronized void setRepository(final File dir)
+  {
+    repository = dir;
+  }
+  
+  
+  /**
+   * Return the repository directory.
+   * 
+   * @return the repository directory
+   */
+  public synchronized File getRepository()
+  {
+    return repository;
+  }
+  
+  
+  /**
+   * Return whether the index holds any classes, reading the index
+   * file the first time.
+   * 
+   * @return whether there is an index to search
+   */
+  public synchronized boolean isAvailable()
+  {
+    return (isEnabled() && (nameCount > 0));
+  }
+  
+  
+  /**
+   * Return the number of artifacts in the index.
+   * 
+   * @return the number of artifacts
+   */
+  public synchronized int getArtifactCount()
+  {
+    return isEnabled() ? artifacts.size() : 0;
+  }
+  
+  
+  /**
+   * Return the number of distinct class names in the index.
+   * 
+   * @return the number of class names
+   */
+  public synchronized int getClassCount()
+  {
+    return isEnabled() ? nameCount : 0;
+  }
+  
+  
+  /**
+   * Return the artifacts holding a class.
+   * 
+   * @param className the class name, with '/' between the packages
+   * @return the artifacts holding the class, or an empty list
+   */
+  public synchronized List<Artifact> find(final String className)
+  {
+    List<Artifact> result = new ArrayList<Artifact>(0);
+    if (!isEnabled() || (nameCount == 0) || (className == null))
+    {
+      return result;
+    }
+    
+    // Find the last block whose first name is not after the name
+    int lo = 0;
+    int hi = blockStarts.length - 1;
+    while (lo < hi)
+    {
+      final int mid = (lo + hi + 1) >>> 1;
+      if (readFirstName(mid).compareTo(className) <= 0)
+      {
+        lo = mid;
+      }
+      else
+      {
+        hi = mid - 1;
+      }
+    }
+    
+    // Read the names in the block
+    final ByteBuffer buf = blocks.duplicate();
+    buf.position(blockStarts[lo]);
+    final int count = Math.min(BLOCK_SIZE, nameCount - (lo * BLOCK_SIZE));
+    byte[] name = new byte[64];
+    int nameLen = 0;
+    for (int i = 0; i < count; ++i)
+    {
+      final int shared = readVarInt(buf);
+      final int suffix = readVarInt(buf);
+      nameLen = shared + suffix;
+      if (nameLen > name.length)
+      {
+        name = Arrays.copyOf(name, nameLen * 2);
+      }
+      
+      buf.get(name, shared, suffix);
+      final int cmp = new String(name, 0, nameLen, UTF8).compareTo(className);
+      final int postings = readVarInt(buf);
+      if (cmp == 0)
+      {
+        int id = 0;
+        for (int j = 0; j < postings; ++j)
+        {
+          id += readVarInt(buf);
+          result.add(artifacts.get(id));
+        }
+        
+        break;
+      }
+      else if (cmp > 0)
+      {
+        break;
+      }
+      
+      skipVarInts(buf, postings);
+    }
+    
+    return result;
+  }
+  
+  
+  /**
+   * Read the first name of a block.
+   * 
+   * @param block the index of the block
+   * @return the name
+   */
+  private String readFirstName(final int block)
+  {
+    final ByteBuffer buf = blocks.duplicate();
+    buf.position(blockStarts[block]);
+    readVarInt(buf);
+    final byte[] name = new byte[readVarInt(buf)];
+    buf.get(name);
+    return new String(name, UTF8);
+  }
+  
+  
+  /**
+   * Walk the repository, and rebuild the index file.  Jars that are
+   * unchanged since the last update are not read again.
+   * 
+   * @param threads the number of worker threads
+   * @param listener the listener for progress, or null
+   * @return whether the index was updated; false if the repository is
+   *         not a directory, the update was cancelled or the file
+   *         could not be written
+   */
+  public boolean update(final int threads, final ClassScanner.ScanListener listener)
+  {
+    final File repo;
+    final File indexFile;
+    synchronized (this)
+    {
+      repo = repository;
+      indexFile = file;
+    }
+    
+    if ((indexFile == null) || (repo == null) || !repo.isDirectory())
+    {
+      return false;
+    }
+    
+    // Find the jars, skipping the source and javadoc jars
+    final List<File> jars = new ArrayList<File>(1024);
+    for (File jar : new ClassPathFinder(threads).find(repo))
+    {
+      if (isClassJar(jar))
+      {
+        jars.add(jar);
+      }
+    }
+    
+    // Take the classes of the unchanged jars from the old index
+    final ClassNamePool pool = new ClassNamePool(65536);
+    final List<Artifact> list = new ArrayList<Artifact>(jars.size());
+    final List<int[]> classes = new ArrayList<int[]>(jars.size());
+    final Map<String, int[]> unchanged = readUnchanged(jars, pool);
+    final List<Integer> changed = new ArrayList<Integer>(64);
+    final String root = repo.getAbsolutePath();
+    for (File jar : jars)
+    {
+      final String path = jar.getAbsolutePath();
+      list.add(new Artifact(path, jar.length(), jar.lastModified(),
+                            getCoordinate(root, path)));
+      final int[] ids = unchanged.get(path);
+      if (ids == null)
+      {
+        changed.add(Integer.valueOf(classes.size()));
+      }
+      
+      classes.add(ids);
+    }
+    
+    // Read the new and changed jars
+    if (!readJars(jars, changed, classes, pool, threads, listener))
+    {
+      return false;
+    }
+    
+    // Write the index, and load the new file the next time it is used
+    if (!write(indexFile, repo, list, classes, pool))
+    {
+      return false;
+    }
+    
+    synchronized (this)
+    {
+      if (indexFile.equals(file))
+      {
+        loaded = false;
+      }
+    }
+    
+    return true;
+  }
+  
+  
+  /**
+   * Return whether a jar holds classes, rather than sources or docs.
+   * 
+   * @param jar the file
+   * @return whether it is a jar of classes
+   */
+  private static boolean isClassJar(final File jar)
+  {
+    final String name = jar.getName().toLowerCase(Locale.ENGLISH);
+    return (name.endsWith(".jar") && !name.endsWith("-sources.jar") &&
+            !name.endsWith("-javadoc.jar"));
+  }
+  
+  
+  /**
+   * Return the Maven coordinate of a jar, from its path in the
+   * repository: group/artifact/version/artifact-version[-classifier].jar.
+   * 
+   * @param root the path of the repository
+   * @param path the path of the jar
+   * @return the coordinate, or the relative path if the jar is not
+   *         in the repository layout
+   */
+  public static String getCoordinate(final String root, final String path)
+  {
+    String rel = path.startsWith(root) ? path.substring(root.length()) : path;
+    rel = rel.replace(File.separatorChar, '/');
+    if (rel.startsWith("/"))
+    {
+      rel = rel.substring(1);
+    }
+    
+    final String[] parts = rel.split("/");
+    final int n = parts.length;
+    if (n < 4)
+    {
+      return rel;
+    }
+    
+    final String artifact = parts[n - 3];
+    final String version = parts[n - 2];
+    final String prefix = artifact + "-" + version;
+    String name = parts[n - 1];
+    name = name.substring(0, name.length() - 4);
+    if (!name.startsWith(prefix))
+    {
+      return rel;
+    }
+    
+    StringBuilder sb = new StringBuilder(rel.length());
+    for (int i = 0; i < (n - 3); ++i)
+    {
+      if (i > 0)
+      {
+        sb.append('.');
+      }
+      
+      sb.append(parts[i]);
+    }
+    
+    sb.append(':').append(artifact).append(':').append(version);
+    if (name.length() > (prefix.length() + 1))
+    {
+      sb.append(':').append(name.substring(prefix.length() + 1));
+    }
+    
+    return sb.toString();
+  }
+  
+  
+  /**
+   * Read the classes of the jars in the old index that are unchanged.
+   * 
+   * @param jars the jars in the repository
+   * @param pool the pool for the class names
+   * @return the IDs of the classes in each unchanged jar, by path
+   */
+  private Map<String, int[]> readUnchanged(final List<File> jars,
+                                           final ClassNamePool pool)
+  {
+    final Map<String, int[]> result = new HashMap<String, int[]>(jars.size() * 2);
+    synchronized (this)
+    {
+      if (!isEnabled() || (nameCount == 0))
+      {
+        return result;
+      }
+      
+      // Find the old artifacts that can be kept
+      Map<String, File> current = new HashMap<String, File>(jars.size() * 2);
+      for (File jar : jars)
+      {
+        current.put(jar.getAbsolutePath(), jar);
+      }
+      
+      final int count = artifacts.size();
+      final boolean[] keep = new boolean[count];
+      final IdList[] lists = new IdList[count];
+      for (int i = 0; i < count; ++i)
+      {
+        final Artifact old = artifacts.get(i);
+        final File jar = current.get(old.path);
+        keep[i] = (jar != null) && (jar.length() == old.length) &&
+                  (jar.lastModified() == old.modified);
+        lists[i] = keep[i] ? new IdList(64) : null;
+      }
+      
+      // Walk all of the names, and give each to the jars holding it
+      final ByteBuffer buf = blocks.duplicate();
+      buf.position(0);
+      byte[] name = new byte[64];
+      for (int i = 0; i < nameCount; ++i)
+      {
+        final int shared = readVarInt(buf);
+        final int suffix = readVarInt(buf);
+        if ((shared + suffix) > name.length)
+        {
+          name = Arrays.copyOf(name, (shared + suffix) * 2);
+        }
+        
+        buf.get(name, shared, suffix);
+        int nameId = ClassNamePool.NOT_FOUND;
+        final int postings = readVarInt(buf);
+        int id = 0;
+        for (int j = 0; j < postings; ++j)
+        {
+          id += readVarInt(buf);
+          if (keep[id])
+          {
+            if (nameId == ClassNamePool.NOT_FOUND)
+            {
+              nameId = pool.intern(new String(name, 0, shared + suffix, UTF8));
+            }
+            
+            lists[id].add(nameId);
+          }
+        }
+      }
+      
+      for (int i = 0; i < count; ++i)
+      {
+        if (keep[i])
+        {
+          result.put(artifacts.get(i).path, lists[i].toArray());
+        }
+      }
+    }
+    
+    return result;
+  }
+  
+  
+  /**
+   * Read the classes of the new and changed jars, on a pool of worker
+   * threads.
+   * 
+   * @param jars the jars in the repository
+   * @param changed the indexes of the jars to read
+   * @param classes the class IDs of each jar, filled in by this
+   * @param pool the pool for the class names
+   * @param threads the number of worker threads
+   * @param listener the listener for progress, or null
+   * @return whether all of the jars were read, and not cancelled
+   */
+  private static boolean readJars(final List<File> jars, final List<Integer> changed,
+                                  final List<int[]> classes,
+                                  final ClassNamePool pool, final int threads,
+                                  final ClassScanner.ScanListener listener)
+  {
+    final int total = changed.size();
+    final AtomicInteger done = new AtomicInteger(0);
+    ExecutorService exec = Executors.newFixedThreadPool(Math.max(1, threads));
+    try
+    {
+      List<Future<int[]>> results = new ArrayList<Future<int[]>>(total);
+      for (Integer index : changed)
+      {
+        final File jar = jars.get(index.intValue());
+        results.add(exec.submit(new Callable<int[]>()
+        {
+          @Override
+          public int[] call()
+          {
+            if ((listener != null) && listener.isCancelled())
+            {
+              return null;
+            }
+            
+            final int[] ids = readClasses(jar, pool);
+            if (listener != null)
+            {
+              listener.jarScanned(jar, done.incrementAndGet(), total);
+            }
+            
+            return ids;
+          }
+        }));
+      }
+      
+      for (int i = 0; i < total; ++i)
+      {
+        int[] ids = null;
+        try
+        {
+          ids = results.get(i).get();
+        }
+        catch (InterruptedException e)
+        {
+          Thread.currentThread().interrupt();
+          return false;
+        }
+        catch (ExecutionException e)
+        {
+          e.printStackTrace();
+        }
+        
+        classes.set(changed.get(i).intValue(), (ids == null) ? new int[0] : ids);
+      }
+    }
+    finally
+    {
+      exec.shutdownNow();
+    }
+    
+    return ((listener == null) || !listener.isCancelled());
+  }
+  
+  
+  /**
+   * Read the names of the classes in a jar from its central directory.
+   * 
+   * @param jar the jar
+   * @param pool the pool for the class names
+   * @return the IDs of the classes, or an empty array if the jar
+   *         cannot be read
+   */
+  private static int[] readClasses(final File jar, final ClassNamePool pool)
+  {
+    IdList ids = new IdList(256);
+    try
+    {
+      ZipDirectory dir = new ZipDirectory(jar);
+      while (dir.next())
+      {
+        final String path = dir.getName();
+        if (!path.endsWith(".class") || path.endsWith("module-info.class"))
+        {
+          continue;
+        }
+        
+        // Classes for later Java versions are listed under their own name
+        String name = EntryStore.getClassName(path);
+        if (name.startsWith(VERSIONS_DIR))
+        {
+          final int slash = name.indexOf('/', VERSIONS_DIR.length());
+          if (slash < 0)
+          {
+            continue;
+          }
+          
+          name = name.substring(slash + 1);
+        }
+        
+        ids.add(pool.intern(name));
+      }
+    }
+    catch (IOException e)
+    {
+      Logger.warn("Unable to index " + jar.getPath() + ": " + e.getMessage());
+    }
+    
+    return ids.toArray();
+  }
+  
+  
+  /**
+   * Write the index file.  The file is written to a temporary file
+   * first, and then renamed.
+   * 
+   * @param indexFile the index file
+   * @param repo the repository directory
+   * @param list the artifacts
+   * @param classes the class IDs of each artifact
+   * @param pool the class names
+   * @return whether the file was written
+   */
+  private static boolean write(final File indexFile, final File repo,
+                               final List<Artifact> list,
+                               final List<int[]> classes,
+                               final ClassNamePool pool)
+  {
+    // Build the list of artifacts holding each class; the artifacts
+    // are added in order, so each list is sorted
+    final int names = pool.size();
+    final int[] counts = new int[names + 1];
+    for (int[] ids : classes)
+    {
+      for (int id : ids)
+      {
+        ++counts[id + 1];
+      }
+    }
+    
+    for (int i = 0; i < names; ++i)
+    {
+      counts[i + 1] += counts[i];
+    }
+    
+    final int[] postings = new int[counts[names]];
+    final int[] fill = Arrays.copyOf(counts, names);
+    for (int a = 0; a < classes.size(); ++a)
+    {
+      for (int id : classes.get(a))
+      {
+        // A jar can list a class twice; keep one posting
+        final int pos = fill[id];
+        if ((pos == counts[id]) || (postings[pos - 1] != a))
+        {
+          postings[pos] = a;
+          fill[id] = pos + 1;
+        }
+      }
+    }
+    
+    // Sort the names
+    final String[] sorted = new String[names];
+    for (int i = 0; i < names; ++i)
+    {
+      sorted[i] = pool.getName(i);
+    }
+    
+    Arrays.sort(sorted);
+    
+    File temp = new File(indexFile.getPath() + ".tmp");
+    CountingStream counter = null;
+    DataOutputStream out = null;
+    boolean written = false;
+    try
+    {
+      counter = new CountingStream(new FileOutputStream(temp));
+      out = new DataOutputStream(new BufferedOutputStream(counter, 65536));
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeUTF(repo.getAbsolutePath());
+      out.writeInt(list.size());
+      for (Artifact artifact : list)
+      {
+        out.writeUTF(artifact.path);
+        out.writeLong(artifact.length);
+        out.writeLong(artifact.modified);
+        out.writeUTF(artifact.coordinate);
+      }
+      
+      out.writeInt(names);
+      out.flush();
+      
+      // Write the blocks of names, saving where each block starts
+      final long dataStart = counter.count;
+      final int[] starts = new int[(names + BLOCK_SIZE - 1) / BLOCK_SIZE];
+      byte[] prev = new byte[0];
+      for (int i = 0; i < names; ++i)
+      {
+        final byte[] name = sorted[i].getBytes(UTF8);
+        int shared = 0;
+        if ((i % BLOCK_SIZE) == 0)
+        {
+          out.flush();
+          starts[i / BLOCK_SIZE] = (int) (counter.count - dataStart);
+        }
+        else
+        {
+          final int max = Math.min(name.length, prev.length);
+          while ((shared < max) && (name[shared] == prev[shared]))
+          {
+            ++shared;
+          }
+        }
+        
+        writeVarInt(out, shared);
+        writeVarInt(out, name.length - shared);
+        out.write(name, shared, name.length - shared);
+        
+        // Write the artifact IDs as deltas
+        final int id = pool.getId(sorted[i]);
+        writeVarInt(out, fill[id] - counts[id]);
+        int last = 0;
+        for (int p = counts[id]; p < fill[id]; ++p)
+        {
+          writeVarInt(out, postings[p] - last);
+          last = postings[p];
+        }
+        
+        prev = name;
+      }
+      
+      // Write the block table and the trailer
+      out.flush();
+      final long tablePos = counter.count;
+      for (int start : starts)
+      {
+        out.writeInt(start);
+      }
+      
+      out.writeLong(dataStart);
+      out.writeLong(tablePos);
+      out.writeInt(starts.length);
+      out.close();
+      out = null;
+      written = true;
+    }
+    catch (IOException e)
+    {
+      e.printStackTrace();
+    }
+    finally
+    {
+      if (out != null)
+      {
+        try
+        {
+          out.close();
+        }
+        catch (IOException e)
+        {
+          e.printStackTrace();
+        }
+      }
+    }
+    
+    if (!written)
+    {
+      temp.delete();
+      return false;
+    }
+    
+    // Replace the old file
+    if (!temp.renameTo(indexFile))
+    {
+      indexFile.delete();
+      if (!temp.renameTo(indexFile))
+      {
+        temp.delete();
+        return false;
+      }
+    }
+    
+    return true;
+  }
+  
+  
+  /**
+   * Return whether the index is enabled, reading the index file
+   * the first time.
+   * 
+   * @return whether the index is enabled
+   */
+  private boolean isEnabled()
+  {
+    if (file == null)
+    {
+      return false;
+    }
+    else if (!loaded)
+    {
+      loaded = true;
+      load();
+    }
+    
+    return true;
+  }
+  
+  
+  /**
+   * Read the index file, and decode the list of artifacts.  If the
+   * file is missing or invalid, the index is empty.
+   */
+  private void load()
+  {
+    artifacts = new ArrayList<Artifact>(0);
+    nameCount = 0;
+    blocks = null;
+    blockStarts = new int[0];
+    if (!file.isFile())
+    {
+      return;
+    }
+    
+    try
+    {
+      ByteBuffer buf = Utility.readFile(file);
+      DataInputStream in = new DataInputStream(new BufferInputStream(buf));
+      if ((in.readInt() != MAGIC) || (in.readInt() != VERSION))
+      {
+        return;
+      }
+      
+      in.readUTF();
+      final int count = in.readInt();
+      List<Artifact> list = new ArrayList<Artifact>(count);
+      for (int i = 0; i < count; ++i)
+      {
+        final String path = in.readUTF();
+        final long length = in.readLong();
+        final long modified = in.readLong();
+        list.add(new Artifact(path, length, modified, in.readUTF()));
+      }
+      
+      final int names = in.readInt();
+      
+      // Read the trailer, and the table of blocks
+      final int end = buf.limit();
+      final int dataStart = (int) buf.getLong(end - TRAILER_SIZE);
+      final int tablePos = (int) buf.getLong(end - TRAILER_SIZE + 8);
+      final int blockCount = buf.getInt(end - 4);
+      final int[] starts = new int[blockCount];
+      for (int i = 0; i < blockCount; ++i)
+      {
+        starts[i] = buf.getInt(tablePos + (i * 4));
+      }
+      
+      buf.position(dataStart);
+      buf.limit(tablePos);
+      blocks = buf.slice();
+      blockStarts = starts;
+      artifacts = list;
+      nameCount = names;
+    }
+    catch (IOException e)
+    {
+      blocks = null;
+    }
+    catch (RuntimeException e)
+    {
+      // The file is truncated or corrupt
+      blocks = null;
+    }
+  }
+  
+  
+  /**
+   * Write an unsigned value in 7-bit groups, low group first.
+   * 
+   * @param out the output stream
+   * @param value the value, not negative
+   * @throws IOException if the value cannot be written
+   */
+  private static void writeVarInt(final DataOutputStream out, final int value)
+    throws IOException
+  {
+    int v = value;
+    while ((v & ~0x7F) != 0)
+    {
+      out.write((v & 0x7F) | 0x80);
+      v >>>= 7;
+    }
+    
+    out.write(v);
+  }
+  
+  
+  /**
+   * Read a value written by writeVarInt.
+   * 
+   * @param buf the buffer
+   * @return the value
+   */
+  private static int readVarInt(final ByteBuffer buf)
+  {
+    int value = 0;
+    int shift = 0;
+    int b;
+    do
+    {
+      b = buf.get();
+      value |= (b & 0x7F) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    
+    return value;
+  }
+  
+  
+  /**
+   * Skip values written by writeVarInt.
+   * 
+   * @param buf the buffer
+   * @param count the number of values
+   */
+  private static void skipVarInts(final ByteBuffer buf, final int count)
+  {
+    for (int i = 0; i < count; ++i)
+    {
+      while ((buf.get() & 0x80) != 0)
+      {
+        // Skip the rest of the value
+      }
+    }
+  }
+  
+  
+  /**
+   * An output stream that counts the bytes written to it.
+   */
+  private static final class CountingStream extends OutputStream
+  {
+    /**
+     * The output stream.
+     */
+    private final OutputStream out;
+    
+    /**
+     * The number of bytes written.
+     */
+    private long count = 0L;
+    
+    
+    /**
+     * Constructor.
+     * 
+     * @param pOut the output stream
+     */
+    public CountingStream(final OutputStream pOut)
+    {
+      out = pOut;
+    }
+    
+    
+    /**
+     * Write a byte.
+     * 
+     * @param b the byte
+     * @throws IOException if the byte cannot be written
+     */
+    @Override
+    public void write(final int b) throws IOException
+    {
+      out.write(b);
+      ++count;
+    }
+    
+    
+    /**
+     * Write bytes from an array.
+     * 
+     * @param b the array
+     * @param off the position of the first byte
+     * @param len the number of bytes
+     * @throws IOException if the bytes cannot be written
+     */
+    @Override
+    public void write(final byte[] b, final int off, final int len)
+      throws IOException
+    {
+      out.write(b, off, len);
+      count += len;
+    }
+    
+    
+    /**
+     * Close the stream.
+     * 
+     * @throws IOException if the stream cannot be closed
+     */
+    @Override
+    public void close() throws IOException
+    {
+      out.close();
+    }
+  }
+  
+  
+  /**
+   * A jar in the repository.
+   */
+  public static final class Artifact
+  {
+    /**
+     * The absolute path of the jar.
+     */
+    private final String path;
+    
+    /**
+     * The length of the jar file.
+     */
+    private final long length;
+    
+    /**
+     * The last-modified time of the jar file.
+     */
+    private final long modified;
+    
+    /**
+     * The Maven coordinate (group:artifact:version[:classifier]).
+     */
+    private final String coordinate;
+    
+    
+    /**
+     * Constructor.
+     * 
+     * @param sPath the absolute path of the jar
+     * @param lLength the length of the jar file
+     * @param lModified the last-modified time of the jar file
+     * @param sCoordinate the Maven coordinate
+     */
+    public Artifact(final String sPath, final long lLength,
+                    final long lModified, final String sCoordinate)
+    {
+      path = sPath;
+      length = lLength;
+      modified = lModified;
+      coordinate = sCoordinate;
+    }
+    
+    
+    /**
+     * Return the jar file.
+     * 
+     * @return the jar file
+     */
+    public File getFile()
+    {
+      return new File(path);
+    }
+    
+    
+    /**
+     * Return the Maven coordinate.
+     * 
+     * @return the coordinate
+     */
+    public String getCoordinate()
+    {
+      return coordinate;
+    }
+    
+    
+    /**
+     * Return the coordinate, for lists.
+     * 
+     * @return the coordinate
+     */
+    @Override
+    public String toString()
+    {
+      return coordinate;
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package io.miti.jarman.util;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An input stream over the bytes of a buffer, from its position to its
+ * limit.  The buffer is read in place, so a mapped section of a file
+ * can be read as a stream without being copied.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class BufferInputStream extends InputStream
+{
+  /**
+   * The buffer.
+   */
+  private ByteBuffer buf = null;
+  
+  
+  /**
+   * Constructor.  The stream reads a view of the buffer, so the
+   * buffer's position is not changed.
+   * 
+   * @param buffer the buffer
+   */
+  public BufferInputStream(final ByteBuffer buffer)
+  {
+    super();
+    buf = buffer.slice();
+  }
+  
+  
+  /**
+   * Read the next byte.
+   * 
+   * @return the byte, or -1 at the end of the buffer
+   */
+  @Override
+  public int read()
+  {
+    return buf.hasRemaining() ? (buf.get() & 0xFF) : -1;
+  }
+  
+  
+  /**
+   * Read bytes into an array.
+   * 
+   * @param b the array
+   * @param off the position in the array of the first byte
+   * @param len the maximum number of bytes to read
+   * @return the number of bytes read, or -1 at the end of the buffer
+   */
+  @Override
+  public int read(final byte[] b, final int off, final int len)
+  {
+    if (len == 0)
+    {
+      return 0;
+    }
+    else if (!buf.hasRemaining())
+    {
+      return -1;
+    }
+    
+    final int n = Math.min(len, buf.remaining());
+    buf.get(b, off, n);
+    return n;
+  }
+  
+  
+  /**
+   * Skip bytes.
+   * 
+   * @param n the number of bytes to skip
+   * @return the number of bytes skipped
+   */
+  @Override
+  public long skip(final long n)
+  {
+    final int count = (int) Math.max(0L, Math.min(n, buf.remaining()));
+    buf.position(buf.position() + count);
+    return count;
+  }
+  
+  
+  /**
+   * Return the number of bytes left in the buffer.
+   * 
+   * @return the number of bytes left
+   */
+  @Override
+  public int available()
+  {
+    return buf.remaining();
+  }
+}
@@ -1,16 +1,13 @@
 package io.miti.jarman.util;
 
-import java.io.BufferedInputStream;
-import java.io.DataInputStream;
+import io.miti.jarman.classref.ClassReader;
+
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
-
-import io.miti.jarman.util.ClassStreamParser2;
 
 /**
  * Parse a .class file and return the list of referenced Java classes.
@@ -20,6 +17,12 @@ import io.miti.jarman.util.ClassStreamParser2;
  */
 public final class ClassParser
 {
+  /**
+   * The reader for the class bytes.
+   */
+  private ClassReader reader = new ClassReader();
+  
+  
   /**
    * Default constructor.
    */
@@ -74,9 +77,8 @@ public final class ClassParser
     List<String> names = new ArrayList<String>(20);
     try
     {
-      BufferedInputStream bis = new BufferedInputStream(new FileInputStream(file));
-      DataInputStream stream = new DataInputStream(bis);
-      new ClassStreamParser2().parseStream(stream, names);
+      reader.read(file);
+      reader.getReferences(names);
     }
     catch (IOException e)
     {
@@ -91,11 +93,11 @@ public final class ClassParser
   /**
    * Generate the list of referenced class names.
    * 
-   * @param file the jar file
+   * @param file the archive
    * @param entry the jar file entry
    * @return the list of referenced class names
    */
-  public List<String> getReferences(final JarFile file, final JarEntry entry)
+  public List<String> getReferences(final Archive file, final JarEntry entry)
   {
     // Check the input
     if (entry == null)
@@ -119,16 +121,31 @@ public final class ClassParser
     }
     
     List<String> names = new ArrayList<String>(20);
+    InputStream in = null;
     try
     {
-      BufferedInputStream bis = new BufferedInputStream(file.getInputStream(entry));
-      DataInputStream stream = new DataInputStream(bis);
-      new ClassStreamParser2().parseStream(stream, names);
+      in = file.getInputStream(entry);
+      reader.read(in, entry.getSize());
+      reader.getReferences(names);
     }
     catch (IOException e)
     {
       e.printStackTrace();
     }
+    finally
+    {
+      if (in != null)
+      {
+        try
+        {
+          in.close();
+        }
+        catch (IOException e)
+        {
+          e.printStackTrace();
+        }
+      }
+    }
     
     // Return the referenced class names
     return names;
@@ -0,0 +1,408 @@
+package io.miti.jarman.util;
+
+import io.miti.jarman.classref.ClassReader;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Find the archives and class directories in a directory tree, or in
+ * a class path string.  The tree is walked on a fork/join pool, with a
+ * task for each directory, so a lib folder holding thousands of jars
+ * is listed quickly.  No archive is opened by the walk.
+ * 
+ * A class directory (such as target/classes) is found when the walk
+ * reaches a class file: the class name is read from its header, and
+ * the root of the package tree is the path of the file with the class
+ * name taken off.  The subdirectories of a class directory are not
+ * walked, and nothing below its top folder is listed, however the
+ * walk's tasks are ordered; the archives in its top folder are listed.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class ClassPathFinder
+{
+  /**
+   * The extensions of the archive files.
+   */
+  private static final String[] ARCHIVES = {".jar", ".war", ".ear", ".zip"};
+  
+  /**
+   * The maximum number of worker threads.
+   */
+  private int poolSize = 1;
+  
+  
+  /**
+   * Constructor.
+   * 
+   * @param nPoolSize the maximum number of worker threads
+   */
+  public ClassPathFinder(final int nPoolSize)
+  {
+    super();
+    poolSize = Math.max(1, nPoolSize);
+  }
+  
+  
+  /**
+   * Return whether a file name has the extension of an archive that
+   * can hold classes (jar, war, ear or zip).
+   * 
+   * @param file the file
+   * @return whether the file is an archive
+   */
+  public static boolean isArchive(final File file)
+  {
+    final String name = file.getName().toLowerCase(Locale.ENGLISH);
+    for (String ext : ARCHIVES)
+    {
+      if (name.endsWith(ext))
+      {
+        return true;
+      }
+    }
+    
+    return false;
+  }
+  
+  
+  /**
+   * Split a class path string into its files, in order.  The entries
+   * are separated by the path separator of the platform.  As with the
+   * java launcher, an entry ending in "*" means all of the jars in that
+   * directory, in name order.  Blank entries and repeated entries are
+   * skipped.
+   * 
+   * @param path the class path
+   * @return the jars and directories in the class path
+   */
+  public static List<File> parseClassPath(final String path)
+  {
+    List<File> files = new ArrayList<File>(20);
+    StringTokenizer st = new StringTokenizer(path, File.pathSeparator);
+    while (st.hasMoreTokens())
+    {
+      final String token = st.nextToken().trim();
+      if (token.isEmpty())
+      {
+        continue;
+      }
+      else if (!token.equals("*") && !token.endsWith(File.separator + "*") &&
+               !token.endsWith("/*"))
+      {
+        addFile(files, new File(token));
+        continue;
+      }
+      
+      // Add the jars in the directory
+      final String name = token.substring(0, token.length() - 1);
+      final File dir = new File(name.isEmpty() ? "." : name);
+      final File[] list = dir.listFiles();
+      if (list == null)
+      {
+        continue;
+      }
+      
+      Arrays.sort(list);
+      for (File file : list)
+      {
+        if (file.isFile() && file.getName().toLowerCase(Locale.ENGLISH).endsWith(".jar"))
+        {
+          addFile(files, file);
+        }
+      }
+    }
+    
+    return files;
+  }
+  
+  
+  /**
+   * Add a file to a list, if it is not already there.
+   * 
+   * @param files the list of files
+   * @param file the file to add
+   */
+  private static void addFile(final List<File> files, final File file)
+  {
+    final File abs = file.getAbsoluteFile();
+    if (!files.contains(abs))
+    {
+      files.add(abs);
+    }
+  }
+  
+  
+  /**
+   * Walk a directory tree, and return the archives and class
+   * directories found in it, sorted by path.  If the directory is
+   * itself a class directory, it is returned with the archives in it.
+   * 
+   * @param root the directory
+   * @return the archives and class directories
+   */
+  public List<File> find(final File root)
+  {
+    final Context ctx = new Context();
+    ForkJoinPool pool = new ForkJoinPool(poolSize);
+    try
+    {
+      pool.invoke(new WalkTask(ctx, root.getAbsoluteFile()));
+    }
+    finally
+    {
+      pool.shutdownNow();
+    }
+    
+    // Drop what another task found inside a class directory before
+    // that directory was known
+    List<File> files = new ArrayList<File>(ctx.found.size());
+    for (File file : ctx.found)
+    {
+      final File dir = file.getParentFile();
+      if (ctx.roots.contains(file) ? !isInRoot(ctx.roots, dir)
+          : (ctx.roots.contains(dir) || !isInRoot(ctx.roots, dir)))
+      {
+        files.add(file);
+      }
+    }
+    
+    Collections.sort(files);
+    return files;
+  }
+  
+  
+  /**
+   * Return whether a directory is a class directory, or is inside one.
+   * 
+   * @param roots the class directories
+   * @param dir the directory
+   * @return whether the directory is in a class directory
+   */
+  private static boolean isInRoot(final Set<File> roots, final File dir)
+  {
+    for (File parent = dir; parent != null; parent = parent.getParentFile())
+    {
+      if (roots.contains(parent))
+      {
+        return true;
+      }
+    }
+    
+    return false;
+  }
+  
+  
+  /**
+   * Return the root of the package tree holding a class file.  The
+   * class name is read from the header, and must match the end of the
+   * file's path; if it does not, or the class is a module descriptor,
+   * there is no root.
+   * 
+   * @param file the class file
+   * @param reader the class reader to use
+   * @return the root directory, or null if there is none
+   */
+  private static File getClassRoot(final File file, final ClassReader reader)
+  {
+    boolean valid = false;
+    InputStream in = null;
+    try
+    {
+      in = new FileInputStream(file);
+      valid = reader.readHeader(in);
+    }
+    catch (IOException e)
+    {
+      valid = false;
+    }
+    finally
+    {
+      if (in != null)
+      {
+        try
+        {
+          in.close();
+        }
+        catch (IOException e)
+        {
+          e.printStackTrace();
+        }
+      }
+    }
+    
+    final String name = valid ? reader.getClassName() : null;
+    if ((name == null) || name.equals("module-info"))
+    {
+      return null;
+    }
+    
+    // Take the package directories off the path, checking each name
+    File dir = file.getParentFile();
+    String pkg = name;
+    int slash = pkg.lastIndexOf('/');
+    if (!file.getName().equals(pkg.substring(slash + 1) + ".class"))
+    {
+      return null;
+    }
+    
+    while (slash > 0)
+    {
+      pkg = pkg.substring(0, slash);
+      slash = pkg.lastIndexOf('/');
+      if ((dir == null) || !dir.getName().equals(pkg.substring(slash + 1)))
+      {
+        return null;
+      }
+      
+      dir = dir.getParentFile();
+    }
+    
+    return dir;
+  }
+  
+  
+  /**
+   * The data shared by all tasks of one walk.
+   */
+  private static final class Context
+  {
+    /**
+     * The archives and class directories found.
+     */
+    private ConcurrentLinkedQueue<File> found = new ConcurrentLinkedQueue<File>();
+    
+    /**
+     * The class directories found.
+     */
+    private Set<File> roots =
+      Collections.newSetFromMap(new ConcurrentHashMap<File, Boolean>(16));
+    
+    
+    /**
+     * Default constructor.
+     */
+    public Context()
+    {
+      super();
+    }
+  }
+  
+  
+  /**
+   * The task that walks one directory.
+   */
+  private static final class WalkTask extends RecursiveAction
+  {
+    /**
+     * Default serial version ID.
+     */
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * The class reader of each worker thread.
+     */
+    private static final ThreadLocal<ClassReader> readers =
+      new ThreadLocal<ClassReader>()
+    {
+      @Override
+      protected ClassReader initialValue()
+      {
+        return new ClassReader();
+      }
+    };
+    
+    /**
+     * The walk data.
+     */
+    private final transient Context ctx;
+    
+    /**
+     * The directory.
+     */
+    private final File dir;
+    
+    
+    /**
+     * Constructor.
+     * 
+     * @param pCtx the walk data
+     * @param pDir the directory
+     */
+    public WalkTask(final Context pCtx, final File pDir)
+    {
+      ctx = pCtx;
+      dir = pDir;
+    }
+    
+    
+    /**
+     * Save the archives in the directory, and walk its subdirectories
+     * unless the directory is in a class directory.
+     */
+    @Override
+    protected void compute()
+    {
+      // Skip a directory inside a class directory already found
+      final File[] files = dir.listFiles();
+      if ((files == null) || isInRoot(ctx.roots, dir))
+      {
+        return;
+      }
+      
+      File root = null;
+      List<WalkTask> tasks = new ArrayList<WalkTask>(files.length);
+      for (File file : files)
+      {
+        final String name = file.getName();
+        if (file.isDirectory())
+        {
+          // Skip hidden directories, the versioned classes under
+          // META-INF, and links, which may form a loop
+          if (!name.startsWith(".") && !name.equals("META-INF") &&
+              !Files.isSymbolicLink(file.toPath()))
+          {
+            tasks.add(new WalkTask(ctx, file));
+          }
+        }
+        else if (isArchive(file))
+        {
+          ctx.found.add(file);
+        }
+        else if ((root == null) && name.endsWith(".class"))
+        {
+          root = getClassRoot(file, readers.get());
+        }
+      }
+      
+      // The subdirectories are all inside the class directory
+      if (root != null)
+      {
+        if (ctx.roots.add(root))
+        {
+          ctx.found.add(root);
+        }
+        
+        return;
+      }
+      
+      invokeAll(tasks);
+    }
+  }
+}
@@ -0,0 +1,498 @@
+package io.miti.jarman.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+/**
+ * Follow the Class-Path entries of jar manifests, so the jars pulled
+ * in by the jars in a class path are found too, however many levels
+ * deep.  Each jar is read once, even if several jars reference it.
+ * 
+ * The manifests are read a level at a time, with the jars on each
+ * level read in parallel.  Only the manifest of each jar is read: it
+ * is found by name in the central directory, and no other entry is
+ * decoded or inflated.  Manifests are kept in the scan cache, so a
+ * jar that has not changed is not opened again.
+ * 
+ * The jars are returned in the order the JVM searches them: each jar
+ * is followed by the jars in its own Class-Path, before the next jar
+ * on its level.  A reference back to a jar that is still being
+ * followed is a cycle; the JVM ignores such references, and so does
+ * the resolver, but they are saved so they can be reported.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class ClassPathResolver
+{
+  /**
+   * The maximum number of worker threads.
+   */
+  private int poolSize = 1;
+  
+  /**
+   * The references that formed a cycle in the last resolve.
+   */
+  private List<Link> cycles = new ArrayList<Link>(0);
+  
+  
+  /**
+   * Constructor.
+   * 
+   * @param nPoolSize the maximum number of worker threads
+   */
+  public ClassPathResolver(final int nPoolSize)
+  {
+    super();
+    poolSize = Math.max(1, nPoolSize);
+  }
+  
+  
+  /**
+   * Return the jars in a class path, and every jar reachable from them
+   * through manifest Class-Path entries.  The jars in the list are at
+   * depth 0, and have no parent.  Jars that are not found are returned
+   * too, so they can be reported, but are not followed.
+   * 
+   * @param roots the jars (or class directories) in the class path
+   * @return the jars, in search order, each listed once
+   */
+  public List<Link> resolve(final List<File> roots)
+  {
+    // Read the manifests of all of the reachable jars
+    final Map<File, List<File>> classPaths = readClassPaths(roots);
+    
+    // Walk the references, skipping the jars already listed
+    List<Link> links = new ArrayList<Link>(classPaths.size());
+    Set<File> visited = new HashSet<File>(classPaths.size() * 2);
+    Set<File> chain = new HashSet<File>(16);
+    cycles = new ArrayList<Link>(0);
+    for (File root : roots)
+    {
+      visit(normalize(root), 0, null, classPaths, links, visited, chain);
+    }
+    
+    return links;
+  }
+  
+  
+  /**
+   * Return the references that formed a cycle in the last resolve.
+   * Each link is the reference, from its parent back to a jar that
+   * was still being followed.
+   * 
+   * @return the references that formed a cycle
+   */
+  public List<Link> getCycles()
+  {
+    return Collections.unmodifiableList(cycles);
+  }
+  
+  
+  /**
+   * Add a jar to the list, and then the jars in its class path.
+   * 
+   * @param jar the jar
+   * @param depth the number of references from a root to the jar
+   * @param parent the jar whose class path holds this jar, or null
+   * @param classPaths the class path of each jar
+   * @param links the list of jars
+   * @param visited the jars already listed
+   * @param chain the jars being followed, from a root to this jar
+   */
+  private void visit(final File jar, final int depth, final File parent,
+                     final Map<File, List<File>> classPaths,
+                     final List<Link> links, final Set<File> visited,
+                     final Set<File> chain)
+  {
+    if (!visited.add(jar))
+    {
+      // The jar is already listed; it is a cycle if it is on the chain
+      if (chain.contains(jar))
+      {
+        cycles.add(new Link(jar, depth, parent));
+      }
+      
+      return;
+    }
+    
+    links.add(new Link(jar, depth, parent));
+    final List<File> children = classPaths.get(jar);
+    if ((children == null) || children.isEmpty())
+    {
+      return;
+    }
+    
+    chain.add(jar);
+    for (File child : children)
+    {
+      visit(child, depth + 1, jar, classPaths, links, visited, chain);
+    }
+    
+    chain.remove(jar);
+  }
+  
+  
+  /**
+   * Read the class path of each jar reachable from the roots, a level
+   * at a time.  Each jar is read once.
+   * 
+   * @param roots the jars in the class path
+   * @return the class path of each jar, keyed by the jar
+   */
+  private Map<File, List<File>> readClassPaths(final List<File> roots)
+  {
+    Map<File, List<File>> classPaths = new HashMap<File, List<File>>(roots.size() * 2);
+    List<File> level = new ArrayList<File>(roots.size());
+    for (File root : roots)
+    {
+      addToLevel(normalize(root), classPaths, level);
+    }
+    
+    ExecutorService pool = null;
+    try
+    {
+      while (!level.isEmpty())
+      {
+        List<List<File>> results = null;
+        if ((poolSize <= 1) || (level.size() == 1))
+        {
+          // Read the manifests on this thread
+          results = new ArrayList<List<File>>(level.size());
+          for (File jar : level)
+          {
+            results.add(readClassPath(jar));
+          }
+        }
+        else
+        {
+          if (pool == null)
+          {
+            pool = Executors.newFixedThreadPool(poolSize);
+          }
+          
+          results = readLevel(pool, level);
+        }
+        
+        // Save the class paths, and collect the jars on the next level
+        List<File> next = new ArrayList<File>(16);
+        for (int i = 0; i < level.size(); ++i)
+        {
+          final List<File> children = results.get(i);
+          classPaths.put(level.get(i), children);
+          for (File child : children)
+          {
+            addToLevel(child, classPaths, next);
+          }
+        }
+        
+        level = next;
+      }
+    }
+    finally
+    {
+      if (pool != null)
+      {
+        pool.shutdownNow();
+      }
+    }
+    
+    return classPaths;
+  }
+  
+  
+  /**
+   * Add a jar to a level, if it has not been read and is not already
+   * on the level.  A null class path is saved for the jar, to mark it.
+   * 
+   * @param jar the jar
+   * @param classPaths the class path of each jar
+   * @param level the jars to read on the level
+   */
+  private static void addToLevel(final File jar,
+                                 final Map<File, List<File>> classPaths,
+                                 final List<File> level)
+  {
+    if (!classPaths.containsKey(jar))
+    {
+      classPaths.put(jar, null);
+      level.add(jar);
+    }
+  }
+  
+  
+  /**
+   * Read the class paths of the jars on a level on the pool.
+   * 
+   * @param pool the thread pool
+   * @param level the jars on the level
+   * @return the class path of each jar, in the same order as level
+   */
+  private static List<List<File>> readLevel(final ExecutorService pool,
+                                            final List<File> level)
+  {
+    List<Future<List<File>>> futures = new ArrayList<Future<List<File>>>(level.size());
+    for (final File jar : level)
+    {
+      futures.add(pool.submit(new Callable<List<File>>()
+      {
+        @Override
+        public List<File> call()
+        {
+          return readClassPath(jar);
+        }
+      }));
+    }
+    
+    List<List<File>> results = new ArrayList<List<File>>(level.size());
+    for (Future<List<File>> future : futures)
+    {
+      List<File> result = null;
+      try
+      {
+        result = future.get();
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+      }
+      catch (ExecutionException e)
+      {
+        e.printStackTrace();
+      }
+      
+      results.add((result == null) ? new ArrayList<File>(0) : result);
+    }
+    
+    return results;
+  }
+  
+  
+  /**
+   * Return the jars in the Class-Path of a jar's manifest.  The paths
+   * are relative to the jar's directory.
+   * 
+   * @param jar the jar
+   * @return the jars in its class path, or an empty list if it has none
+   */
+  public static List<File> readClassPath(final File jar)
+  {
+    List<File> files = new ArrayList<File>(0);
+    if (!jar.isFile())
+    {
+      return files;
+    }
+    
+    // Check the cache, and read the manifest if it is not there
+    final ScanCache cache = ScanCache.getInstance();
+    Map<String, String> attributes = cache.getAttributes(jar);
+    if (attributes == null)
+    {
+      attributes = readAttributes(jar);
+      if (attributes == null)
+      {
+        return files;
+      }
+      
+      cache.putAttributes(jar, attributes);
+    }
+    
+    final String path = attributes.get(Attributes.Name.CLASS_PATH.toString());
+    if (path == null)
+    {
+      return files;
+    }
+    
+    final File dir = jar.getParentFile();
+    StringTokenizer st = new StringTokenizer(path, " \t\r\n");
+    while (st.hasMoreTokens())
+    {
+      files.add(normalize(new File(dir, st.nextToken())));
+    }
+    
+    return files;
+  }
+  
+  
+  /**
+   * Read the main attributes of a jar's manifest.  The manifest is
+   * found in the central directory; if that fails, the jar is opened
+   * as a JarFile.
+   * 
+   * @param jar the jar
+   * @return the main attributes (empty if there is no manifest), or
+   *         null if the jar cannot be read
+   */
+  public static Map<String, String> readAttributes(final File jar)
+  {
+    Manifest man = null;
+    try
+    {
+      ZipDirectory dir = new ZipDirectory(jar);
+      if (dir.find(JarFile.MANIFEST_NAME))
+      {
+        man = new Manifest(new ByteArrayInputStream(dir.read()));
+      }
+    }
+    catch (IOException e)
+    {
+      // Fall back to the JarFile
+      man = readManifest(jar);
+      if (man == null)
+      {
+        return null;
+      }
+    }
+    
+    Map<String, String> attributes = new LinkedHashMap<String, String>(20);
+    if (man != null)
+    {
+      for (Entry<Object, Object> attr : man.getMainAttributes().entrySet())
+      {
+        attributes.put(attr.getKey().toString(), attr.getValue().toString());
+      }
+    }
+    
+    return attributes;
+  }
+  
+  
+  /**
+   * Read a jar's manifest, using a JarFile.
+   * 
+   * @param jar the jar
+   * @return the manifest, or null if there is none or it cannot be read
+   */
+  private static Manifest readManifest(final File jar)
+  {
+    Manifest man = null;
+    JarFile file = null;
+    try
+    {
+      file = new JarFile(jar, false);
+      man = file.getManifest();
+    }
+    catch (IOException e)
+    {
+      man = null;
+    }
+    finally
+    {
+      if (file != null)
+      {
+        try
+        {
+          file.close();
+        }
+        catch (IOException e)
+        {
+          e.printStackTrace();
+        }
+      }
+    }
+    
+    return man;
+  }
+  
+  
+  /**
+   * Return the absolute form of a file, with any "." and ".." parts
+   * removed, so each jar has one key.  Links are not resolved.
+   * 
+   * @param file the file
+   * @return the normalized file
+   */
+  private static File normalize(final File file)
+  {
+    return file.toPath().toAbsolutePath().normalize().toFile();
+  }
+  
+  
+  /**
+   * A jar in the resolved class path, and how it was reached.
+   */
+  public static final class Link
+  {
+    /**
+     * The jar.
+     */
+    private final File file;
+    
+    /**
+     * The number of references from a root to the jar.
+     */
+    private final int depth;
+    
+    /**
+     * The jar whose class path holds this jar, or null for a root.
+     */
+    private final File parent;
+    
+    
+    /**
+     * Constructor.
+     * 
+     * @param pFile the jar
+     * @param nDepth the number of references from a root to the jar
+     * @param pParent the jar whose class path holds this jar, or null
+     */
+    public Link(final File pFile, final int nDepth, final File pParent)
+    {
+      file = pFile;
+      depth = nDepth;
+      parent = pParent;
+    }
+    
+    
+    /**
+     * Return the jar.
+     * 
+     * @return the jar
+     */
+    public File getFile()
+    {
+      return file;
+    }
+    
+    
+    /**
+     * Return the number of references from a root to the jar.
+     * 
+     * @return the depth, 0 for a root
+     */
+    public int getDepth()
+    {
+      return depth;
+    }
+    
+    
+    /**
+     * Return the jar whose class path holds this jar.
+     * 
+     * @return the parent jar, or null for a root
+     */
+    public File getParent()
+    {
+      return parent;
+    }
+  }
+}
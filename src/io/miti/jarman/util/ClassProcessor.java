@@ -2,6 +2,7 @@ package io.miti.jarman.util;
 
 import io.miti.jarman.data.FileList;
 import io.miti.jarman.data.JarData;
+import io.miti.jarman.gui.BackgroundTask;
 import io.miti.jarman.gui.Jarman;
 import io.miti.jarman.gui.ListingsPage;
 
@@ -37,6 +38,9 @@ public final class ClassProcessor
     Jarman.getApp().getFrame().setCursor(
         Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
     
+    // Stop any task still working on the previous file
+    BackgroundTask.replaceCurrent();
+    
     // Reset the data cache and save the jar file
     JarData.reset();
     ListingsPage.getInstance().resetOptions();
@@ -0,0 +1,560 @@
+package io.miti.jarman.util;
+
+import io.miti.jarman.classref.ClassReader;
+import io.miti.jarman.index.ClassHeaderTable;
+import io.miti.jarman.index.ParseCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
+
+/**
+ * Read the classes in a list of jar files on a fork/join pool, and pass
+ * each one to a handler.  The work is split by jar, and the classes in
+ * each jar are split into ranges of entries.  Each worker thread has its
+ * own class reader, so the handler is called on several threads at once.
+ * 
+ * Each jar is opened once, shared by the tasks for its entries, and
+ * closed when they are done.  A directory of class files is read as
+ * an archive, so build output such as target/classes can be scanned
+ * in the same list as the jars.
+ * 
+ * If the scanner has a cache of parsed classes, a class that is in the
+ * cache is not read again, and is passed to the handler as the cached
+ * entry.  When a full scan reads a class, it is added to the cache.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class ClassScanner
+{
+  /**
+   * The maximum number of entries read by one task.
+   */
+  private static final int RANGE_SIZE = 64;
+  
+  /**
+   * The class reader of each worker thread.
+   */
+  private static final ThreadLocal<ClassReader> readers =
+    new ThreadLocal<ClassReader>()
+  {
+    @Override
+    protected ClassReader initialValue()
+    {
+      return new ClassReader();
+    }
+  };
+  
+  /**
+   * The maximum number of worker threads.
+   */
+  private int poolSize = 1;
+  
+  /**
+   * The cache of parsed classes, or null.
+   */
+  private ParseCache cache = null;
+  
+  
+  /**
+   * Constructor.
+   * 
+   * @param nPoolSize the maximum number of worker threads
+   */
+  public ClassScanner(final int nPoolSize)
+  {
+    this(nPoolSize, null);
+  }
+  
+  
+  /**
+   * Constructor.
+   * 
+   * @param nPoolSize the maximum number of worker threads
+   * @param pCache the cache of parsed classes, or null
+   */
+  public ClassScanner(final int nPoolSize, final ParseCache pCache)
+  {
+    super();
+    poolSize = Math.max(1, nPoolSize);
+    cache = pCache;
+  }
+  
+  
+  /**
+   * Read the header of every class in the jars: the version, access
+   * flags, class name, parent class and interfaces.  Only the start of
+   * each class is read.
+   * 
+   * @param jars the list of jar files
+   * @param listener the listener for the scanned jars
+   * @return the table of class headers
+   */
+  public ClassHeaderTable readHeaders(final List<File> jars,
+                                      final ScanListener listener)
+  {
+    final ClassHeaderTable.Builder table = new ClassHeaderTable.Builder(jars);
+    scan(jars, true, new ClassHandler()
+    {
+      @Override
+      public void classRead(final int jar, final int index,
+                            final JarEntry entry, final ClassReader reader)
+      {
+        table.add(jar, index, reader);
+      }
+      
+      @Override
+      public void classCached(final int jar, final int index,
+                              final JarEntry entry,
+                              final ParseCache.Entry cached)
+      {
+        table.add(jar, index, cached);
+      }
+    }, listener);
+    
+    return table.build();
+  }
+  
+  
+  /**
+   * Read the classes in the jars, and pass each valid class to the
+   * handler.  With a cache, a full scan passes every class to the
+   * handler as a cached entry.  This returns when all jars are done, or the scan is
+   * cancelled.
+   * 
+   * @param jars the list of jar files
+   * @param headerOnly whether to read each class only up to the end
+   *        of its interfaces
+   * @param handler the handler for the classes
+   * @param listener the listener for the scanned jars
+   */
+  public void scan(final List<File> jars, final boolean headerOnly,
+                   final ClassHandler handler, final ScanListener listener)
+  {
+    final Context ctx = new Context(headerOnly, cache, handler, listener,
+                                    jars.size());
+    
+    // Read each jar in its own task
+    final List<JarTask> tasks = new ArrayList<JarTask>(jars.size());
+    for (int i = 0; i < jars.size(); ++i)
+    {
+      tasks.add(new JarTask(ctx, jars.get(i), i));
+    }
+    
+    ForkJoinPool pool = new ForkJoinPool(poolSize);
+    try
+    {
+      pool.invoke(new RecursiveAction()
+      {
+        private static final long serialVersionUID = 1L;
+        
+        @Override
+        protected void compute()
+        {
+          invokeAll(tasks);
+        }
+      });
+    }
+    finally
+    {
+      pool.shutdownNow();
+    }
+  }
+  
+  
+  /**
+   * The interface for handling the classes read by a scan.
+   */
+  public interface ClassHandler
+  {
+    /**
+     * A class was read.  This is called on a worker thread, and the
+     * reader is only valid until this returns.
+     * 
+     * @param jar the index of the jar in the list
+     * @param index the index of the class among the classes in the jar
+     * @param entry the class entry
+     * @param reader the reader holding the parsed class
+     */
+    void classRead(final int jar, final int index,
+                   final JarEntry entry, final ClassReader reader);
+    
+    /**
+     * A class was found in the cache of parsed classes, or was read
+     * and added to it.  This is called on a worker thread.
+     * 
+     * @param jar the index of the jar in the list
+     * @param index the index of the class among the classes in the jar
+     * @param entry the class entry
+     * @param cached the parsed class
+     */
+    void classCached(final int jar, final int index, final JarEntry entry,
+                     final ParseCache.Entry cached);
+  }
+  
+  
+  /**
+   * The interface for tracking the progress of a scan.
+   */
+  public interface ScanListener
+  {
+    /**
+     * A jar was scanned.  This is called on a worker thread.
+     * 
+     * @param jar the jar file
+     * @param done the number of jars scanned so far
+     * @param total the number of jars to scan
+     */
+    void jarScanned(final File jar, final int done, final int total);
+    
+    /**
+     * Return whether the scan should stop.
+     * 
+     * @return whether the scan was cancelled
+     */
+    boolean isCancelled();
+  }
+  
+  
+  /**
+   * The data shared by all tasks of one scan.
+   */
+  private static final class Context
+  {
+    /**
+     * Whether to read only the class headers.
+     */
+    private boolean headerOnly = false;
+    
+    /**
+     * The cache of parsed classes, or null.
+     */
+    private ParseCache cache = null;
+    
+    /**
+     * The handler for the classes.
+     */
+    private ClassHandler handler = null;
+    
+    /**
+     * The listener for the scanned jars.
+     */
+    private ScanListener listener = null;
+    
+    /**
+     * The number of jars to scan.
+     */
+    private int total = 0;
+    
+    /**
+     * The number of jars scanned so far.
+     */
+    private AtomicInteger done = new AtomicInteger(0);
+    
+    
+    /**
+     * Constructor.
+     * 
+     * @param bHeaderOnly whether to read only the class headers
+     * @param pCache the cache of parsed classes, or null
+     * @param pHandler the handler for the classes
+     * @param pListener the listener for the scanned jars
+     * @param nTotal the number of jars to scan
+     */
+    public Context(final boolean bHeaderOnly, final ParseCache pCache,
+                   final ClassHandler pHandler, final ScanListener pListener,
+                   final int nTotal)
+    {
+      headerOnly = bHeaderOnly;
+      cache = pCache;
+      handler = pHandler;
+      listener = pListener;
+      total = nTotal;
+    }
+  }
+  
+  
+  /**
+   * The task that scans one jar.
+   */
+  private static final class JarTask extends RecursiveAction
+  {
+    /**
+     * Default serial version ID.
+     */
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * The scan data.
+     */
+    private final transient Context ctx;
+    
+    /**
+     * The jar file.
+     */
+    private final File file;
+    
+    /**
+     * The index of the jar in the list.
+     */
+    private final int index;
+    
+    
+    /**
+     * Constructor.
+     * 
+     * @param pCtx the scan data
+     * @param pFile the jar file
+     * @param nIndex the index of the jar in the list
+     */
+    public JarTask(final Context pCtx, final File pFile, final int nIndex)
+    {
+      ctx = pCtx;
+      file = pFile;
+      index = nIndex;
+    }
+    
+    
+    /**
+     * Open the jar, and read its classes in ranges.
+     */
+    @Override
+    protected void compute()
+    {
+      if (ctx.listener.isCancelled())
+      {
+        return;
+      }
+      
+      Archive jar = null;
+      try
+      {
+        // Get the class entries in the jar
+        jar = ArchivePool.open(file);
+        List<JarEntry> classes = new ArrayList<JarEntry>(256);
+        Enumeration<JarEntry> entries = jar.entries();
+        while (entries.hasMoreElements())
+        {
+          JarEntry entry = entries.nextElement();
+          if (!entry.isDirectory() && entry.getName().endsWith(".class"))
+          {
+            classes.add(entry);
+          }
+        }
+        
+        // Read the classes, and wait for all of the ranges to finish
+        new RangeTask(ctx, index, jar, classes, 0, classes.size()).invoke();
+      }
+      catch (IOException e)
+      {
+        e.printStackTrace();
+      }
+      finally
+      {
+        if (jar != null)
+        {
+          try
+          {
+            jar.close();
+          }
+          catch (IOException e)
+          {
+            e.printStackTrace();
+          }
+        }
+      }
+      
+      ctx.listener.jarScanned(file, ctx.done.incrementAndGet(), ctx.total);
+    }
+  }
+  
+  
+  /**
+   * The task that reads a range of classes in one jar.
+   */
+  private static final class RangeTask extends RecursiveAction
+  {
+    /**
+     * Default serial version ID.
+     */
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * The scan data.
+     */
+    private final transient Context ctx;
+    
+    /**
+     * The index of the jar in the list.
+     */
+    private final int jarIndex;
+    
+    /**
+     * The open jar file.
+     */
+    private final transient Archive jar;
+    
+    /**
+     * The class entries in the jar.
+     */
+    private final transient List<JarEntry> classes;
+    
+    /**
+     * The index of the first entry in the range.
+     */
+    private final int start;
+    
+    /**
+     * The index after the last entry in the range.
+     */
+    private final int end;
+    
+    
+    /**
+     * Constructor.
+     * 
+     * @param pCtx the scan data
+     * @param nJarIndex the index of the jar in the list
+     * @param pJar the open jar file
+     * @param pClasses the class entries in the jar
+     * @param nStart the index of the first entry in the range
+     * @param nEnd the index after the last entry in the range
+     */
+    public RangeTask(final Context pCtx, final int nJarIndex,
+                     final Archive pJar, final List<JarEntry> pClasses,
+                     final int nStart, final int nEnd)
+    {
+      ctx = pCtx;
+      jarIndex = nJarIndex;
+      jar = pJar;
+      classes = pClasses;
+      start = nStart;
+      end = nEnd;
+    }
+    
+    
+    /**
+     * Read the classes in the range, splitting it if it is too large.
+     */
+    @Override
+    protected void compute()
+    {
+      if ((end - start) > RANGE_SIZE)
+      {
+        final int mid = (start + end) >>> 1;
+        invokeAll(new RangeTask(ctx, jarIndex, jar, classes, start, mid),
+                  new RangeTask(ctx, jarIndex, jar, classes, mid, end));
+        return;
+      }
+      
+      final ClassReader reader = readers.get();
+      for (int i = start; (i < end) && !ctx.listener.isCancelled(); ++i)
+      {
+        try
+        {
+          readClass(reader, i);
+        }
+        catch (RuntimeException e)
+        {
+          // Skip a class that is malformed in a way the reader missed
+          e.printStackTrace();
+        }
+      }
+    }
+    
+    
+    /**
+     * Read one class in the range, or use its cached copy, and pass it
+     * to the handler.
+     * 
+     * @param reader the class reader
+     * @param i the index of the class in the list
+     */
+    private void readClass(final ClassReader reader, final int i)
+    {
+      final JarEntry entry = classes.get(i);
+      if (ctx.cache == null)
+      {
+        if (read(reader, entry))
+        {
+          ctx.handler.classRead(jarIndex, i, entry, reader);
+        }
+        
+        return;
+      }
+      
+      // Use the cached class if there is an identical copy
+      ParseCache.Entry cached = ctx.cache.get(entry.getName(),
+                                    entry.getCrc(), entry.getSize());
+      if (cached != null)
+      {
+        ctx.handler.classCached(jarIndex, i, entry, cached);
+      }
+      else if (!read(reader, entry))
+      {
+        return;
+      }
+      else if (ctx.headerOnly)
+      {
+        ctx.handler.classRead(jarIndex, i, entry, reader);
+      }
+      else
+      {
+        cached = ctx.cache.put(entry.getName(), entry.getCrc(),
+                               entry.getSize(), reader);
+        if (cached != null)
+        {
+          ctx.handler.classCached(jarIndex, i, entry, cached);
+        }
+      }
+    }
+    
+    
+    /**
+     * Read a class in the jar.
+     * 
+     * @param reader the class reader
+     * @param entry the class entry
+     * @return whether the class is valid
+     */
+    private boolean read(final ClassReader reader, final JarEntry entry)
+    {
+      boolean valid = false;
+      InputStream in = null;
+      try
+      {
+        in = jar.getInputStream(entry);
+        valid = ctx.headerOnly ? reader.readHeader(in)
+                               : reader.read(in, entry.getSize());
+      }
+      catch (IOException e)
+      {
+        e.printStackTrace();
+      }
+      finally
+      {
+        if (in != null)
+        {
+          try
+          {
+            in.close();
+          }
+          catch (IOException e)
+          {
+            e.printStackTrace();
+          }
+        }
+      }
+      
+      return valid;
+    }
+  }
+}
@@ -0,0 +1,383 @@
+package io.miti.jarman.util;
+
+import io.miti.jarman.classref.ClassReader;
+import io.miti.jarman.data.EntryStore;
+import io.miti.jarman.index.ClassNamePool;
+import io.miti.jarman.index.IdList;
+import io.miti.jarman.index.ParseCache;
+import io.miti.jarman.index.ReferenceGraph;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.JarEntry;
+
+/**
+ * Parse the classes in a list of jar files, on a fork/join pool, and
+ * collect the classes they reference.  The classes are read by a
+ * ClassScanner, and the references are mapped to IDs in a pool of class
+ * names, so each distinct class is only looked up once.
+ * The references of each class can also be saved in a reference graph.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class ClasspathVerifier
+{
+  /**
+   * The list of reference IDs of each worker thread.
+   */
+  private static final ThreadLocal<IdList> ids = new ThreadLocal<IdList>()
+  {
+    @Override
+    protected IdList initialValue()
+    {
+      return new IdList(100);
+    }
+  };
+  
+  /**
+   * The maximum number of worker threads.
+   */
+  private int poolSize = 1;
+  
+  /**
+   * The cache of parsed classes, or null.
+   */
+  private ParseCache cache = null;
+  
+  /**
+   * The listener for the classes added to the result, or null.
+   */
+  private ResultListener resultListener = null;
+  
+  
+  /**
+   * Constructor.
+   * 
+   * @param nPoolSize the maximum number of worker threads
+   */
+  public ClasspathVerifier(final int nPoolSize)
+  {
+    this(nPoolSize, null);
+  }
+  
+  
+  /**
+   * Constructor.
+   * 
+   * @param nPoolSize the maximum number of worker threads
+   * @param pCache the cache of parsed classes, or null
+   */
+  public ClasspathVerifier(final int nPoolSize, final ParseCache pCache)
+  {
+    super();
+    poolSize = Math.max(1, nPoolSize);
+    cache = pCache;
+  }
+  
+  
+  /**
+   * Set the listener for the classes added to the result, so they can
+   * be handled as they are found.
+   * 
+   * @param pListener the listener, or null
+   */
+  public void setResultListener(final ResultListener pListener)
+  {
+    resultListener = pListener;
+  }
+  
+  
+  /**
+   * Return the classes referenced by the jars that are not in the
+   * set of known classes, and are not Java system classes.
+   * 
+   * @param jars the list of jar files
+   * @param known the set of classes in the jars
+   * @param graph the builder for the reference graph, or null
+   * @param listener the listener for the verified jars
+   * @return the set of missing classes
+   */
+  public Set<String> findMissing(final List<File> jars,
+                                 final Set<String> known,
+                                 final ReferenceGraph.Builder graph,
+                                 final ClassScanner.ScanListener listener)
+  {
+    return run(jars, known, new SystemPathList().getList(), graph, listener);
+  }
+  
+  
+  /**
+   * Return all of the classes referenced by the jars.
+   * 
+   * @param jars the list of jar files
+   * @param graph the builder for the reference graph, or null
+   * @param listener the listener for the parsed jars
+   * @return the set of referenced classes
+   */
+  public Set<String> findReferences(final List<File> jars,
+                                    final ReferenceGraph.Builder graph,
+                                    final ClassScanner.ScanListener listener)
+  {
+    final Set<String> none = Collections.emptySet();
+    return run(jars, none, none, graph, listener);
+  }
+  
+  
+  /**
+   * Parse the jars, and return the referenced classes that are
+   * not in either set.
+   * 
+   * @param jars the list of jar files
+   * @param known the first set of classes to ignore
+   * @param system the second set of classes to ignore
+   * @param graph the builder for the reference graph, or null
+   * @param listener the listener for the parsed jars
+   * @return the set of referenced classes not in either set
+   */
+  private Set<String> run(final List<File> jars,
+                          final Set<String> known,
+                          final Set<String> system,
+                          final ReferenceGraph.Builder graph,
+                          final ClassScanner.ScanListener listener)
+  {
+    final Collector collector = new Collector(jars, known, system, graph,
+                                              resultListener);
+    new ClassScanner(poolSize, cache).scan(jars, false, collector, listener);
+    return collector.getResult();
+  }
+  
+  
+  /**
+   * The interface for receiving the classes added to the result.
+   */
+  public interface ResultListener
+  {
+    /**
+     * A class was added to the result.  This is called once for each
+     * class, on a worker thread, while the verifier holds its lock.
+     * 
+     * @param name the referenced class, with slashes
+     * @param referrer the first class found that references it
+     * @param jar the jar holding the referring class
+     */
+    void classFound(final String name, final String referrer, final File jar);
+  }
+  
+  
+  /**
+   * The handler that collects the references of each class.  The
+   * references are found as IDs in a pool of class names, and each
+   * distinct ID is only checked against the sets of classes to ignore
+   * the first time it is seen.
+   */
+  private static final class Collector implements ClassScanner.ClassHandler
+  {
+    /**
+     * The status of an ID that has not been seen yet.
+     */
+    private static final byte UNSEEN = 0;
+    
+    /**
+     * The status of an ID for a class that is ignored.
+     */
+    private static final byte IGNORED = 1;
+    
+    /**
+     * The status of an ID for a class that is in the result.
+     */
+    private static final byte FOUND = 2;
+    
+    /**
+     * The list of jar files.
+     */
+    private List<File> jars = null;
+    
+    /**
+     * The first set of classes to ignore.
+     */
+    private Set<String> known = null;
+    
+    /**
+     * The second set of classes to ignore.
+     */
+    private Set<String> system = null;
+    
+    /**
+     * The referenced classes found so far.
+     */
+    private Set<String> result = new HashSet<String>(256);
+    
+    /**
+     * The builder for the reference graph, or null.
+     */
+    private ReferenceGraph.Builder graph = null;
+    
+    /**
+     * The pool of class names, shared with the graph if there is one.
+     */
+    private ClassNamePool pool = null;
+    
+    /**
+     * The status of each ID in the pool.
+     */
+    private byte[] status = new byte[4096];
+    
+    /**
+     * The listener for the classes added to the result, or null.
+     */
+    private ResultListener listener = null;
+    
+    
+    /**
+     * Constructor.
+     * 
+     * @param pJars the list of jar files
+     * @param pKnown the first set of classes to ignore
+     * @param pSystem the second set of classes to ignore
+     * @param pGraph the builder for the reference graph, or null
+     * @param pListener the listener for the result, or null
+     */
+    public Collector(final List<File> pJars, final Set<String> pKnown,
+                     final Set<String> pSystem,
+                     final ReferenceGraph.Builder pGraph,
+                     final ResultListener pListener)
+    {
+      jars = pJars;
+      listener = pListener;
+      known = pKnown;
+      system = pSystem;
+      graph = pGraph;
+      pool = (graph == null) ? new ClassNamePool(4096) : graph.getPool();
+    }
+    
+    
+    /**
+     * Save the references of a class.
+     * 
+     * @param jar the index of the jar in the list
+     * @param index the index of the class in the jar
+     * @param entry the class entry
+     * @param reader the reader holding the parsed class
+     */
+    @Override
+    public void classRead(final int jar, final int index,
+                          final JarEntry entry, final ClassReader reader)
+    {
+      final IdList refs = ids.get();
+      refs.clear();
+      reader.getReferences(pool, refs);
+      addClass(jar, entry, refs);
+    }
+    
+    
+    /**
+     * Save the references of a class from the cache.
+     * 
+     * @param jar the index of the jar in the list
+     * @param index the index of the class in the jar
+     * @param entry the class entry
+     * @param cached the parsed class
+     */
+    @Override
+    public void classCached(final int jar, final int index,
+                            final JarEntry entry,
+                            final ParseCache.Entry cached)
+    {
+      // The cache has its own pool, so look the names up in this one
+      final IdList refs = ids.get();
+      refs.clear();
+      final int count = cached.getReferenceCount();
+      for (int i = 0; i < count; ++i)
+      {
+        refs.add(pool.intern(cached.getReference(i)));
+      }
+      
+      addClass(jar, entry, refs);
+    }
+    
+    
+    /**
+     * Save the references of a class in the graph, and add any new
+     * references to the result.
+     * 
+     * @param jar the index of the jar in the list
+     * @param entry the class entry
+     * @param refs the IDs of the referenced classes
+     */
+    private void addClass(final int jar, final JarEntry entry,
+                          final IdList refs)
+    {
+      String className = null;
+      if ((graph != null) || (listener != null))
+      {
+        className = EntryStore.getClassName(entry.getName());
+      }
+      
+      if (graph != null)
+      {
+        graph.addReferences(pool.intern(className), refs);
+      }
+      
+      addResults(jar, className, refs);
+    }
+    
+    
+    /**
+     * Check the IDs that have not been seen before, and add the
+     * classes that are not ignored to the result.
+     * 
+     * @param jar the index of the jar in the list
+     * @param className the name of the referring class, if needed
+     * @param refs the IDs of the referenced classes
+     */
+    private synchronized void addResults(final int jar,
+                                         final String className,
+                                         final IdList refs)
+    {
+      final int size = refs.size();
+      for (int i = 0; i < size; ++i)
+      {
+        final int id = refs.get(i);
+        if (id >= status.length)
+        {
+          status = Arrays.copyOf(status, Math.max(status.length * 2, id + 1));
+        }
+        else if (status[id] != UNSEEN)
+        {
+          continue;
+        }
+        
+        final String ref = pool.getName(id);
+        if (known.contains(ref) || system.contains(ref))
+        {
+          status[id] = IGNORED;
+        }
+        else
+        {
+          status[id] = FOUND;
+          result.add(ref);
+          if (listener != null)
+          {
+            listener.classFound(ref, className, jars.get(jar));
+          }
+        }
+      }
+    }
+    
+    
+    /**
+     * Return the referenced classes found.
+     * 
+     * @return a copy of the set of classes
+     */
+    public synchronized Set<String> getResult()
+    {
+      return new HashSet<String>(result);
+    }
+  }
+}
@@ -0,0 +1,491 @@
+package io.miti.jarman.util;
+
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the lines of an entry's bytes that match a query.  A literal
+ * query is encoded as UTF-8 and found in the raw bytes with the
+ * Boyer-Moore-Horspool search, so the bytes are not decoded unless a
+ * line matches.  A regular expression is matched against the entry
+ * decoded as UTF-8.
+ * 
+ * An entry with a zero byte near its start is taken to be binary, and
+ * is reported as one match with no line, as grep does.  A matcher holds
+ * no state between calls, so one matcher can be used by several threads.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public abstract class ContentMatcher
+{
+  /**
+   * The number of bytes checked for a zero byte, to find binary entries.
+   */
+  private static final int BINARY_CHECK = 8000;
+  
+  /**
+   * The maximum length of the line text saved for a match.
+   */
+  private static final int MAX_TEXT = 200;
+  
+  /**
+   * The encoding of text entries.
+   */
+  protected static final Charset UTF8 = Charset.forName("UTF-8");
+  
+  /**
+   * The encoding that maps each byte to one character.
+   */
+  protected static final Charset LATIN1 = Charset.forName("ISO-8859-1");
+  
+  
+  /**
+   * Default constructor.
+   */
+  protected ContentMatcher()
+  {
+    super();
+  }
+  
+  
+  /**
+   * Return a matcher for a query.
+   * 
+   * @param query the text to find, or a regular expression
+   * @param regex whether the query is a regular expression
+   * @param matchCase whether the case of letters must match
+   * @return the matcher
+   * @throws java.util.regex.PatternSyntaxException if the regular
+   *         expression is not valid
+   */
+  public static ContentMatcher create(final String query, final boolean regex,
+                                      final boolean matchCase)
+  {
+    if (!regex && (matchCase || isAscii(query)))
+    {
+      return new LiteralMatcher(query, matchCase);
+    }
+    
+    // Case-insensitive non-ASCII text needs Unicode case folding,
+    // so it is matched as a quoted pattern
+    int flags = Pattern.MULTILINE;
+    if (!regex)
+    {
+      flags |= Pattern.LITERAL;
+    }
+    
+    if (!matchCase)
+    {
+      flags |= Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+    }
+    
+    return new RegexMatcher(Pattern.compile(query, flags));
+  }
+  
+  
+  /**
+   * Find the matching lines in an entry.
+   * 
+   * @param data the bytes of the entry
+   * @param len the number of bytes
+   * @param lines the list to add the matches to
+   * @param maxLines the maximum number of lines to add
+   */
+  public final void find(final byte[] data, final int len,
+                         final List<Line> lines, final int maxLines)
+  {
+    if (isBinary(data, len))
+    {
+      if (matchesBinary(data, len))
+      {
+        lines.add(new Line(0, "Binary file matches"));
+      }
+    }
+    else
+    {
+      findLines(data, len, lines, maxLines);
+    }
+  }
+  
+  
+  /**
+   * Find the matching lines in a text entry.  Each line is added once,
+   * however many matches it holds.
+   * 
+   * @param data the bytes of the entry
+   * @param len the number of bytes
+   * @param lines the list to add the matches to
+   * @param maxLines the maximum number of lines to add
+   */
+  protected abstract void findLines(final byte[] data, final int len,
+                                    final List<Line> lines, final int maxLines);
+  
+  
+  /**
+   * Return whether a binary entry holds a match.
+   * 
+   * @param data the bytes of the entry
+   * @param len the number of bytes
+   * @return whether there is a match
+   */
+  protected abstract boolean matchesBinary(final byte[] data, final int len);
+  
+  
+  /**
+   * Return whether an entry looks like binary data.
+   * 
+   * @param data the bytes of the entry
+   * @param len the number of bytes
+   * @return whether there is a zero byte near the start
+   */
+  private static boolean isBinary(final byte[] data, final int len)
+  {
+    final int end = Math.min(len, BINARY_CHECK);
+    for (int i = 0; i < end; ++i)
+    {
+      if (data[i] == 0)
+      {
+        return true;
+      }
+    }
+    
+    return false;
+  }
+  
+  
+  /**
+   * Return whether a string only has ASCII characters.
+   * 
+   * @param str the string
+   * @return whether every character is below 128
+   */
+  private static boolean isAscii(final String str)
+  {
+    final int len = str.length();
+    for (int i = 0; i < len; ++i)
+    {
+      if (str.charAt(i) >= 128)
+      {
+        return false;
+      }
+    }
+    
+    return true;
+  }
+  
+  
+  /**
+   * Return the line text for a match, shortened if it is long.
+   * 
+   * @param text the line
+   * @return the text to show
+   */
+  protected static String trim(final String text)
+  {
+    final String line = text.trim();
+    return (line.length() <= MAX_TEXT) ? line : (line.substring(0, MAX_TEXT) + "...");
+  }
+  
+  
+  /**
+   * A matching line.
+   */
+  public static final class Line
+  {
+    /**
+     * The line number, starting at 1, or 0 for a binary entry.
+     */
+    private final int number;
+    
+    /**
+     * The text of the line.
+     */
+    private final String text;
+    
+    
+    /**
+     * Constructor.
+     * 
+     * @param nNumber the line number
+     * @param sText the text of the line
+     */
+    public Line(final int nNumber, final String sText)
+    {
+      number = nNumber;
+      text = sText;
+    }
+    
+    
+    /**
+     * Return the line number.
+     * 
+     * @return the line number, starting at 1, or 0 for a binary entry
+     */
+    public int getNumber()
+    {
+      return number;
+    }
+    
+    
+    /**
+     * Return the text of the line.
+     * 
+     * @return the line text
+     */
+    public String getText()
+    {
+      return text;
+    }
+  }
+  
+  
+  /**
+   * Finds a literal in the raw bytes.  When case does not matter, the
+   * query is all ASCII, and ASCII letters are folded to lower case as
+   * the bytes are compared.
+   */
+  private static final class LiteralMatcher extends ContentMatcher
+  {
+    /**
+     * The lower-case form of each byte, or the byte itself when case
+     * matters.
+     */
+    private final byte[] fold = new byte[256];
+    
+    /**
+     * The query bytes, folded.
+     */
+    private final byte[] pattern;
+    
+    /**
+     * How far to move for each byte under the end of the pattern.
+     */
+    private final int[] shift = new int[256];
+    
+    
+    /**
+     * Constructor.
+     * 
+     * @param query the text to find
+     * @param matchCase whether the case of letters must match
+     */
+    public LiteralMatcher(final String query, final boolean matchCase)
+    {
+      super();
+      for (int i = 0; i < 256; ++i)
+      {
+        fold[i] = (byte) (((!matchCase) && (i >= 'A') && (i <= 'Z')) ? (i + 32) : i);
+      }
+      
+      pattern = query.getBytes(UTF8);
+      for (int i = 0; i < pattern.length; ++i)
+      {
+        pattern[i] = fold[pattern[i] & 0xFF];
+      }
+      
+      // Bytes not in the pattern skip its whole length
+      final int last = pattern.length - 1;
+      for (int i = 0; i < 256; ++i)
+      {
+        shift[i] = pattern.length;
+      }
+      
+      for (int i = 0; i < last; ++i)
+      {
+        shift[pattern[i] & 0xFF] = last - i;
+      }
+    }
+    
+    
+    /**
+     * Return the position of the next match.
+     * 
+     * @param data the bytes to search
+     * @param from the position to start at
+     * @param len the number of bytes
+     * @return the position of the match, or -1 if there is none
+     */
+    private int indexOf(final byte[] data, final int from, final int len)
+    {
+      final int last = pattern.length - 1;
+      if (last < 0)
+      {
+        return (from <= len) ? from : -1;
+      }
+      
+      int pos = from;
+      while (pos + last < len)
+      {
+        int j = last;
+        while ((j >= 0) && (fold[data[pos + j] & 0xFF] == pattern[j]))
+        {
+          --j;
+        }
+        
+        if (j < 0)
+        {
+          return pos;
+        }
+        
+        pos += shift[fold[data[pos + last] & 0xFF] & 0xFF];
+      }
+      
+      return -1;
+    }
+    
+    
+    /**
+     * Find the matching lines in a text entry.
+     * 
+     * @param data the bytes of the entry
+     * @param len the number of bytes
+     * @param lines the list to add the matches to
+     * @param maxLines the maximum number of lines to add
+     */
+    @Override
+    protected void findLines(final byte[] data, final int len,
+                             final List<Line> lines, final int maxLines)
+    {
+      int line = 1;
+      int counted = 0;
+      int pos = indexOf(data, 0, len);
+      int found = 0;
+      while ((pos >= 0) && (found < maxLines))
+      {
+        // Count the lines up to the match
+        for (int i = counted; i < pos; ++i)
+        {
+          if (data[i] == '\n')
+          {
+            ++line;
+          }
+        }
+        
+        // Find the ends of the line, and save it
+        int start = pos;
+        while ((start > 0) && (data[start - 1] != '\n'))
+        {
+          --start;
+        }
+        
+        int end = pos;
+        while ((end < len) && (data[end] != '\n'))
+        {
+          ++end;
+        }
+        
+        lines.add(new Line(line, trim(new String(data, start, end - start, UTF8))));
+        ++found;
+        
+        // Continue after the line
+        counted = end;
+        pos = (end < len) ? indexOf(data, end + 1, len) : -1;
+      }
+    }
+    
+    
+    /**
+     * Return whether a binary entry holds a match.
+     * 
+     * @param data the bytes of the entry
+     * @param len the number of bytes
+     * @return whether there is a match
+     */
+    @Override
+    protected boolean matchesBinary(final byte[] data, final int len)
+    {
+      return (indexOf(data, 0, len) >= 0);
+    }
+  }
+  
+  
+  /**
+   * Matches a regular expression against the decoded text.
+   */
+  private static final class RegexMatcher extends ContentMatcher
+  {
+    /**
+     * The compiled expression.
+     */
+    private final Pattern pattern;
+    
+    
+    /**
+     * Constructor.
+     * 
+     * @param pPattern the compiled expression
+     */
+    public RegexMatcher(final Pattern pPattern)
+    {
+      super();
+      pattern = pPattern;
+    }
+    
+    
+    /**
+     * Find the matching lines in a text entry.
+     * 
+     * @param data the bytes of the entry
+     * @param len the number of bytes
+     * @param lines the list to add the matches to
+     * @param maxLines the maximum number of lines to add
+     */
+    @Override
+    protected void findLines(final byte[] data, final int len,
+                             final List<Line> lines, final int maxLines)
+    {
+      final String text = new String(data, 0, len, UTF8);
+      final int size = text.length();
+      final Matcher m = pattern.matcher(text);
+      int line = 1;
+      int counted = 0;
+      int from = 0;
+      int found = 0;
+      while ((from <= size) && (found < maxLines) && m.find(from))
+      {
+        // Count the lines up to the match
+        final int pos = m.start();
+        for (int i = counted; i < pos; ++i)
+        {
+          if (text.charAt(i) == '\n')
+          {
+            ++line;
+          }
+        }
+        
+        // Find the ends of the line, and save it
+        final int start = text.lastIndexOf('\n', pos - 1) + 1;
+        int end = text.indexOf('\n', pos);
+        if (end < 0)
+        {
+          end = size;
+        }
+        
+        lines.add(new Line(line, trim(text.substring(start, end))));
+        ++found;
+        
+        // Continue after the line
+        counted = end;
+        from = end + 1;
+      }
+    }
+    
+    
+    /**
+     * Return whether a binary entry holds a match.  The bytes are read
+     * as ISO-8859-1, so each byte is one character.
+     * 
+     * @param data the bytes of the entry
+     * @param len the number of bytes
+     * @return whether there is a match
+     */
+    @Override
+    protected boolean matchesBinary(final byte[] data, final int len)
+    {
+      return pattern.matcher(new String(data, 0, len, LATIN1)).find();
+    }
+  }
+}
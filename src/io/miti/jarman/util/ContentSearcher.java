@@ -0,0 +1,511 @@
+package io.miti.jarman.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.jar.JarEntry;
+
+/**
+ * Search the contents of every entry in a list of jar files, on a
+ * fork/join pool, and pass each matching line to a handler as it is
+ * found.  The work is split by jar, and the entries in each jar are
+ * split into ranges, so entries are inflated on several threads at
+ * once, even within one jar.
+ * 
+ * Each entry is read into a buffer owned by the worker thread, and
+ * passed to a content matcher.  Only the start of a very large entry
+ * is searched.  Entries that are jars or wars are skipped, since nested
+ * archives are searched as jars of their own.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class ContentSearcher
+{
+  /**
+   * The maximum number of entries read by one task.
+   */
+  private static final int RANGE_SIZE = 32;
+  
+  /**
+   * The maximum number of lines reported for one entry.
+   */
+  private static final int MAX_LINES = 1000;
+  
+  /**
+   * The maximum number of bytes searched in one entry.
+   */
+  private static final int MAX_ENTRY = 64 * 1024 * 1024;
+  
+  /**
+   * The largest buffer a worker thread keeps between entries.
+   */
+  private static final int MAX_BUFFER = 4 * 1024 * 1024;
+  
+  /**
+   * The buffer for reading entries, for each worker thread.
+   */
+  private static final ThreadLocal<byte[]> buffers = new ThreadLocal<byte[]>()
+  {
+    @Override
+    protected byte[] initialValue()
+    {
+      return new byte[65536];
+    }
+  };
+  
+  /**
+   * The maximum number of worker threads.
+   */
+  private int poolSize = 1;
+  
+  /**
+   * The number of entries read by the last search.
+   */
+  private int entryCount = 0;
+  
+  /**
+   * The number of bytes read by the last search.
+   */
+  private long byteCount = 0L;
+  
+  
+  /**
+   * Constructor.
+   * 
+   * @param nPoolSize the maximum number of worker threads
+   */
+  public ContentSearcher(final int nPoolSize)
+  {
+    super();
+    poolSize = Math.max(1, nPoolSize);
+  }
+  
+  
+  /**
+   * Search the entries in the jars, and pass each matching line to
+   * the handler.  This returns when all jars are done, or the search
+   * is cancelled.
+   * 
+   * @param jars the list of jar files
+   * @param matcher the matcher for the query
+   * @param handler the handler for the matches
+   * @param listener the listener for the searched jars
+   */
+  public void search(final List<File> jars, final ContentMatcher matcher,
+                     final MatchHandler handler,
+                     final ClassScanner.ScanListener listener)
+  {
+    final Context ctx = new Context(matcher, handler, listener, jars.size());
+    
+    // Search each jar in its own task
+    final List<JarTask> tasks = new ArrayList<JarTask>(jars.size());
+    for (File jar : jars)
+    {
+      tasks.add(new JarTask(ctx, jar));
+    }
+    
+    ForkJoinPool pool = new ForkJoinPool(poolSize);
+    try
+    {
+      pool.invoke(new RecursiveAction()
+      {
+        private static final long serialVersionUID = 1L;
+        
+        @Override
+        protected void compute()
+        {
+          invokeAll(tasks);
+        }
+      });
+    }
+    finally
+    {
+      pool.shutdownNow();
+      entryCount = ctx.entries.get();
+      byteCount = ctx.bytes.get();
+    }
+  }
+  
+  
+  /**
+   * Return the number of entries read by the last search.
+   * 
+   * @return the number of entries
+   */
+  public int getEntryCount()
+  {
+    return entryCount;
+  }
+  
+  
+  /**
+   * Return the number of bytes read by the last search, after inflation.
+   * 
+   * @return the number of bytes
+   */
+  public long getByteCount()
+  {
+    return byteCount;
+  }
+  
+  
+  /**
+   * The interface for handling the lines found by a search.
+   */
+  public interface MatchHandler
+  {
+    /**
+     * Lines in an entry matched.  This is called on a worker thread,
+     * once for each entry with a match.
+     * 
+     * @param jar the jar file
+     * @param entry the name of the entry
+     * @param lines the matching lines
+     */
+    void linesFound(final File jar, final String entry,
+                    final List<ContentMatcher.Line> lines);
+  }
+  
+  
+  /**
+   * The data shared by all tasks of one search.
+   */
+  private static final class Context
+  {
+    /**
+     * The matcher for the query.
+     */
+    private ContentMatcher matcher = null;
+    
+    /**
+     * The handler for the matches.
+     */
+    private MatchHandler handler = null;
+    
+    /**
+     * The listener for the searched jars.
+     */
+    private ClassScanner.ScanListener listener = null;
+    
+    /**
+     * The number of jars to search.
+     */
+    private int total = 0;
+    
+    /**
+     * The number of jars searched so far.
+     */
+    private AtomicInteger done = new AtomicInteger(0);
+    
+    /**
+     * The number of entries read so far.
+     */
+    private AtomicInteger entries = new AtomicInteger(0);
+    
+    /**
+     * The number of bytes read so far.
+     */
+    private AtomicLong bytes = new AtomicLong(0L);
+    
+    
+    /**
+     * Constructor.
+     * 
+     * @param pMatcher the matcher for the query
+     * @param pHandler the handler for the matches
+     * @param pListener the listener for the searched jars
+     * @param nTotal the number of jars to search
+     */
+    public Context(final ContentMatcher pMatcher, final MatchHandler pHandler,
+                   final ClassScanner.ScanListener pListener,
+                   final int nTotal)
+    {
+      matcher = pMatcher;
+      handler = pHandler;
+      listener = pListener;
+      total = nTotal;
+    }
+  }
+  
+  
+  /**
+   * The task that searches one jar.
+   */
+  private static final class JarTask extends RecursiveAction
+  {
+    /**
+     * Default serial version ID.
+     */
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * The search data.
+     */
+    private final transient Context ctx;
+    
+    /**
+     * The jar file.
+     */
+    private final File file;
+    
+    
+    /**
+     * Constructor.
+     * 
+     * @param pCtx the search data
+     * @param pFile the jar file
+     */
+    public JarTask(final Context pCtx, final File pFile)
+    {
+      ctx = pCtx;
+      file = pFile;
+    }
+    
+    
+    /**
+     * Open the jar, and search its entries in ranges.
+     */
+    @Override
+    protected void compute()
+    {
+      if (ctx.listener.isCancelled())
+      {
+        return;
+      }
+      
+      Archive jar = null;
+      try
+      {
+        // Get the entries to search
+        jar = ArchivePool.open(file);
+        List<JarEntry> list = new ArrayList<JarEntry>(256);
+        Enumeration<JarEntry> entries = jar.entries();
+        while (entries.hasMoreElements())
+        {
+          JarEntry entry = entries.nextElement();
+          if (!entry.isDirectory() && !NestedArchive.isNestedName(entry.getName()))
+          {
+            list.add(entry);
+          }
+        }
+        
+        // Search the entries, and wait for all of the ranges to finish
+        new RangeTask(ctx, jar, list, 0, list.size()).invoke();
+      }
+      catch (IOException e)
+      {
+        e.printStackTrace();
+      }
+      finally
+      {
+        if (jar != null)
+        {
+          try
+          {
+            jar.close();
+          }
+          catch (IOException e)
+          {
+            e.printStackTrace();
+          }
+        }
+      }
+      
+      ctx.listener.jarScanned(file, ctx.done.incrementAndGet(), ctx.total);
+    }
+  }
+  
+  
+  /**
+   * The task that searches a range of entries in one jar.
+   */
+  private static final class RangeTask extends RecursiveAction
+  {
+    /**
+     * Default serial version ID.
+     */
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * The search data.
+     */
+    private final transient Context ctx;
+    
+    /**
+     * The open jar file.
+     */
+    private final transient Archive jar;
+    
+    /**
+     * The entries to search in the jar.
+     */
+    private final transient List<JarEntry> entries;
+    
+    /**
+     * The index of the first entry in the range.
+     */
+    private final int start;
+    
+    /**
+     * The index after the last entry in the range.
+     */
+    private final int end;
+    
+    /**
+     * The bytes of the last entry read.
+     */
+    private transient byte[] data = null;
+    
+    
+    /**
+     * Constructor.
+     * 
+     * @param pCtx the search data
+     * @param pJar the open jar file
+     * @param pEntries the entries to search in the jar
+     * @param nStart the index of the first entry in the range
+     * @param nEnd the index after the last entry in the range
+     */
+    public RangeTask(final Context pCtx, final Archive pJar,
+                     final List<JarEntry> pEntries,
+                     final int nStart, final int nEnd)
+    {
+      ctx = pCtx;
+      jar = pJar;
+      entries = pEntries;
+      start = nStart;
+      end = nEnd;
+    }
+    
+    
+    /**
+     * Search the entries in the range, splitting it if it is too large.
+     */
+    @Override
+    protected void compute()
+    {
+      if ((end - start) > RANGE_SIZE)
+      {
+        final int mid = (start + end) >>> 1;
+        invokeAll(new RangeTask(ctx, jar, entries, start, mid),
+                  new RangeTask(ctx, jar, entries, mid, end));
+        return;
+      }
+      
+      for (int i = start; (i < end) && !ctx.listener.isCancelled(); ++i)
+      {
+        try
+        {
+          searchEntry(entries.get(i));
+        }
+        catch (RuntimeException e)
+        {
+          // Skip an entry that the archive or the matcher fails on
+          e.printStackTrace();
+        }
+      }
+    }
+    
+    
+    /**
+     * Search one entry, and pass its matching lines to the handler.
+     * 
+     * @param entry the entry
+     */
+    private void searchEntry(final JarEntry entry)
+    {
+      final int len = read(entry);
+      if (len < 0)
+      {
+        return;
+      }
+      
+      ctx.entries.incrementAndGet();
+      ctx.bytes.addAndGet(len);
+      List<ContentMatcher.Line> lines = new ArrayList<ContentMatcher.Line>(0);
+      ctx.matcher.find(data, len, lines, MAX_LINES);
+      if (!lines.isEmpty())
+      {
+        ctx.handler.linesFound(jar.getFile(), entry.getName(), lines);
+      }
+    }
+    
+    
+    /**
+     * Read up to MAX_ENTRY bytes of an entry into the thread's buffer,
+     * growing it if needed.  A buffer grown past MAX_BUFFER is only
+     * used for this entry.
+     * 
+     * @param entry the entry
+     * @return the number of bytes read, or -1 if the entry cannot be read
+     */
+    private int read(final JarEntry entry)
+    {
+      // Make room for one more byte than the expected size, so that the
+      // end of the entry is seen without growing the buffer
+      byte[] buf = buffers.get();
+      final long size = entry.getSize();
+      if (size >= buf.length)
+      {
+        buf = new byte[(int) Math.min(size + 1, MAX_ENTRY)];
+      }
+      
+      int len = 0;
+      InputStream in = null;
+      try
+      {
+        in = jar.getInputStream(entry);
+        while (len < MAX_ENTRY)
+        {
+          if (len == buf.length)
+          {
+            buf = Arrays.copyOf(buf, (int) Math.min(buf.length * 2L, MAX_ENTRY));
+          }
+          
+          final int count = in.read(buf, len, buf.length - len);
+          if (count < 0)
+          {
+            break;
+          }
+          
+          len += count;
+        }
+      }
+      catch (IOException e)
+      {
+        len = -1;
+      }
+      finally
+      {
+        if (in != null)
+        {
+          try
+          {
+            in.close();
+          }
+          catch (IOException e)
+          {
+            e.printStackTrace();
+          }
+        }
+      }
+      
+      if (buf.length <= MAX_BUFFER)
+      {
+        buffers.set(buf);
+      }
+      
+      data = buf;
+      return len;
+    }
+  }
+}
@@ -0,0 +1,173 @@
+package io.miti.jarman.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+
+/**
+ * An archive backed by a directory of class files, such as the
+ * target/classes directory of a build.  Each file under the directory
+ * is an entry, named by its path relative to the directory, with
+ * forward slashes.  Nothing is held open, so closing does nothing.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class DirArchive implements Archive
+{
+  /**
+   * The directory.
+   */
+  private File dir = null;
+  
+  
+  /**
+   * Constructor.
+   * 
+   * @param pDir the directory
+   * @throws IOException if the file is not a directory
+   */
+  public DirArchive(final File pDir) throws IOException
+  {
+    super();
+    if (!pDir.isDirectory())
+    {
+      throw new IOException("Not a directory: " + pDir.getPath());
+    }
+    
+    dir = pDir;
+  }
+  
+  
+  /**
+   * Return the directory.
+   * 
+   * @return the directory
+   */
+  @Override
+  public File getFile()
+  {
+    return dir;
+  }
+  
+  
+  /**
+   * Return the files under the directory, walking the tree each
+   * time this is called.  Directories are not returned.
+   * 
+   * @return the entries
+   */
+  @Override
+  public Enumeration<JarEntry> entries()
+  {
+    List<JarEntry> list = new ArrayList<JarEntry>(256);
+    addEntries(dir, "", list);
+    return Collections.enumeration(list);
+  }
+  
+  
+  /**
+   * Add an entry for each file under a directory.
+   * 
+   * @param parent the directory
+   * @param prefix the path of the directory, relative to the root
+   * @param list the list of entries
+   */
+  private static void addEntries(final File parent, final String prefix,
+                                 final List<JarEntry> list)
+  {
+    final File[] files = parent.listFiles();
+    if (files == null)
+    {
+      return;
+    }
+    
+    for (File file : files)
+    {
+      final String name = prefix + file.getName();
+      if (file.isDirectory())
+      {
+        addEntries(file, name + "/", list);
+      }
+      else
+      {
+        list.add(makeEntry(name, file));
+      }
+    }
+  }
+  
+  
+  /**
+   * Return an entry for a file.
+   * 
+   * @param name the path of the file, relative to the root
+   * @param file the file
+   * @return the entry
+   */
+  private static JarEntry makeEntry(final String name, final File file)
+  {
+    JarEntry entry = new JarEntry(name);
+    entry.setSize(file.length());
+    entry.setTime(file.lastModified());
+    return entry;
+  }
+  
+  
+  /**
+   * Return the entry with the name.
+   * 
+   * @param name the path of the file, relative to the directory
+   * @return the entry, or null if not found
+   */
+  @Override
+  public JarEntry getEntry(final String name)
+  {
+    final File file = new File(dir, name);
+    return file.isFile() ? makeEntry(name, file) : null;
+  }
+  
+  
+  /**
+   * Return the entry with the name.  A directory cannot hold two
+   * files with the same name, so the CRC is not checked.
+   * 
+   * @param name the path of the file, relative to the directory
+   * @param crc the CRC of the entry (unused)
+   * @return the entry, or null if not found
+   */
+  @Override
+  public JarEntry getEntry(final String name, final long crc)
+  {
+    return getEntry(name);
+  }
+  
+  
+  /**
+   * Return a stream for reading a file.
+   * 
+   * @param entry the entry
+   * @return the input stream
+   * @throws IOException if the file cannot be read
+   */
+  @Override
+  public InputStream getInputStream(final JarEntry entry) throws IOException
+  {
+    return new FileInputStream(new File(dir, entry.getName()));
+  }
+  
+  
+  /**
+   * Nothing is held open, so there is nothing to close.
+   */
+  @Override
+  public void close()
+  {
+    // Nothing to close
+  }
+}
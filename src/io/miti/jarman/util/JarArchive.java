@@ -0,0 +1,137 @@
+package io.miti.jarman.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * An archive backed by a jar file on disk.  Entries are looked up
+ * through the jar file's own index of its central directory.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class JarArchive implements Archive
+{
+  /**
+   * The archive file.
+   */
+  private File file = null;
+  
+  /**
+   * The open jar file.
+   */
+  private JarFile jar = null;
+  
+  
+  /**
+   * Constructor.  This opens the jar file.
+   * 
+   * @param pFile the jar file
+   * @throws IOException if the jar cannot be opened
+   */
+  public JarArchive(final File pFile) throws IOException
+  {
+    super();
+    file = pFile;
+    jar = new JarFile(pFile, false);
+  }
+  
+  
+  /**
+   * Return the file holding the archive.
+   * 
+   * @return the archive file
+   */
+  @Override
+  public File getFile()
+  {
+    return file;
+  }
+  
+  
+  /**
+   * Return the entries in the jar.
+   * 
+   * @return the entries
+   */
+  @Override
+  public Enumeration<JarEntry> entries()
+  {
+    return jar.entries();
+  }
+  
+  
+  /**
+   * Return the entry with the name.
+   * 
+   * @param name the full path of the entry
+   * @return the entry, or null if not found
+   */
+  @Override
+  public JarEntry getEntry(final String name)
+  {
+    return jar.getJarEntry(name);
+  }
+  
+  
+  /**
+   * Return the entry with the name and CRC.  The entries are only
+   * walked if the entry found by name has a different CRC, which
+   * happens when the jar holds the name more than once.
+   * 
+   * @param name the full path of the entry
+   * @param crc the CRC of the entry
+   * @return the entry, or null if not found
+   */
+  @Override
+  public JarEntry getEntry(final String name, final long crc)
+  {
+    JarEntry entry = jar.getJarEntry(name);
+    if ((entry == null) || (entry.getCrc() == crc))
+    {
+      return entry;
+    }
+    
+    Enumeration<JarEntry> entries = jar.entries();
+    while (entries.hasMoreElements())
+    {
+      JarEntry other = entries.nextElement();
+      if ((other.getCrc() == crc) && other.getName().equals(name))
+      {
+        return other;
+      }
+    }
+    
+    return entry;
+  }
+  
+  
+  /**
+   * Return a stream for reading an entry.
+   * 
+   * @param entry the entry
+   * @return the input stream
+   * @throws IOException if the entry cannot be read
+   */
+  @Override
+  public InputStream getInputStream(final JarEntry entry) throws IOException
+  {
+    return jar.getInputStream(entry);
+  }
+  
+  
+  /**
+   * Close the jar file.
+   * 
+   * @throws IOException if the jar cannot be closed
+   */
+  @Override
+  public void close() throws IOException
+  {
+    jar.close();
+  }
+}
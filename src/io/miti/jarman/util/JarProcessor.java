@@ -2,24 +2,27 @@ package io.miti.jarman.util;
 
 import io.miti.jarman.data.FileList;
 import io.miti.jarman.data.JarData;
+import io.miti.jarman.data.JarListing;
+import io.miti.jarman.gui.BackgroundTask;
+import io.miti.jarman.gui.JarPage;
 import io.miti.jarman.gui.Jarman;
 import io.miti.jarman.gui.ListingsPage;
 
-import java.awt.Cursor;
 import java.io.File;
 import java.io.IOException;
-import java.util.Enumeration;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.jar.Attributes;
-import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
 
 import javax.swing.JOptionPane;
 
 /**
- * Process a jar file.
+ * Process a jar file, a directory of jars, or a class path.
  * 
  * @author mwallace
  * @version 1.0
@@ -36,17 +39,16 @@ public final class JarProcessor
   
   
   /**
-   * Process the file.
+   * Process the file.  The manifest is read on the calling thread,
+   * and the jar entries are loaded by a background task.
    * 
    * @param file the file to process
    * @param recurse whether to save the external jars referenced by the manifest
    */
   public void processFile(final File file, final boolean recurse)
   {
-    // Show busy cursor
-    final Cursor cursor = Jarman.getApp().getFrame().getCursor();
-    Jarman.getApp().getFrame().setCursor(
-        Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+    // Stop any task still working on the previous file
+    BackgroundTask.replaceCurrent();
     
     // Reset the data cache and save the jar file
     JarData.reset();
@@ -57,9 +59,6 @@ public final class JarProcessor
     boolean result = getJarAttributes(file);
     if (!result)
     {
-      // Show the previous cursor
-      Jarman.getApp().getFrame().setCursor(cursor);
-      
       // This is a bad file
       JOptionPane.showMessageDialog(Jarman.getApp().getFrame(),
             "The file appears to be invalid",
@@ -69,101 +68,85 @@ public final class JarProcessor
       return;
     }
     
-    // Save the files used by the jar
-    getJarDataFiles(file, recurse);
-    
-    // Fire a table data change
+    // Show the manifest
     JarData.getInstance().resetTables(false);
     
-    Jarman.getApp().updateFileInfo();
-    
     // Update the tabs in the frame
     Jarman.getApp().updateTabsForJar();
     
-    // Show the previous cursor
-    Jarman.getApp().getFrame().setCursor(cursor);
+    // Load the files used by the jar
+    new LoadTask(file, recurse).start();
+    
+    Jarman.getApp().updateFileInfo();
   }
   
   
   /**
-   * Get the jar files in the jar's class path (from the manifest).
+   * Process a directory, such as a lib folder.  The directory tree is
+   * walked by a background task, and every archive and class directory
+   * in it is loaded, one row per archive on the Jars page.
    * 
-   * @param file the parent jar file
-   * @param recurse whether to save the external jars referenced by the manifest
+   * @param dir the directory to process
    */
-  private void getJarDataFiles(final File file, final boolean recurse)
+  public void processDirectory(final File dir)
   {
-    // Save the file that was opened
-    saveJarData(file, true);
-    
-    // Iterate over the referenced jar files
-    Iterator<File> paths = JarData.getInstance().getPath();
-    if (paths != null)
-    {
-      while (paths.hasNext())
-      {
-        File path = paths.next();
-        saveJarData(path, recurse);
-      }
-    }
-    
-    JarData.getInstance().checkForDuplicates();
+    startLoad(dir, null, new LoadTask("Loading " + dir.getName(), dir,
+                                      new ArrayList<File>(0)));
   }
   
   
   /**
-   * Save the data on all files in this jar file.
+   * Process a class path string.  Each jar and class directory in the
+   * class path is loaded, in class path order.  Relative entries are
+   * resolved against the working directory, as the java launcher does.
    * 
-   * @param file the jar file
-   * @param recurse whether to save the external jars referenced by the manifest
+   * @param path the class path
    */
-  private void saveJarData(final File file, final boolean recurse)
+  public void processClassPath(final String path)
   {
-    // Verify the file exists
-    if (!file.exists())
+    final List<File> files = ClassPathFinder.parseClassPath(path);
+    if (files.isEmpty())
     {
-      JarData.getInstance().addJarFileEntry(file.getAbsolutePath(), false, 0, 0L, 0L);
+      JOptionPane.showMessageDialog(Jarman.getApp().getFrame(),
+            "The class path has no entries",
+            "Error Opening Class Path", JOptionPane.ERROR_MESSAGE);
       return;
     }
     
-    try
-    {
-      // Open the Jar file and iterate over its contents
-      final JarFile jar = new JarFile(file, true);
-      
-      // Check if we want to look at all of the files in this jar file
-      int count = 0;
-      if (recurse)
-      {
-        final Enumeration<JarEntry> entries = jar.entries();
-        while (entries.hasMoreElements())
-        {
-          // Get the next zip entry and save it; if added, increment the count
-          JarEntry entry = entries.nextElement();
-          if (JarData.getInstance().addJarEntry(file, entry))
-          {
-            ++count;
-          }
-        }
-      }
-      else
-      {
-        // This count includes directories.  If recurse=true, the count
-        // does not include directories.
-        count = jar.size();
-      }
-      
-      // Save the jar file and include the number of files it contains
-      JarData.getInstance().addJarFileEntry(file.getAbsolutePath(), true, count,
-                                            file.length(), file.lastModified());
-      
-      jar.close();
-    }
-    catch (IOException e)
-    {
-      JarData.getInstance().addJarFileEntry(file.getAbsolutePath(), false, 0, 0L, 0L);
-      e.printStackTrace();
-    }
+    final File dir = new File(System.getProperty("user.dir"));
+    final String title = "class path of " + files.size() +
+                         ((files.size() == 1) ? " entry" : " entries");
+    startLoad(dir, title, new LoadTask("Loading the class path", null, files));
+  }
+  
+  
+  /**
+   * Reset the data, and start loading files that have no manifest.
+   * 
+   * @param file the file saved as the parent jar
+   * @param title the name shown for the files, or null to show the path
+   * @param task the task that loads the files
+   */
+  private static void startLoad(final File file, final String title,
+                                final LoadTask task)
+  {
+    // Stop any task still working on the previous file
+    BackgroundTask.replaceCurrent();
+    
+    // Reset the data cache and save the file
+    JarData.reset();
+    ListingsPage.getInstance().resetOptions();
+    JarData.getInstance().setJarFile(file);
+    JarData.getInstance().setTitle(title);
+    
+    // Show the empty tables, and update the tabs in the frame
+    JarData.getInstance().resetTables(false);
+    Jarman.getApp().updateTabsForJar();
+    
+    // Load the files
+    task.start();
+    
+    Jarman.getApp().updateFileInfo();
   }
   
   
@@ -175,7 +158,21 @@ public final class JarProcessor
    */
   private boolean getJarAttributes(final File file)
   {
+    // Check the cache
+    Map<String, String> cached = ScanCache.getInstance().getAttributes(file);
+    if (cached != null)
+    {
+      FileList.getInstance().addFile(file);
+      for (Entry<String, String> attr : cached.entrySet())
+      {
+        JarData.getInstance().addManifestEntry(attr.getKey(), attr.getValue());
+      }
+      
+      return true;
+    }
+    
     boolean result = false;
+    Map<String, String> attributes = new LinkedHashMap<String, String>(20);
     try
     {
       // Open the jar file; if it's invalid, it will throw an exception
@@ -190,6 +187,7 @@ public final class JarProcessor
       if (man == null)
       {
     	jar.close();
+        ScanCache.getInstance().putAttributes(file, attributes);
         return true;
       }
       
@@ -203,10 +201,12 @@ public final class JarProcessor
           String key = attr.getKey().toString();
           String val = attr.getValue().toString();
           JarData.getInstance().addManifestEntry(key, val);
+          attributes.put(key, val);
         }
       }
       
       jar.close();
+      ScanCache.getInstance().putAttributes(file, attributes);
     }
     catch (IOException ioe)
     {
@@ -215,4 +215,237 @@ public final class JarProcessor
     
     return result;
   }
+  
+  
+  /**
+   * The background task that loads the entries of the opened jar and
+   * the jars in its class path.  Each jar's entries are added to the
+   * Listing page as soon as that jar (and every jar before it) is done.
+   * If the task has a directory to walk, the archives and class
+   * directories found in it are loaded after the class path.
+   * 
+   * The Class-Path of each jar's manifest is followed, to any depth,
+   * before the entries are loaded.
+   */
+  private static final class LoadTask extends BackgroundTask<Void, JarListing>
+    implements JarScanner.ScanListener
+  {
+    /**
+     * The opened jar file.
+     */
+    private File file = null;
+    
+    /**
+     * The jar files in the class path, not counting the manifests.
+     */
+    private List<File> paths = null;
+    
+    /**
+     * The jars to load, and how each was reached.
+     */
+    private List<ClassPathResolver.Link> links = null;
+    
+    /**
+     * The directory to walk for more jars, or null.
+     */
+    private File walkDir = null;
+    
+    /**
+     * Whether to save the entries of the jars in the class path.
+     */
+    private boolean recurse = false;
+    
+    /**
+     * The number of jars scanned so far, not counting nested jars.
+     */
+    private int jarsDone = 0;
+    
+    /**
+     * The depth of the last jar scanned that is not nested.
+     */
+    private int outerDepth = 0;
+    
+    
+    /**
+     * Constructor.
+     * 
+     * @param pFile the opened jar file
+     * @param bRecurse whether to save the entries of the jars in the class path
+     */
+    public LoadTask(final File pFile, final boolean bRecurse)
+    {
+      super("Loading " + pFile.getName());
+      file = pFile;
+      paths = new ArrayList<File>(0);
+      recurse = bRecurse;
+    }
+    
+    
+    /**
+     * Constructor for loading files with no opened jar.  The entries
+     * of every file are saved.
+     * 
+     * @param sDescription the description of the task
+     * @param pWalkDir the directory to walk for more jars, or null
+     * @param pPaths the jar files and class directories to load
+     */
+    public LoadTask(final String sDescription, final File pWalkDir,
+                    final List<File> pPaths)
+    {
+      super(sDescription);
+      walkDir = pWalkDir;
+      paths = pPaths;
+      recurse = true;
+    }
+    
+    
+    /**
+     * Scan the jar files.
+     * 
+     * @return null
+     */
+    @Override
+    protected Void doInBackground()
+    {
+      // Start with the opened file and the given class path
+      final int threads = WindowState.getInstance().getScanThreads();
+      List<File> roots = new ArrayList<File>(paths.size() + 1);
+      if (file != null)
+      {
+        roots.add(file);
+      }
+      
+      roots.addAll(paths);
+      
+      // Find the jars and class directories under the directory
+      if (walkDir != null)
+      {
+        setStatusText("Searching " + walkDir.getName());
+        roots.addAll(new ClassPathFinder(threads).find(walkDir));
+      }
+      
+      // Follow the Class-Path of each jar's manifest
+      setStatusText("Reading manifests");
+      ClassPathResolver resolver = new ClassPathResolver(threads);
+      links = resolver.resolve(roots);
+      for (ClassPathResolver.Link cycle : resolver.getCycles())
+      {
+        Logger.warn("Class-Path cycle: " + cycle.getParent().getPath() +
+                    " references " + cycle.getFile().getPath());
+      }
+      
+      List<File> jars = new ArrayList<File>(links.size());
+      for (ClassPathResolver.Link link : links)
+      {
+        jars.add(link.getFile());
+      }
+      
+      // Save the file that was opened, and any jars inside it
+      JarScanner scanner = new JarScanner(threads);
+      int first = 0;
+      if (file != null)
+      {
+        scanner.scan(jars.subList(0, 1), true, this);
+        first = 1;
+      }
+      
+      // Scan the referenced jar files, and save them in class path order
+      scanner.scan(jars.subList(first, jars.size()), recurse, this);
+      
+      // Save any jars that were read into the scan cache
+      if (!isCancelled())
+      {
+        ScanCache.getInstance().save();
+      }
+      
+      return null;
+    }
+    
+    
+    /**
+     * A jar was scanned, so pass it to the event thread.
+     * 
+     * @param listing the listing for the jar
+     */
+    @Override
+    public void jarScanned(final JarListing listing)
+    {
+      // Save how the jar was reached; a nested jar is one level
+      // below the jar holding it
+      final File outer = NestedArchive.getParent(listing.getJar());
+      if (outer != null)
+      {
+        listing.setReference(outerDepth + NestedArchive.getLevel(listing.getJar()),
+                             outer);
+        publish(listing);
+        return;
+      }
+      
+      final ClassPathResolver.Link link = links.get(jarsDone);
+      outerDepth = link.getDepth();
+      listing.setReference(outerDepth, link.getParent());
+      
+      publish(listing);
+      ++jarsDone;
+      final int total = links.size();
+      setProgress(jarsDone, total);
+      setStatusText("Loaded " + listing.getJar().getName() +
+                    " (" + jarsDone + " of " + total + ")");
+    }
+    
+    
+    /**
+     * Add the scanned jars to the data cache and the tables.
+     * 
+     * @param listings the jars scanned since the last call
+     */
+    @Override
+    protected void process(final List<JarListing> listings)
+    {
+      // Skip the data if a new file was opened
+      if (isCancelled())
+      {
+        return;
+      }
+      
+      // Save the jars, and tell the tables which rows were added
+      final JarData data = JarData.getInstance();
+      final int firstFile = data.getFileDataCount();
+      final int firstJar = data.getJarFileCount();
+      for (JarListing listing : listings)
+      {
+        data.addJarListing(listing);
+      }
+      
+      ListingsPage.getInstance().rowsAdded(firstFile, data.getFileDataCount() - 1);
+      JarPage.getInstance().rowsAdded(firstJar, data.getJarFileCount() - 1);
+      Jarman.getApp().updateVisibleRowCount();
+    }
+    
+    
+    /**
+     * Loading is done, or was cancelled.  Check the loaded files for
+     * duplicates, and update the tables and menu.
+     * 
+     * @param result the result (unused)
+     * @param cancelled whether the task was cancelled
+     */
+    @Override
+    protected void finished(final Void result, final boolean cancelled)
+    {
+      // If another file is being opened, the data is about to be reset
+      if (cancelled && isReplaced())
+      {
+        return;
+      }
+      
+      JarData.getInstance().checkForDuplicates();
+      if (ListingsPage.getInstance().getDisplayIndex() != 0)
+      {
+        JarData.getInstance().resetTables(true);
+      }
+      
+      Jarman.getApp().updateFileInfo();
+    }
+  }
 }
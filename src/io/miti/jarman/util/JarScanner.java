@@ -0,0 +1,594 @@
+package io.miti.jarman.util;
+
+import io.miti.jarman.data.EntryStore;
+import io.miti.jarman.data.JarListing;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Enumerate the entries in a list of jar files.  The jars can be
+ * scanned one at a time, or on a bounded pool of worker threads.
+ * Each jar is read into its own listing, and the listings are
+ * returned in the same order as the input list.  A directory of
+ * class files in the list is read as if it were a jar.  No jar is
+ * kept open once its listing is done.
+ * 
+ * When the entries are read, any jar or war inside a jar is listed
+ * too, right after the jar holding it, with a path such as
+ * app.jar!/BOOT-INF/lib/x.jar.  Nested archives are read from the
+ * outer file's bytes, and are not extracted.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class JarScanner
+{
+  /**
+   * The maximum number of worker threads.
+   */
+  private int poolSize = 1;
+  
+  
+  /**
+   * Constructor.
+   * 
+   * @param nPoolSize the maximum number of worker threads; if this is
+   *        1 or less, the jars are scanned on the calling thread
+   */
+  public JarScanner(final int nPoolSize)
+  {
+    super();
+    poolSize = Math.max(1, nPoolSize);
+  }
+  
+  
+  /**
+   * Return the default number of worker threads (one per processor).
+   * 
+   * @return the default number of worker threads
+   */
+  public static int getDefaultPoolSize()
+  {
+    return Runtime.getRuntime().availableProcessors();
+  }
+  
+  
+  /**
+   * Scan the list of jar files.
+   * 
+   * @param jars the list of jar files
+   * @param recurse whether to save the entries of each jar (as opposed
+   *        to only counting them)
+   * @return the listing for each jar, in the same order as jars
+   */
+  public List<JarListing> scan(final List<File> jars, final boolean recurse)
+  {
+    final List<JarListing> listings = new ArrayList<JarListing>(jars.size());
+    scan(jars, recurse, new ScanListener()
+    {
+      @Override
+      public void jarScanned(final JarListing listing)
+      {
+        listings.add(listing);
+      }
+      
+      @Override
+      public boolean isCancelled()
+      {
+        return false;
+      }
+    });
+    
+    return listings;
+  }
+  
+  
+  /**
+   * Scan the list of jar files, passing each listing to the listener
+   * as soon as it and all of the jars before it are done.  The listener
+   * is called on the calling thread, in the same order as jars.
+   * 
+   * @param jars the list of jar files
+   * @param recurse whether to save the entries of each jar (as opposed
+   *        to only counting them)
+   * @param listener the listener for the scanned jars
+   */
+  public void scan(final List<File> jars, final boolean recurse,
+                   final ScanListener listener)
+  {
+    final int count = jars.size();
+    final int threads = Math.min(poolSize, count);
+    if (threads <= 1)
+    {
+      // Scan the jars on this thread
+      for (File jar : jars)
+      {
+        if (listener.isCancelled())
+        {
+          return;
+        }
+        
+        for (JarListing listing : scanTree(jar, recurse))
+        {
+          listener.jarScanned(listing);
+        }
+      }
+      
+      return;
+    }
+    
+    // Submit one task per jar to the pool, and pass on the results in order
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try
+    {
+      List<Future<List<JarListing>>> results = new ArrayList<Future<List<JarListing>>>(count);
+      for (final File jar : jars)
+      {
+        results.add(pool.submit(new Callable<List<JarListing>>()
+        {
+          @Override
+          public List<JarListing> call()
+          {
+            return scanTree(jar, recurse);
+          }
+        }));
+      }
+      
+      for (int i = 0; i < count; ++i)
+      {
+        if (listener.isCancelled() || Thread.currentThread().isInterrupted())
+        {
+          return;
+        }
+        
+        for (JarListing listing : getResult(results.get(i), jars.get(i)))
+        {
+          listener.jarScanned(listing);
+        }
+      }
+    }
+    finally
+    {
+      pool.shutdownNow();
+    }
+  }
+  
+  
+  /**
+   * Return the result of a scan task.  If the task failed, an
+   * empty listing (marked as not found) is returned.
+   * 
+   * @param result the scan task result
+   * @param jar the jar file scanned by the task
+   * @return the listing for the jar
+   */
+  private static List<JarListing> getResult(final Future<List<JarListing>> result,
+                                            final File jar)
+  {
+    List<JarListing> listings = null;
+    try
+    {
+      listings = result.get();
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      listings = Collections.singletonList(new JarListing(jar));
+    }
+    catch (ExecutionException e)
+    {
+      e.printStackTrace();
+      listings = Collections.singletonList(new JarListing(jar));
+    }
+    
+    return listings;
+  }
+  
+  
+  /**
+   * Enumerate the entries in a jar file, and then in each archive
+   * inside it (and inside those, and so on).
+   * 
+   * @param file the jar file
+   * @param recurse whether to save the jar's entries
+   * @return the listing of the jar, followed by those of the archives
+   *         inside it, in entry order
+   */
+  private static List<JarListing> scanTree(final File file, final boolean recurse)
+  {
+    final JarListing listing = scanJar(file, recurse);
+    if (!recurse || !listing.isFound() || file.isDirectory())
+    {
+      return Collections.singletonList(listing);
+    }
+    
+    List<JarListing> listings = new ArrayList<JarListing>(1);
+    listings.add(listing);
+    final EntryStore entries = listing.getEntries();
+    final int count = entries.size();
+    for (int i = 0; i < count; ++i)
+    {
+      final String name = entries.getFullPath(i);
+      if (NestedArchive.isNestedName(name))
+      {
+        // A bad inner archive is listed as not found, not its parent
+        final File nested = NestedArchive.getNestedFile(file, name);
+        try
+        {
+          listings.addAll(scanTree(nested, true));
+        }
+        catch (RuntimeException e)
+        {
+          e.printStackTrace();
+          listings.add(new JarListing(nested));
+        }
+      }
+    }
+    
+    return listings;
+  }
+  
+  
+  /**
+   * Save the data on all files in this jar file.  If the jar's entries
+   * are in the scan cache, and the jar is unchanged, the cached listing
+   * is returned; otherwise the jar is read and the listing is cached.
+   * A directory is always read, since a change to a file in it does
+   * not change the directory.
+   * 
+   * @param file the jar file, or a directory of class files
+   * @param recurse whether to save the entries of the jar
+   * @return the listing for the jar
+   */
+  public static JarListing scanJar(final File file, final boolean recurse)
+  {
+    // Verify the file exists
+    if (NestedArchive.isNested(file))
+    {
+      return readNested(file, recurse);
+    }
+    else if (!file.exists())
+    {
+      return new JarListing(file);
+    }
+    else if (file.isDirectory())
+    {
+      return readDirectory(file, recurse);
+    }
+    else if (!recurse)
+    {
+      return readJar(file, false);
+    }
+    
+    // Check the cache
+    final ScanCache cache = ScanCache.getInstance();
+    JarListing listing = cache.getListing(file);
+    if (listing == null)
+    {
+      listing = readJar(file, true);
+      cache.putListing(listing);
+    }
+    
+    return listing;
+  }
+  
+  
+  /**
+   * Save the data on all files in this jar file.  The central directory
+   * is read directly; if that fails, the jar is opened as a JarFile.
+   * 
+   * @param file the jar file
+   * @param recurse whether to save the entries of the jar
+   * @return the listing for the jar
+   */
+  private static JarListing readJar(final File file, final boolean recurse)
+  {
+    JarListing listing = new JarListing(file);
+    
+    try
+    {
+      // Read the central directory
+      ZipDirectory dir = new ZipDirectory(file);
+      
+      // Check if we want to look at all of the files in this jar file
+      int count = 0;
+      if (recurse)
+      {
+        while (dir.next())
+        {
+          // Save the entry; if added, increment the count
+          if (listing.addZipEntry(dir))
+          {
+            ++count;
+          }
+        }
+      }
+      else
+      {
+        // This count includes directories.  If recurse=true, the count
+        // does not include directories.
+        count = dir.getEntryCount();
+      }
+      
+      // Save the number of files the jar contains
+      listing.setStatus(true, count);
+      return listing;
+    }
+    catch (IOException e)
+    {
+      // Fall back to the JarFile
+      return scanJarFile(file, recurse);
+    }
+  }
+  
+  
+  /**
+   * Enumerate the entries in an archive inside another archive.  A
+   * stored archive's central directory is read in place from the outer
+   * file's mapped bytes.  A deflated one is inflated as a stream, one
+   * entry at a time, so it is never held in memory.  Nested listings
+   * are not cached, since the outer jar is checked instead.
+   * 
+   * @param file the path of the nested archive
+   * @param recurse whether to save the archive's entries
+   * @return the listing
+   */
+  private static JarListing readNested(final File file, final boolean recurse)
+  {
+    JarListing listing = new JarListing(file);
+    ZipInputStream zin = null;
+    try
+    {
+      final ZipDirectory outer = NestedArchive.findEntry(file);
+      listing.setArchiveInfo(outer.getSize(), outer.getTime());
+      
+      int count = 0;
+      if (outer.isStored())
+      {
+        // The archive is stored, so read its central directory
+        final ZipDirectory dir = new ZipDirectory(outer.getBuffer());
+        if (!recurse)
+        {
+          count = dir.getEntryCount();
+        }
+        
+        while (recurse && dir.next())
+        {
+          if (listing.addZipEntry(dir))
+          {
+            ++count;
+          }
+        }
+      }
+      else
+      {
+        // The archive is compressed, so read its local headers as they
+        // are inflated; each entry must be read through for its CRC
+        zin = new ZipInputStream(outer.getInputStream());
+        final byte[] buffer = new byte[8192];
+        ZipEntry entry;
+        while ((entry = zin.getNextEntry()) != null)
+        {
+          while (zin.read(buffer) > 0)
+          {
+            // Skip the data
+          }
+          
+          if (!recurse)
+          {
+            ++count;
+          }
+          else if (listing.addJarEntry(new JarEntry(entry)))
+          {
+            ++count;
+          }
+        }
+      }
+      
+      listing.setStatus(true, count);
+    }
+    catch (IOException e)
+    {
+      listing = new JarListing(file);
+      e.printStackTrace();
+    }
+    finally
+    {
+      if (zin != null)
+      {
+        try
+        {
+          zin.close();
+        }
+        catch (IOException e)
+        {
+          e.printStackTrace();
+        }
+      }
+    }
+    
+    return listing;
+  }
+  
+  
+  /**
+   * Save the data on all files under a directory of class files.  The
+   * CRC of each file is computed, so copies of a class in the directory
+   * and in a jar are found as duplicates.
+   * 
+   * @param dir the directory
+   * @param recurse whether to save the entries of the directory
+   * @return the listing for the directory
+   */
+  private static JarListing readDirectory(final File dir, final boolean recurse)
+  {
+    JarListing listing = new JarListing(dir);
+    try
+    {
+      final DirArchive archive = new DirArchive(dir);
+      final CRC32 crc = new CRC32();
+      final byte[] buffer = new byte[8192];
+      int count = 0;
+      final Enumeration<JarEntry> entries = archive.entries();
+      while (entries.hasMoreElements())
+      {
+        JarEntry entry = entries.nextElement();
+        if (recurse)
+        {
+          entry.setCrc(getCrc(archive, entry, crc, buffer));
+          listing.addJarEntry(entry);
+        }
+        
+        ++count;
+      }
+      
+      listing.setStatus(true, count);
+    }
+    catch (IOException e)
+    {
+      listing = new JarListing(dir);
+      e.printStackTrace();
+    }
+    
+    return listing;
+  }
+  
+  
+  /**
+   * Compute the CRC-32 of a file in a directory.
+   * 
+   * @param archive the directory
+   * @param entry the file entry
+   * @param crc the checksum to use
+   * @param buffer the buffer to read into
+   * @return the CRC-32 of the file
+   * @throws IOException if the file cannot be read
+   */
+  private static long getCrc(final DirArchive archive, final JarEntry entry,
+                             final CRC32 crc, final byte[] buffer)
+    throws IOException
+  {
+    crc.reset();
+    InputStream in = null;
+    try
+    {
+      in = archive.getInputStream(entry);
+      int len;
+      while ((len = in.read(buffer)) > 0)
+      {
+        crc.update(buffer, 0, len);
+      }
+    }
+    finally
+    {
+      if (in != null)
+      {
+        in.close();
+      }
+    }
+    
+    return crc.getValue();
+  }
+  
+  
+  /**
+   * Save the data on all files in this jar file, using a JarFile.
+   * 
+   * @param file the jar file
+   * @param recurse whether to save the entries of the jar
+   * @return the listing for the jar
+   */
+  private static JarListing scanJarFile(final File file, final boolean recurse)
+  {
+    JarListing listing = new JarListing(file);
+    JarFile jar = null;
+    try
+    {
+      // Open the Jar file and iterate over its contents
+      jar = new JarFile(file, false);
+      
+      // Check if we want to look at all of the files in this jar file
+      int count = 0;
+      if (recurse)
+      {
+        final Enumeration<JarEntry> entries = jar.entries();
+        while (entries.hasMoreElements())
+        {
+          // Get the next zip entry and save it; if added, increment the count
+          JarEntry entry = entries.nextElement();
+          if (listing.addJarEntry(entry))
+          {
+            ++count;
+          }
+        }
+      }
+      else
+      {
+        // This count includes directories.  If recurse=true, the count
+        // does not include directories.
+        count = jar.size();
+      }
+      
+      // Save the number of files the jar contains
+      listing.setStatus(true, count);
+    }
+    catch (IOException e)
+    {
+      listing = new JarListing(file);
+      e.printStackTrace();
+    }
+    finally
+    {
+      if (jar != null)
+      {
+        try
+        {
+          jar.close();
+        }
+        catch (IOException e)
+        {
+          e.printStackTrace();
+        }
+      }
+    }
+    
+    return listing;
+  }
+  
+  
+  /**
+   * The interface for receiving jar listings as they are scanned.
+   */
+  public interface ScanListener
+  {
+    /**
+     * A jar was scanned.
+     * 
+     * @param listing the listing for the jar
+     */
+    void jarScanned(final JarListing listing);
+    
+    /**
+     * Return whether the scan should stop.
+     * 
+     * @return whether the scan was cancelled
+     */
+    boolean isCancelled();
+  }
+}
@@ -0,0 +1,350 @@
+package io.miti.jarman.util;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.jar.JarEntry;
+
+/**
+ * An archive held inside another archive, such as a jar under
+ * BOOT-INF/lib in a Spring Boot jar, or under WEB-INF/lib in a WAR.
+ * Its path is the path of the outer file, then "!/" and the name of
+ * the entry, as in app.jar!/BOOT-INF/lib/x.jar.  Archives can be
+ * nested more than once (a war in an ear), with one "!/" per level.
+ * 
+ * Nothing is extracted to disk.  The outer file is memory-mapped, and
+ * a stored inner archive is a slice of the mapped bytes, so its central
+ * directory and entries are read in place.  A deflated inner archive
+ * is inflated into memory when it is opened.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class NestedArchive implements Archive
+{
+  /**
+   * The separator between the path of an archive and an entry in it.
+   */
+  public static final String SEPARATOR = "!" + File.separator;
+  
+  /**
+   * The extensions of the entries that are read as nested archives.
+   */
+  private static final String[] NESTED = {".jar", ".war"};
+  
+  /**
+   * The path of the archive.
+   */
+  private File file = null;
+  
+  /**
+   * The central directory of the archive.
+   */
+  private ZipDirectory dir = null;
+  
+  /**
+   * The entries, in central directory order.
+   */
+  private List<JarEntry> list = null;
+  
+  /**
+   * The position of each entry's header in the central directory.
+   */
+  private Map<JarEntry, Integer> headers = null;
+  
+  /**
+   * The first entry with each name.
+   */
+  private Map<String, JarEntry> names = null;
+  
+  
+  /**
+   * Constructor.
+   * 
+   * @param pFile the path of the archive, including the outer file
+   * @throws IOException if an archive on the path cannot be read
+   */
+  public NestedArchive(final File pFile) throws IOException
+  {
+    super();
+    file = pFile;
+    dir = new ZipDirectory(findEntry(pFile).getBuffer());
+    
+    // Index the entries by name, and save where each header is
+    final int count = dir.getEntryCount();
+    list = new ArrayList<JarEntry>(count);
+    headers = new HashMap<JarEntry, Integer>(count * 2);
+    names = new HashMap<String, JarEntry>(count * 2);
+    while (dir.next())
+    {
+      JarEntry entry = new JarEntry(dir.getName());
+      entry.setCrc(dir.getCrc());
+      entry.setSize(dir.getSize());
+      entry.setCompressedSize(dir.getCompressedSize());
+      entry.setTime(dir.getTime());
+      list.add(entry);
+      headers.put(entry, Integer.valueOf(dir.getHeaderPosition()));
+      if (!names.containsKey(entry.getName()))
+      {
+        names.put(entry.getName(), entry);
+      }
+    }
+  }
+  
+  
+  /**
+   * Return whether a path is inside another archive.
+   * 
+   * @param file the path
+   * @return whether the path has a "!/" separator
+   */
+  public static boolean isNested(final File file)
+  {
+    return (file.getPath().indexOf(SEPARATOR) > 0);
+  }
+  
+  
+  /**
+   * Return whether an entry in an archive is itself an archive that
+   * should be scanned (a jar or a war).
+   * 
+   * @param name the name of the entry
+   * @return whether the entry is a nested archive
+   */
+  public static boolean isNestedName(final String name)
+  {
+    final String lower = name.toLowerCase(Locale.ENGLISH);
+    for (String ext : NESTED)
+    {
+      if (lower.endsWith(ext))
+      {
+        return true;
+      }
+    }
+    
+    return false;
+  }
+  
+  
+  /**
+   * Return the path of an entry in an archive.
+   * 
+   * @param outer the path of the archive
+   * @param name the name of the entry
+   * @return the path of the entry
+   */
+  public static File getNestedFile(final File outer, final String name)
+  {
+    return new File(outer.getPath() + SEPARATOR + name);
+  }
+  
+  
+  /**
+   * Return the archive holding a nested archive.
+   * 
+   * @param file the path of the nested archive
+   * @return the path of the archive holding it, or null if the path
+   *         is not nested
+   */
+  public static File getParent(final File file)
+  {
+    final String path = file.getPath();
+    final int index = path.lastIndexOf(SEPARATOR);
+    return (index > 0) ? new File(path.substring(0, index)) : null;
+  }
+  
+  
+  /**
+   * Return the number of archives a nested archive is held in.
+   * 
+   * @param file the path
+   * @return the number of "!/" separators in the path
+   */
+  public static int getLevel(final File file)
+  {
+    final String path = file.getPath();
+    int level = 0;
+    int index = path.indexOf(SEPARATOR);
+    while (index > 0)
+    {
+      ++level;
+      index = path.indexOf(SEPARATOR, index + SEPARATOR.length());
+    }
+    
+    return level;
+  }
+  
+  
+  /**
+   * Return the file on disk that holds a nested archive.
+   * 
+   * @param file the path of the nested archive
+   * @return the outermost file
+   */
+  public static File getOuterFile(final File file)
+  {
+    final String path = file.getPath();
+    final int index = path.indexOf(SEPARATOR);
+    return (index > 0) ? new File(path.substring(0, index)) : file;
+  }
+  
+  
+  /**
+   * Find the entry for a nested archive in the archive holding it.
+   * Only the central directory of the outer file and the section
+   * holding the next archive are mapped, and each archive on the path
+   * is read from the bytes of the one holding it.
+   * 
+   * @param file the path of the nested archive
+   * @return the central directory of the archive holding it, moved
+   *         to the entry
+   * @throws IOException if an archive on the path cannot be read, or
+   *         the entry is not found
+   */
+  public static ZipDirectory findEntry(final File file) throws IOException
+  {
+    final String path = file.getPath();
+    int start = path.indexOf(SEPARATOR);
+    if (start <= 0)
+    {
+      throw new FileNotFoundException("Not a nested archive: " + path);
+    }
+    
+    ZipDirectory zip = new ZipDirectory(new File(path.substring(0, start)));
+    while (true)
+    {
+      // Find the next entry on the path
+      start += SEPARATOR.length();
+      final int end = path.indexOf(SEPARATOR, start);
+      String name = (end < 0) ? path.substring(start) : path.substring(start, end);
+      name = name.replace(File.separatorChar, '/');
+      if (!zip.find(name) || !zip.getName().equals(name))
+      {
+        throw new FileNotFoundException("Entry not found: " + path);
+      }
+      else if (end < 0)
+      {
+        return zip;
+      }
+      
+      zip = new ZipDirectory(zip.getBuffer());
+      start = end;
+    }
+  }
+  
+  
+  /**
+   * Return the path of the archive.
+   * 
+   * @return the archive path
+   */
+  @Override
+  public File getFile()
+  {
+    return file;
+  }
+  
+  
+  /**
+   * Return the entries in the archive.
+   * 
+   * @return the entries
+   */
+  @Override
+  public Enumeration<JarEntry> entries()
+  {
+    return Collections.enumeration(list);
+  }
+  
+  
+  /**
+   * Return the entry with the name.
+   * 
+   * @param name the full path of the entry
+   * @return the entry, or null if not found
+   */
+  @Override
+  public JarEntry getEntry(final String name)
+  {
+    return names.get(name);
+  }
+  
+  
+  /**
+   * Return the entry with the name and CRC.
+   * 
+   * @param name the full path of the entry
+   * @param crc the CRC of the entry
+   * @return the entry, or null if not found
+   */
+  @Override
+  public JarEntry getEntry(final String name, final long crc)
+  {
+    JarEntry entry = names.get(name);
+    if ((entry == null) || (entry.getCrc() == crc))
+    {
+      return entry;
+    }
+    
+    for (JarEntry other : list)
+    {
+      if ((other.getCrc() == crc) && other.getName().equals(name))
+      {
+        return other;
+      }
+    }
+    
+    return entry;
+  }
+  
+  
+  /**
+   * Return a stream for reading an entry.  The stream reads the
+   * entry's bytes in place, so it does not hold the archive's
+   * directory, and several streams can be read at once.
+   * 
+   * @param entry the entry
+   * @return the input stream
+   * @throws IOException if the entry cannot be read
+   */
+  @Override
+  public InputStream getInputStream(final JarEntry entry) throws IOException
+  {
+    Integer pos = headers.get(entry);
+    if (pos == null)
+    {
+      // The entry was not made by this archive, so look it up
+      final JarEntry match = getEntry(entry.getName(), entry.getCrc());
+      pos = (match == null) ? null : headers.get(match);
+      if (pos == null)
+      {
+        throw new FileNotFoundException("Entry not found: " + entry.getName());
+      }
+    }
+    
+    synchronized (dir)
+    {
+      dir.moveTo(pos.intValue());
+      return dir.getInputStream();
+    }
+  }
+  
+  
+  /**
+   * Nothing is held open: the mapped bytes are freed when the archive
+   * is no longer referenced, so there is nothing to close.
+   */
+  @Override
+  public void close()
+  {
+    // Nothing to close
+  }
+}
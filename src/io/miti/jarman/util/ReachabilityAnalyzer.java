@@ -0,0 +1,762 @@
+package io.miti.jarman.util;
+
+import io.miti.jarman.data.EntryStore;
+import io.miti.jarman.index.ClassNamePool;
+import io.miti.jarman.index.IdList;
+import io.miti.jarman.index.ReferenceGraph;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.jar.JarEntry;
+
+/**
+ * Find the classes on a classpath that can be reached from its entry
+ * points, by following the graph of class references.  The entry points
+ * are the Main-Class of the manifest and the providers listed in the
+ * META-INF/services files of the jars.  Entries under the class
+ * directory of a Spring Boot jar or a WAR are named as the class loader
+ * sees them, as they are in the graph.
+ * 
+ * The graph is walked breadth-first, one level at a time.  Each level
+ * is split into ranges that are expanded on a fork/join pool, and a
+ * class is claimed by setting its bit in a shared bit set with a
+ * compare-and-set, so each class is added to the next level once.
+ * 
+ * Each class file is counted against the first jar on the classpath
+ * that holds it; a copy in a later jar is shadowed, and counts as not
+ * reachable.  Classes that are only loaded by name through reflection
+ * cannot be seen in the references, so the result is the set of
+ * classes that are known to be needed.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class ReachabilityAnalyzer
+{
+  /**
+   * The prefix of the entries that list service providers.
+   */
+  private static final String SERVICES = "META-INF/services/";
+  
+  /**
+   * The prefix of the entries for other Java versions in a
+   * multi-release jar.
+   */
+  private static final String VERSIONS = "META-INF/versions/";
+  
+  /**
+   * The maximum number of classes expanded by one task.
+   */
+  private static final int RANGE_SIZE = 1024;
+  
+  /**
+   * The maximum number of worker threads.
+   */
+  private int poolSize = 1;
+  
+  
+  /**
+   * Constructor.
+   * 
+   * @param nPoolSize the maximum number of worker threads
+   */
+  public ReachabilityAnalyzer(final int nPoolSize)
+  {
+    super();
+    poolSize = Math.max(1, nPoolSize);
+  }
+  
+  
+  /**
+   * Find the classes that can be reached from the entry points.
+   * 
+   * @param jars the jar files, in classpath order
+   * @param graph the graph of class references in the jars
+   * @param mainClass the Main-Class of the manifest, or null
+   * @param listener the listener for the jars read
+   * @return the result, or null if the analysis was cancelled
+   */
+  public Result analyze(final List<File> jars, final ReferenceGraph graph,
+                        final String mainClass,
+                        final ClassScanner.ScanListener listener)
+  {
+    final long start = System.currentTimeMillis();
+    final Result result = new Result(jars);
+    result.pool = graph.getPool();
+    
+    // Find the class entries and the service providers in each jar
+    List<String> roots = new ArrayList<String>(64);
+    if ((mainClass != null) && (mainClass.trim().length() > 0))
+    {
+      roots.add(mainClass.trim().replace('.', '/'));
+    }
+    
+    for (int i = 0; i < jars.size(); ++i)
+    {
+      if (listener.isCancelled())
+      {
+        return null;
+      }
+      
+      readJar(jars.get(i), i, graph, result, roots);
+      listener.jarScanned(jars.get(i), i + 1, jars.size());
+    }
+    
+    // Get the IDs of the entry points
+    final int count = graph.getClassCount();
+    IdList frontier = new IdList(roots.size());
+    final AtomicLongArray reached = new AtomicLongArray((count + 63) >>> 6);
+    for (String root : roots)
+    {
+      final int id = getId(graph, root);
+      if (id == ClassNamePool.NOT_FOUND)
+      {
+        result.missingRoots.add(root);
+      }
+      else if (claim(reached, id))
+      {
+        result.roots.add(root);
+        frontier.add(id);
+      }
+    }
+    
+    // Walk the graph one level at a time
+    ForkJoinPool pool = new ForkJoinPool(poolSize);
+    try
+    {
+      while ((frontier.size() > 0) && !listener.isCancelled())
+      {
+        result.reachableCount += frontier.size();
+        ++result.depth;
+        final int[] level = frontier.toArray();
+        frontier = pool.invoke(new ExpandTask(graph, reached, level, 0, level.length));
+      }
+    }
+    finally
+    {
+      pool.shutdownNow();
+    }
+    
+    if (listener.isCancelled())
+    {
+      return null;
+    }
+    
+    result.tally(reached, count);
+    result.millis = System.currentTimeMillis() - start;
+    return result;
+  }
+  
+  
+  /**
+   * Return the ID of a class in the graph.
+   * 
+   * @param graph the graph of class references
+   * @param name the class name, with slashes
+   * @return the ID, or NOT_FOUND if the class is not in the graph
+   */
+  private static int getId(final ReferenceGraph graph, final String name)
+  {
+    final int id = graph.getId(name);
+    return (id < graph.getClassCount()) ? id : ClassNamePool.NOT_FOUND;
+  }
+  
+  
+  /**
+   * Set the bit of a class, if it is not set.
+   * 
+   * @param reached the bit set of the reached classes
+   * @param id the class ID
+   * @return whether this call set the bit
+   */
+  private static boolean claim(final AtomicLongArray reached, final int id)
+  {
+    final int word = id >>> 6;
+    final long bit = 1L << (id & 63);
+    while (true)
+    {
+      final long old = reached.get(word);
+      if ((old & bit) != 0)
+      {
+        return false;
+      }
+      else if (reached.compareAndSet(word, old, old | bit))
+      {
+        return true;
+      }
+    }
+  }
+  
+  
+  /**
+   * Record the class entries of a jar, and add the providers in its
+   * service files to the entry points.
+   * 
+   * @param file the jar file
+   * @param jarIndex the index of the jar
+   * @param graph the graph of class references
+   * @param result the result to fill in
+   * @param roots the list of entry points
+   */
+  private static void readJar(final File file, final int jarIndex,
+                              final ReferenceGraph graph, final Result result,
+                              final List<String> roots)
+  {
+    Archive jar = null;
+    try
+    {
+      jar = ArchivePool.open(file);
+      Enumeration<JarEntry> entries = jar.entries();
+      while (entries.hasMoreElements())
+      {
+        final JarEntry entry = entries.nextElement();
+        final String name = EntryStore.getResourceName(entry.getName());
+        if (entry.isDirectory())
+        {
+          continue;
+        }
+        else if (name.endsWith(".class"))
+        {
+          final String className = getClassName(entry.getName());
+          result.addClass(jarIndex, getId(graph, className), className,
+                          Math.max(0L, entry.getSize()));
+        }
+        else if (name.startsWith(SERVICES) && (name.indexOf('/', SERVICES.length()) < 0))
+        {
+          readProviders(jar, entry, roots);
+        }
+      }
+    }
+    catch (IOException e)
+    {
+      e.printStackTrace();
+    }
+    finally
+    {
+      if (jar != null)
+      {
+        try
+        {
+          jar.close();
+        }
+        catch (IOException e)
+        {
+          e.printStackTrace();
+        }
+      }
+    }
+  }
+  
+  
+  /**
+   * Return the name of the class in a class entry.
+   * 
+   * @param entryName the name of the entry
+   * @return the class name, with slashes
+   */
+  private static String getClassName(final String entryName)
+  {
+    String name = EntryStore.getClassName(entryName);
+    if (name.startsWith(VERSIONS))
+    {
+      // Drop the version directory of a multi-release jar
+      final int slash = name.indexOf('/', VERSIONS.length());
+      if (slash > 0)
+      {
+        name = name.substring(slash + 1);
+      }
+    }
+    
+    return name;
+  }
+  
+  
+  /**
+   * Add the providers listed in a service file to the entry points.
+   * Each line holds one class name, and a '#' starts a comment.
+   * 
+   * @param jar the open jar
+   * @param entry the service file
+   * @param roots the list of entry points
+   * @throws IOException if the entry cannot be read
+   */
+  private static void readProviders(final Archive jar, final JarEntry entry,
+                                    final List<String> roots)
+    throws IOException
+  {
+    BufferedReader in = null;
+    try
+    {
+      in = new BufferedReader(new InputStreamReader(jar.getInputStream(entry), "UTF-8"));
+      String line;
+      while ((line = in.readLine()) != null)
+      {
+        final int hash = line.indexOf('#');
+        final String provider = ((hash < 0) ? line : line.substring(0, hash)).trim();
+        if (provider.length() > 0)
+        {
+          roots.add(provider.replace('.', '/'));
+        }
+      }
+    }
+    finally
+    {
+      if (in != null)
+      {
+        try
+        {
+          in.close();
+        }
+        catch (IOException e)
+        {
+          e.printStackTrace();
+        }
+      }
+    }
+  }
+  
+  
+  /**
+   * The task that expands a range of one level of the walk, and
+   * returns the classes it claimed for the next level.
+   */
+  private static final class ExpandTask extends RecursiveTask<IdList>
+  {
+    /**
+     * Default serial version ID.
+     */
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * The graph of class references.
+     */
+    private final transient ReferenceGraph graph;
+    
+    /**
+     * The bit set of the reached classes.
+     */
+    private final transient AtomicLongArray reached;
+    
+    /**
+     * The classes in the level.
+     */
+    private final int[] level;
+    
+    /**
+     * The index of the first class in the range.
+     */
+    private final int start;
+    
+    /**
+     * The index after the last class in the range.
+     */
+    private final int end;
+    
+    
+    /**
+     * Constructor.
+     * 
+     * @param pGraph the graph of class references
+     * @param pReached the bit set of the reached classes
+     * @param pLevel the classes in the level
+     * @param nStart the index of the first class in the range
+     * @param nEnd the index after the last class in the range
+     */
+    public ExpandTask(final ReferenceGraph pGraph, final AtomicLongArray pReached,
+                      final int[] pLevel, final int nStart, final int nEnd)
+    {
+      graph = pGraph;
+      reached = pReached;
+      level = pLevel;
+      start = nStart;
+      end = nEnd;
+    }
+    
+    
+    /**
+     * Expand the range, splitting it if it is too large.
+     * 
+     * @return the classes claimed for the next level
+     */
+    @Override
+    protected IdList compute()
+    {
+      if ((end - start) > RANGE_SIZE)
+      {
+        final int mid = (start + end) >>> 1;
+        ExpandTask left = new ExpandTask(graph, reached, level, start, mid);
+        left.fork();
+        IdList right = new ExpandTask(graph, reached, level, mid, end).compute();
+        IdList found = left.join();
+        final int size = right.size();
+        for (int i = 0; i < size; ++i)
+        {
+          found.add(right.get(i));
+        }
+        
+        return found;
+      }
+      
+      IdList found = new IdList(64);
+      for (int i = start; i < end; ++i)
+      {
+        final int id = level[i];
+        final int refs = graph.getReferenceCount(id);
+        for (int r = 0; r < refs; ++r)
+        {
+          final int ref = graph.getReference(id, r);
+          if (claim(reached, ref))
+          {
+            found.add(ref);
+          }
+        }
+      }
+      
+      return found;
+    }
+  }
+  
+  
+  /**
+   * The classes and bytes of each jar that can and cannot be reached.
+   */
+  public static final class Result
+  {
+    /**
+     * The jar files.
+     */
+    private List<File> jars = null;
+    
+    /**
+     * The class ID of each class entry in each jar, or NOT_FOUND if
+     * the class is not in the graph.
+     */
+    private IdList[] classIds = null;
+    
+    /**
+     * The size of each class entry in each jar.
+     */
+    private IdList[] classSizes = null;
+    
+    /**
+     * The number of reachable classes in each jar.
+     */
+    private int[] reachableClasses = null;
+    
+    /**
+     * The bytes of the reachable classes in each jar.
+     */
+    private long[] reachableBytes = null;
+    
+    /**
+     * The bytes of the classes in each jar that cannot be reached.
+     */
+    private long[] unreachableBytes = null;
+    
+    /**
+     * The IDs of the classes in each jar that cannot be reached.
+     */
+    private IdList[] unreachable = null;
+    
+    /**
+     * The names of the classes in each jar that are not in the graph.
+     */
+    private List<List<String>> unlisted = null;
+    
+    /**
+     * The entry points found in the graph.
+     */
+    private List<String> roots = new ArrayList<String>(64);
+    
+    /**
+     * The entry points that are not in the graph.
+     */
+    private List<String> missingRoots = new ArrayList<String>(4);
+    
+    /**
+     * The number of classes reached, including ones not in the jars.
+     */
+    private int reachableCount = 0;
+    
+    /**
+     * The number of levels walked.
+     */
+    private int depth = 0;
+    
+    /**
+     * The time taken, in milliseconds.
+     */
+    private long millis = 0L;
+    
+    /**
+     * The class names.
+     */
+    private ClassNamePool pool = null;
+    
+    
+    /**
+     * Constructor.
+     * 
+     * @param pJars the jar files
+     */
+    private Result(final List<File> pJars)
+    {
+      jars = Collections.unmodifiableList(new ArrayList<File>(pJars));
+      final int size = jars.size();
+      classIds = new IdList[size];
+      classSizes = new IdList[size];
+      unreachable = new IdList[size];
+      unlisted = new ArrayList<List<String>>(size);
+      reachableClasses = new int[size];
+      reachableBytes = new long[size];
+      unreachableBytes = new long[size];
+      for (int i = 0; i < size; ++i)
+      {
+        classIds[i] = new IdList(256);
+        classSizes[i] = new IdList(256);
+        unreachable[i] = new IdList(16);
+        unlisted.add(new ArrayList<String>(0));
+      }
+    }
+    
+    
+    /**
+     * Record a class entry in a jar.
+     * 
+     * @param jar the index of the jar
+     * @param id the class ID, or NOT_FOUND
+     * @param name the class name
+     * @param size the size of the entry
+     */
+    private void addClass(final int jar, final int id, final String name,
+                          final long size)
+    {
+      if (id == ClassNamePool.NOT_FOUND)
+      {
+        unlisted.get(jar).add(name);
+      }
+      
+      classIds[jar].add(id);
+      classSizes[jar].add((int) Math.min(size, Integer.MAX_VALUE));
+    }
+    
+    
+    /**
+     * Count the reachable classes and bytes in each jar.  A class is
+     * counted against the first jar that holds it.
+     * 
+     * @param reached the bit set of the reached classes
+     * @param count the number of classes in the graph
+     */
+    private void tally(final AtomicLongArray reached, final int count)
+    {
+      final int[] owners = new int[count];
+      Arrays.fill(owners, -1);
+      for (int jar = 0; jar < jars.size(); ++jar)
+      {
+        final int size = classIds[jar].size();
+        for (int i = 0; i < size; ++i)
+        {
+          final int id = classIds[jar].get(i);
+          final long bytes = classSizes[jar].get(i);
+          if ((id >= 0) && (owners[id] < 0))
+          {
+            owners[id] = jar;
+          }
+          
+          if ((id >= 0) && (owners[id] == jar) &&
+              ((reached.get(id >>> 6) & (1L << (id & 63))) != 0))
+          {
+            ++reachableClasses[jar];
+            reachableBytes[jar] += bytes;
+          }
+          else
+          {
+            unreachableBytes[jar] += bytes;
+            if (id >= 0)
+            {
+              unreachable[jar].add(id);
+            }
+          }
+        }
+        
+        classSizes[jar] = null;
+      }
+    }
+    
+    
+    /**
+     * Return the number of jars.
+     * 
+     * @return the number of jars
+     */
+    public int getJarCount()
+    {
+      return jars.size();
+    }
+    
+    
+    /**
+     * Return a jar file.
+     * 
+     * @param jar the index of the jar
+     * @return the jar file
+     */
+    public File getJar(final int jar)
+    {
+      return jars.get(jar);
+    }
+    
+    
+    /**
+     * Return the number of class files in a jar.
+     * 
+     * @param jar the index of the jar
+     * @return the number of class files
+     */
+    public int getClassCount(final int jar)
+    {
+      return classIds[jar].size();
+    }
+    
+    
+    /**
+     * Return the number of reachable class files in a jar.
+     * 
+     * @param jar the index of the jar
+     * @return the number of reachable class files
+     */
+    public int getReachableCount(final int jar)
+    {
+      return reachableClasses[jar];
+    }
+    
+    
+    /**
+     * Return the size of the reachable class files in a jar.
+     * 
+     * @param jar the index of the jar
+     * @return the number of bytes, before compression
+     */
+    public long getReachableBytes(final int jar)
+    {
+      return reachableBytes[jar];
+    }
+    
+    
+    /**
+     * Return the size of the class files in a jar that cannot be
+     * reached.
+     * 
+     * @param jar the index of the jar
+     * @return the number of bytes, before compression
+     */
+    public long getUnreachableBytes(final int jar)
+    {
+      return unreachableBytes[jar];
+    }
+    
+    
+    /**
+     * Return the names of the classes in a jar that cannot be reached.
+     * Classes that are shadowed by an earlier jar, and classes that are
+     * not in the graph, are included.
+     * 
+     * @param jar the index of the jar
+     * @return the class names, with slashes
+     */
+    public List<String> getUnreachable(final int jar)
+    {
+      final int size = unreachable[jar].size();
+      List<String> names = new ArrayList<String>(size + unlisted.get(jar).size());
+      for (int i = 0; i < size; ++i)
+      {
+        names.add(pool.getName(unreachable[jar].get(i)));
+      }
+      
+      names.addAll(unlisted.get(jar));
+      return names;
+    }
+    
+    
+    /**
+     * Return the names of the classes in a jar that are not in the
+     * graph, such as classes that could not be parsed.  These are
+     * counted as not reachable.
+     * 
+     * @param jar the index of the jar
+     * @return the class names, with slashes
+     */
+    public List<String> getUnlisted(final int jar)
+    {
+      return Collections.unmodifiableList(unlisted.get(jar));
+    }
+    
+    
+    /**
+     * Return the entry points that were found.
+     * 
+     * @return the class names, with slashes
+     */
+    public List<String> getRoots()
+    {
+      return roots;
+    }
+    
+    
+    /**
+     * Return the entry points that are not in the jars or referenced
+     * by them.
+     * 
+     * @return the class names, with slashes
+     */
+    public List<String> getMissingRoots()
+    {
+      return missingRoots;
+    }
+    
+    
+    /**
+     * Return the number of classes reached, including classes that
+     * are only referenced, such as JDK classes.
+     * 
+     * @return the number of classes reached
+     */
+    public int getReachedCount()
+    {
+      return reachableCount;
+    }
+    
+    
+    /**
+     * Return the number of levels in the walk.
+     * 
+     * @return the number of levels
+     */
+    public int getDepth()
+    {
+      return depth;
+    }
+    
+    
+    /**
+     * Return the time taken by the analysis.
+     * 
+     * @return the time, in milliseconds
+     */
+    public long getMillis()
+    {
+      return millis;
+    }
+  }
+}
@@ -0,0 +1,653 @@
+package io.miti.jarman.util;
+
+import io.miti.jarman.data.EntryStore;
+import io.miti.jarman.data.JarListing;
+import io.miti.jarman.index.AnnotationList;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A cache of jar listings, manifest attributes and annotation lists,
+ * saved to a binary file between sessions.  Each jar is keyed by its
+ * absolute path, and the cached data is only used if the jar's length
+ * and last-modified time are unchanged.  The cache file is read into
+ * memory, rather than mapped, so that save() can replace it; each
+ * jar's listing is decoded from the file's bytes the first time it is
+ * requested.
+ * 
+ * The cache is disabled until a file is set with setFile().
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class ScanCache
+{
+  /**
+   * The one instance of this class.
+   */
+  private static final ScanCache cache = new ScanCache();
+  
+  /**
+   * The marker at the start of the cache file ("JMIX").
+   */
+  private static final int MAGIC = 0x4A4D4958;
+  
+  /**
+   * The version of the cache file format.
+   */
+  private static final int VERSION = 3;
+  
+  /**
+   * The maximum number of jars kept in the cache.  The least
+   * recently used jars are dropped first.
+   */
+  private static final int MAX_JARS = 2000;
+  
+  /**
+   * The cache file, or null if the cache is disabled.
+   */
+  private File file = null;
+  
+  /**
+   * The cached jars, keyed by absolute path, in order of use.
+   */
+  private Map<String, Record> records = null;
+  
+  /**
+   * Whether the cache changed since it was read.
+   */
+  private boolean changed = false;
+  
+  
+  /**
+   * Default constructor.
+   */
+  private ScanCache()
+  {
+    super();
+  }
+  
+  
+  /**
+   * Return the one instance of this class.
+   * 
+   * @return the one instance of this class
+   */
+  public static ScanCache getInstance()
+  {
+    return cache;
+  }
+  
+  
+  /**
+   * Set the cache file.  This enables the cache.
+   * 
+   * @param cacheFile the cache file, or null to disable the cache
+   */
+  public synchronized void setFile(final File cacheFile)
+  {
+    file = cacheFile;
+    records = null;
+    changed = false;
+  }
+  
+  
+  /**
+   * Return the cached listing of the jar, if the jar is unchanged.
+   * 
+   * @param jar the jar file
+   * @return the listing, or null if the jar is not cached
+   */
+  public synchronized JarListing getListing(final File jar)
+  {
+    final Record rec = getRecord(jar);
+    if ((rec == null) || (rec.fileCount < 0))
+    {
+      return null;
+    }
+    
+    try
+    {
+      return new JarListing(jar, rec.getEntries(), rec.fileCount);
+    }
+    catch (RuntimeException e)
+    {
+      // The cached data is corrupt, so drop it
+      records.remove(rec.path);
+      changed = true;
+      return null;
+    }
+  }
+  
+  
+  /**
+   * Save the listing of a jar.  Only listings of jars that were
+   * found are saved.
+   * 
+   * @param listing the listing of the jar
+   */
+  public synchronized void putListing(final JarListing listing)
+  {
+    if (!listing.isFound())
+    {
+      return;
+    }
+    
+    final Record rec = getOrAddRecord(listing.getJar());
+    if (rec != null)
+    {
+      rec.fileCount = listing.getFileCount();
+      rec.entries = listing.getEntries();
+      changed = true;
+    }
+  }
+  
+  
+  /**
+   * Return the cached main manifest attributes of the jar, if the
+   * jar is unchanged.
+   * 
+   * @param jar the jar file
+   * @return the attributes, or null if they are not cached
+   */
+  public synchronized Map<String, String> getAttributes(final File jar)
+  {
+    final Record rec = getRecord(jar);
+    return (rec == null) ? null : rec.attributes;
+  }
+  
+  
+  /**
+   * Save the main manifest attributes of a jar.
+   * 
+   * @param jar the jar file
+   * @param attributes the attributes
+   */
+  public synchronized void putAttributes(final File jar,
+                                         final Map<String, String> attributes)
+  {
+    final Record rec = getOrAddRecord(jar);
+    if (rec != null)
+    {
+      rec.attributes = attributes;
+      changed = true;
+    }
+  }
+  
+  
+  /**
+   * Return the cached annotations of the jar, if the jar is unchanged.
+   * 
+   * @param jar the jar file
+   * @return the annotations, or null if they are not cached
+   */
+  public synchronized AnnotationList getAnnotations(final File jar)
+  {
+    final Record rec = getRecord(jar);
+    if (rec == null)
+    {
+      return null;
+    }
+    
+    try
+    {
+      return rec.getAnnotations();
+    }
+    catch (RuntimeException e)
+    {
+      // The cached data is corrupt, so drop it
+      records.remove(rec.path);
+      changed = true;
+      return null;
+    }
+  }
+  
+  
+  /**
+   * Save the annotations of a jar.
+   * 
+   * @param jar the jar file
+   * @param annotations the annotations in the jar
+   */
+  public synchronized void putAnnotations(final File jar,
+                                          final AnnotationList annotations)
+  {
+    final Record rec = getOrAddRecord(jar);
+    if (rec != null)
+    {
+      rec.annotations = annotations;
+      rec.rawAnnotations = null;
+      changed = true;
+    }
+  }
+  
+  
+  /**
+   * Return the record for the jar, if the jar is unchanged.
+   * 
+   * @param jar the jar file
+   * @return the record, or null if not cached
+   */
+  private Record getRecord(final File jar)
+  {
+    if (!isEnabled())
+    {
+      return null;
+    }
+    
+    final String path = jar.getAbsolutePath();
+    final Record rec = records.get(path);
+    if ((rec != null) && !rec.matches(jar))
+    {
+      // The jar changed, so drop the record
+      records.remove(path);
+      changed = true;
+      return null;
+    }
+    
+    return rec;
+  }
+  
+  
+  /**
+   * Return the record for the jar, adding a new one if the jar
+   * is not cached or has changed.
+   * 
+   * @param jar the jar file
+   * @return the record, or null if the cache is disabled
+   */
+  private Record getOrAddRecord(final File jar)
+  {
+    Record rec = getRecord(jar);
+    if ((rec == null) && isEnabled())
+    {
+      rec = new Record(jar.getAbsolutePath(), jar.length(), jar.lastModified());
+      records.put(rec.path, rec);
+      changed = true;
+    }
+    
+    return rec;
+  }
+  
+  
+  /**
+   * Return whether the cache is enabled, reading the cache file
+   * the first time.
+   * 
+   * @return whether the cache is enabled
+   */
+  private boolean isEnabled()
+  {
+    if (file == null)
+    {
+      return false;
+    }
+    else if (records == null)
+    {
+      records = new LinkedHashMap<String, Record>(64, 0.75f, true);
+      load();
+    }
+    
+    return true;
+  }
+  
+  
+  /**
+   * Read the cache file.  Only the header of each jar's record is
+   * read; the listings are decoded when they are requested.  If the
+   * file is missing or invalid, the cache starts empty.  The file is
+   * read into memory rather than mapped, so save() can replace it
+   * while the records still point into it.
+   */
+  private void load()
+  {
+    if (!file.isFile())
+    {
+      return;
+    }
+    
+    try
+    {
+      ByteBuffer buf = Utility.readFile(file);
+      if ((buf.getInt() != MAGIC) || (buf.getInt() != VERSION))
+      {
+        return;
+      }
+      
+      final int count = buf.getInt();
+      for (int i = 0; i < count; ++i)
+      {
+        // Save a view of the record's bytes, and read its header
+        final int len = buf.getInt();
+        ByteBuffer raw = buf.slice();
+        raw.limit(len);
+        buf.position(buf.position() + len);
+        
+        Record rec = Record.readHeader(raw);
+        records.put(rec.path, rec);
+      }
+    }
+    catch (IOException e)
+    {
+      records.clear();
+    }
+    catch (RuntimeException e)
+    {
+      // The file is truncated or corrupt
+      records.clear();
+    }
+  }
+  
+  
+  /**
+   * Write the cache file, if the cache changed.  The file is written
+   * to a temporary file first, and then renamed.
+   */
+  public synchronized void save()
+  {
+    if ((file == null) || (records == null) || !changed)
+    {
+      return;
+    }
+    
+    // Keep the most recently used jars
+    List<Record> list = new ArrayList<Record>(records.values());
+    if (list.size() > MAX_JARS)
+    {
+      list = list.subList(list.size() - MAX_JARS, list.size());
+    }
+    
+    File temp = new File(file.getPath() + ".tmp");
+    DataOutputStream out = null;
+    boolean written = false;
+    try
+    {
+      out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(temp), 65536));
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(list.size());
+      for (Record rec : list)
+      {
+        rec.write(out);
+      }
+      
+      out.close();
+      out = null;
+      written = true;
+    }
+    catch (IOException e)
+    {
+      e.printStackTrace();
+    }
+    finally
+    {
+      if (out != null)
+      {
+        try
+        {
+          out.close();
+        }
+        catch (IOException e)
+        {
+          e.printStackTrace();
+        }
+      }
+    }
+    
+    if (!written)
+    {
+      temp.delete();
+      return;
+    }
+    
+    // Replace the old file.  The records are read again from the
+    // new file the next time the cache is used.
+    if (!temp.renameTo(file))
+    {
+      file.delete();
+      if (!temp.renameTo(file))
+      {
+        temp.delete();
+      }
+    }
+    
+    records = null;
+    changed = false;
+  }
+  
+  
+  /**
+   * The cached data on one jar.
+   */
+  private static final class Record
+  {
+    /**
+     * The absolute path of the jar.
+     */
+    private String path = null;
+    
+    /**
+     * The length of the jar file.
+     */
+    private long length = 0L;
+    
+    /**
+     * The last-modified time of the jar file.
+     */
+    private long modified = 0L;
+    
+    /**
+     * The number of files in the jar, or -1 if the listing is not cached.
+     */
+    private int fileCount = -1;
+    
+    /**
+     * The main manifest attributes, or null if not cached.
+     */
+    private Map<String, String> attributes = null;
+    
+    /**
+     * The entries of the jar, or null if not decoded yet.
+     */
+    private EntryStore entries = null;
+    
+    /**
+     * The annotations in the jar, or null if not cached or not
+     * decoded yet.
+     */
+    private AnnotationList annotations = null;
+    
+    /**
+     * The bytes of the annotations in the cache file, or null if
+     * they are not cached or the record was not read from the file.
+     */
+    private ByteBuffer rawAnnotations = null;
+    
+    /**
+     * The bytes of the listing in the cache file, or null if the
+     * record was not read from the file.
+     */
+    private ByteBuffer raw = null;
+    
+    
+    /**
+     * Constructor.
+     * 
+     * @param sPath the absolute path of the jar
+     * @param lLength the length of the jar file
+     * @param lModified the last-modified time of the jar file
+     */
+    public Record(final String sPath, final long lLength, final long lModified)
+    {
+      path = sPath;
+      length = lLength;
+      modified = lModified;
+    }
+    
+    
+    /**
+     * Return whether the jar file is unchanged since it was cached.
+     * 
+     * @param jar the jar file
+     * @return whether the length and last-modified time match
+     */
+    public boolean matches(final File jar)
+    {
+      return ((jar.length() == length) && (jar.lastModified() == modified));
+    }
+    
+    
+    /**
+     * Return the entries of the jar, decoding them from the cache
+     * file if needed.
+     * 
+     * @return the entries of the jar
+     */
+    public EntryStore getEntries()
+    {
+      if (entries == null)
+      {
+        entries = EntryStore.read(raw.duplicate());
+      }
+      
+      return entries;
+    }
+    
+    
+    /**
+     * Return the annotations in the jar, decoding them from the cache
+     * file if needed.
+     * 
+     * @return the annotations, or null if they are not cached
+     */
+    public AnnotationList getAnnotations()
+    {
+      if ((annotations == null) && (rawAnnotations != null))
+      {
+        annotations = AnnotationList.read(rawAnnotations.duplicate());
+        rawAnnotations = null;
+      }
+      
+      return annotations;
+    }
+    
+    
+    /**
+     * Read the header of a record (everything but the listing).
+     * 
+     * @param raw the bytes of the record
+     * @return the record
+     */
+    public static Record readHeader(final ByteBuffer raw)
+    {
+      final String path = Utility.readString(raw);
+      Record rec = new Record(path, raw.getLong(), raw.getLong());
+      rec.fileCount = raw.getInt();
+      final int attrCount = raw.getInt();
+      if (attrCount >= 0)
+      {
+        rec.attributes = new LinkedHashMap<String, String>(Math.max(16, attrCount * 2));
+        for (int i = 0; i < attrCount; ++i)
+        {
+          final String key = Utility.readString(raw);
+          rec.attributes.put(key, Utility.readString(raw));
+        }
+      }
+      
+      // Save a view of the annotations, if any
+      final int annotationLen = raw.getInt();
+      if (annotationLen >= 0)
+      {
+        rec.rawAnnotations = raw.slice();
+        rec.rawAnnotations.limit(annotationLen);
+        raw.position(raw.position() + annotationLen);
+      }
+      
+      // Save the bytes at the start of the listing
+      rec.raw = raw.slice();
+      return rec;
+    }
+    
+    
+    /**
+     * Write the record, preceded by its length.
+     * 
+     * @param out the output stream
+     * @throws IOException if the stream cannot be written
+     */
+    public void write(final DataOutputStream out) throws IOException
+    {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+      DataOutputStream data = new DataOutputStream(bytes);
+      Utility.writeString(data, path);
+      data.writeLong(length);
+      data.writeLong(modified);
+      data.writeInt(fileCount);
+      if (attributes == null)
+      {
+        data.writeInt(-1);
+      }
+      else
+      {
+        data.writeInt(attributes.size());
+        for (Map.Entry<String, String> attr : attributes.entrySet())
+        {
+          Utility.writeString(data, attr.getKey());
+          Utility.writeString(data, attr.getValue());
+        }
+      }
+      
+      // Write the annotations, copying them from the old file if
+      // they were not decoded
+      if (annotations != null)
+      {
+        ByteArrayOutputStream list = new ByteArrayOutputStream(1024);
+        DataOutputStream listData = new DataOutputStream(list);
+        annotations.write(listData);
+        listData.flush();
+        data.writeInt(list.size());
+        list.writeTo(data);
+      }
+      else if (rawAnnotations != null)
+      {
+        ByteBuffer list = rawAnnotations.duplicate();
+        byte[] copy = new byte[list.remaining()];
+        list.get(copy);
+        data.writeInt(copy.length);
+        data.write(copy);
+      }
+      else
+      {
+        data.writeInt(-1);
+      }
+      
+      // Copy the listing from the old file if it was not decoded
+      if ((entries == null) && (raw != null))
+      {
+        ByteBuffer listing = raw.duplicate();
+        byte[] copy = new byte[listing.remaining()];
+        listing.get(copy);
+        data.write(copy);
+      }
+      else if (entries != null)
+      {
+        entries.write(data);
+      }
+      
+      data.flush();
+      out.writeInt(bytes.size());
+      bytes.writeTo(out);
+    }
+  }
+}
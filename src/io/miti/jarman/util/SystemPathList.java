@@ -1,22 +1,70 @@
 package io.miti.jarman.util;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.Enumeration;
-import java.util.HashSet;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.StringTokenizer;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
+import java.util.TreeMap;
 
 /**
- * Class to generate the list of Java classes in the classpath.
+ * Class to generate the list of Java classes in the runtime.  On
+ * Java 9 and later the classes are read from the runtime image, through
+ * the jrt file system; on older versions, from the jars in the boot
+ * class path.  The classes are grouped by package, with the module
+ * (or boot jar) of each package, and each package holds a sorted array
+ * of its class names.
+ * 
+ * The index is built once per JVM.  If a cache file is set, the index
+ * is saved to it, and read from it in later sessions on the same JDK.
  * 
  * @author mwallace
  * @version 1.0
  */
 public final class SystemPathList
 {
+  /**
+   * The marker at the start of the cache file ("JMSY").
+   */
+  private static final int MAGIC = 0x4A4D5359;
+  
+  /**
+   * The version of the cache file format.
+   */
+  private static final int VERSION = 1;
+  
+  /**
+   * The cache file, or null to not cache the index.
+   */
+  private static File cacheFile = null;
+  
+  /**
+   * The index of system classes, or null if not built yet.
+   */
+  private static Index index = null;
+  
+  
   /**
    * Default constructor.
    */
@@ -27,25 +75,222 @@ public final class SystemPathList
   
   
   /**
-   * Return the set of Java system classes.
+   * Set the file used to save the index between sessions.
+   * 
+   * @param file the cache file, or null to not cache the index
+   */
+  public static synchronized void setCacheFile(final File file)
+  {
+    cacheFile = file;
+  }
+  
+  
+  /**
+   * Return the set of Java system classes.  The names use slashes
+   * as the package separator.  The set is shared and cannot be changed.
    * 
    * @return the set of Java system classes
    */
   public Set<String> getList()
   {
-    Set<String> set = new HashSet<String>(20);
+    return getIndex().classes;
+  }
+  
+  
+  /**
+   * Return whether the class is a Java system class.
+   * 
+   * @param className the class name, with slashes as the package separator
+   * @return whether the class is in the runtime
+   */
+  public boolean contains(final String className)
+  {
+    return getIndex().classes.contains(className);
+  }
+  
+  
+  /**
+   * Return the module (or boot jar, before Java 9) holding a system class.
+   * 
+   * @param className the class name, with slashes as the package separator
+   * @return the module name, or null if the class is not a system class
+   */
+  public String getModule(final String className)
+  {
+    final Index idx = getIndex();
+    if (!idx.classes.contains(className))
+    {
+      return null;
+    }
+    
+    return idx.getPackage(className).module;
+  }
+  
+  
+  /**
+   * Return the names of the modules (or boot jars), in sorted order.
+   * 
+   * @return the module names
+   */
+  public List<String> getModules()
+  {
+    return getIndex().modules;
+  }
+  
+  
+  /**
+   * Return the index, building it the first time.
+   * 
+   * @return the index of system classes
+   */
+  private static synchronized Index getIndex()
+  {
+    if (index == null)
+    {
+      final String key = getRuntimeKey();
+      Index idx = readCache(key);
+      if (idx == null)
+      {
+        idx = buildIndex();
+        writeCache(key, idx);
+      }
+      
+      index = idx;
+    }
+    
+    return index;
+  }
+  
+  
+  /**
+   * Return the key identifying this runtime in the cache file.
+   * 
+   * @return the runtime key
+   */
+  private static String getRuntimeKey()
+  {
+    StringBuilder sb = new StringBuilder(100);
+    sb.append(System.getProperty("java.home")).append('|')
+      .append(System.getProperty("java.runtime.version")).append('|')
+      .append(System.getProperty("java.vm.version"));
+    
+    // Include the runtime image, in case the JDK was updated in place
+    File modules = new File(System.getProperty("java.home"), "lib/modules");
+    if (modules.isFile())
+    {
+      sb.append('|').append(modules.length()).append('|').append(modules.lastModified());
+    }
+    
+    return sb.toString();
+  }
+  
+  
+  /**
+   * Build the index from the runtime image, or the boot class path.
+   * 
+   * @return the index
+   */
+  private static Index buildIndex()
+  {
+    Map<String, Package> packages = new HashMap<String, Package>(1000);
+    if (!readRuntimeImage(packages))
+    {
+      readBootClassPath(packages);
+    }
     
+    return new Index(packages);
+  }
+  
+  
+  /**
+   * Read the classes in the runtime image (Java 9 and later).
+   * 
+   * @param packages the map to add the packages to
+   * @return whether the runtime image was found
+   */
+  private static boolean readRuntimeImage(final Map<String, Package> packages)
+  {
+    final FileSystem fs;
+    try
+    {
+      fs = FileSystems.getFileSystem(URI.create("jrt:/"));
+    }
+    catch (RuntimeException e)
+    {
+      // There is no jrt file system before Java 9
+      return false;
+    }
+    
+    final Map<String, List<String>> classes = new HashMap<String, List<String>>(1000);
+    DirectoryStream<Path> modules = null;
+    try
+    {
+      // Walk the directory of each module
+      modules = Files.newDirectoryStream(fs.getPath("/modules"));
+      for (final Path module : modules)
+      {
+        final String moduleName = module.getFileName().toString().replace("/", "");
+        Files.walkFileTree(module, new SimpleFileVisitor<Path>()
+        {
+          @Override
+          public FileVisitResult visitFile(final Path file,
+                                           final BasicFileAttributes attrs)
+          {
+            final String name = module.relativize(file).toString();
+            if (name.endsWith(".class") && !name.endsWith("module-info.class"))
+            {
+              addClass(packages, classes, moduleName,
+                       name.substring(0, name.length() - 6));
+            }
+            
+            return FileVisitResult.CONTINUE;
+          }
+        });
+      }
+    }
+    catch (IOException e)
+    {
+      e.printStackTrace();
+    }
+    finally
+    {
+      if (modules != null)
+      {
+        try
+        {
+          modules.close();
+        }
+        catch (IOException e)
+        {
+          e.printStackTrace();
+        }
+      }
+    }
+    
+    setClasses(packages, classes);
+    return true;
+  }
+  
+  
+  /**
+   * Read the classes in the jars on the boot class path (before Java 9).
+   * 
+   * @param packages the map to add the packages to
+   */
+  private static void readBootClassPath(final Map<String, Package> packages)
+  {
     String pathSep = System.getProperty("path.separator");
     String path = System.getProperty("sun.boot.class.path");
     if ((pathSep == null) || (pathSep.length() < 1))
     {
-      return set;
+      return;
     }
     else if ((path == null) || (path.length() < 1))
     {
-      return set;
+      return;
     }
     
+    final Map<String, List<String>> classes = new HashMap<String, List<String>>(1000);
     StringTokenizer st = new StringTokenizer(path, pathSep);
     while (st.hasMoreTokens())
     {
@@ -54,45 +299,431 @@ public final class SystemPathList
       if ((file.exists()) && (file.isFile()) && (token.endsWith(".jar")))
       {
         // Process this jar
-        processJar(set, file);
+        final String jarName = file.getName();
+        processJar(packages, classes, jarName.substring(0, jarName.length() - 4), file);
       }
     }
     
-    // Return the list
-    return set;
+    setClasses(packages, classes);
   }
   
   
   /**
    * Save the classes that are in this jar.
    * 
-   * @param set the set to save the class name to
+   * @param packages the map of packages
+   * @param classes the map of class names in each package
+   * @param module the name to save as the module of the classes
    * @param file the input jar file
    */
-  private void processJar(final Set<String> set, final File file)
+  private static void processJar(final Map<String, Package> packages,
+                                 final Map<String, List<String>> classes,
+                                 final String module,
+                                 final File file)
   {
     try
     {
-      JarFile jar = new JarFile(file);
-      Enumeration<JarEntry> entries = jar.entries();
-      while (entries.hasMoreElements())
+      ZipDirectory dir = new ZipDirectory(file);
+      while (dir.next())
       {
-        JarEntry entry = entries.nextElement();
-        if (!entry.isDirectory())
+        String name = dir.getName();
+        if (name.endsWith(".class"))
         {
-          String name = entry.getName();
-          if (name.endsWith(".class"))
-          {
-            set.add(name.substring(0, name.length() - 6));
-          }
+          addClass(packages, classes, module, name.substring(0, name.length() - 6));
         }
       }
+    }
+    catch (IOException e)
+    {
+      e.printStackTrace();
+    }
+  }
+  
+  
+  /**
+   * Add a class to its package.  The first module seen for a package
+   * is saved as the package's module.
+   * 
+   * @param packages the map of packages
+   * @param classes the map of class names in each package
+   * @param module the module of the class
+   * @param className the class name, with slashes
+   */
+  private static void addClass(final Map<String, Package> packages,
+                               final Map<String, List<String>> classes,
+                               final String module,
+                               final String className)
+  {
+    final int slash = className.lastIndexOf('/');
+    final String pkg = (slash < 0) ? "" : className.substring(0, slash);
+    List<String> list = classes.get(pkg);
+    if (list == null)
+    {
+      list = new ArrayList<String>(20);
+      classes.put(pkg, list);
+      packages.put(pkg, new Package(pkg, module));
+    }
+    
+    list.add(className.substring(slash + 1));
+  }
+  
+  
+  /**
+   * Save the sorted class names in each package.
+   * 
+   * @param packages the map of packages
+   * @param classes the map of class names in each package
+   */
+  private static void setClasses(final Map<String, Package> packages,
+                                 final Map<String, List<String>> classes)
+  {
+    for (Map.Entry<String, List<String>> entry : classes.entrySet())
+    {
+      String[] names = entry.getValue().toArray(new String[entry.getValue().size()]);
+      Arrays.sort(names);
+      packages.get(entry.getKey()).classes = names;
+    }
+  }
+  
+  
+  /**
+   * Read the index from the cache file, if it was saved for this runtime.
+   * 
+   * @param key the key identifying this runtime
+   * @return the index, or null if not cached
+   */
+  private static Index readCache(final String key)
+  {
+    if ((cacheFile == null) || !cacheFile.isFile())
+    {
+      return null;
+    }
+    
+    try
+    {
+      // Read the file into memory, rather than mapping it, so that
+      // writeCache() can replace it
+      ByteBuffer buf = Utility.readFile(cacheFile);
+      if ((buf.getInt() != MAGIC) || (buf.getInt() != VERSION) ||
+          !Utility.readString(buf).equals(key))
+      {
+        return null;
+      }
       
-      jar.close();
+      final int count = buf.getInt();
+      Map<String, Package> packages = new HashMap<String, Package>(count * 2);
+      for (int i = 0; i < count; ++i)
+      {
+        final String name = Utility.readString(buf);
+        Package pkg = new Package(name, Utility.readString(buf));
+        pkg.classes = new String[buf.getInt()];
+        for (int j = 0; j < pkg.classes.length; ++j)
+        {
+          pkg.classes[j] = Utility.readString(buf);
+        }
+        
+        packages.put(name, pkg);
+      }
+      
+      return new Index(packages);
+    }
+    catch (IOException e)
+    {
+      return null;
+    }
+    catch (RuntimeException e)
+    {
+      // The file is truncated or corrupt
+      return null;
+    }
+  }
+  
+  
+  /**
+   * Save the index to the cache file.  The index is written to a
+   * temporary file, which then replaces the cache file.
+   * 
+   * @param key the key identifying this runtime
+   * @param idx the index
+   */
+  private static void writeCache(final String key, final Index idx)
+  {
+    if ((cacheFile == null) || idx.packages.isEmpty())
+    {
+      return;
+    }
+    
+    File temp = new File(cacheFile.getPath() + ".tmp");
+    DataOutputStream out = null;
+    boolean written = false;
+    try
+    {
+      out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(temp), 65536));
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      Utility.writeString(out, key);
+      out.writeInt(idx.packages.size());
+      for (Package pkg : idx.packages.values())
+      {
+        Utility.writeString(out, pkg.name);
+        Utility.writeString(out, pkg.module);
+        out.writeInt(pkg.classes.length);
+        for (String name : pkg.classes)
+        {
+          Utility.writeString(out, name);
+        }
+      }
+      
+      out.close();
+      out = null;
+      written = true;
     }
     catch (IOException e)
     {
       e.printStackTrace();
     }
+    finally
+    {
+      if (out != null)
+      {
+        try
+        {
+          out.close();
+        }
+        catch (IOException e)
+        {
+          e.printStackTrace();
+        }
+      }
+    }
+    
+    if (!written)
+    {
+      temp.delete();
+      return;
+    }
+    
+    // Replace the old file
+    if (!temp.renameTo(cacheFile))
+    {
+      cacheFile.delete();
+      if (!temp.renameTo(cacheFile))
+      {
+        temp.delete();
+      }
+    }
+  }
+  
+  
+  /**
+   * The classes in one package.
+   */
+  private static final class Package
+  {
+    /**
+     * The package name, with slashes.
+     */
+    private String name = null;
+    
+    /**
+     * The module (or boot jar) of the package.
+     */
+    private String module = null;
+    
+    /**
+     * The sorted class names (no package).
+     */
+    private String[] classes = null;
+    
+    
+    /**
+     * Constructor.
+     * 
+     * @param sName the package name
+     * @param sModule the module of the package
+     */
+    public Package(final String sName, final String sModule)
+    {
+      name = sName;
+      module = sModule;
+    }
+    
+    
+    /**
+     * Return whether the package holds the class.
+     * 
+     * @param simpleName the class name, without the package
+     * @return whether the class is in the package
+     */
+    public boolean contains(final String simpleName)
+    {
+      return (Arrays.binarySearch(classes, simpleName) >= 0);
+    }
+  }
+  
+  
+  /**
+   * The index of all system classes, by package.
+   */
+  private static final class Index
+  {
+    /**
+     * The packages, keyed by name.
+     */
+    private Map<String, Package> packages = null;
+    
+    /**
+     * The sorted module names.
+     */
+    private List<String> modules = null;
+    
+    /**
+     * The set of class names, backed by the packages.
+     */
+    private Set<String> classes = null;
+    
+    /**
+     * The number of classes.
+     */
+    private int size = 0;
+    
+    
+    /**
+     * Constructor.
+     * 
+     * @param pPackages the packages, keyed by name
+     */
+    public Index(final Map<String, Package> pPackages)
+    {
+      packages = pPackages;
+      Map<String, String> names = new TreeMap<String, String>();
+      for (Package pkg : packages.values())
+      {
+        size += pkg.classes.length;
+        names.put(pkg.module, pkg.module);
+      }
+      
+      modules = Collections.unmodifiableList(new ArrayList<String>(names.keySet()));
+      classes = new ClassSet(this);
+    }
+    
+    
+    /**
+     * Return the package of the class.
+     * 
+     * @param className the class name, with slashes
+     * @return the package, or null if not found
+     */
+    public Package getPackage(final String className)
+    {
+      final int slash = className.lastIndexOf('/');
+      return packages.get((slash < 0) ? "" : className.substring(0, slash));
+    }
+  }
+  
+  
+  /**
+   * A read-only set view of the class names in the index.
+   */
+  private static final class ClassSet extends AbstractSet<String>
+  {
+    /**
+     * The index.
+     */
+    private Index idx = null;
+    
+    
+    /**
+     * Constructor.
+     * 
+     * @param pIndex the index
+     */
+    public ClassSet(final Index pIndex)
+    {
+      super();
+      idx = pIndex;
+    }
+    
+    
+    /**
+     * Return whether the set holds the class.
+     * 
+     * @param obj the class name, with slashes
+     * @return whether the class is a system class
+     */
+    @Override
+    public boolean contains(final Object obj)
+    {
+      if (!(obj instanceof String))
+      {
+        return false;
+      }
+      
+      final String className = (String) obj;
+      final Package pkg = idx.getPackage(className);
+      return ((pkg != null) &&
+              pkg.contains(className.substring(className.lastIndexOf('/') + 1)));
+    }
+    
+    
+    /**
+     * Return the number of classes.
+     * 
+     * @return the number of classes
+     */
+    @Override
+    public int size()
+    {
+      return idx.size;
+    }
+    
+    
+    /**
+     * Return an iterator over the class names.
+     * 
+     * @return an iterator over the class names
+     */
+    @Override
+    public Iterator<String> iterator()
+    {
+      final Iterator<Package> pkgs = idx.packages.values().iterator();
+      return new Iterator<String>()
+      {
+        private Package pkg = null;
+        
+        private int next = 0;
+        
+        @Override
+        public boolean hasNext()
+        {
+          while (((pkg == null) || (next >= pkg.classes.length)) && pkgs.hasNext())
+          {
+            pkg = pkgs.next();
+            next = 0;
+          }
+          
+          return ((pkg != null) && (next < pkg.classes.length));
+        }
+        
+        @Override
+        public String next()
+        {
+          if (!hasNext())
+          {
+            throw new NoSuchElementException();
+          }
+          
+          final String name = pkg.classes[next++];
+          return (pkg.name.length() == 0) ? name : (pkg.name + "/" + name);
+        }
+        
+        @Override
+        public void remove()
+        {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
   }
 }
@@ -8,6 +8,7 @@ import java.awt.Toolkit;
 import java.awt.datatransfer.StringSelection;
 import java.awt.image.BufferedImage;
 import java.io.BufferedReader;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -17,12 +18,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.util.Date;
 import java.util.Properties;
 import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
 
 import javax.imageio.ImageIO;
 import javax.swing.ImageIcon;
@@ -53,6 +55,11 @@ public final class Utility
    */
   private static String lineSep = null;
   
+  /**
+   * The character set for strings in binary files.
+   */
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  
   /**
    * The characters for the hex conversion.
    */
@@ -922,13 +929,13 @@ public final class Utility
   
   
   /**
-   * Return the contents of a jar file and entry as a string.
+   * Return the contents of an archive entry as a string.
    * 
-   * @param file the input file
+   * @param file the archive
    * @param entry the jar entry
    * @return the contents of the file
    */
-  public static String getFileAsText(final JarFile file,
+  public static String getFileAsText(final Archive file,
                                       final JarEntry entry)
   {
     // Get the text of the file
@@ -1227,6 +1234,89 @@ public final class Utility
   }
   
   
+  /**
+   * Write a string to a binary stream, as its length in bytes
+   * followed by the UTF-8 bytes.
+   * 
+   * @param out the output stream
+   * @param str the string to write
+   * @throws IOException if the stream cannot be written
+   */
+  public static void writeString(final DataOutputStream out, final String str)
+    throws IOException
+  {
+    final byte[] bytes = str.getBytes(UTF8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+  
+  
+  /**
+   * Read a string written by writeString() from a buffer.
+   * 
+   * @param buf the buffer
+   * @return the string
+   */
+  public static String readString(final ByteBuffer buf)
+  {
+    final byte[] bytes = new byte[buf.getInt()];
+    buf.get(bytes);
+    return new String(bytes, UTF8);
+  }
+  
+  
+  /**
+   * Read a whole file into a buffer on the heap.  This is used for
+   * index files that are replaced while their contents are in use;
+   * a file that is mapped cannot be replaced on Windows until the
+   * mapping is garbage collected.
+   * 
+   * @param file the file
+   * @return the buffer, holding the file
+   * @throws IOException if the file cannot be read, or is over 2 GB
+   */
+  public static ByteBuffer readFile(final File file) throws IOException
+  {
+    FileInputStream fis = null;
+    try
+    {
+      fis = new FileInputStream(file);
+      final FileChannel fc = fis.getChannel();
+      final long size = fc.size();
+      if (size > Integer.MAX_VALUE)
+      {
+        throw new IOException("File is too large: " + file.getPath());
+      }
+      
+      ByteBuffer buf = ByteBuffer.allocate((int) size);
+      while (buf.hasRemaining())
+      {
+        if (fc.read(buf) < 0)
+        {
+          throw new IOException("Unexpected end of file: " + file.getPath());
+        }
+      }
+      
+      buf.flip();
+      return buf;
+    }
+    finally
+    {
+      if (fis != null)
+      {
+        try
+        {
+          fis.close();
+        }
+        catch (IOException e)
+        {
+          e.printStackTrace();
+        }
+      }
+    }
+  }
+  
+  
   /**
    * Copy a string to the clipboard.
    * 
@@ -37,6 +37,18 @@ public final class WindowState
    */
   private int width = 0;
   
+  /**
+   * The number of worker threads used to scan the jars in the
+   * class path.  Zero means one thread per processor.
+   */
+  private int scanThreads = 0;
+  
+  /**
+   * The memory budget of the cache of parsed classes, in megabytes.
+   * Zero means the default size.
+   */
+  private int parseCacheSize = 0;
+  
   /**
    * The log level.  Zero = no logging.  Possible values are 0-5.
    */
@@ -187,6 +199,63 @@ public final class WindowState
   }
   
   
+  /**
+   * Return the number of worker threads used to scan the jars in
+   * the class path.
+   * 
+   * @return the number of scan threads
+   */
+  public int getScanThreads()
+  {
+    if (scanThreads <= 0)
+    {
+      return JarScanner.getDefaultPoolSize();
+    }
+    
+    return scanThreads;
+  }
+  
+  
+  /**
+   * Set the number of worker threads used to scan the jars in the
+   * class path.  Zero means one thread per processor.
+   * 
+   * @param nThreads the number of scan threads
+   */
+  public void setScanThreads(final int nThreads)
+  {
+    scanThreads = nThreads;
+  }
+  
+  
+  /**
+   * Return the memory budget of the cache of parsed classes.
+   * 
+   * @return the cache size, in megabytes
+   */
+  public int getParseCacheSize()
+  {
+    if (parseCacheSize <= 0)
+    {
+      return 64;
+    }
+    
+    return parseCacheSize;
+  }
+  
+  
+  /**
+   * Set the memory budget of the cache of parsed classes.  Zero
+   * means the default size.
+   * 
+   * @param nSize the cache size, in megabytes
+   */
+  public void setParseCacheSize(final int nSize)
+  {
+    parseCacheSize = nSize;
+  }
+  
+  
   /**
    * Return the height and width as a dimension.
    * 
@@ -259,6 +328,8 @@ public final class WindowState
     prop.put("window.pos.y", Integer.toString(y));
     prop.put("window.size.width", Integer.toString(width));
     prop.put("window.size.height", Integer.toString(height));
+    prop.put("scan.threads", Integer.toString(scanThreads));
+    prop.put("parse.cache.size", Integer.toString(parseCacheSize));
     // prop.put("log.level", Integer.toString(logLevel));
     // prop.put("log.file", logFile);
     // prop.put("log.overwrite", logOverwrite ? "1" : "0");
@@ -290,6 +361,8 @@ public final class WindowState
     ws.y = parseInteger(props, "window.pos.y");
     ws.width = parseInteger(props, "window.size.width");
     ws.height = parseInteger(props, "window.size.height");
+    ws.scanThreads = parseInteger(props, "scan.threads");
+    ws.parseCacheSize = parseInteger(props, "parse.cache.size");
     
     // Get data about files to load
     FileList.getInstance().loadData(props);
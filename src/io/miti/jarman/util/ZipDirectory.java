@@ -0,0 +1,1136 @@
+package io.miti.jarman.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Calendar;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Read the central directory of a zip (or jar) file without opening
+ * it as a JarFile.  The end of the file and the central directory are
+ * memory-mapped, and the data on each entry (name, CRC, sizes, time
+ * and the offset of its local header) is decoded straight from the
+ * mapped buffer.  No entry is inflated, and signatures are not checked.
+ * Zip64 archives, and archives with more than 65,535 entries, are
+ * supported.
+ * 
+ * The entries are read with a cursor: call next() to move to the
+ * next entry, and then the getters to read its fields.  To read one
+ * entry (such as the manifest), call find() to move to it by name, and
+ * read() to get its contents.  Only that entry is inflated.
+ * 
+ * The archive can also be a buffer, such as a jar stored inside another
+ * jar: the buffer is a slice of the outer jar's mapped bytes, so the
+ * inner jar is read without being copied or extracted.
+ * 
+ * @author mwallace
+ * @version 1.0
+ */
+public final class ZipDirectory
+{
+  /**
+   * The signature of the end of central directory record.
+   */
+  private static final int END_SIG = 0x06054b50;
+  
+  /**
+   * The signature of the Zip64 end of central directory locator.
+   */
+  private static final int ZIP64_LOC_SIG = 0x07064b50;
+  
+  /**
+   * The signature of the Zip64 end of central directory record.
+   */
+  private static final int ZIP64_END_SIG = 0x06064b50;
+  
+  /**
+   * The signature of a central directory file header.
+   */
+  private static final int CEN_SIG = 0x02014b50;
+  
+  /**
+   * The size of the end of central directory record (no comment).
+   */
+  private static final int END_SIZE = 22;
+  
+  /**
+   * The size of the Zip64 end of central directory locator.
+   */
+  private static final int ZIP64_LOC_SIZE = 20;
+  
+  /**
+   * The size of the Zip64 end of central directory record (no extra data).
+   */
+  private static final int ZIP64_END_SIZE = 56;
+  
+  /**
+   * The size of a central directory file header (no variable fields).
+   */
+  private static final int CEN_SIZE = 46;
+  
+  /**
+   * The signature of a local file header.
+   */
+  private static final int LOC_SIG = 0x04034b50;
+  
+  /**
+   * The size of a local file header (no variable fields).
+   */
+  private static final int LOC_SIZE = 30;
+  
+  /**
+   * The compression method for stored entries.
+   */
+  private static final int STORED = 0;
+  
+  /**
+   * The compression method for deflated entries.
+   */
+  private static final int DEFLATED = 8;
+  
+  /**
+   * The largest entry that can be read into memory by read().
+   */
+  private static final long MAX_READ = 16L * 1024L * 1024L;
+  
+  /**
+   * The maximum size of the zip file comment.
+   */
+  private static final int MAX_COMMENT = 0xFFFF;
+  
+  /**
+   * The value of a 32-bit field that is stored in the Zip64 extra field.
+   */
+  private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+  
+  /**
+   * The value of a 16-bit entry count that is stored in the Zip64 record.
+   */
+  private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+  
+  /**
+   * The ID of the Zip64 extended information extra field.
+   */
+  private static final int EXTID_ZIP64 = 0x0001;
+  
+  /**
+   * The ID of the NTFS extra field.
+   */
+  private static final int EXTID_NTFS = 0x000a;
+  
+  /**
+   * The ID of the extended timestamp extra field.
+   */
+  private static final int EXTID_EXTT = 0x5455;
+  
+  /**
+   * The number of 100ns intervals between 1601 and 1970 (for NTFS times).
+   */
+  private static final long WINDOWS_EPOCH_OFFSET = 116444736000000000L;
+  
+  /**
+   * The character set of entry names.
+   */
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  
+  /**
+   * The zip file.
+   */
+  private File zipFile = null;
+  
+  /**
+   * The archive, if it is held in a buffer rather than read from zipFile.
+   */
+  private ByteBuffer data = null;
+  
+  /**
+   * The mapped central directory.
+   */
+  private ByteBuffer cen = null;
+  
+  /**
+   * The number of bytes between the start of the file and the
+   * start of the archive (for jars with a prepended launcher).
+   */
+  private long base = 0L;
+  
+  /**
+   * The position of the next entry's header in the central directory.
+   */
+  private int nextPos = 0;
+  
+  /**
+   * The number of entries, or -1 if not counted yet.
+   */
+  private int entryCount = -1;
+  
+  /**
+   * The buffer for decoding entry names.
+   */
+  private byte[] nameBytes = new byte[256];
+  
+  /**
+   * The calendar for converting DOS times.
+   */
+  private Calendar cal = null;
+  
+  /**
+   * The last DOS time converted.  Entries in a jar often share
+   * the same time, so the last conversion is saved.
+   */
+  private int lastDosTime = 0;
+  
+  /**
+   * The Java time for lastDosTime, or Long.MIN_VALUE if none.
+   */
+  private long lastJavaTime = Long.MIN_VALUE;
+  
+  /**
+   * The name of the current entry.
+   */
+  private String name = null;
+  
+  /**
+   * The CRC of the current entry.
+   */
+  private long crc = 0L;
+  
+  /**
+   * The uncompressed size of the current entry.
+   */
+  private long size = 0L;
+  
+  /**
+   * The compressed size of the current entry.
+   */
+  private long compressedSize = 0L;
+  
+  /**
+   * The modification time of the current entry.
+   */
+  private long time = 0L;
+  
+  /**
+   * The offset of the current entry's local header in the file.
+   */
+  private long offset = 0L;
+  
+  /**
+   * The compression method of the current entry.
+   */
+  private int method = 0;
+  
+  /**
+   * The general purpose flags of the current entry.
+   */
+  private int flags = 0;
+  
+  /**
+   * The position of the current entry's header in the central directory.
+   */
+  private int headerPos = 0;
+  
+  
+  /**
+   * Constructor.  The central directory of the file is located
+   * and mapped.
+   * 
+   * @param file the zip file
+   * @throws IOException if the file cannot be read, or the file
+   *         is not a zip file
+   */
+  public ZipDirectory(final File file) throws IOException
+  {
+    super();
+    zipFile = file;
+    
+    FileInputStream fis = null;
+    try
+    {
+      fis = new FileInputStream(file);
+      mapDirectory(fis.getChannel());
+    }
+    finally
+    {
+      if (fis != null)
+      {
+        try
+        {
+          fis.close();
+        }
+        catch (IOException e)
+        {
+          e.printStackTrace();
+        }
+      }
+    }
+  }
+  
+  
+  /**
+   * Constructor for an archive held in a buffer.  The archive runs
+   * from the buffer's position to its limit; the buffer itself is
+   * not changed.
+   * 
+   * @param buffer the archive
+   * @throws IOException if the buffer does not hold a zip file
+   */
+  public ZipDirectory(final ByteBuffer buffer) throws IOException
+  {
+    super();
+    data = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+    mapDirectory(null);
+  }
+  
+  
+  /**
+   * Find the end of central directory record, and map the
+   * central directory.
+   * 
+   * @param fc the file channel, or null if the archive is in a buffer
+   * @throws IOException if the file cannot be read, or the file
+   *         is not a zip file
+   */
+  private void mapDirectory(final FileChannel fc) throws IOException
+  {
+    // Map the end of the file, where the end record and the comment are
+    final long fileLen = (data == null) ? fc.size() : data.limit();
+    if (fileLen < END_SIZE)
+    {
+      throw new ZipException("File is too short to be a zip file");
+    }
+    
+    final long tailPos = Math.max(0L, fileLen - END_SIZE - MAX_COMMENT);
+    final ByteBuffer tail = map(fc, tailPos, fileLen - tailPos);
+    
+    // Search backwards for the end record
+    int endPos = -1;
+    for (int i = tail.limit() - END_SIZE; i >= 0; --i)
+    {
+      if ((tail.getInt(i) == END_SIG) &&
+          ((i + END_SIZE + getShort(tail, i + 20)) == tail.limit()))
+      {
+        endPos = i;
+        break;
+      }
+    }
+    
+    if (endPos < 0)
+    {
+      throw new ZipException("End of central directory not found");
+    }
+    
+    long cenLen = getInt(tail, endPos + 12);
+    long cenOff = getInt(tail, endPos + 16);
+    long cenEnd = tailPos + endPos;
+    
+    // Check for a Zip64 archive.  The locator comes right before the
+    // end record, and points to the Zip64 end record.
+    if ((cenLen == ZIP64_MAGIC) || (cenOff == ZIP64_MAGIC) ||
+        (getShort(tail, endPos + 10) == ZIP64_MAGIC_COUNT))
+    {
+      final long locPos = cenEnd - ZIP64_LOC_SIZE;
+      if ((locPos >= 0L) && (readInt(fc, locPos) == ZIP64_LOC_SIG))
+      {
+        final ByteBuffer loc = map(fc, locPos, ZIP64_LOC_SIZE);
+        final long end64Pos = loc.getLong(8);
+        if ((end64Pos < 0L) || ((end64Pos + ZIP64_END_SIZE) > locPos))
+        {
+          throw new ZipException("Invalid Zip64 end of central directory");
+        }
+        
+        final ByteBuffer end64 = map(fc, end64Pos, ZIP64_END_SIZE);
+        if (end64.getInt(0) != ZIP64_END_SIG)
+        {
+          throw new ZipException("Invalid Zip64 end of central directory");
+        }
+        
+        cenLen = end64.getLong(40);
+        cenOff = end64.getLong(48);
+        cenEnd = end64Pos;
+      }
+    }
+    
+    // Find the start of the central directory.  Any difference from the
+    // offset in the end record is data prepended to the archive.
+    final long cenPos = cenEnd - cenLen;
+    if ((cenLen < 0L) || (cenPos < 0L) || (cenPos < cenOff))
+    {
+      throw new ZipException("Invalid central directory");
+    }
+    else if (cenLen > Integer.MAX_VALUE)
+    {
+      throw new ZipException("Central directory is too large");
+    }
+    
+    base = cenPos - cenOff;
+    cen = map(fc, cenPos, cenLen);
+  }
+  
+  
+  /**
+   * Map a section of the archive, as a little-endian buffer.  If the
+   * archive is in a buffer, the section is a slice of it.
+   * 
+   * @param fc the file channel, or null if the archive is in a buffer
+   * @param pos the start of the section
+   * @param len the length of the section
+   * @return the mapped buffer
+   * @throws IOException if the file cannot be mapped, or the section
+   *         is outside the archive or too large to map
+   */
+  private ByteBuffer map(final FileChannel fc,
+                         final long pos,
+                         final long len) throws IOException
+  {
+    if (len > Integer.MAX_VALUE)
+    {
+      throw new ZipException("Section is too large to map: " + len + " bytes");
+    }
+    else if (data == null)
+    {
+      ByteBuffer buf = fc.map(FileChannel.MapMode.READ_ONLY, pos, len);
+      buf.order(ByteOrder.LITTLE_ENDIAN);
+      return buf;
+    }
+    else if ((pos < 0L) || (len < 0L) || ((pos + len) > data.limit()))
+    {
+      throw new ZipException("Unexpected end of file");
+    }
+    
+    ByteBuffer buf = data.duplicate();
+    buf.position((int) pos);
+    buf.limit((int) (pos + len));
+    return buf.slice().order(ByteOrder.LITTLE_ENDIAN);
+  }
+  
+  
+  /**
+   * Read a 4-byte little-endian value from the archive.
+   * 
+   * @param fc the file channel, or null if the archive is in a buffer
+   * @param pos the position of the value
+   * @return the value
+   * @throws IOException if the file cannot be read
+   */
+  private int readInt(final FileChannel fc, final long pos)
+    throws IOException
+  {
+    if (data != null)
+    {
+      return ((pos + 4L) <= data.limit()) ? data.getInt((int) pos) : 0;
+    }
+    
+    ByteBuffer buf = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+    while (buf.hasRemaining())
+    {
+      if (fc.read(buf, pos + buf.position()) < 0)
+      {
+        return 0;
+      }
+    }
+    
+    return buf.getInt(0);
+  }
+  
+  
+  /**
+   * Return the number of entries in the central directory, including
+   * directories.  The headers are counted, rather than trusting the
+   * count in the end record, which is only 16 bits in older archives.
+   * 
+   * @return the number of entries
+   * @throws ZipException if the central directory is invalid
+   */
+  public int getEntryCount() throws ZipException
+  {
+    if (entryCount < 0)
+    {
+      int count = 0;
+      int pos = 0;
+      final int limit = cen.limit();
+      while (pos < limit)
+      {
+        pos = getNextHeader(pos);
+        ++count;
+      }
+      
+      entryCount = count;
+    }
+    
+    return entryCount;
+  }
+  
+  
+  /**
+   * Return the position of the header after the one at pos.
+   * 
+   * @param pos the position of a header
+   * @return the position of the next header
+   * @throws ZipException if the header is invalid
+   */
+  private int getNextHeader(final int pos) throws ZipException
+  {
+    if (((pos + CEN_SIZE) > cen.limit()) || (cen.getInt(pos) != CEN_SIG))
+    {
+      throw new ZipException("Invalid central directory header");
+    }
+    
+    final int next = pos + CEN_SIZE + getShort(cen, pos + 28) +
+                     getShort(cen, pos + 30) + getShort(cen, pos + 32);
+    if (next > cen.limit())
+    {
+      throw new ZipException("Invalid central directory header");
+    }
+    
+    return next;
+  }
+  
+  
+  /**
+   * Move to the next entry in the central directory.
+   * 
+   * @return whether there is another entry
+   * @throws ZipException if the central directory is invalid
+   */
+  public boolean next() throws ZipException
+  {
+    if (nextPos >= cen.limit())
+    {
+      return false;
+    }
+    
+    final int pos = nextPos;
+    nextPos = getNextHeader(pos);
+    readHeader(pos);
+    
+    return true;
+  }
+  
+  
+  /**
+   * Move to the entry with a name.  The names are compared as bytes,
+   * ignoring the case of ASCII letters (as the JDK does for the
+   * manifest), so no other entry's name is decoded.  The entry after
+   * it is the next one returned by next().
+   * 
+   * @param entryName the full name of the entry
+   * @return whether the entry was found
+   * @throws ZipException if the central directory is invalid
+   */
+  public boolean find(final String entryName) throws ZipException
+  {
+    final byte[] target = entryName.getBytes(UTF8);
+    final int limit = cen.limit();
+    int pos = 0;
+    while (pos < limit)
+    {
+      final int next = getNextHeader(pos);
+      if (nameMatches(pos, target))
+      {
+        nextPos = next;
+        readHeader(pos);
+        return true;
+      }
+      
+      pos = next;
+    }
+    
+    return false;
+  }
+  
+  
+  /**
+   * Move back to an entry already read, by the position of its header.
+   * 
+   * @param pos the position of the header, from getHeaderPosition()
+   * @throws ZipException if there is no header at the position
+   */
+  public void moveTo(final int pos) throws ZipException
+  {
+    nextPos = getNextHeader(pos);
+    readHeader(pos);
+  }
+  
+  
+  /**
+   * Return whether the name in a header matches, ignoring the case
+   * of ASCII letters.
+   * 
+   * @param pos the position of the header
+   * @param target the name to match, in UTF-8
+   * @return whether the name matches
+   */
+  private boolean nameMatches(final int pos, final byte[] target)
+  {
+    if (getShort(cen, pos + 28) != target.length)
+    {
+      return false;
+    }
+    
+    final int start = pos + CEN_SIZE;
+    for (int i = 0; i < target.length; ++i)
+    {
+      final int b = cen.get(start + i);
+      final int t = target[i];
+      if ((b != t) && ((toUpper(b) != toUpper(t))))
+      {
+        return false;
+      }
+    }
+    
+    return true;
+  }
+  
+  
+  /**
+   * Return the upper-case form of an ASCII letter.
+   * 
+   * @param b the byte
+   * @return the byte, as upper case if it is a lower-case letter
+   */
+  private static int toUpper(final int b)
+  {
+    return ((b >= 'a') && (b <= 'z')) ? (b - ('a' - 'A')) : b;
+  }
+  
+  
+  /**
+   * Read the contents of the current entry.  The entry is read into
+   * memory, so this is meant for small entries such as the manifest.
+   * 
+   * @return the contents of the entry
+   * @throws IOException if the entry cannot be read, or is encrypted,
+   *         too large or compressed with an unsupported method
+   */
+  public byte[] read() throws IOException
+  {
+    if ((size > MAX_READ) || (compressedSize > MAX_READ))
+    {
+      throw new ZipException("Entry is too large: " + name);
+    }
+    
+    final ByteBuffer buf = getBuffer();
+    if (buf.hasArray() && (buf.arrayOffset() == 0) &&
+        (buf.array().length == buf.remaining()))
+    {
+      return buf.array();
+    }
+    
+    final byte[] out = new byte[buf.remaining()];
+    buf.get(out);
+    return out;
+  }
+  
+  
+  /**
+   * Return the contents of the current entry as a buffer.  A stored
+   * entry is not copied: the buffer is a section of the archive, mapped
+   * from the file or sliced from the archive's buffer.  A deflated
+   * entry is inflated into memory.
+   * 
+   * @return the contents of the entry
+   * @throws IOException if the entry cannot be read, or is encrypted,
+   *         too large or compressed with an unsupported method
+   */
+  public ByteBuffer getBuffer() throws IOException
+  {
+    final ByteBuffer raw = getData();
+    if (method == STORED)
+    {
+      return raw;
+    }
+    else if (size > Integer.MAX_VALUE)
+    {
+      throw new ZipException("Entry is too large: " + name);
+    }
+    
+    byte[] in = new byte[raw.remaining()];
+    raw.get(in);
+    return ByteBuffer.wrap(inflate(in));
+  }
+  
+  
+  /**
+   * Return a stream for reading the current entry.  A deflated entry is
+   * inflated as it is read, so the entry is never held in memory.
+   * 
+   * @return the input stream
+   * @throws IOException if the entry cannot be read, or is encrypted
+   *         or compressed with an unsupported method
+   */
+  public InputStream getInputStream() throws IOException
+  {
+    final InputStream in = new BufferInputStream(getData());
+    if (method == STORED)
+    {
+      return in;
+    }
+    
+    return new InflaterInputStream(in, new Inflater(true), 8192)
+    {
+      /**
+       * Close the stream, and free the inflater's memory.
+       * 
+       * @throws IOException if the stream cannot be closed
+       */
+      @Override
+      public void close() throws IOException
+      {
+        super.close();
+        inf.end();
+      }
+    };
+  }
+  
+  
+  /**
+   * Return the data of the current entry, as stored in the archive.
+   * Sections up to MAX_READ bytes long are read from a file, and larger
+   * ones are mapped.
+   * 
+   * @return the stored (possibly compressed) data
+   * @throws IOException if the entry cannot be read, or is encrypted
+   *         or compressed with an unsupported method
+   */
+  private ByteBuffer getData() throws IOException
+  {
+    if ((flags & 0x01) != 0)
+    {
+      throw new ZipException("Entry is encrypted: " + name);
+    }
+    else if ((size < 0L) || (compressedSize < 0L))
+    {
+      throw new ZipException("Entry is too large: " + name);
+    }
+    else if ((method != STORED) && (method != DEFLATED))
+    {
+      throw new ZipException("Unsupported compression method " + method +
+                             ": " + name);
+    }
+    
+    final long len = (method == STORED) ? size : compressedSize;
+    if (data != null)
+    {
+      final ByteBuffer loc = map(null, offset, LOC_SIZE);
+      return map(null, getDataPosition(loc), len);
+    }
+    
+    FileInputStream fis = null;
+    try
+    {
+      fis = new FileInputStream(zipFile);
+      final FileChannel fc = fis.getChannel();
+      final long dataPos = getDataPosition(readFully(fc, offset, LOC_SIZE));
+      if (len <= MAX_READ)
+      {
+        return readFully(fc, dataPos, (int) len);
+      }
+      
+      return map(fc, dataPos, len);
+    }
+    finally
+    {
+      if (fis != null)
+      {
+        try
+        {
+          fis.close();
+        }
+        catch (IOException e)
+        {
+          e.printStackTrace();
+        }
+      }
+    }
+  }
+  
+  
+  /**
+   * Return the position of the current entry's data.  The name and
+   * extra fields of the local header can differ in length from the
+   * central header, so the local header is read.
+   * 
+   * @param loc the fixed fields of the local header
+   * @return the position of the data in the archive
+   * @throws ZipException if the local header is invalid
+   */
+  private long getDataPosition(final ByteBuffer loc) throws ZipException
+  {
+    if (loc.getInt(0) != LOC_SIG)
+    {
+      throw new ZipException("Invalid local header: " + name);
+    }
+    
+    return offset + LOC_SIZE + getShort(loc, 26) + getShort(loc, 28);
+  }
+  
+  
+  /**
+   * Inflate the data of the current entry.
+   * 
+   * @param in the compressed data
+   * @return the uncompressed data
+   * @throws ZipException if the data is invalid
+   */
+  private byte[] inflate(final byte[] in) throws ZipException
+  {
+    final byte[] out = new byte[(int) size];
+    final Inflater inf = new Inflater(true);
+    try
+    {
+      inf.setInput(in);
+      int len = 0;
+      while ((len < out.length) && !inf.finished())
+      {
+        final int n = inf.inflate(out, len, out.length - len);
+        if ((n == 0) && (inf.needsInput() || inf.needsDictionary()))
+        {
+          break;
+        }
+        
+        len += n;
+      }
+      
+      if (len != out.length)
+      {
+        throw new ZipException("Invalid compressed data: " + name);
+      }
+    }
+    catch (DataFormatException e)
+    {
+      throw new ZipException("Invalid compressed data: " + name);
+    }
+    finally
+    {
+      inf.end();
+    }
+    
+    return out;
+  }
+  
+  
+  /**
+   * Read a section of the file into a little-endian buffer.
+   * 
+   * @param fc the file channel
+   * @param pos the start of the section
+   * @param len the length of the section
+   * @return the buffer, holding the section
+   * @throws IOException if the file ends before the section does
+   */
+  private static ByteBuffer readFully(final FileChannel fc, final long pos,
+                                      final int len) throws IOException
+  {
+    ByteBuffer buf = ByteBuffer.allocate(len).order(ByteOrder.LITTLE_ENDIAN);
+    while (buf.hasRemaining())
+    {
+      if (fc.read(buf, pos + buf.position()) < 0)
+      {
+        throw new ZipException("Unexpected end of file");
+      }
+    }
+    
+    buf.flip();
+    return buf;
+  }
+  
+  
+  /**
+   * Read the fields of the header at a position into the current entry.
+   * 
+   * @param pos the position of the header
+   */
+  private void readHeader(final int pos)
+  {
+    headerPos = pos;
+    // Read the fixed fields
+    flags = getShort(cen, pos + 8);
+    method = getShort(cen, pos + 10);
+    final int dostime = cen.getInt(pos + 12);
+    crc = getInt(cen, pos + 16);
+    compressedSize = getInt(cen, pos + 20);
+    size = getInt(cen, pos + 24);
+    offset = getInt(cen, pos + 42);
+    
+    // Decode the name
+    final int nameLen = getShort(cen, pos + 28);
+    if (nameLen > nameBytes.length)
+    {
+      nameBytes = new byte[Math.max(nameLen, nameBytes.length * 2)];
+    }
+    
+    cen.position(pos + CEN_SIZE);
+    cen.get(nameBytes, 0, nameLen);
+    name = new String(nameBytes, 0, nameLen, UTF8);
+    
+    // Read the extra fields, which can hold the Zip64 values and
+    // a more precise time
+    time = Long.MIN_VALUE;
+    readExtra(pos + CEN_SIZE + nameLen, getShort(cen, pos + 30));
+    if (time == Long.MIN_VALUE)
+    {
+      time = dosToJavaTime(dostime);
+    }
+    
+    offset += base;
+  }
+  
+  
+  /**
+   * Read the extra fields of the current entry.
+   * 
+   * @param start the position of the extra fields
+   * @param len the length of the extra fields
+   */
+  private void readExtra(final int start, final int len)
+  {
+    int pos = start;
+    final int end = start + len;
+    while ((pos + 4) <= end)
+    {
+      final int tag = getShort(cen, pos);
+      final int dataLen = getShort(cen, pos + 2);
+      pos += 4;
+      if ((pos + dataLen) > end)
+      {
+        break;
+      }
+      
+      if (tag == EXTID_ZIP64)
+      {
+        // The 64-bit values are only present for the fields
+        // set to the magic value, in this order
+        int off = pos;
+        if ((size == ZIP64_MAGIC) && ((off + 8) <= (pos + dataLen)))
+        {
+          size = cen.getLong(off);
+          off += 8;
+        }
+        
+        if ((compressedSize == ZIP64_MAGIC) && ((off + 8) <= (pos + dataLen)))
+        {
+          compressedSize = cen.getLong(off);
+          off += 8;
+        }
+        
+        if ((offset == ZIP64_MAGIC) && ((off + 8) <= (pos + dataLen)))
+        {
+          offset = cen.getLong(off);
+        }
+      }
+      else if (tag == EXTID_EXTT)
+      {
+        // The modification time (seconds since 1970) is first, if the
+        // flag says it is present
+        if ((dataLen >= 5) && ((cen.get(pos) & 0x01) != 0))
+        {
+          time = cen.getInt(pos + 1) * 1000L;
+        }
+      }
+      else if (tag == EXTID_NTFS)
+      {
+        readNtfsTime(pos + 4, pos + dataLen);
+      }
+      
+      pos += dataLen;
+    }
+  }
+  
+  
+  /**
+   * Read the modification time from the attributes of an NTFS
+   * extra field.
+   * 
+   * @param start the position of the first attribute
+   * @param end the end of the extra field
+   */
+  private void readNtfsTime(final int start, final int end)
+  {
+    int pos = start;
+    while ((pos + 4) <= end)
+    {
+      final int tag = getShort(cen, pos);
+      final int attrLen = getShort(cen, pos + 2);
+      pos += 4;
+      if ((pos + attrLen) > end)
+      {
+        break;
+      }
+      
+      if ((tag == 0x0001) && (attrLen == 24))
+      {
+        // The times are in 100ns intervals since 1601
+        time = (cen.getLong(pos) - WINDOWS_EPOCH_OFFSET) / 10000L;
+        break;
+      }
+      
+      pos += attrLen;
+    }
+  }
+  
+  
+  /**
+   * Convert a DOS date and time to a Java time, in the local time zone.
+   * 
+   * @param dostime the DOS date (high 16 bits) and time (low 16 bits)
+   * @return the Java time
+   */
+  private long dosToJavaTime(final int dostime)
+  {
+    if ((dostime == lastDosTime) && (lastJavaTime != Long.MIN_VALUE))
+    {
+      return lastJavaTime;
+    }
+    else if (cal == null)
+    {
+      cal = Calendar.getInstance();
+    }
+    
+    cal.clear();
+    cal.set(((dostime >> 25) & 0x7f) + 1980,
+            ((dostime >> 21) & 0x0f) - 1,
+            (dostime >> 16) & 0x1f,
+            (dostime >> 11) & 0x1f,
+            (dostime >> 5) & 0x3f,
+            (dostime << 1) & 0x3e);
+    lastDosTime = dostime;
+    lastJavaTime = cal.getTimeInMillis();
+    return lastJavaTime;
+  }
+  
+  
+  /**
+   * Return an unsigned 2-byte value from the buffer.
+   * 
+   * @param buf the buffer
+   * @param pos the position of the value
+   * @return the value
+   */
+  private static int getShort(final ByteBuffer buf, final int pos)
+  {
+    return (buf.getShort(pos) & 0xFFFF);
+  }
+  
+  
+  /**
+   * Return an unsigned 4-byte value from the buffer.
+   * 
+   * @param buf the buffer
+   * @param pos the position of the value
+   * @return the value
+   */
+  private static long getInt(final ByteBuffer buf, final int pos)
+  {
+    return (buf.getInt(pos) & 0xFFFFFFFFL);
+  }
+  
+  
+  /**
+   * Return the name of the current entry.
+   * 
+   * @return the entry name
+   */
+  public String getName()
+  {
+    return name;
+  }
+  
+  
+  /**
+   * Return whether the current entry is a directory.
+   * 
+   * @return whether the entry is a directory
+   */
+  public boolean isDirectory()
+  {
+    return name.endsWith("/");
+  }
+  
+  
+  /**
+   * Return the CRC of the current entry.
+   * 
+   * @return the CRC value
+   */
+  public long getCrc()
+  {
+    return crc;
+  }
+  
+  
+  /**
+   * Return the uncompressed size of the current entry.
+   * 
+   * @return the size, in bytes
+   */
+  public long getSize()
+  {
+    return size;
+  }
+  
+  
+  /**
+   * Return the compressed size of the current entry.
+   * 
+   * @return the compressed size, in bytes
+   */
+  public long getCompressedSize()
+  {
+    return compressedSize;
+  }
+  
+  
+  /**
+   * Return whether the current entry is stored without compression.
+   * 
+   * @return whether the entry is stored
+   */
+  public boolean isStored()
+  {
+    return (method == STORED);
+  }
+  
+  
+  /**
+   * Return the modification time of the current entry.
+   * 
+   * @return the time, in milliseconds since 1970
+   */
+  public long getTime()
+  {
+    return time;
+  }
+  
+  
+  /**
+   * Return the position of the current entry's header in the central
+   * directory, for moveTo().
+   * 
+   * @return the position of the header
+   */
+  public int getHeaderPosition()
+  {
+    return headerPos;
+  }
+  
+  
+  /**
+   * Return the offset of the current entry's local header in the file.
+   * 
+   * @return the offset of the local header
+   */
+  public long getOffset()
+  {
+    return offset;
+  }
+}